@@ -0,0 +1,52 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+public class AdaptiveTimeout {
+
+  private static final int RECOMPUTE_EVERY = 20;
+
+  private final long minNanos;
+  private final long maxNanos;
+  private final double multiplier;
+  private final long[] samples;
+  private int position;
+  private int count;
+  private int sinceRecompute;
+
+  private volatile long timeoutNanos;
+
+  public AdaptiveTimeout(StatsResilienceProperties properties) {
+    this.minNanos = properties.getMinTimeout().toNanos();
+    this.maxNanos = properties.getMaxTimeout().toNanos();
+    this.multiplier = properties.getTimeoutMultiplier();
+    this.samples = new long[properties.getLatencySamples()];
+    // Пока нет наблюдений, используем верхнюю границу
+    this.timeoutNanos = maxNanos;
+  }
+
+  public Duration current() {
+    return Duration.ofNanos(timeoutNanos);
+  }
+
+  public synchronized void record(Duration latency) {
+    samples[position] = latency.toNanos();
+    position = (position + 1) % samples.length;
+    if (count < samples.length) {
+      count++;
+    }
+    if (++sinceRecompute >= RECOMPUTE_EVERY || count < RECOMPUTE_EVERY) {
+      sinceRecompute = 0;
+      recompute();
+    }
+  }
+
+  private void recompute() {
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    long p99 = sorted[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+    long candidate = (long) (p99 * multiplier);
+    timeoutNanos = Math.max(minNanos, Math.min(maxNanos, candidate));
+  }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int windowSize;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int halfOpenCalls;
+  private final LongSupplier clock;
+
+  // Кольцевой буфер исходов: бит 0 - ошибка, бит 1 - медленный вызов
+  private final byte[] outcomes;
+  private int position;
+  private int recorded;
+  private int failures;
+  private int slowCalls;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private int halfOpenInFlight;
+  private int halfOpenSucceeded;
+
+  public CircuitBreaker(StatsResilienceProperties properties) {
+    this(properties, System::nanoTime);
+  }
+
+  CircuitBreaker(StatsResilienceProperties properties, LongSupplier clock) {
+    this.windowSize = properties.getWindowSize();
+    this.minimumCalls = properties.getMinimumCalls();
+    this.failureRateThreshold = properties.getFailureRateThreshold();
+    this.slowCallRateThreshold = properties.getSlowCallRateThreshold();
+    this.slowCallNanos = properties.getSlowCallDuration().toNanos();
+    this.openNanos = properties.getOpenDuration().toNanos();
+    this.halfOpenCalls = properties.getHalfOpenCalls();
+    this.clock = clock;
+    this.outcomes = new byte[windowSize];
+  }
+
+  public synchronized boolean tryAcquirePermission() {
+    if (state == State.OPEN) {
+      if (clock.getAsLong() - openedAt < openNanos) {
+        return false;
+      }
+      transitionTo(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (halfOpenInFlight >= halfOpenCalls) {
+        return false;
+      }
+      halfOpenInFlight++;
+    }
+    return true;
+  }
+
+  public synchronized void releasePermission() {
+    if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+      halfOpenInFlight--;
+    }
+  }
+
+  public synchronized void onSuccess(Duration elapsed) {
+    record(false, elapsed);
+  }
+
+  public synchronized void onError(Duration elapsed) {
+    record(true, elapsed);
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  private void record(boolean failed, Duration elapsed) {
+    boolean slow = elapsed.toNanos() >= slowCallNanos;
+
+    if (state == State.HALF_OPEN) {
+      releasePermission();
+      if (failed || slow) {
+        transitionTo(State.OPEN);
+      } else if (++halfOpenSucceeded >= halfOpenCalls) {
+        transitionTo(State.CLOSED);
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      return;
+    }
+
+    if (recorded == windowSize) {
+      byte evicted = outcomes[position];
+      failures -= evicted & 1;
+      slowCalls -= (evicted >> 1) & 1;
+    } else {
+      recorded++;
+    }
+    outcomes[position] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+    failures += failed ? 1 : 0;
+    slowCalls += slow ? 1 : 0;
+    position = (position + 1) % windowSize;
+
+    if (recorded >= minimumCalls &&
+            (failures * 100 >= failureRateThreshold * recorded ||
+                    slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  private void transitionTo(State newState) {
+    state = newState;
+    halfOpenInFlight = 0;
+    halfOpenSucceeded = 0;
+    if (newState == State.OPEN) {
+      openedAt = clock.getAsLong();
+    }
+    if (newState != State.HALF_OPEN) {
+      position = 0;
+      recorded = 0;
+      failures = 0;
+      slowCalls = 0;
+    }
+  }
+}
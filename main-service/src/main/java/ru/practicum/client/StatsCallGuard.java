@@ -0,0 +1,144 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class StatsCallGuard {
+
+  private final CircuitBreaker circuitBreaker;
+  private final AdaptiveTimeout adaptiveTimeout;
+  private final Semaphore bulkhead;
+  private final Semaphore hitBulkhead;
+  private final Duration hitTimeout;
+
+  private final Counter successCalls;
+  private final Counter failedCalls;
+  private final Counter timedOutCalls;
+  private final Counter shortCircuitedCalls;
+  private final Counter bulkheadRejectedCalls;
+
+  private final Counter savedHits;
+  private final Counter rejectedHits;
+  private final Counter timedOutHits;
+  private final Counter failedHits;
+
+  public StatsCallGuard(StatsResilienceProperties properties, MeterRegistry meterRegistry) {
+    this.circuitBreaker = new CircuitBreaker(properties);
+    this.adaptiveTimeout = new AdaptiveTimeout(properties);
+    this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls());
+    this.hitBulkhead = new Semaphore(properties.getMaxConcurrentHits());
+    this.hitTimeout = properties.getHitTimeout();
+
+    this.successCalls = callCounter(meterRegistry, "success");
+    this.failedCalls = callCounter(meterRegistry, "failure");
+    this.timedOutCalls = callCounter(meterRegistry, "timeout");
+    this.shortCircuitedCalls = callCounter(meterRegistry, "short_circuited");
+    this.bulkheadRejectedCalls = callCounter(meterRegistry, "bulkhead_rejected");
+
+    this.savedHits = hitCounter(meterRegistry, "saved");
+    this.rejectedHits = hitCounter(meterRegistry, "bulkhead_rejected");
+    this.timedOutHits = hitCounter(meterRegistry, "timeout");
+    this.failedHits = hitCounter(meterRegistry, "failure");
+
+    Gauge.builder("stats.client.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+            .description("0 - closed, 1 - open, 2 - half-open")
+            .register(meterRegistry);
+    Gauge.builder("stats.client.timeout", adaptiveTimeout, t -> t.current().toMillis())
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+    Gauge.builder("stats.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+            .register(meterRegistry);
+    Gauge.builder("stats.client.hits.bulkhead.available", hitBulkhead, Semaphore::availablePermits)
+            .register(meterRegistry);
+  }
+
+  public <T> Mono<T> execute(Supplier<Mono<T>> call, Mono<T> fallback) {
+    return Mono.defer(() -> {
+      if (!circuitBreaker.tryAcquirePermission()) {
+        shortCircuitedCalls.increment();
+        return fallback;
+      }
+      if (!bulkhead.tryAcquire()) {
+        circuitBreaker.releasePermission();
+        bulkheadRejectedCalls.increment();
+        return fallback;
+      }
+
+      long startNanos = System.nanoTime();
+      // defer: исключение при сборке запроса становится ошибкой и тоже освобождает разрешения
+      return Mono.defer(call)
+              .timeout(adaptiveTimeout.current())
+              .doOnSuccess(result -> {
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+                adaptiveTimeout.record(elapsed);
+                circuitBreaker.onSuccess(elapsed);
+                successCalls.increment();
+              })
+              .doOnError(error -> {
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+                adaptiveTimeout.record(elapsed);
+                circuitBreaker.onError(elapsed);
+                if (error instanceof TimeoutException) {
+                  timedOutCalls.increment();
+                } else {
+                  failedCalls.increment();
+                }
+                log.warn("Stats call failed after {} ms: {}", elapsed.toMillis(), error.toString());
+              })
+              .doOnCancel(circuitBreaker::releasePermission)
+              .doFinally(signal -> bulkhead.release())
+              .onErrorResume(error -> fallback);
+    });
+  }
+
+  /**
+   * Запись хита. Хиты идут мимо автомата и адаптивного таймаута чтений через свой bulkhead;
+   * потерянный хит завершается ошибкой и считается в stats.client.hits по причине потери.
+   */
+  public Mono<Void> executeHit(Supplier<Mono<Void>> call) {
+    return Mono.defer(() -> {
+      if (!hitBulkhead.tryAcquire()) {
+        rejectedHits.increment();
+        return Mono.error(new RejectedExecutionException("Hit bulkhead is full"));
+      }
+      return Mono.defer(call)
+              .timeout(hitTimeout)
+              .doOnSuccess(result -> savedHits.increment())
+              .doOnError(error -> (error instanceof TimeoutException ? timedOutHits : failedHits).increment())
+              .doFinally(signal -> hitBulkhead.release());
+    });
+  }
+
+  public CircuitBreaker.State getCircuitState() {
+    return circuitBreaker.getState();
+  }
+
+  public Duration getCurrentTimeout() {
+    return adaptiveTimeout.current();
+  }
+
+  private static Counter hitCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("stats.client.hits")
+            .description("Hits sent to stats-server by outcome; everything except saved is lost")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+  }
+
+  private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("stats.client.calls")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+  }
+}
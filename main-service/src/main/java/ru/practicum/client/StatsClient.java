@@ -1,71 +1,105 @@
 package ru.practicum.client;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import lombok.extern.slf4j.Slf4j;
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.binary.StatsBinaryCodec;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @Slf4j
 public class StatsClient {
 
   private final WebClient webClient;
+  private final StatsCallGuard callGuard;
+  private final boolean binaryFormat;
   private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  private static final MediaType BINARY = MediaType.parseMediaType(StatsBinaryCodec.MEDIA_TYPE);
 
-  public StatsClient(@Value("${stats-service.url}") String statsServiceUrl) {
+  public StatsClient(@Value("${stats-service.url}") String statsServiceUrl,
+                     @Value("${stats-service.wire-format:json}") String wireFormat,
+                     StatsCallGuard callGuard) {
     this.webClient = WebClient.builder()
             .baseUrl(statsServiceUrl)
             .build();
+    this.callGuard = callGuard;
+    this.binaryFormat = "binary".equalsIgnoreCase(wireFormat);
   }
 
-  public void saveHit(String app, String uri, String ip, LocalDateTime timestamp) {
-    try {
+  public void saveHit(String app, String uri, String ip, LocalDateTime timestamp, String userAgent) {
+    EndPointHitDto hitDto = new EndPointHitDto(app, uri, ip, timestamp);
+    hitDto.setUserAgent(userAgent);
 
-      EndPointHitDto hitDto = new EndPointHitDto(app, uri, ip, timestamp);
-
-      webClient.post()
-              .uri("/hit")
-              .bodyValue(hitDto)
-              .retrieve()
-              .bodyToMono(Void.class)
-              .subscribe(
-                      result -> log.debug("Hit saved successfully for uri: {}", uri),
-                      error -> log.error("Error saving hit for uri: {}", uri, error)
-              );
-    } catch (Exception e) {
-      log.error("Error creating hit for uri: {}", uri, e);
-    }
+    // Ошибка сборки запроса тоже проходит через guard и считается потерянным хитом
+    callGuard.executeHit(() -> {
+              WebClient.RequestBodySpec request = webClient.post().uri("/hit");
+              WebClient.RequestHeadersSpec<?> withBody = binaryFormat ?
+                      request.contentType(BINARY).bodyValue(StatsBinaryCodec.encodeHits(List.of(hitDto), false)) :
+                      request.bodyValue(hitDto);
+              return withBody.retrieve().bodyToMono(Void.class);
+            })
+            .subscribe(
+                    result -> log.debug("Hit saved successfully for uri: {}", uri),
+                    error -> log.warn("Hit for uri {} dropped: {}", uri, error.toString())
+            );
   }
 
   public Mono<List<ViewStatsDto>> getStats(LocalDateTime start, LocalDateTime end,
                                            List<String> uris, Boolean unique) {
-    return webClient.get()
-            .uri(uriBuilder -> {
-              var builder = uriBuilder.path("/stats")
-                      .queryParam("start", start.format(FORMATTER))
-                      .queryParam("end", end.format(FORMATTER));
+    return callGuard.execute(() -> {
+      WebClient.ResponseSpec response = webClient.get()
+              .uri(uriBuilder -> {
+                var builder = uriBuilder.path("/stats")
+                        .queryParam("start", start.format(FORMATTER))
+                        .queryParam("end", end.format(FORMATTER));
 
-              if (uris != null && !uris.isEmpty()) {
-                builder.queryParam("uris", String.join(",", uris));
-              }
+                if (uris != null && !uris.isEmpty()) {
+                  builder.queryParam("uris", String.join(",", uris));
+                }
 
-              if (unique != null) {
-                builder.queryParam("unique", unique);
-              }
+                if (unique != null) {
+                  builder.queryParam("unique", unique);
+                }
 
-              return builder.build();
-            })
+                return builder.build();
+              })
+              .accept(binaryFormat ? BINARY : MediaType.APPLICATION_JSON)
+              .retrieve();
+
+      return binaryFormat ?
+              response.bodyToMono(byte[].class).map(StatsBinaryCodec::decodeViewStats) :
+              response.bodyToFlux(ViewStatsDto.class).collectList();
+    }, Mono.just(List.of()));
+  }
+
+  /**
+   * Просмотры uri вида uriPrefix + id одним POST /stats/query, без ограничения длины URL.
+   */
+  public Mono<Map<Long, Long>> getViews(LocalDateTime start, LocalDateTime end,
+                                        String uriPrefix, List<Long> ids, boolean unique) {
+    StatsQueryDto query = StatsQueryDto.builder()
+            .start(start)
+            .end(end)
+            .uriPrefix(uriPrefix)
+            .ids(ids)
+            .unique(unique)
+            .build();
+    return callGuard.execute(() -> webClient.post()
+            .uri("/stats/query")
+            .bodyValue(query)
             .retrieve()
-            .bodyToFlux(ViewStatsDto.class)
-            .collectList()
-            .doOnError(error -> log.error("Error getting stats", error))
-            .onErrorReturn(List.of());
+            .bodyToMono(StatsQueryResultDto.class)
+            .map(StatsQueryResultDto::getById), Mono.just(Map.of()));
   }
 }
@@ -0,0 +1,35 @@
+package ru.practicum.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats-service.resilience")
+public class StatsResilienceProperties {
+
+  // Circuit breaker: скользящее окно последних вызовов
+  private int windowSize = 50;
+  private int minimumCalls = 10;
+  private int failureRateThreshold = 50;
+  private int slowCallRateThreshold = 80;
+  private Duration slowCallDuration = Duration.ofMillis(500);
+  private Duration openDuration = Duration.ofSeconds(10);
+  private int halfOpenCalls = 3;
+
+  // Bulkhead: сколько одновременных вызовов stats-server допускается
+  private int maxConcurrentCalls = 16;
+
+  // Запись хитов: отдельный bulkhead и постоянный таймаут, автомат и адаптивный таймаут чтений не затрагиваются
+  private int maxConcurrentHits = 64;
+  private Duration hitTimeout = Duration.ofSeconds(2);
+
+  // Адаптивный таймаут: p99 наблюдаемой задержки * multiplier в пределах [min, max]
+  private Duration minTimeout = Duration.ofMillis(100);
+  private Duration maxTimeout = Duration.ofSeconds(2);
+  private double timeoutMultiplier = 2.0;
+  private int latencySamples = 200;
+}
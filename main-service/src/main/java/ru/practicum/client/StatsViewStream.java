@@ -0,0 +1,102 @@
+package ru.practicum.client;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Подписка на поток приращений просмотров stats-server (GET /stats/stream).
+ * При каждом подключении сервер присылает полный снимок, поэтому после обрыва
+ * достаточно переподключиться; пока соединения нет, EventService читает статистику по запросу.
+ */
+@Component
+@Slf4j
+public class StatsViewStream {
+
+  private static final String EVENTS_URI_PREFIX = "/events/";
+  private static final String SNAPSHOT_EVENT = "snapshot";
+  private static final String DELTA_EVENT = "delta";
+  private static final ParameterizedTypeReference<ServerSentEvent<List<ViewStatsDto>>> EVENT_TYPE =
+          new ParameterizedTypeReference<>() {
+          };
+
+  private final WebClient webClient;
+  private final ViewCountTable viewCountTable;
+  private final boolean enabled;
+  private volatile Disposable subscription;
+
+  public StatsViewStream(@Value("${stats-service.url}") String statsServiceUrl,
+                         @Value("${stats-service.push.enabled:true}") boolean enabled,
+                         ViewCountTable viewCountTable) {
+    this.webClient = WebClient.builder()
+            .baseUrl(statsServiceUrl)
+            .build();
+    this.enabled = enabled;
+    this.viewCountTable = viewCountTable;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      log.info("View stream is disabled, views are pulled from stats-server on demand");
+      return;
+    }
+    subscription = Flux.defer(this::connect)
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                    .maxBackoff(Duration.ofSeconds(30))
+                    // После успешно полученных событий задержка начинается заново
+                    .transientErrors(true)
+                    .doBeforeRetry(signal -> log.warn("View stream lost, reconnecting: {}",
+                            signal.failure().toString())))
+            .subscribe();
+  }
+
+  @PreDestroy
+  public void stop() {
+    Disposable current = subscription;
+    if (current != null) {
+      current.dispose();
+    }
+    viewCountTable.markUnsynced();
+  }
+
+  private Flux<ServerSentEvent<List<ViewStatsDto>>> connect() {
+    return webClient.get()
+            .uri(uriBuilder -> uriBuilder.path("/stats/stream")
+                    .queryParam("uriPrefix", EVENTS_URI_PREFIX)
+                    .build())
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .retrieve()
+            .bodyToFlux(EVENT_TYPE)
+            .doOnNext(this::apply)
+            // Нормальное завершение потока тоже означает потерю синхронизации
+            .concatWith(Flux.error(new IllegalStateException("View stream closed by stats-server")))
+            .doOnError(error -> viewCountTable.markUnsynced());
+  }
+
+  private void apply(ServerSentEvent<List<ViewStatsDto>> event) {
+    if (event.data() == null) {
+      return;
+    }
+    if (SNAPSHOT_EVENT.equals(event.event())) {
+      viewCountTable.applySnapshot(event.data());
+      log.info("View stream synchronized: {} uris", event.data().size());
+    } else if (DELTA_EVENT.equals(event.event())) {
+      viewCountTable.applyDeltas(event.data());
+    }
+  }
+}
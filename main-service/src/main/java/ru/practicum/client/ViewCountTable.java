@@ -0,0 +1,51 @@
+package ru.practicum.client;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Локальная таблица уникальных просмотров по uri, которую поддерживает StatsViewStream.
+ * Пока таблица не синхронизирована со снимком stats-server, читать её нельзя.
+ */
+@Component
+public class ViewCountTable {
+
+  private volatile ConcurrentMap<String, Long> counts = new ConcurrentHashMap<>();
+  private volatile boolean synced;
+
+  public void applySnapshot(List<ViewStatsDto> snapshot) {
+    ConcurrentMap<String, Long> fresh = new ConcurrentHashMap<>(Math.max(16, snapshot.size() * 2));
+    for (ViewStatsDto stats : snapshot) {
+      fresh.merge(stats.getUri(), stats.getHits(), Long::sum);
+    }
+    counts = fresh;
+    synced = true;
+  }
+
+  public void applyDeltas(List<ViewStatsDto> deltas) {
+    // Приращения без снимка бессмысленны: дождёмся переподключения
+    if (!synced) {
+      return;
+    }
+    ConcurrentMap<String, Long> current = counts;
+    for (ViewStatsDto delta : deltas) {
+      current.merge(delta.getUri(), delta.getHits(), Long::sum);
+    }
+  }
+
+  public void markUnsynced() {
+    synced = false;
+  }
+
+  public boolean isSynced() {
+    return synced;
+  }
+
+  public long getViews(String uri) {
+    return counts.getOrDefault(uri, 0L);
+  }
+}
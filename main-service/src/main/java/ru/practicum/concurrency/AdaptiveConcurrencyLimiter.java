@@ -0,0 +1,104 @@
+package ru.practicum.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный лимит одновременных запросов по градиенту задержки (Gradient2).
+ *
+ * <p>Обычная задержка - среднее за long-window замеров, текущая - за short-window. Пока текущая
+ * не превышает обычную больше чем в rtt-tolerance раз, лимит растёт на sqrt(limit); когда
+ * начинает расти очередь и задержка, лимит уменьшается пропорционально их отношению.
+ * Запросы сверх доли лимита для своего приоритета сразу отклоняются, а не ждут в очереди.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ewm.concurrency-limit", name = "enabled", havingValue = "true")
+public class AdaptiveConcurrencyLimiter {
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final ConcurrencyLimitProperties properties;
+  private final Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+  private volatile int limit;
+
+  // Состояние оценки, защищено this
+  private double estimatedLimit;
+  private double shortRtt;
+  private double longRtt;
+  private long samples;
+
+  public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.estimatedLimit = properties.getInitialLimit();
+    this.limit = properties.getInitialLimit();
+    for (RequestPriority priority : RequestPriority.values()) {
+      rejected.put(priority, Counter.builder("ewm.concurrency.rejected")
+              .description("Requests shed by the adaptive concurrency limiter")
+              .tag("priority", priority.name())
+              .register(meterRegistry));
+    }
+    Gauge.builder("ewm.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+            .description("Current adaptive concurrency limit")
+            .register(meterRegistry);
+    Gauge.builder("ewm.concurrency.inflight", inFlight, AtomicInteger::get)
+            .description("Requests currently being processed")
+            .register(meterRegistry);
+  }
+
+  public boolean tryAcquire(RequestPriority priority) {
+    int allowed = Math.max(1, (int) (limit * properties.getShares().getOrDefault(priority, 1.0)));
+    while (true) {
+      int current = inFlight.get();
+      if (current >= allowed) {
+        rejected.get(priority).increment();
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  public void release(long rttNanos) {
+    int current = inFlight.getAndDecrement();
+    update(Math.max(1, rttNanos), current);
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  private synchronized void update(long rtt, int inFlightOnCompletion) {
+    samples++;
+    shortRtt = average(shortRtt, rtt, properties.getShortWindow());
+    longRtt = average(longRtt, rtt, properties.getLongWindow());
+    // После всплеска обычная задержка долго остаётся завышенной; подтягиваем её к текущей
+    if (longRtt > 2 * shortRtt) {
+      longRtt *= 0.95;
+    }
+    // При малой загрузке задержка ничего не говорит о пределе: лимит не трогаем
+    if (inFlightOnCompletion < estimatedLimit / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRtt / shortRtt));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    newLimit = estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+    estimatedLimit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+    limit = (int) estimatedLimit;
+  }
+
+  // Скользящее среднее; пока замеров меньше окна - обычное среднее
+  private double average(double current, long sample, int window) {
+    return current + (sample - current) / Math.min(samples, window);
+  }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.concurrency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Адаптивное ограничение одновременных запросов (ewm.concurrency-limit.enabled=true).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ewm.concurrency-limit", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+  private final AdaptiveConcurrencyLimiter limiter;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    // После ограничения частоты: запросы сверх частоты не занимают место в лимите
+    registry.addInterceptor(new ConcurrencyLimitInterceptor(limiter))
+            .addPathPatterns("/**")
+            .order(1);
+  }
+}
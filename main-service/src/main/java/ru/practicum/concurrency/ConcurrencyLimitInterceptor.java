@@ -0,0 +1,66 @@
+package ru.practicum.concurrency;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.exception.ServiceUnavailableException;
+
+/**
+ * Пропускает запрос, если для его приоритета есть место в лимите, и замеряет время обработки.
+ * Отказ - 503 через ErrorHandler.
+ *
+ * <p>Асинхронный запрос (например, потоковая выгрузка) проходит preHandle дважды, а afterCompletion
+ * вызывается только после асинхронного диспатча: место занимается на первом проходе и
+ * освобождается один раз, когда ответ дописан.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String STARTED_AT = ConcurrencyLimitInterceptor.class.getName() + ".startedAt";
+
+  private final AdaptiveConcurrencyLimiter limiter;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (request.getDispatcherType() == DispatcherType.ASYNC || request.getAttribute(STARTED_AT) != null) {
+      return true;
+    }
+    RequestPriority priority = priority(request);
+    if (!limiter.tryAcquire(priority)) {
+      throw new ServiceUnavailableException("Server is overloaded, " + priority + " request rejected");
+    }
+    request.setAttribute(STARTED_AT, System.nanoTime());
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                             Object handler) {
+    // Место остаётся занятым до afterCompletion асинхронного диспатча
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                              Exception ex) {
+    if (request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+      request.removeAttribute(STARTED_AT);
+      limiter.release(System.nanoTime() - startedAt);
+    }
+  }
+
+  static RequestPriority priority(HttpServletRequest request) {
+    String path = request.getRequestURI();
+    boolean read = HttpMethod.GET.matches(request.getMethod());
+    if (path.startsWith("/admin") || (path.startsWith("/users") && !read)) {
+      return RequestPriority.CRITICAL;
+    }
+    if (read && "/events".equals(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))) {
+      return RequestPriority.SHEDDABLE;
+    }
+    return RequestPriority.NORMAL;
+  }
+}
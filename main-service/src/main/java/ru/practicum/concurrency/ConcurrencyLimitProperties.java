@@ -0,0 +1,36 @@
+package ru.practicum.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ewm.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+  private boolean enabled;
+
+  private int initialLimit = 20;
+  private int minLimit = 4;
+  private int maxLimit = 200;
+
+  // Во сколько раз задержка может превысить обычную, прежде чем лимит начнёт снижаться
+  private double rttTolerance = 1.5;
+
+  // Вес нового значения лимита при сглаживании
+  private double smoothing = 0.2;
+
+  // Число замеров, за которое усредняются текущая и обычная задержка
+  private int shortWindow = 10;
+  private int longWindow = 600;
+
+  // Доля лимита, доступная запросам приоритета; остальное - запас для более важных
+  private Map<RequestPriority, Double> shares = new EnumMap<>(Map.of(
+          RequestPriority.CRITICAL, 1.0,
+          RequestPriority.NORMAL, 0.9,
+          RequestPriority.SHEDDABLE, 0.6));
+}
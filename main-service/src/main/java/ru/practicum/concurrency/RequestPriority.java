@@ -0,0 +1,12 @@
+package ru.practicum.concurrency;
+
+/**
+ * Приоритет запроса при перегрузке: менее важные запросы отбрасываются раньше.
+ */
+public enum RequestPriority {
+  // Администрирование и изменения от пользователей
+  CRITICAL,
+  NORMAL,
+  // Анонимный поиск событий
+  SHEDDABLE
+}
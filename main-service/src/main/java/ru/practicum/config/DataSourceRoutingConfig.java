@@ -0,0 +1,83 @@
+package ru.practicum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Чтение из реплик для транзакций readOnly (ewm.datasource.routing.enabled=true).
+ *
+ * <p>LazyConnectionDataSourceProxy берёт физическое соединение только на первом запросе,
+ * когда Hibernate уже пометил соединение как read-only, и в этом случае обращается
+ * к ReplicaRoutingDataSource. Все остальные транзакции идут в primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ewm.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+    HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+    dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+    return dataSource;
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                           DataSourceProperties dataSourceProperties,
+                                                           DataSourceRoutingProperties routingProperties,
+                                                           MeterRegistry meterRegistry) {
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    int index = 1;
+    for (DataSourceRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+      String name = replica.getName() != null ? replica.getName() : "replica-" + index;
+      replicas.put(name, replicaPool(name, replica, dataSourceProperties, routingProperties, meterRegistry));
+      index++;
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, replicas, routingProperties, meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+    dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+    return dataSource;
+  }
+
+  private static HikariDataSource replicaPool(String name, DataSourceRoutingProperties.Replica replica,
+                                              DataSourceProperties dataSourceProperties,
+                                              DataSourceRoutingProperties routingProperties,
+                                              MeterRegistry meterRegistry) {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setPoolName(name);
+    dataSource.setJdbcUrl(replica.getUrl());
+    dataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+    dataSource.setUsername(replica.getUsername() != null ?
+            replica.getUsername() : dataSourceProperties.determineUsername());
+    dataSource.setPassword(replica.getPassword() != null ?
+            replica.getPassword() : dataSourceProperties.determinePassword());
+    dataSource.setMaximumPoolSize(routingProperties.getMaximumPoolSize());
+    dataSource.setConnectionTimeout(routingProperties.getHealthCheckTimeout().toMillis());
+    dataSource.setReadOnly(true);
+    // Недоступная при старте реплика не должна мешать запуску сервиса
+    dataSource.setInitializationFailTimeout(-1);
+    // Пулы реплик не являются бинами, поэтому метрики hikaricp.* регистрируем сами
+    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    return dataSource;
+  }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ewm.datasource.routing")
+public class DataSourceRoutingProperties {
+
+  private boolean enabled;
+
+  // Реплика с отставанием больше maxLag исключается из чтения до следующей проверки
+  private Duration maxLag = Duration.ofSeconds(5);
+  private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+  // Отставание в миллисекундах; на простаивающем primary реплика не считается отстающей
+  private String lagQuery = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+          "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+          "ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END";
+
+  private int maximumPoolSize = 10;
+  private List<Replica> replicas = new ArrayList<>();
+
+  @Getter
+  @Setter
+  public static class Replica {
+    private String name;
+    private String url;
+    // По умолчанию берутся из spring.datasource
+    private String username;
+    private String password;
+  }
+}
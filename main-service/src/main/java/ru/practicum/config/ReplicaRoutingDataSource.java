@@ -0,0 +1,142 @@
+package ru.practicum.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений для транзакций только на чтение: выбирает по кругу здоровую реплику
+ * с допустимым отставанием, а если таких нет - отдаёт primary. Пулы реплик принадлежат
+ * этому источнику и закрываются вместе с ним.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+  static final String PRIMARY = "primary";
+
+  private final List<Replica> replicas;
+  private final DataSourceRoutingProperties properties;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Map<String, Counter> routedReads = new HashMap<>();
+
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicaDataSources,
+                                  DataSourceRoutingProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.replicas = replicaDataSources.entrySet().stream()
+            .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+            .toList();
+
+    Map<Object, Object> targets = new HashMap<>(replicaDataSources);
+    targets.put(PRIMARY, primary);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+
+    routedReads.put(PRIMARY, readCounter(meterRegistry, PRIMARY));
+    for (Replica replica : replicas) {
+      routedReads.put(replica.name, readCounter(meterRegistry, replica.name));
+      Gauge.builder("ewm.datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+              .tag("pool", replica.name)
+              .register(meterRegistry);
+      Gauge.builder("ewm.datasource.replica.lag", replica, r -> r.lagMillis)
+              .tag("pool", replica.name)
+              .baseUnit("milliseconds")
+              .register(meterRegistry);
+    }
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    super.afterPropertiesSet();
+    checkReplicas();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    int size = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (replica.healthy) {
+        routedReads.get(replica.name).increment();
+        return replica.name;
+      }
+    }
+    routedReads.get(PRIMARY).increment();
+    return PRIMARY;
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.datasource.routing.health-check-interval-ms:5000}")
+  public void checkReplicas() {
+    for (Replica replica : replicas) {
+      boolean wasHealthy = replica.healthy;
+      try (Connection connection = replica.dataSource.getConnection()) {
+        int timeoutSeconds = (int) Math.max(1, properties.getHealthCheckTimeout().toSeconds());
+        if (!connection.isValid(timeoutSeconds)) {
+          throw new IllegalStateException("connection is not valid");
+        }
+        replica.lagMillis = queryLag(connection, timeoutSeconds);
+        replica.healthy = replica.lagMillis <= properties.getMaxLag().toMillis();
+      } catch (Exception e) {
+        replica.healthy = false;
+        log.debug("Replica {} health check failed: {}", replica.name, e.getMessage());
+      }
+      if (wasHealthy != replica.healthy) {
+        log.warn("Replica {} is now {} (lag {} ms)", replica.name,
+                replica.healthy ? "used for reads" : "excluded from reads", replica.lagMillis);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+
+  boolean isHealthy(String name) {
+    return replicas.stream().anyMatch(replica -> replica.name.equals(name) && replica.healthy);
+  }
+
+  private long queryLag(Connection connection, int timeoutSeconds) throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.setQueryTimeout(timeoutSeconds);
+      try (ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+        return resultSet.next() ? Math.max(0, resultSet.getLong(1)) : 0;
+      }
+    }
+  }
+
+  private static Counter readCounter(MeterRegistry meterRegistry, String pool) {
+    return Counter.builder("ewm.datasource.reads")
+            .description("Read-only transactions routed to the pool")
+            .tag("pool", pool)
+            .register(meterRegistry);
+  }
+
+  private static final class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean healthy;
+    private volatile long lagMillis;
+
+    private Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+  }
+}
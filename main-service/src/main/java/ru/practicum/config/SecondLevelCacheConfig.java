@@ -0,0 +1,56 @@
+package ru.practicum.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.model.Category;
+import ru.practicum.model.Location;
+import ru.practicum.model.User;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кеш второго уровня Hibernate для справочных сущностей. Регионы ограничены по числу записей
+ * и времени жизни; изменения через EntityManager (save, deleteById) обновляют кеш при коммите.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+  static final List<Class<?>> CACHED_ENTITIES = List.of(Category.class, User.class, Location.class);
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(@Value("${ewm.cache.entity.max-entries:10000}") long maxEntries,
+                                            @Value("${ewm.cache.entity.expire-after-write:10m}") Duration ttl) {
+    CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager();
+    for (Class<?> entity : CACHED_ENTITIES) {
+      // Имя региона по умолчанию - полное имя класса сущности
+      if (cacheManager.getCache(entity.getName()) == null) {
+        cacheManager.createCache(entity.getName(), regionConfiguration(maxEntries, ttl));
+      }
+    }
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+
+  private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxEntries, Duration ttl) {
+    CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setMaximumSize(OptionalLong.of(maxEntries));
+    configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttl.toMillis())));
+    configuration.setStoreByValue(false);
+    return configuration;
+  }
+}
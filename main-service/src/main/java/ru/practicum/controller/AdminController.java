@@ -3,11 +3,20 @@ package ru.practicum.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.dto.bulk.BulkImportResultDto;
 import ru.practicum.dto.category.CategoryDto;
 import ru.practicum.dto.category.NewCategoryDto;
+import ru.practicum.dto.comment.CommentBulkModerationDto;
+import ru.practicum.dto.comment.CommentBulkModerationResultDto;
+import ru.practicum.dto.comment.CommentClaimDto;
 import ru.practicum.dto.comment.CommentDto;
 import ru.practicum.dto.comment.CommentModerationDto;
 import ru.practicum.dto.compilation.CompilationDto;
@@ -15,15 +24,22 @@ import ru.practicum.dto.compilation.NewCompilationDto;
 import ru.practicum.dto.compilation.UpdateCompilationRequest;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.UpdateEventAdminRequest;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
 import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.dto.user.UserDeletionDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.model.enums.CommentState;
 import ru.practicum.model.enums.EventState;
 import ru.practicum.service.*;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -34,11 +50,16 @@ import java.util.List;
 @Validated
 public class AdminController {
 
+  static final String EXPORT_ID_HEADER = "X-Export-Id";
+  static final String MODERATOR_HEADER = "X-Moderator-Id";
+
   private final UserService userService;
   private final CategoryService categoryService;
   private final EventService eventService;
   private final CompilationService compilationService;
   private final CommentService commentService;
+  private final ExportService exportService;
+  private final BulkImportService bulkImportService;
 
   @GetMapping("/users")
   public List<UserDto> getUsers(@RequestParam(required = false) List<Long> ids,
@@ -55,6 +76,13 @@ public class AdminController {
     return userService.createUser(newUserRequest);
   }
 
+  @PostMapping(value = "/users/import",
+          consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public BulkImportResultDto importUsers(InputStream body) {
+    log.info("Importing users");
+    return bulkImportService.importUsers(body);
+  }
+
   @DeleteMapping("/users/{userId}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   public void deleteUser(@PathVariable Long userId) {
@@ -62,6 +90,18 @@ public class AdminController {
     userService.deleteUser(userId);
   }
 
+  @DeleteMapping(value = "/users/{userId}", params = "async=true")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public UserDeletionDto deleteUserAsync(@PathVariable Long userId) {
+    log.info("Queueing user for deletion: {}", userId);
+    return userService.requestUserDeletion(userId);
+  }
+
+  @GetMapping("/users/{userId}/deletion")
+  public UserDeletionDto getUserDeletion(@PathVariable Long userId) {
+    return userService.getUserDeletion(userId);
+  }
+
   @PostMapping("/categories")
   @ResponseStatus(HttpStatus.CREATED)
   public CategoryDto createCategory(@Valid @RequestBody NewCategoryDto newCategoryDto) {
@@ -69,6 +109,13 @@ public class AdminController {
     return categoryService.createCategory(newCategoryDto);
   }
 
+  @PostMapping(value = "/categories/import",
+          consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public BulkImportResultDto importCategories(InputStream body) {
+    log.info("Importing categories");
+    return bulkImportService.importCategories(body);
+  }
+
   @DeleteMapping("/categories/{catId}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   public void deleteCategory(@PathVariable @Positive Long catId) {
@@ -133,12 +180,29 @@ public class AdminController {
     return commentService.getCommentsForModeration(state, from, size);
   }
 
+  @PostMapping("/comments/claim")
+  public CommentClaimDto claimComments(
+          @RequestHeader(MODERATOR_HEADER) @NotBlank @Size(max = 64) String moderatorId,
+          @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size) {
+    log.info("Moderator {} claiming {} comments", moderatorId, size);
+    return commentService.claimComments(moderatorId, size);
+  }
+
   @PatchMapping("/comments/{commentId}")
   public CommentDto moderateComment(
           @PathVariable Long commentId,
-          @Valid @RequestBody CommentModerationDto moderationDto) {
+          @Valid @RequestBody CommentModerationDto moderationDto,
+          @RequestHeader(value = MODERATOR_HEADER, required = false) String moderatorId) {
     log.info("Moderating comment {} with state: {}", commentId, moderationDto.getState());
-    return commentService.moderateComment(commentId, moderationDto);
+    return commentService.moderateComment(commentId, moderationDto, moderatorId);
+  }
+
+  @PatchMapping("/comments")
+  public CommentBulkModerationResultDto moderateComments(
+          @Valid @RequestBody CommentBulkModerationDto moderationDto,
+          @RequestHeader(value = MODERATOR_HEADER, required = false) String moderatorId) {
+    log.info("Moderating {} comments with state: {}", moderationDto.getCommentIds().size(), moderationDto.getState());
+    return commentService.moderateComments(moderationDto, moderatorId);
   }
 
   @DeleteMapping("/comments/{commentId}")
@@ -147,4 +211,42 @@ public class AdminController {
     log.info("Admin deleting comment: {}", commentId);
     commentService.deleteCommentByAdmin(commentId);
   }
+
+  @GetMapping("/export/events")
+  public ResponseEntity<StreamingResponseBody> exportEvents(
+          @RequestParam(defaultValue = "csv") String format,
+          @RequestParam(defaultValue = "false") boolean gzip) {
+    return export(ExportService.EVENTS, format, gzip);
+  }
+
+  @GetMapping("/export/requests")
+  public ResponseEntity<StreamingResponseBody> exportRequests(
+          @RequestParam(defaultValue = "csv") String format,
+          @RequestParam(defaultValue = "false") boolean gzip) {
+    return export(ExportService.REQUESTS, format, gzip);
+  }
+
+  @DeleteMapping("/export/{exportId}")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void cancelExport(@PathVariable String exportId) {
+    log.info("Cancelling export: {}", exportId);
+    exportService.cancel(exportId);
+  }
+
+  private ResponseEntity<StreamingResponseBody> export(String type, String format, boolean gzip) {
+    ExportFormat exportFormat = exportService.parseFormat(format);
+    ExportJobs.Job job = exportService.start(type);
+    log.info("Starting export {} of {}: format={}, gzip={}", job.getId(), type, exportFormat, gzip);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .header(EXPORT_ID_HEADER, job.getId())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(type + "." + exportFormat.getExtension())
+                    .build()
+                    .toString());
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(out -> exportService.write(job, out, exportFormat, gzip));
+  }
 }
@@ -16,7 +16,9 @@ import ru.practicum.dto.request.EventRequestStatusUpdateRequest;
 import ru.practicum.dto.request.EventRequestStatusUpdateResult;
 import ru.practicum.dto.request.ParticipationRequestDto;
 import ru.practicum.service.CommentService;
+import ru.practicum.model.enums.VoteType;
 import ru.practicum.service.EventService;
+import ru.practicum.service.RatingService;
 import ru.practicum.service.RequestService;
 
 import jakarta.validation.Valid;
@@ -34,6 +36,7 @@ public class PrivateController {
   private final EventService eventService;
   private final RequestService requestService;
   private final CommentService commentService;
+  private final RatingService ratingService;
 
 
   @GetMapping("/events")
@@ -150,4 +153,22 @@ public class PrivateController {
     log.info("Deleting comment {} by user {}", commentId, userId);
     commentService.deleteComment(userId, commentId);
   }
+
+  // Голос применяется асинхронно, поэтому 202
+  @PutMapping("/events/{eventId}/rating")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void rateEvent(@PathVariable Long userId,
+                        @PathVariable Long eventId,
+                        @RequestParam VoteType type) {
+    log.info("Rating event {} by user {}: {}", eventId, userId, type);
+    ratingService.vote(userId, eventId, type);
+  }
+
+  @DeleteMapping("/events/{eventId}/rating")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void removeEventRating(@PathVariable Long userId,
+                                @PathVariable Long eventId) {
+    log.info("Removing rating of event {} by user {}", eventId, userId);
+    ratingService.removeVote(userId, eventId);
+  }
 }
@@ -5,17 +5,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.dto.category.CategoryDto;
 import ru.practicum.dto.comment.CommentDto;
+import ru.practicum.dto.comment.CommentThreadDto;
 import ru.practicum.dto.compilation.CompilationDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
+import ru.practicum.dto.user.InitiatorRatingDto;
 import ru.practicum.service.CategoryService;
 import ru.practicum.service.CommentService;
 import ru.practicum.service.CompilationService;
 import ru.practicum.service.EventService;
+import ru.practicum.service.RatingService;
+import ru.practicum.service.ResourceVersions;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import java.time.LocalDateTime;
@@ -32,6 +38,8 @@ public class PublicController {
   private final CategoryService categoryService;
   private final CompilationService compilationService;
   private final CommentService commentService;
+  private final RatingService ratingService;
+  private final ResourceVersions resourceVersions;
 
   @GetMapping("/events")
   public List<EventShortDto> getEvents(
@@ -41,29 +49,43 @@ public class PublicController {
           @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
           @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
           @RequestParam(defaultValue = "false") Boolean onlyAvailable,
+          @RequestParam(required = false) Float lat,
+          @RequestParam(required = false) Float lon,
+          @RequestParam(required = false) @Positive Double radius,
           @RequestParam(defaultValue = "EVENT_DATE") String sort,
           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
           @RequestParam(defaultValue = "10") @Positive Integer size,
           HttpServletRequest request) {
 
-    log.info("Getting events with filters: text={}, categories={}, paid={}, rangeStart={}, rangeEnd={}, onlyAvailable={}, sort={}, from={}, size={}",
-            text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
+    log.info("Getting events with filters: text={}, categories={}, paid={}, rangeStart={}, rangeEnd={}, onlyAvailable={}, lat={}, lon={}, radius={}, sort={}, from={}, size={}",
+            text, categories, paid, rangeStart, rangeEnd, onlyAvailable, lat, lon, radius, sort, from, size);
 
     return eventService.getPublicEvents(text, categories, paid, rangeStart, rangeEnd,
-            onlyAvailable, sort, from, size, request);
+            onlyAvailable, lat, lon, radius, sort, from, size, request);
   }
 
   @GetMapping("/events/{id}")
-  public EventFullDto getEvent(@PathVariable Long id, HttpServletRequest request) {
+  public EventFullDto getEvent(@PathVariable Long id, HttpServletRequest request, WebRequest webRequest) {
     log.info("Getting event with id: {}", id);
+    // Событие проверяется до 304, иначе условный запрос засчитал бы хит неопубликованному событию
+    String etag = eventService.getPublicEventEtag(id);
+    if (etag != null && webRequest.checkNotModified(etag)) {
+      // Просмотр засчитываем даже при ответе 304
+      eventService.saveHit(request);
+      return null;
+    }
     return eventService.getPublicEvent(id, request);
   }
 
   @GetMapping("/categories")
   public List<CategoryDto> getCategories(
           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-          @RequestParam(defaultValue = "10") @Positive Integer size) {
+          @RequestParam(defaultValue = "10") @Positive Integer size,
+          WebRequest webRequest) {
     log.info("Getting categories with from={}, size={}", from, size);
+    if (webRequest.checkNotModified(resourceVersions.etag(ResourceVersions.CATEGORIES))) {
+      return null;
+    }
     return categoryService.getCategories(from, size);
   }
 
@@ -77,14 +99,21 @@ public class PublicController {
   public List<CompilationDto> getCompilations(
           @RequestParam(required = false) Boolean pinned,
           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-          @RequestParam(defaultValue = "10") @Positive Integer size) {
+          @RequestParam(defaultValue = "10") @Positive Integer size,
+          WebRequest webRequest) {
     log.info("Getting compilations with pinned={}, from={}, size={}", pinned, from, size);
+    if (webRequest.checkNotModified(resourceVersions.etag(ResourceVersions.COMPILATIONS))) {
+      return null;
+    }
     return compilationService.getCompilations(pinned, from, size);
   }
 
   @GetMapping("/compilations/{compId}")
-  public CompilationDto getCompilation(@PathVariable Long compId) {
+  public CompilationDto getCompilation(@PathVariable Long compId, WebRequest webRequest) {
     log.info("Getting compilation with id: {}", compId);
+    if (webRequest.checkNotModified(resourceVersions.etag(ResourceVersions.COMPILATIONS))) {
+      return null;
+    }
     return compilationService.getCompilation(compId);
   }
 
@@ -92,8 +121,53 @@ public class PublicController {
   public List<CommentDto> getEventComments(
           @PathVariable Long id,
           @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-          @RequestParam(defaultValue = "10") @Positive Integer size) {
+          @RequestParam(defaultValue = "10") @Positive Integer size,
+          WebRequest webRequest) {
     log.info("Getting public comments for event: {}", id);
+    String etag = resourceVersions.etag(ResourceVersions.EVENTS, ResourceVersions.event(id),
+            ResourceVersions.comments(id));
+    if (webRequest.checkNotModified(etag)) {
+      return null;
+    }
     return commentService.getPublicComments(id, from, size);
   }
+
+  @GetMapping("/events/{id}/comments/threads")
+  public List<CommentThreadDto> getEventCommentThreads(
+          @PathVariable Long id,
+          @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+          @RequestParam(defaultValue = "10") @Positive Integer size,
+          @RequestParam(defaultValue = "3") @PositiveOrZero @Max(100) Integer replies,
+          WebRequest webRequest) {
+    log.info("Getting comment threads for event: {}", id);
+    String etag = resourceVersions.etag(ResourceVersions.EVENTS, ResourceVersions.event(id),
+            ResourceVersions.comments(id));
+    if (webRequest.checkNotModified(etag)) {
+      return null;
+    }
+    return commentService.getPublicThreads(id, from, size, replies);
+  }
+
+  @GetMapping("/events/{id}/comments/{commentId}/thread")
+  public CommentThreadDto getCommentThread(
+          @PathVariable Long id,
+          @PathVariable Long commentId,
+          @RequestParam(defaultValue = "1000") @Positive @Max(10000) Integer size,
+          WebRequest webRequest) {
+    log.info("Getting thread of comment {} for event: {}", commentId, id);
+    String etag = resourceVersions.etag(ResourceVersions.EVENTS, ResourceVersions.event(id),
+            ResourceVersions.comments(id));
+    if (webRequest.checkNotModified(etag)) {
+      return null;
+    }
+    return commentService.getPublicThread(id, commentId, size);
+  }
+
+  @GetMapping("/initiators/top")
+  public List<InitiatorRatingDto> getTopInitiators(
+          @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+          @RequestParam(defaultValue = "10") @Positive @Max(1000) Integer size) {
+    log.info("Getting top initiators, from={}, size={}", from, size);
+    return ratingService.getTopInitiators(from, size);
+  }
 }
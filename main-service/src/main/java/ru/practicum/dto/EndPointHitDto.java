@@ -1,51 +0,0 @@
-package ru.practicum.dto;
-
-import com.fasterxml.jackson.annotation.JsonFormat;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
-
-import java.time.LocalDateTime;
-
-@Getter
-@Setter
-@AllArgsConstructor
-@NoArgsConstructor
-public class EndPointHitDto {
-
-  private Long id;
-
-  @NotBlank(message = "App cannot be null or blank")
-  private String app;
-
-  @NotBlank(message = "Uri cannot be null or blank")
-  private String uri;
-
-  @NotBlank(message = "Ip cannot be null or blank")
-  private String ip;
-
-  @NotNull(message = "Timestamp cannot be null")
-  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
-  private LocalDateTime timestamp;
-
-  public EndPointHitDto(String app, String uri, String ip, LocalDateTime timestamp) {
-    this.app = app;
-    this.uri = uri;
-    this.ip = ip;
-    this.timestamp = timestamp;
-  }
-
-  @Override
-  public String toString() {
-    return "EndPointHitDto{" +
-            "id=" + id +
-            ", app='" + app + '\'' +
-            ", uri='" + uri + '\'' +
-            ", ip='" + ip + '\'' +
-            ", timestamp=" + timestamp +
-            '}';
-  }
-}
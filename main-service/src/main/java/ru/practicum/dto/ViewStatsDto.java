@@ -1,26 +0,0 @@
-package ru.practicum.dto;
-
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
-
-@Getter
-@Setter
-@NoArgsConstructor
-@AllArgsConstructor
-public class ViewStatsDto {
-
-  private String app;
-  private String uri;
-  private Long hits;
-
-  @Override
-  public String toString() {
-    return "ViewStatsDto{" +
-            "app='" + app + '\'' +
-            ", uri='" + uri + '\'' +
-            ", hits=" + hits +
-            '}';
-  }
-}
@@ -0,0 +1,17 @@
+package ru.practicum.dto.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResultDto {
+  private int created;
+  private int duplicates;
+  private int invalid;
+  private List<BulkImportRowDto> rows;
+}
@@ -0,0 +1,28 @@
+package ru.practicum.dto.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportRowDto {
+  // Номер строки во входных данных, начиная с 1
+  private int row;
+  private Status status;
+  private Long id;
+  private String message;
+
+  public BulkImportRowDto(int row) {
+    this.row = row;
+  }
+
+  public enum Status {
+    CREATED,
+    DUPLICATE,
+    INVALID
+  }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.dto.comment;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import ru.practicum.model.enums.CommentState;
+
+import java.util.List;
+
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentBulkModerationDto {
+  @NotEmpty(message = "Comment ids cannot be empty")
+  @Size(max = 1000, message = "Cannot moderate more than 1000 comments at once")
+  private List<Long> commentIds;
+
+  @NotNull(message = "State cannot be null")
+  private CommentState state;
+
+  @Size(max = 500, message = "Moderator comment cannot exceed 500 characters")
+  private String moderatorComment;
+}
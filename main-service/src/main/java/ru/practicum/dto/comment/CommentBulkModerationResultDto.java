@@ -0,0 +1,16 @@
+package ru.practicum.dto.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentBulkModerationResultDto {
+  private List<Long> moderated;
+  // Не найдены, уже отмодерированы или арендованы другим модератором
+  private List<Long> skipped;
+}
@@ -23,4 +23,8 @@ public class CommentDto {
   private LocalDateTime updatedOn;
 
   private CommentState state;
+
+  private Long parentId;
+  private int depth;
+  private Long repliesCount;
 }
@@ -0,0 +1,16 @@
+package ru.practicum.dto.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentThreadDto {
+  private CommentDto comment;
+  // Ответы в порядке обхода дерева в глубину; вложенность - по depth и parentId
+  private List<CommentDto> replies;
+}
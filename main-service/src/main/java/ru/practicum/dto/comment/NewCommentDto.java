@@ -12,4 +12,11 @@ public class NewCommentDto {
   @NotBlank(message = "Comment text cannot be blank")
   @Size(min = 5, max = 1000, message = "Comment text must be between 5 and 1000 characters")
   private String text;
+
+  // Комментарий, на который это ответ; null - новая ветка
+  private Long parentId;
+
+  public NewCommentDto(String text) {
+    this.text = text;
+  }
 }
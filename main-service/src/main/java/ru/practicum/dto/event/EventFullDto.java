@@ -46,4 +46,8 @@ public class EventFullDto {
   private String title;
 
   private Long views;
+  private Long commentsCount;
+  private Long likes;
+  private Long dislikes;
+  private Long rating;
 }
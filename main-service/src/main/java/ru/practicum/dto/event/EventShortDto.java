@@ -30,4 +30,8 @@ public class EventShortDto {
   private String title;
 
   private Long views;
+  private Long commentsCount;
+  private Long likes;
+  private Long dislikes;
+  private Long rating;
 }
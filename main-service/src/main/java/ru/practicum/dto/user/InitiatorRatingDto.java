@@ -0,0 +1,15 @@
+package ru.practicum.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitiatorRatingDto {
+  private UserShortDto initiator;
+  private long likes;
+  private long dislikes;
+  private long rating;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.dto.user;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.model.enums.UserDeletionState;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDeletionDto {
+  private Long userId;
+  private UserDeletionState state;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+  private LocalDateTime requestedOn;
+
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+  private LocalDateTime finishedOn;
+
+  private long deletedEvents;
+  private long deletedRequests;
+  private long deletedComments;
+}
@@ -2,13 +2,16 @@ package ru.practicum.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
-import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.MissingRequestValueException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolationException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -80,9 +83,10 @@ public class ErrorHandler {
     );
   }
 
+  // Отсутствующий параметр запроса или обязательный заголовок
   @ExceptionHandler
   @ResponseStatus(HttpStatus.BAD_REQUEST)
-  public Map<String, Object> handleMissingParameter(final MissingServletRequestParameterException e) {
+  public Map<String, Object> handleMissingParameter(final MissingRequestValueException e) {
     log.warn("Missing parameter: {}", e.getMessage());
     return Map.of(
             "status", "BAD_REQUEST",
@@ -92,6 +96,47 @@ public class ErrorHandler {
     );
   }
 
+  // Значение параметра не приводится к типу, например неизвестная константа перечисления
+  @ExceptionHandler
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Map<String, Object> handleTypeMismatch(final MethodArgumentTypeMismatchException e) {
+    log.warn("Parameter type mismatch: {}", e.getMessage());
+    return Map.of(
+            "status", "BAD_REQUEST",
+            "reason", "Incorrectly made request.",
+            "message", "Invalid value of parameter " + e.getName() + ": " + e.getValue(),
+            "timestamp", LocalDateTime.now().format(FORMATTER)
+    );
+  }
+
+  // Под нагрузкой от одного клиента таких ответов много, поэтому без warn в лог
+  @ExceptionHandler
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Map<String, Object> handleTooManyRequests(final TooManyRequestsException e, HttpServletResponse response) {
+    log.debug("Rate limited: {}", e.getMessage());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+    return Map.of(
+            "status", "TOO_MANY_REQUESTS",
+            "reason", "Request rate limit exceeded.",
+            "message", e.getMessage(),
+            "timestamp", LocalDateTime.now().format(FORMATTER)
+    );
+  }
+
+  @ExceptionHandler
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public Map<String, Object> handleServiceUnavailable(final ServiceUnavailableException e,
+                                                      HttpServletResponse response) {
+    log.debug("Load shed: {}", e.getMessage());
+    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    return Map.of(
+            "status", "SERVICE_UNAVAILABLE",
+            "reason", "Server is overloaded.",
+            "message", e.getMessage(),
+            "timestamp", LocalDateTime.now().format(FORMATTER)
+    );
+  }
+
   @ExceptionHandler
   @ResponseStatus(HttpStatus.CONFLICT)
   public Map<String, Object> handleDataIntegrityViolation(final DataIntegrityViolationException e) {
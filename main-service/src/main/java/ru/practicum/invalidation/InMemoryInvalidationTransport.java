@@ -0,0 +1,44 @@
+package ru.practicum.invalidation;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Транспорт внутри одного процесса: узлы, подписанные на один экземпляр, получают сигнал
+ * после коммита транзакции, как при NOTIFY.
+ */
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void signal() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          fire();
+        }
+      });
+    } else {
+      fire();
+    }
+  }
+
+  @Override
+  public void listen(Runnable onSignal) {
+    listeners.add(onSignal);
+  }
+
+  @Override
+  public void close() {
+    listeners.clear();
+  }
+
+  private void fire() {
+    listeners.forEach(Runnable::run);
+  }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Межузловая инвалидация кешей (ewm.invalidation.enabled=true): outbox в общей базе
+ * и сигнал через выбранный транспорт.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ewm.invalidation", name = "enabled", havingValue = "true")
+public class InvalidationConfig {
+
+  @Bean(destroyMethod = "close")
+  public InvalidationTransport invalidationTransport(InvalidationProperties properties,
+                                                     JdbcTemplate jdbcTemplate,
+                                                     DataSourceProperties dataSourceProperties) {
+    return switch (properties.getTransport()) {
+      case POSTGRES -> new PostgresNotifyTransport(jdbcTemplate, dataSourceProperties,
+              properties.getChannel(), properties.getReconnectDelay());
+      case MEMORY -> new InMemoryInvalidationTransport();
+    };
+  }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.Category;
+import ru.practicum.model.User;
+import ru.practicum.service.ResourceVersions;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Применяет изменения других узлов: по сигналу транспорта читает новые строки outbox,
+ * поднимает версии ResourceVersions и вытесняет затронутые сущности из кеша второго уровня.
+ *
+ * <p>Сигналы сливаются: первый планирует чтение через coalesce-window, следующие до его начала
+ * ничего не добавляют. Чтение идёт в одном потоке.
+ *
+ * <p>Порядок id не совпадает с порядком коммитов, поэтому строки читаются не от последнего id,
+ * а от границы, за которой все транзакции заведомо завершены (commit-grace); уже применённые
+ * id выше границы запоминаются, чтобы не применять их повторно.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ewm.invalidation", name = "enabled", havingValue = "true")
+@Slf4j
+public class InvalidationListener {
+
+  // Префикс ключей ResourceVersions.user(id)
+  private static final String USER_PREFIX = "user:";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final InvalidationTransport transport;
+  private final InvalidationProperties properties;
+  private final ResourceVersions resourceVersions;
+  private final EntityManagerFactory entityManagerFactory;
+  private final String origin;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "ewm-invalidation-apply");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final NavigableSet<Long> applied = new ConcurrentSkipListSet<>();
+  private final Counter drains;
+  private final Counter keysApplied;
+  private volatile long floor;
+
+  public InvalidationListener(JdbcTemplate jdbcTemplate,
+                              InvalidationTransport transport,
+                              InvalidationProperties properties,
+                              ResourceVersions resourceVersions,
+                              EntityManagerFactory entityManagerFactory,
+                              InvalidationOutbox outbox,
+                              MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transport = transport;
+    this.properties = properties;
+    this.resourceVersions = resourceVersions;
+    this.entityManagerFactory = entityManagerFactory;
+    this.origin = outbox.origin();
+    this.drains = Counter.builder("ewm.invalidation.drains")
+            .description("Outbox reads triggered by invalidation signals")
+            .register(meterRegistry);
+    this.keysApplied = Counter.builder("ewm.invalidation.keys")
+            .description("Cache keys invalidated by changes on other nodes")
+            .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    // Кеши нового узла пусты, более ранние изменения ему не нужны
+    Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+    floor = maxId != null ? maxId : 0;
+    transport.listen(this::signal);
+  }
+
+  @PreDestroy
+  public void stop() {
+    transport.close();
+    executor.shutdownNow();
+  }
+
+  public void signal() {
+    if (scheduled.compareAndSet(false, true)) {
+      executor.schedule(this::drainSafely, properties.getCoalesceWindow().toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // Страховка на случай потерянного сигнала
+  @Scheduled(fixedDelayString = "${ewm.invalidation.poll-interval-ms:5000}")
+  public void poll() {
+    signal();
+  }
+
+  private void drainSafely() {
+    try {
+      drain();
+    } catch (RuntimeException e) {
+      log.error("Failed to apply cache invalidations", e);
+    }
+  }
+
+  void drain() {
+    // Сигнал, пришедший во время чтения, запланирует следующее
+    scheduled.set(false);
+    drains.increment();
+    LocalDateTime settled = LocalDateTime.now().minus(properties.getCommitGrace());
+    Set<String> keys = new LinkedHashSet<>();
+    long newFloor = floor;
+    long cursor = floor;
+    List<OutboxRow> rows;
+    do {
+      rows = jdbcTemplate.query("SELECT id, resource_key, created_on FROM cache_invalidations " +
+                      "WHERE id > ? AND origin <> ? ORDER BY id LIMIT ?",
+              (rs, rowNum) -> new OutboxRow(rs.getLong(1), rs.getString(2), rs.getTimestamp(3)),
+              cursor, origin, properties.getBatchSize());
+      for (OutboxRow row : rows) {
+        if (applied.add(row.id())) {
+          keys.add(row.resourceKey());
+        }
+        if (row.createdOn().toLocalDateTime().isBefore(settled)) {
+          newFloor = row.id();
+        }
+        cursor = row.id();
+      }
+    } while (rows.size() == properties.getBatchSize());
+
+    floor = newFloor;
+    applied.headSet(newFloor, true).clear();
+    if (!keys.isEmpty()) {
+      apply(keys);
+    }
+  }
+
+  private void apply(Set<String> keys) {
+    var cache = entityManagerFactory.getCache();
+    for (String key : keys) {
+      if (ResourceVersions.CATEGORIES.equals(key)) {
+        cache.evict(Category.class);
+      } else if (key.startsWith(USER_PREFIX)) {
+        cache.evict(User.class, Long.parseLong(key.substring(USER_PREFIX.length())));
+      }
+    }
+    // Версии - после вытеснения, иначе запрос с новым ETag может прочитать старую сущность из кеша
+    resourceVersions.apply(keys.toArray(String[]::new));
+    keysApplied.increment(keys.size());
+    log.debug("Applied {} cache invalidations from other nodes", keys.size());
+  }
+
+  private record OutboxRow(long id, String resourceKey, Timestamp createdOn) {
+  }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.service.ResourceVersions;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Transactional outbox инвалидаций: ключи из ResourceVersions.bump пишутся в cache_invalidations
+ * той же транзакцией, что и само изменение, и становятся видны другим узлам только вместе с ним.
+ * Ключи одной транзакции пишутся перед коммитом одной пачкой без повторов, с одним сигналом.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ewm.invalidation", name = "enabled", havingValue = "true")
+@Slf4j
+public class InvalidationOutbox {
+
+  private final String origin = UUID.randomUUID().toString();
+  private final JdbcTemplate jdbcTemplate;
+  private final InvalidationTransport transport;
+  private final InvalidationProperties properties;
+
+  public InvalidationOutbox(JdbcTemplate jdbcTemplate,
+                            InvalidationTransport transport,
+                            InvalidationProperties properties,
+                            ResourceVersions resourceVersions) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transport = transport;
+    this.properties = properties;
+    resourceVersions.addBumpListener(this::record);
+  }
+
+  public String origin() {
+    return origin;
+  }
+
+  void record(String[] keys) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      write(List.of(keys));
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Set<String> collected = new LinkedHashSet<>();
+      TransactionSynchronizationManager.bindResource(this, collected);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+          write(collected);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationOutbox.this);
+        }
+      });
+      pending = collected;
+    }
+    pending.addAll(List.of(keys));
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.invalidation.cleanup-interval-ms:60000}")
+  public void cleanup() {
+    int deleted = jdbcTemplate.update("DELETE FROM cache_invalidations WHERE created_on < ?",
+            Timestamp.valueOf(LocalDateTime.now().minus(properties.getRetention())));
+    if (deleted > 0) {
+      log.debug("Removed {} expired cache invalidations", deleted);
+    }
+  }
+
+  private void write(Collection<String> keys) {
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    jdbcTemplate.batchUpdate("INSERT INTO cache_invalidations (origin, resource_key, created_on) VALUES (?, ?, ?)",
+            keys.stream().map(key -> new Object[]{origin, key, now}).toList());
+    transport.signal();
+  }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.invalidation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ewm.invalidation")
+public class InvalidationProperties {
+
+  public enum Transport {
+    POSTGRES,
+    MEMORY
+  }
+
+  private boolean enabled;
+
+  // MEMORY - доставка только внутри процесса, для тестов и запуска без PostgreSQL
+  private Transport transport = Transport.POSTGRES;
+
+  // Канал LISTEN/NOTIFY, обычный идентификатор PostgreSQL
+  private String channel = "ewm_invalidation";
+
+  // Сигналы, пришедшие за это время после первого, обрабатываются одним чтением outbox
+  private Duration coalesceWindow = Duration.ofMillis(5);
+
+  // Транзакция, записавшая строку outbox раньше этого срока, считается завершённой
+  private Duration commitGrace = Duration.ofSeconds(10);
+
+  private Duration retention = Duration.ofHours(1);
+  private Duration reconnectDelay = Duration.ofSeconds(1);
+  private int batchSize = 1000;
+}
@@ -0,0 +1,20 @@
+package ru.practicum.invalidation;
+
+/**
+ * Сигнал узлам о новых строках outbox. Содержимое изменений сигнал не несёт - получатель
+ * читает его из cache_invalidations, поэтому потерянный или повторный сигнал безопасен.
+ */
+public interface InvalidationTransport {
+
+  /**
+   * Вызывается в пишущей транзакции; получатели узнают о сигнале только после её коммита.
+   */
+  void signal();
+
+  /**
+   * Подписка узла; onSignal вызывается из потока транспорта и должен быстро возвращать управление.
+   */
+  void listen(Runnable onSignal);
+
+  void close();
+}
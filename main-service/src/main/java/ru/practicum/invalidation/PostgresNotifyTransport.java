@@ -0,0 +1,105 @@
+package ru.practicum.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * LISTEN/NOTIFY PostgreSQL. NOTIFY транзакционный: при откате сигнал не уходит, одинаковые
+ * сигналы одной транзакции PostgreSQL сливает в один.
+ *
+ * <p>Для LISTEN держится отдельное соединение вне пула. После переподключения узел сразу
+ * перечитывает outbox - сигналы, пришедшие без соединения, потеряны.
+ */
+@Slf4j
+public class PostgresNotifyTransport implements InvalidationTransport {
+
+  private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+  private static final int POLL_TIMEOUT_MS = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSourceProperties dataSourceProperties;
+  private final String channel;
+  private final Duration reconnectDelay;
+  private volatile boolean running;
+  private Thread thread;
+
+  public PostgresNotifyTransport(JdbcTemplate jdbcTemplate,
+                                 DataSourceProperties dataSourceProperties,
+                                 String channel,
+                                 Duration reconnectDelay) {
+    if (!IDENTIFIER.matcher(channel).matches()) {
+      throw new IllegalArgumentException("Invalid notification channel: " + channel);
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.dataSourceProperties = dataSourceProperties;
+    this.channel = channel;
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  @Override
+  public void signal() {
+    jdbcTemplate.query("SELECT pg_notify(?, '')", (ResultSetExtractor<Void>) rs -> null, channel);
+  }
+
+  @Override
+  public synchronized void listen(Runnable onSignal) {
+    if (running) {
+      throw new IllegalStateException("Already listening on " + channel);
+    }
+    running = true;
+    thread = new Thread(() -> listenLoop(onSignal), "ewm-invalidation-listener");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public synchronized void close() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  private void listenLoop(Runnable onSignal) {
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+              dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + channel);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        log.info("Listening for cache invalidations on channel {}", channel);
+        onSignal.run();
+        while (running) {
+          // Все накопившиеся уведомления приходят одним массивом и дают один сигнал
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+          if (notifications != null && notifications.length > 0) {
+            onSignal.run();
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          return;
+        }
+        log.warn("Invalidation listener connection lost, reconnecting in {}", reconnectDelay, e);
+        try {
+          Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+}
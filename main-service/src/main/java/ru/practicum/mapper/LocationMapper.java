@@ -1,6 +1,7 @@
 package ru.practicum.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import ru.practicum.dto.location.LocationDto;
 import ru.practicum.model.Location;
 
@@ -9,5 +10,7 @@ public interface LocationMapper {
 
   LocationDto toLocationDto(Location location);
 
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "geohash", ignore = true)
   Location toLocation(LocationDto locationDto);
 }
\ No newline at end of file
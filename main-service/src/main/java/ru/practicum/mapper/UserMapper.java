@@ -1,17 +1,24 @@
 package ru.practicum.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.dto.user.UserDeletionDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.model.User;
+import ru.practicum.model.UserDeletion;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
 
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "deletedAt", ignore = true)
   User toUser(NewUserRequest newUserRequest);
 
   UserDto toUserDto(User user);
 
   UserShortDto toUserShortDto(User user);
+
+  UserDeletionDto toUserDeletionDto(UserDeletion userDeletion);
 }
\ No newline at end of file
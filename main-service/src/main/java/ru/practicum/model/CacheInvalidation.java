@@ -0,0 +1,33 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка outbox межузловой инвалидации: ключ ResourceVersions, изменённый транзакцией.
+ * Пишется и читается через JDBC, см. {@code ru.practicum.invalidation}.
+ */
+@Entity
+@Table(name = "cache_invalidations",
+        indexes = @Index(name = "idx_cache_invalidations_created_on", columnList = "created_on"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  // Узел-источник; свои изменения узел применил при коммите и не перечитывает
+  @Column(nullable = false, length = 36)
+  private String origin;
+
+  @Column(name = "resource_key", nullable = false, length = 128)
+  private String resourceKey;
+
+  @Column(name = "created_on", nullable = false)
+  private LocalDateTime createdOn;
+}
@@ -6,7 +6,11 @@ import ru.practicum.model.enums.CommentState;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments",
+        indexes = {
+                @Index(name = "idx_comments_state_created_on", columnList = "state, created_on"),
+                @Index(name = "idx_comments_event_path", columnList = "event_id, path")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -39,4 +43,28 @@ public class Comment {
 
   @Column(name = "moderator_comment", length = 500)
   private String moderatorComment;
+
+  // Аренда комментария модератором из очереди модерации; после claim_expires_at его может взять другой
+  @Column(name = "claimed_by", length = 64)
+  private String claimedBy;
+
+  @Column(name = "claim_expires_at")
+  private LocalDateTime claimExpiresAt;
+
+  // Ответы: parentId - прямой предок, threadId - корень ветки, path - CommentPath
+  @Column(name = "parent_id")
+  private Long parentId;
+
+  @Column(name = "thread_id")
+  private Long threadId;
+
+  @Column(length = CommentPath.MAX_LENGTH)
+  private String path;
+
+  @Column(nullable = false)
+  private int depth;
+
+  // Подтверждённые ответы во всём поддереве; меняется атомарным UPDATE в CommentService
+  @Column(name = "replies_count", nullable = false)
+  private Long repliesCount = 0L;
 }
@@ -0,0 +1,51 @@
+package ru.practicum.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Материализованный путь комментария: id всех предков и самого комментария сегментами
+ * фиксированной ширины. В пути только цифры, поэтому строковый порядок совпадает с порядком
+ * обхода дерева в глубину при любой collation, а поддерево - это диапазон [path, upperBound(path)).
+ */
+public final class CommentPath {
+
+  public static final int SEGMENT_LENGTH = 12;
+  public static final int MAX_DEPTH = 64;
+  public static final int MAX_LENGTH = SEGMENT_LENGTH * MAX_DEPTH;
+
+  private CommentPath() {
+  }
+
+  public static String child(String parentPath, long id) {
+    String segment = String.format("%0" + SEGMENT_LENGTH + "d", id);
+    return parentPath == null ? segment : parentPath + segment;
+  }
+
+  /**
+   * Наименьший путь, который больше всех путей поддерева: путь как число плюс один.
+   */
+  public static String upperBound(String path) {
+    char[] chars = path.toCharArray();
+    int i = chars.length - 1;
+    while (chars[i] == '9') {
+      chars[i--] = '0';
+    }
+    chars[i]++;
+    return new String(chars);
+  }
+
+  /**
+   * id предков от корня ветки к непосредственному родителю.
+   */
+  public static List<Long> ancestors(String path) {
+    List<Long> ids = new ArrayList<>();
+    if (path == null) {
+      return ids;
+    }
+    for (int start = 0; start + SEGMENT_LENGTH < path.length(); start += SEGMENT_LENGTH) {
+      ids.add(Long.parseLong(path, start, start + SEGMENT_LENGTH, 10));
+    }
+    return ids;
+  }
+}
@@ -3,6 +3,7 @@ package ru.practicum.model;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
 import java.util.List;
 
 @Entity
@@ -16,7 +17,9 @@ public class Compilation {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
+  // События пользователей, ожидающих удаления, в подборке не показываются
   @ManyToMany(fetch = FetchType.LAZY)
+  @SQLRestriction("initiator_id NOT IN (SELECT du.id FROM users du WHERE du.deleted_at IS NOT NULL)")
   @JoinTable(
           name = "compilation_events",
           joinColumns = @JoinColumn(name = "compilation_id"),
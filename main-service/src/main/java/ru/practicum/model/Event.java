@@ -8,7 +8,11 @@ import ru.practicum.model.enums.EventState;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events",
+        indexes = {
+                @Index(name = "idx_events_location_id", columnList = "location_id"),
+                @Index(name = "idx_events_state_rating", columnList = "state, rating DESC, id DESC")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -42,7 +46,8 @@ public class Event {
   @JoinColumn(name = "initiator_id", nullable = false)
   private User initiator;
 
-  @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+  // Локация общая для всех событий с теми же координатами, поэтому без каскада
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "location_id", nullable = false)
   private Location location;
 
@@ -67,4 +72,19 @@ public class Event {
 
   @Column(nullable = false)
   private Long views = 0L;
+
+  // Число подтверждённых комментариев; меняется атомарным UPDATE в CommentService
+  @Column(name = "comments_count", nullable = false)
+  private Long commentsCount = 0L;
+
+  // Голоса участников; накапливаются в EventVoteBuffer и добавляются приращениями
+  @Column(nullable = false)
+  private Long likes = 0L;
+
+  @Column(nullable = false)
+  private Long dislikes = 0L;
+
+  // likes - dislikes, отдельной колонкой ради индекса для сортировки sort=RATING
+  @Column(nullable = false)
+  private Long rating = 0L;
 }
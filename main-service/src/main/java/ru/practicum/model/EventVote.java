@@ -0,0 +1,44 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Голос участника за событие: +1 - нравится, -1 - не нравится.
+ *
+ * <p>Строки пишет пачками EventVoteBuffer через JDBC. Удаление пользователя сначала вычитает
+ * его голоса из счётчиков и удаляет их; каскад внешних ключей страхует от сирот.
+ */
+@Entity
+@Table(name = "event_votes",
+        uniqueConstraints = @UniqueConstraint(name = "uq_event_vote_event_user", columnNames = {"event_id", "user_id"}),
+        indexes = @Index(name = "idx_event_votes_user_id", columnList = "user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventVote {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "event_id", nullable = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  private Event event;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id", nullable = false)
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  private User user;
+
+  @Column(nullable = false)
+  private short vote;
+
+  @Column(name = "voted_on", nullable = false)
+  private LocalDateTime votedOn;
+}
@@ -0,0 +1,124 @@
+package ru.practicum.model;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash: ячейки с общим префиксом лежат рядом, поэтому поиск по окрестности сводится
+ * к нескольким диапазонам по индексу на строковой колонке.
+ */
+public final class GeoHash {
+
+  public static final int MAX_PRECISION = 12;
+  public static final double EARTH_RADIUS_KM = 6371.0088;
+
+  private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+  private GeoHash() {
+  }
+
+  public static String encode(double lat, double lon, int precision) {
+    double minLat = -90;
+    double maxLat = 90;
+    double minLon = -180;
+    double maxLon = 180;
+    StringBuilder hash = new StringBuilder(precision);
+    boolean evenBit = true;
+    int bit = 0;
+    int ch = 0;
+    while (hash.length() < precision) {
+      if (evenBit) {
+        double mid = (minLon + maxLon) / 2;
+        if (lon >= mid) {
+          ch = (ch << 1) | 1;
+          minLon = mid;
+        } else {
+          ch <<= 1;
+          maxLon = mid;
+        }
+      } else {
+        double mid = (minLat + maxLat) / 2;
+        if (lat >= mid) {
+          ch = (ch << 1) | 1;
+          minLat = mid;
+        } else {
+          ch <<= 1;
+          maxLat = mid;
+        }
+      }
+      evenBit = !evenBit;
+      if (++bit == 5) {
+        hash.append(BASE32[ch]);
+        bit = 0;
+        ch = 0;
+      }
+    }
+    return hash.toString();
+  }
+
+  /**
+   * Префиксы ячеек, которые гарантированно покрывают круг заданного радиуса: ячейка центра
+   * и восемь соседних при самой длинной точности, у которой ячейка не меньше размаха круга.
+   * Пустой набор означает, что радиус больше ячейки первого уровня и сужать поиск нечем.
+   */
+  public static Set<String> coveringCells(double lat, double lon, double radiusKm) {
+    int precision = precisionFor(lat, radiusKm);
+    Set<String> cells = new LinkedHashSet<>();
+    if (precision == 0) {
+      return cells;
+    }
+    double cellHeight = cellHeightDegrees(precision);
+    double cellWidth = cellWidthDegrees(precision);
+    for (int dLat = -1; dLat <= 1; dLat++) {
+      double neighbourLat = lat + dLat * cellHeight;
+      if (neighbourLat > 90 || neighbourLat < -90) {
+        continue;
+      }
+      for (int dLon = -1; dLon <= 1; dLon++) {
+        double neighbourLon = lon + dLon * cellWidth;
+        if (neighbourLon >= 180) {
+          neighbourLon -= 360;
+        } else if (neighbourLon < -180) {
+          neighbourLon += 360;
+        }
+        cells.add(encode(neighbourLat, neighbourLon, precision));
+      }
+    }
+    return cells;
+  }
+
+  public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+            Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                    Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  static int precisionFor(double lat, double radiusKm) {
+    double angular = radiusKm / EARTH_RADIUS_KM;
+    double latSpan = Math.toDegrees(angular);
+    // Наибольшее отклонение круга по долготе; ближе к полюсам оно растёт
+    double ratio = Math.sin(angular) / Math.cos(Math.toRadians(lat));
+    if (ratio >= 1) {
+      // Круг накрывает полюс
+      return 0;
+    }
+    double lonSpan = Math.toDegrees(Math.asin(ratio));
+    for (int precision = MAX_PRECISION; precision >= 1; precision--) {
+      if (cellHeightDegrees(precision) >= latSpan && cellWidthDegrees(precision) >= lonSpan) {
+        return precision;
+      }
+    }
+    return 0;
+  }
+
+  private static double cellHeightDegrees(int precision) {
+    return 180 / Math.pow(2, (5 * precision) / 2);
+  }
+
+  private static double cellWidthDegrees(int precision) {
+    return 360 / Math.pow(2, (5 * precision + 1) / 2);
+  }
+}
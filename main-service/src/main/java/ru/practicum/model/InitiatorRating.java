@@ -0,0 +1,38 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Сумма голосов за все события инициатора. Отдельная таблица, чтобы частые приращения
+ * не сбрасывали пользователя из кеша второго уровня.
+ */
+@Entity
+@Table(name = "initiator_ratings",
+        indexes = @Index(name = "idx_initiator_ratings_rating", columnList = "rating DESC, user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitiatorRating {
+  @Id
+  @Column(name = "user_id")
+  private Long userId;
+
+  @MapsId
+  @OneToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  private User user;
+
+  @Column(nullable = false)
+  private long likes;
+
+  @Column(nullable = false)
+  private long dislikes;
+
+  @Column(nullable = false)
+  private long rating;
+}
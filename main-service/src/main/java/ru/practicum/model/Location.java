@@ -3,13 +3,18 @@ package ru.practicum.model;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "locations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "locations",
+        uniqueConstraints = @UniqueConstraint(name = "uq_location_lat_lon", columnNames = {"lat", "lon"}),
+        indexes = @Index(name = "idx_locations_geohash", columnList = "geohash"))
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Location {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,4 +25,19 @@ public class Location {
 
   @Column(nullable = false)
   private Float lon;
+
+  @Column(nullable = false, length = GeoHash.MAX_PRECISION)
+  private String geohash;
+
+  public Location(Long id, Float lat, Float lon) {
+    this.id = id;
+    this.lat = lat;
+    this.lon = lon;
+  }
+
+  @PrePersist
+  @PreUpdate
+  void updateGeohash() {
+    geohash = GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION);
+  }
 }
@@ -0,0 +1,23 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Версия ключа ResourceVersions, общая для всех узлов.
+ * Пишется и читается через JDBC, см. {@code ru.practicum.service.ResourceVersions}.
+ */
+@Entity
+@Table(name = "resource_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceVersion {
+  @Id
+  @Column(name = "resource_key", length = 128)
+  private String resourceKey;
+
+  @Column(nullable = false)
+  private long version;
+}
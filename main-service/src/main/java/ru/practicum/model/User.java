@@ -3,13 +3,22 @@ package ru.practicum.model;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "users", indexes = @Index(name = "idx_users_deleted_at", columnList = "deleted_at"))
+// Пользователь, поставленный в очередь на удаление, не виден ни в каких чтениях. Его события,
+// заявки и комментарии отсекаются соединением с users в запросах, которые их показывают
+@SQLRestriction("deleted_at IS NULL")
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class User {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,4 +29,13 @@ public class User {
 
   @Column(nullable = false, length = 254, unique = true)
   private String email;
+
+  @Column(name = "deleted_at")
+  private LocalDateTime deletedAt;
+
+  public User(Long id, String name, String email) {
+    this.id = id;
+    this.name = name;
+    this.email = email;
+  }
 }
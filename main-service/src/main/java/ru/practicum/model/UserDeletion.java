@@ -0,0 +1,46 @@
+package ru.practicum.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.practicum.model.enums.UserDeletionState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ход фонового удаления пользователя. Запись переживает саму строку users,
+ * поэтому внешнего ключа на пользователя нет.
+ */
+@Entity
+@Table(name = "user_deletions")
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserDeletion {
+  @Id
+  @Column(name = "user_id")
+  private Long userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private UserDeletionState state = UserDeletionState.PENDING;
+
+  @Column(name = "requested_on", nullable = false)
+  private LocalDateTime requestedOn;
+
+  @Column(name = "finished_on")
+  private LocalDateTime finishedOn;
+
+  @Column(name = "deleted_events", nullable = false)
+  private long deletedEvents;
+
+  @Column(name = "deleted_requests", nullable = false)
+  private long deletedRequests;
+
+  @Column(name = "deleted_comments", nullable = false)
+  private long deletedComments;
+
+  public UserDeletion(Long userId, LocalDateTime requestedOn) {
+    this.userId = userId;
+    this.requestedOn = requestedOn;
+  }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.model.enums;
+
+public enum UserDeletionState {
+  PENDING,
+  IN_PROGRESS,
+  COMPLETED
+}
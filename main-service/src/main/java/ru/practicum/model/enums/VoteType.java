@@ -0,0 +1,16 @@
+package ru.practicum.model.enums;
+
+public enum VoteType {
+  LIKE(1),
+  DISLIKE(-1);
+
+  private final int value;
+
+  VoteType(int value) {
+    this.value = value;
+  }
+
+  public int getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.moderation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Автомат Ахо-Корасик: за один проход по тексту находит все вхождения всех терминов словаря,
+ * время не зависит от размера словаря. Сравнение без учёта регистра.
+ *
+ * <p>Состояния пронумерованы в порядке обхода в ширину, поэтому дети каждого состояния
+ * занимают непрерывный диапазон номеров, отсортированный по символу: переход ищется
+ * двоичным поиском, а для корня - по прямой таблице.
+ */
+public final class AhoCorasick {
+
+  /**
+   * Вхождение [start, end) с объединёнными метками термина.
+   */
+  @FunctionalInterface
+  public interface MatchListener {
+    void onMatch(int start, int end, int tags);
+  }
+
+  private static final int ROOT = 0;
+
+  private final int terms;
+  private final char[] label;
+  // Дети состояния s - состояния с номерами [firstChild[s], firstChild[s + 1])
+  private final int[] firstChild;
+  private final int[] fail;
+  // Ближайшее по цепочке fail состояние, где заканчивается термин; 0 - такого нет
+  private final int[] outputLink;
+  private final int[] termLength;
+  private final int[] termTags;
+  private final int[] rootNext = new int[Character.MAX_VALUE + 1];
+
+  private AhoCorasick(Map<String, Integer> dictionary) {
+    terms = dictionary.size();
+    int capacity = 1;
+    for (String term : dictionary.keySet()) {
+      capacity += term.length();
+    }
+
+    // Префиксное дерево на списках детей, номера - в порядке вставки
+    char[] trieLabel = new char[capacity];
+    int[] trieFirstChild = new int[capacity];
+    int[] trieNextSibling = new int[capacity];
+    int[] trieLength = new int[capacity];
+    int[] trieTags = new int[capacity];
+    int nodes = 1;
+    for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+      String term = entry.getKey();
+      int node = ROOT;
+      for (int i = 0; i < term.length(); i++) {
+        char c = term.charAt(i);
+        int child = trieFirstChild[node] - 1;
+        while (child >= 0 && trieLabel[child] != c) {
+          child = trieNextSibling[child] - 1;
+        }
+        if (child < 0) {
+          child = nodes++;
+          trieLabel[child] = c;
+          trieNextSibling[child] = trieFirstChild[node];
+          trieFirstChild[node] = child + 1;
+        }
+        node = child;
+      }
+      trieLength[node] = term.length();
+      trieTags[node] |= entry.getValue();
+    }
+
+    // Перенумерация обходом в ширину с сортировкой детей по символу
+    int[] order = new int[nodes];
+    int[] parent = new int[nodes];
+    firstChild = new int[nodes + 1];
+    int[] siblings = new int[16];
+    int tail = 1;
+    for (int head = 0; head < nodes; head++) {
+      firstChild[head] = tail;
+      int count = 0;
+      for (int child = trieFirstChild[order[head]] - 1; child >= 0; child = trieNextSibling[child] - 1) {
+        if (count == siblings.length) {
+          siblings = Arrays.copyOf(siblings, count * 2);
+        }
+        int position = count++;
+        while (position > 0 && trieLabel[siblings[position - 1]] > trieLabel[child]) {
+          siblings[position] = siblings[position - 1];
+          position--;
+        }
+        siblings[position] = child;
+      }
+      for (int i = 0; i < count; i++) {
+        parent[tail] = head;
+        order[tail++] = siblings[i];
+      }
+    }
+    firstChild[nodes] = nodes;
+
+    label = new char[nodes];
+    termLength = new int[nodes];
+    termTags = new int[nodes];
+    for (int state = 0; state < nodes; state++) {
+      label[state] = trieLabel[order[state]];
+      termLength[state] = trieLength[order[state]];
+      termTags[state] = trieTags[order[state]];
+    }
+
+    // Суффиксные ссылки: состояние fail короче, значит в порядке обхода уже обработано
+    fail = new int[nodes];
+    outputLink = new int[nodes];
+    for (int state = 1; state < nodes; state++) {
+      int from = parent[state];
+      if (from == ROOT) {
+        rootNext[label[state]] = state;
+        continue;
+      }
+      int target = ROOT;
+      for (int candidate = fail[from]; ; candidate = fail[candidate]) {
+        int next = child(candidate, label[state]);
+        if (next > 0) {
+          target = next;
+          break;
+        }
+        if (candidate == ROOT) {
+          break;
+        }
+      }
+      fail[state] = target;
+      outputLink[state] = termLength[target] > 0 ? target : outputLink[target];
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int size() {
+    return terms;
+  }
+
+  public int states() {
+    return label.length;
+  }
+
+  public void scan(CharSequence text, MatchListener listener) {
+    int state = ROOT;
+    for (int i = 0; i < text.length(); i++) {
+      char c = Character.toLowerCase(text.charAt(i));
+      while (true) {
+        if (state == ROOT) {
+          state = rootNext[c];
+          break;
+        }
+        int next = child(state, c);
+        if (next > 0) {
+          state = next;
+          break;
+        }
+        state = fail[state];
+      }
+      for (int output = termLength[state] > 0 ? state : outputLink[state]; output > 0;
+           output = outputLink[output]) {
+        listener.onMatch(i + 1 - termLength[output], i + 1, termTags[output]);
+      }
+    }
+  }
+
+  private int child(int state, char c) {
+    int low = firstChild[state];
+    int high = firstChild[state + 1] - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char middleLabel = label[middle];
+      if (middleLabel < c) {
+        low = middle + 1;
+      } else if (middleLabel > c) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  public static final class Builder {
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Добавляет термин с метками-флагами; метки одного термина из разных списков объединяются.
+     */
+    public Builder add(String term, int tags) {
+      String normalized = normalize(term);
+      if (!normalized.isEmpty()) {
+        dictionary.merge(normalized, tags, (left, right) -> left | right);
+      }
+      return this;
+    }
+
+    public AhoCorasick build() {
+      return new AhoCorasick(dictionary);
+    }
+
+    // Посимвольно, как и при сканировании, чтобы позиции вхождений совпадали с исходным текстом
+    private static String normalize(String term) {
+      String trimmed = term.strip();
+      char[] chars = new char[trimmed.length()];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = Character.toLowerCase(trimmed.charAt(i));
+      }
+      return new String(chars);
+    }
+  }
+}
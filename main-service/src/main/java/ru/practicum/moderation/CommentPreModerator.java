@@ -0,0 +1,234 @@
+package ru.practicum.moderation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.enums.CommentState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Автоматическая пре-модерация комментариев (ewm.moderation.pre.enabled=true).
+ *
+ * <p>Текст проходит через один автомат Ахо-Корасик, собранный из blocklist, allowlist
+ * и маркеров ссылок. Термины словарей ищутся целыми словами; вхождение из blocklist внутри
+ * вхождения из allowlist не считается. Спам отклоняется, чистые комментарии подтверждаются,
+ * остальные остаются в очереди модерации.
+ */
+@Component
+@Slf4j
+public class CommentPreModerator {
+
+  static final int BLOCK = 1;
+  static final int ALLOW = 1 << 1;
+  static final int LINK = 1 << 2;
+
+  private static final List<String> LINK_MARKERS = List.of("http://", "https://", "www.");
+  // Доля заглавных проверяется только в достаточно длинных комментариях
+  private static final int UPPERCASE_MIN_LETTERS = 20;
+
+  private final PreModerationProperties properties;
+  private final ResourceLoader resourceLoader;
+  private final Map<CommentState, Counter> verdicts = new EnumMap<>(CommentState.class);
+  private volatile Dictionary dictionary;
+
+  public CommentPreModerator(PreModerationProperties properties,
+                             ResourceLoader resourceLoader,
+                             MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.resourceLoader = resourceLoader;
+    for (CommentState state : CommentState.values()) {
+      verdicts.put(state, Counter.builder("ewm.comments.premoderation")
+              .description("Comments by automatic pre-moderation verdict")
+              .tag("verdict", state.name().toLowerCase())
+              .register(meterRegistry));
+    }
+    if (properties.isEnabled()) {
+      reload();
+    }
+  }
+
+  public Verdict review(String text) {
+    if (!properties.isEnabled()) {
+      return Verdict.PENDING;
+    }
+    Verdict verdict = evaluate(text);
+    verdicts.get(verdict.state()).increment();
+    return verdict;
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.moderation.pre.reload-interval-ms:30000}",
+          initialDelayString = "${ewm.moderation.pre.reload-interval-ms:30000}")
+  public void reloadIfChanged() {
+    Dictionary current = dictionary;
+    if (!properties.isEnabled() || current == null) {
+      return;
+    }
+    if (lastModified(properties.getBlocklist()) != current.blocklistModified()
+            || lastModified(properties.getAllowlist()) != current.allowlistModified()) {
+      reload();
+    }
+  }
+
+  /**
+   * Пересобирает автомат из словарей. Запросы до замены ссылки работают со старым автоматом;
+   * если файл не читается, старый автомат остаётся в силе.
+   */
+  public synchronized void reload() {
+    try {
+      long blocklistModified = lastModified(properties.getBlocklist());
+      long allowlistModified = lastModified(properties.getAllowlist());
+      AhoCorasick.Builder builder = AhoCorasick.builder();
+      LINK_MARKERS.forEach(marker -> builder.add(marker, LINK));
+      int blocked = addTerms(builder, properties.getBlocklist(), BLOCK);
+      int allowed = addTerms(builder, properties.getAllowlist(), ALLOW);
+      AhoCorasick automaton = builder.build();
+      dictionary = new Dictionary(automaton, blocklistModified, allowlistModified);
+      log.info("Pre-moderation dictionary loaded: {} blocked, {} allowed terms, {} states",
+              blocked, allowed, automaton.states());
+    } catch (IOException | RuntimeException e) {
+      if (dictionary == null) {
+        throw new IllegalStateException("Cannot load pre-moderation dictionary", e);
+      }
+      log.error("Pre-moderation dictionary reload failed, keeping the previous one", e);
+    }
+  }
+
+  private Verdict evaluate(String text) {
+    Matches matches = new Matches(text);
+    dictionary.automaton().scan(text, matches);
+
+    int blocked = matches.countBlocked();
+    if (blocked >= properties.getRejectThreshold()) {
+      return new Verdict(CommentState.REJECTED, "Auto-rejected: " + blocked + " blocked term(s)");
+    }
+    if (matches.links > properties.getMaxLinks()) {
+      return new Verdict(CommentState.PENDING, "Needs review: " + matches.links + " links");
+    }
+
+    int letters = 0;
+    int uppercase = 0;
+    int run = 0;
+    int longestRun = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isLetter(c)) {
+        letters++;
+        if (Character.isUpperCase(c)) {
+          uppercase++;
+        }
+      }
+      run = i > 0 && text.charAt(i - 1) == c && !Character.isWhitespace(c) ? run + 1 : 1;
+      longestRun = Math.max(longestRun, run);
+    }
+    if (letters >= UPPERCASE_MIN_LETTERS && uppercase > letters * properties.getMaxUppercaseRatio()) {
+      return new Verdict(CommentState.PENDING, "Needs review: mostly uppercase");
+    }
+    if (longestRun > properties.getMaxRepeatedChars()) {
+      return new Verdict(CommentState.PENDING, "Needs review: repeated characters");
+    }
+    return properties.isAutoConfirm() ? Verdict.CONFIRMED : Verdict.PENDING;
+  }
+
+  private int addTerms(AhoCorasick.Builder builder, String location, int tags) throws IOException {
+    if (location == null || location.isBlank()) {
+      return 0;
+    }
+    int count = 0;
+    Resource resource = resourceLoader.getResource(location);
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String term = line.strip();
+        if (!term.isEmpty() && !term.startsWith("#")) {
+          builder.add(term, tags);
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private long lastModified(String location) {
+    if (location == null || location.isBlank()) {
+      return 0;
+    }
+    try {
+      return resourceLoader.getResource(location).lastModified();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  public record Verdict(CommentState state, String reason) {
+    static final Verdict PENDING = new Verdict(CommentState.PENDING, null);
+    static final Verdict CONFIRMED = new Verdict(CommentState.CONFIRMED, null);
+  }
+
+  private record Dictionary(AhoCorasick automaton, long blocklistModified, long allowlistModified) {
+  }
+
+  /**
+   * Вхождения одного текста. Автомат сообщает их по возрастанию конца, поэтому покрывающее
+   * вхождение из allowlist может прийти позже - сравниваем после сканирования.
+   */
+  private static final class Matches implements AhoCorasick.MatchListener {
+
+    private final String text;
+    private final List<int[]> blocked = new ArrayList<>();
+    private final List<int[]> allowed = new ArrayList<>();
+    private int links;
+
+    Matches(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public void onMatch(int start, int end, int tags) {
+      if ((tags & LINK) != 0) {
+        links++;
+      }
+      if ((tags & (BLOCK | ALLOW)) == 0 || !isWordBoundary(start - 1) || !isWordBoundary(end)) {
+        return;
+      }
+      if ((tags & ALLOW) != 0) {
+        allowed.add(new int[]{start, end});
+      } else {
+        blocked.add(new int[]{start, end});
+      }
+    }
+
+    int countBlocked() {
+      int count = 0;
+      for (int[] block : blocked) {
+        boolean covered = false;
+        for (int[] allow : allowed) {
+          if (allow[0] <= block[0] && block[1] <= allow[1]) {
+            covered = true;
+            break;
+          }
+        }
+        if (!covered) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    private boolean isWordBoundary(int index) {
+      return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.moderation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ewm.moderation.pre")
+public class PreModerationProperties {
+
+  private boolean enabled;
+
+  // Файлы словарей (file:, classpath:), по одному термину в строке, # - комментарий.
+  // Изменённый файл перечитывается, автомат пересобирается без остановки сервиса
+  private String blocklist;
+  private String allowlist;
+
+  // Сколько вхождений терминов из blocklist достаточно для автоматического отклонения
+  private int rejectThreshold = 1;
+
+  // Нарушение любого из правил отправляет комментарий модератору вместо автоподтверждения
+  private int maxLinks = 2;
+  private double maxUppercaseRatio = 0.7;
+  private int maxRepeatedChars = 8;
+
+  // false - чистые комментарии тоже ждут модератора, автоматически только отклоняется спам
+  private boolean autoConfirm = true;
+}
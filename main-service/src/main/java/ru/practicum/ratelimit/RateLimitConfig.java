@@ -0,0 +1,28 @@
+package ru.practicum.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Ограничение частоты запросов к публичному API (ewm.rate-limit.enabled=true).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ewm.rate-limit", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class RateLimitConfig implements WebMvcConfigurer {
+
+  // Пути PublicController; /users/** и /admin/** не ограничиваются
+  static final String[] PUBLIC_PATHS = {"/events/**", "/categories/**", "/compilations/**", "/initiators/**"};
+
+  private final RateLimiter rateLimiter;
+  private final RateLimitProperties properties;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new RateLimitInterceptor(rateLimiter, properties))
+            .addPathPatterns(PUBLIC_PATHS);
+  }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.exception.TooManyRequestsException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты публичных запросов по адресу клиента (тому же, что уходит в статистику)
+ * и шаблону пути. Отказ - 429 с Retry-After через ErrorHandler.
+ */
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private final RateLimiter rateLimiter;
+  private final RateLimitProperties properties;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+    long waitNanos = rateLimiter.tryAcquire(request.getRemoteAddr(), endpoint, cost(request));
+    if (waitNanos > 0) {
+      long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+      throw new TooManyRequestsException("Too many requests to " + endpoint, retryAfter);
+    }
+    return true;
+  }
+
+  // Большие страницы дороже: они и нагружают базу и stats-server
+  private int cost(HttpServletRequest request) {
+    String size = request.getParameter("size");
+    if (size == null) {
+      return 1;
+    }
+    try {
+      return 1 + Math.max(0, Integer.parseInt(size)) / properties.getSizeCostUnit();
+    } catch (NumberFormatException e) {
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ewm.rate-limit")
+public class RateLimitProperties {
+
+  private boolean enabled;
+
+  // Сколько пар (клиент, endpoint) помнить; дольше всех не обращавшиеся вытесняются
+  private int maxClients = 100_000;
+
+  // Запрос стоит один токен и ещё один за каждые size-cost-unit записей параметра size
+  private int sizeCostUnit = 100;
+
+  private Limit defaults = new Limit();
+
+  // Ключ - шаблон пути обработчика, например /events/{id}
+  private Map<String, Limit> endpoints = new LinkedHashMap<>();
+
+  @Getter
+  @Setter
+  public static class Limit {
+    // Наибольшая пачка запросов подряд
+    private int capacity = 50;
+    private double refillPerSecond = 10;
+  }
+}
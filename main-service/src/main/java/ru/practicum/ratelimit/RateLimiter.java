@@ -0,0 +1,128 @@
+package ru.practicum.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket на клиента и endpoint в форме GCRA: состояние ведра - одно число, момент,
+ * когда ведро снова станет полным, и проверка - один compareAndSet без блокировок.
+ *
+ * <p>Вёдра лежат в LRU-таблицах, разбитых на полосы со своей блокировкой; блокировка держится
+ * только на время поиска ведра. Вытесненное ведро клиента, который давно не обращался,
+ * и так успело бы наполниться.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ewm.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimiter {
+
+  private static final int STRIPES = 64;
+
+  private final RateLimitProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final LongSupplier nanoClock;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final ConcurrentMap<String, Rule> rules = new ConcurrentHashMap<>();
+
+  @Autowired
+  public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, System::nanoTime);
+  }
+
+  RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.nanoClock = nanoClock;
+    int perStripe = Math.max(1, properties.getMaxClients() / STRIPES);
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(perStripe);
+    }
+    Gauge.builder("ewm.ratelimit.buckets", this, RateLimiter::size)
+            .description("Client buckets currently tracked by the rate limiter")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Списывает cost токенов. Возвращает 0, если запрос пропущен, иначе - через сколько
+   * наносекунд запрос с той же стоимостью пройдёт.
+   */
+  public long tryAcquire(String client, String endpoint, int cost) {
+    Rule rule = rules.computeIfAbsent(endpoint, this::rule);
+    // Запрос дороже всего ведра иначе не прошёл бы никогда
+    long increment = Math.min(cost, rule.capacity()) * rule.emissionNanos();
+    AtomicLong fullAt = bucket(new BucketKey(client, endpoint));
+    long now = nanoClock.getAsLong();
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, now) + increment;
+      long overflow = next - now - rule.toleranceNanos();
+      if (overflow > 0) {
+        rule.rejected().increment();
+        return overflow;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  private AtomicLong bucket(BucketKey key) {
+    int hash = key.hashCode();
+    Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    synchronized (stripe) {
+      return stripe.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+    }
+  }
+
+  private Rule rule(String endpoint) {
+    RateLimitProperties.Limit limit = properties.getEndpoints().getOrDefault(endpoint, properties.getDefaults());
+    long emission = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRefillPerSecond());
+    Counter rejected = Counter.builder("ewm.ratelimit.rejected")
+            .description("Requests rejected by the rate limiter")
+            .tag("endpoint", endpoint)
+            .register(meterRegistry);
+    return new Rule(limit.getCapacity(), emission, limit.getCapacity() * emission, rejected);
+  }
+
+  private record BucketKey(String client, String endpoint) {
+  }
+
+  private record Rule(int capacity, long emissionNanos, long toleranceNanos, Counter rejected) {
+  }
+
+  private static final class Stripe extends LinkedHashMap<BucketKey, AtomicLong> {
+
+    private final int maxSize;
+
+    Stripe(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<BucketKey, AtomicLong> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
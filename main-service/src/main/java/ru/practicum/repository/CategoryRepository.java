@@ -5,4 +5,10 @@ import ru.practicum.model.Category;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
   boolean existsByName(String name);
+
+  // Через findById проверка обслуживается кешем второго уровня, count-запрос в кеш не смотрит
+  @Override
+  default boolean existsById(Long id) {
+    return findById(id).isPresent();
+  }
 }
@@ -1,26 +1,128 @@
 package ru.practicum.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.model.Comment;
 import ru.practicum.model.enums.CommentState;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
-  Page<Comment> findByEventIdAndState(Long eventId, CommentState state, Pageable pageable);
+  // Комментарии пользователя, ожидающего удаления, скрыты до их физического удаления: запросы,
+  // которые показывают чужие комментарии, соединяются с автором. События проверяются отдельно.
+
+  @Override
+  @Query("SELECT c FROM Comment c WHERE c.id = :id AND c.author.deletedAt IS NULL")
+  Optional<Comment> findById(@Param("id") Long id);
+
+  @Query(value = "SELECT c FROM Comment c WHERE c.event.id = :eventId AND c.state = :state " +
+          "AND c.author.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(c) FROM Comment c WHERE c.event.id = :eventId AND c.state = :state " +
+                  "AND c.author.deletedAt IS NULL")
+  Page<Comment> findByEventIdAndState(@Param("eventId") Long eventId, @Param("state") CommentState state,
+                                      Pageable pageable);
 
   Page<Comment> findByAuthorId(Long authorId, Pageable pageable);
 
-  Page<Comment> findByEventId(Long eventId, Pageable pageable);
+  @Query(value = "SELECT c FROM Comment c WHERE c.event.id = :eventId AND c.author.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(c) FROM Comment c WHERE c.event.id = :eventId AND c.author.deletedAt IS NULL")
+  Page<Comment> findByEventId(@Param("eventId") Long eventId, Pageable pageable);
 
-  @Query("SELECT c FROM Comment c WHERE (:state IS NULL OR c.state = :state)")
+  @Query(value = "SELECT c FROM Comment c WHERE (:state IS NULL OR c.state = :state) AND c.author.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(c) FROM Comment c WHERE (:state IS NULL OR c.state = :state) " +
+                  "AND c.author.deletedAt IS NULL")
   Page<Comment> findCommentsForModeration(@Param("state") CommentState state, Pageable pageable);
 
+  // Комментарии автора вместе с ответами удаляет UserPurgeWorker: предки идут раньше потомков
+  @Query("SELECT c FROM Comment c WHERE c.author.id = :authorId ORDER BY c.event.id, c.path, c.id")
+  List<Comment> findAuthorCommentsForPurge(@Param("authorId") Long authorId, Pageable pageable);
+
   Optional<Comment> findByIdAndAuthorId(Long commentId, Long authorId);
 
   long countByEventIdAndState(Long eventId, CommentState state);
+
+  // SKIP LOCKED: модераторы не ждут друг друга и не получают одни и те же комментарии
+  @Query(value = "SELECT c.id FROM comments c JOIN users u ON u.id = c.author_id AND u.deleted_at IS NULL " +
+          "WHERE c.state = 'PENDING' " +
+          "AND (c.claim_expires_at IS NULL OR c.claim_expires_at < :now OR c.claimed_by = :moderator) " +
+          "ORDER BY c.created_on, c.id LIMIT :size FOR UPDATE SKIP LOCKED", nativeQuery = true)
+  List<Long> lockClaimable(@Param("moderator") String moderator,
+                           @Param("now") LocalDateTime now,
+                           @Param("size") int size);
+
+  @Modifying
+  @Query("UPDATE Comment c SET c.claimedBy = :moderator, c.claimExpiresAt = :expiresAt WHERE c.id IN :ids")
+  int claim(@Param("ids") Collection<Long> ids,
+            @Param("moderator") String moderator,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+  @EntityGraph(attributePaths = "author")
+  List<Comment> findByIdInOrderByCreatedOnAscIdAsc(Collection<Long> ids);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM Comment c WHERE c.id IN :ids")
+  List<Comment> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+  @Modifying
+  @Query("UPDATE Comment c SET c.state = :state, c.moderatorComment = :moderatorComment, c.updatedOn = :now, " +
+          "c.claimedBy = NULL, c.claimExpiresAt = NULL WHERE c.id IN :ids")
+  int moderate(@Param("ids") Collection<Long> ids,
+               @Param("state") CommentState state,
+               @Param("moderatorComment") String moderatorComment,
+               @Param("now") LocalDateTime now);
+
+  @EntityGraph(attributePaths = "author")
+  @Query("SELECT c FROM Comment c WHERE c.event.id = :eventId AND c.state = :state AND c.depth = :depth " +
+          "AND c.author.deletedAt IS NULL")
+  List<Comment> findByEventIdAndStateAndDepth(@Param("eventId") Long eventId,
+                                              @Param("state") CommentState state,
+                                              @Param("depth") int depth,
+                                              Pageable pageable);
+
+  // Потомки комментария с путём from - диапазон путей (from, to), см. CommentPath
+  @Query("SELECT c FROM Comment c JOIN FETCH c.author a WHERE c.event.id = :eventId " +
+          "AND c.path > :from AND c.path < :to AND c.state = :state AND a.deletedAt IS NULL ORDER BY c.path")
+  List<Comment> findDescendants(@Param("eventId") Long eventId,
+                                @Param("from") String from,
+                                @Param("to") String to,
+                                @Param("state") CommentState state,
+                                Pageable pageable);
+
+  @Query("SELECT COUNT(c) FROM Comment c WHERE c.event.id = :eventId " +
+          "AND c.path > :from AND c.path < :to AND c.state = :state")
+  long countDescendants(@Param("eventId") Long eventId,
+                        @Param("from") String from,
+                        @Param("to") String to,
+                        @Param("state") CommentState state);
+
+  @Modifying
+  @Query("DELETE FROM Comment c WHERE c.event.id = :eventId AND c.path > :from AND c.path < :to")
+  int deleteDescendants(@Param("eventId") Long eventId, @Param("from") String from, @Param("to") String to);
+
+  // Первые limit ответов каждой ветки из диапазона путей [from, to) одним проходом по индексу (event_id, path)
+  @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.id IN (" +
+          "SELECT r.id FROM (SELECT d.id AS id, row_number() OVER (PARTITION BY d.threadId ORDER BY d.path) AS rn " +
+          "FROM Comment d WHERE d.event.id = :eventId AND d.path >= :from AND d.path < :to " +
+          "AND d.depth > 0 AND d.state = :state AND d.author.deletedAt IS NULL) r WHERE r.rn <= :limit) " +
+          "ORDER BY c.path")
+  List<Comment> findFirstReplies(@Param("eventId") Long eventId,
+                                 @Param("from") String from,
+                                 @Param("to") String to,
+                                 @Param("state") CommentState state,
+                                 @Param("limit") long limit);
+
+  @Modifying
+  @Query("UPDATE Comment c SET c.repliesCount = c.repliesCount + :delta WHERE c.id IN :ids")
+  int addToRepliesCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
 }
@@ -3,24 +3,60 @@ package ru.practicum.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.model.Event;
 import ru.practicum.model.enums.EventState;
 
 import java.util.List;
 import java.util.Optional;
 
-public interface EventRepository extends JpaRepository<Event, Long> {
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+
+  // События пользователя, ожидающего удаления, скрыты до их физического удаления: запросы ниже
+  // соединяются с инициатором. Свои события пользователь читает только пока не удалён.
+
+  @Override
+  @Query("SELECT e FROM Event e WHERE e.id = :id AND e.initiator.deletedAt IS NULL")
+  Optional<Event> findById(@Param("id") Long id);
 
-  Page<Event> findByState(EventState state, Pageable pageable);
+  @Override
+  @Query(value = "SELECT e FROM Event e WHERE e.initiator.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(e) FROM Event e WHERE e.initiator.deletedAt IS NULL")
+  Page<Event> findAll(Pageable pageable);
 
-  Page<Event> findByStateAndCategoryIdIn(EventState state, List<Long> categoryIds, Pageable pageable);
+  @Query(value = "SELECT e FROM Event e WHERE e.state = :state AND e.initiator.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(e) FROM Event e WHERE e.state = :state AND e.initiator.deletedAt IS NULL")
+  Page<Event> findByState(@Param("state") EventState state, Pageable pageable);
+
+  @Query(value = "SELECT e FROM Event e WHERE e.state = :state AND e.category.id IN :categoryIds " +
+          "AND e.initiator.deletedAt IS NULL",
+          countQuery = "SELECT COUNT(e) FROM Event e WHERE e.state = :state AND e.category.id IN :categoryIds " +
+                  "AND e.initiator.deletedAt IS NULL")
+  Page<Event> findByStateAndCategoryIdIn(@Param("state") EventState state,
+                                         @Param("categoryIds") List<Long> categoryIds,
+                                         Pageable pageable);
 
   Page<Event> findByInitiatorId(Long initiatorId, Pageable pageable);
 
   Optional<Event> findByIdAndInitiatorId(Long id, Long initiatorId);
 
-  Optional<Event> findByIdAndState(Long id, EventState state);
+  @Query("SELECT e FROM Event e WHERE e.id = :id AND e.state = :state AND e.initiator.deletedAt IS NULL")
+  Optional<Event> findByIdAndState(@Param("id") Long id, @Param("state") EventState state);
+
+  // Не readOnly, поэтому читается из primary: ответ запоминается до следующей версии события
+  @Transactional
+  @Query("SELECT COUNT(e) > 0 FROM Event e WHERE e.id = :id AND e.state = :state AND e.initiator.deletedAt IS NULL")
+  boolean existsByIdAndState(@Param("id") Long id, @Param("state") EventState state);
+
+  @Query("SELECT e FROM Event e WHERE e.id IN :ids AND e.initiator.deletedAt IS NULL")
+  List<Event> findByIdIn(@Param("ids") List<Long> ids);
 
-  List<Event> findByIdIn(List<Long> ids);
+  // JPQL, а не native: native-запрос без указания таблиц сбросил бы весь кеш второго уровня
+  @Modifying
+  @Query("UPDATE Event e SET e.commentsCount = e.commentsCount + :delta WHERE e.id = :eventId")
+  int addToCommentsCount(@Param("eventId") Long eventId, @Param("delta") long delta);
 }
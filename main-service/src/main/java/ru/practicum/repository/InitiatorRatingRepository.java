@@ -0,0 +1,15 @@
+package ru.practicum.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.model.InitiatorRating;
+
+public interface InitiatorRatingRepository extends JpaRepository<InitiatorRating, Long> {
+
+  // Пользователи, ожидающие удаления, отсекаются до постраничной выборки
+  @Query(value = "SELECT r FROM InitiatorRating r JOIN FETCH r.user u WHERE u.deletedAt IS NULL",
+          countQuery = "SELECT count(r) FROM InitiatorRating r JOIN r.user u WHERE u.deletedAt IS NULL")
+  Page<InitiatorRating> findActive(Pageable pageable);
+}
@@ -1,7 +1,25 @@
 package ru.practicum.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.model.Location;
 
-public interface LocationRepository extends JpaRepository<Location, Long> {
+import java.util.Optional;
+
+public interface LocationRepository extends JpaRepository<Location, Long>, JpaSpecificationExecutor<Location> {
+
+  Optional<Location> findByLatAndLon(Float lat, Float lon);
+
+  // Таблица указана явно: иначе native-запрос сбросил бы весь кеш второго уровня
+  @Modifying
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "locations"))
+  @Query(value = "INSERT INTO locations (lat, lon, geohash) VALUES (:lat, :lon, :geohash) " +
+          "ON CONFLICT (lat, lon) DO NOTHING", nativeQuery = true)
+  int insertIfAbsent(@Param("lat") Float lat, @Param("lon") Float lon, @Param("geohash") String geohash);
 }
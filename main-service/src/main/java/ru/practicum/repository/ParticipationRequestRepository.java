@@ -13,7 +13,9 @@ public interface ParticipationRequestRepository extends JpaRepository<Participat
 
   List<ParticipationRequest> findByRequesterId(Long requesterId);
 
-  List<ParticipationRequest> findByEventId(Long eventId);
+  // Заявки пользователя, ожидающего удаления, инициатор не видит до их физического удаления
+  @Query("SELECT pr FROM ParticipationRequest pr WHERE pr.event.id = :eventId AND pr.requester.deletedAt IS NULL")
+  List<ParticipationRequest> findByEventId(@Param("eventId") Long eventId);
 
   List<ParticipationRequest> findByEventInitiatorId(Long initiatorId);
 
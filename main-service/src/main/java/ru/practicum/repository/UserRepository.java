@@ -1,13 +1,18 @@
 package ru.practicum.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.model.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -15,4 +20,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Page<User> findUsersWithIds(@Param("ids") List<Long> ids, Pageable pageable);
 
   boolean existsByEmail(String email);
+
+  // Блокировка строки не даёт записи голосов сослаться на пользователя, пока он удаляется
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT u FROM User u WHERE u.id = :id")
+  Optional<User> findByIdForUpdate(@Param("id") Long id);
+
+  // Массовый UPDATE сбрасывает регион кеша User, поэтому помеченный пользователь не останется в кеше
+  @Modifying
+  @Query("UPDATE User u SET u.deletedAt = :deletedAt WHERE u.id = :id")
+  int markDeleted(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+  // Через findById проверка обслуживается кешем второго уровня, count-запрос в кеш не смотрит
+  @Override
+  default boolean existsById(Long id) {
+    return findById(id).isPresent();
+  }
 }
@@ -0,0 +1,232 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.bulk.BulkImportResultDto;
+import ru.practicum.dto.bulk.BulkImportRowDto;
+import ru.practicum.dto.category.NewCategoryDto;
+import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Массовое создание пользователей и категорий из JSON-массива или NDJSON.
+ *
+ * <p>Строки читаются потоком и обрабатываются порциями по chunkSize: на порцию один запрос
+ * уже существующих ключей, JDBC-batch вставка новых строк и один запрос их id. Каждая порция
+ * коммитится отдельно, поэтому ошибка разбора в середине входа не откатывает уже созданное.
+ */
+@Service
+@Slf4j
+public class BulkImportService {
+
+  private static final Target<NewUserRequest> USERS = new Target<>("users", "email",
+          "INSERT INTO users (name, email) VALUES (?, ?)", NewUserRequest.class, NewUserRequest::getEmail,
+          (statement, user) -> {
+            statement.setString(1, user.getName());
+            statement.setString(2, user.getEmail());
+          });
+
+  private static final Target<NewCategoryDto> CATEGORIES = new Target<>("categories", "name",
+          "INSERT INTO categories (name) VALUES (?)", NewCategoryDto.class, NewCategoryDto::getName,
+          (statement, category) -> statement.setString(1, category.getName()));
+
+  private final ObjectMapper objectMapper;
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Validator validator;
+  private final ResourceVersions resourceVersions;
+  private final int chunkSize;
+
+  public BulkImportService(ObjectMapper objectMapper,
+                           NamedParameterJdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           Validator validator,
+                           ResourceVersions resourceVersions,
+                           @Value("${ewm.import.chunk-size:1000}") int chunkSize) {
+    this.objectMapper = objectMapper;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.validator = validator;
+    this.resourceVersions = resourceVersions;
+    this.chunkSize = chunkSize;
+  }
+
+  public BulkImportResultDto importUsers(InputStream body) {
+    return importRows(body, USERS);
+  }
+
+  public BulkImportResultDto importCategories(InputStream body) {
+    BulkImportResultDto result = importRows(body, CATEGORIES);
+    if (result.getCreated() > 0) {
+      resourceVersions.bump(ResourceVersions.CATEGORIES);
+    }
+    return result;
+  }
+
+  private <T> BulkImportResultDto importRows(InputStream body, Target<T> target) {
+    List<BulkImportRowDto> rows = new ArrayList<>();
+    Set<String> seenKeys = new HashSet<>();
+    List<Pending<T>> chunk = new ArrayList<>(chunkSize);
+    // readValues разворачивает JSON-массив верхнего уровня и так же читает значения через перевод строки
+    try (MappingIterator<T> values = objectMapper.readerFor(target.type()).readValues(body)) {
+      while (true) {
+        BulkImportRowDto row = new BulkImportRowDto(rows.size() + 1);
+        T value;
+        try {
+          if (!values.hasNextValue()) {
+            break;
+          }
+          value = values.nextValue();
+        } catch (JsonProcessingException e) {
+          // После ошибки разбора позиция следующей строки не определена, поэтому вход дальше не читаем
+          rows.add(invalid(row, "Malformed JSON: " + e.getOriginalMessage()));
+          break;
+        }
+        rows.add(row);
+        String violations = validate(value);
+        if (violations != null) {
+          invalid(row, violations);
+        } else if (!seenKeys.add(target.key().apply(value))) {
+          duplicate(row, target.keyColumn() + " is repeated in the import");
+        } else {
+          chunk.add(new Pending<>(row, value));
+          if (chunk.size() == chunkSize) {
+            writeChunk(chunk, target);
+            chunk.clear();
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new ValidationException("Failed to read import: " + e.getMessage());
+    }
+    if (!chunk.isEmpty()) {
+      writeChunk(chunk, target);
+    }
+    return summarize(rows, target);
+  }
+
+  private <T> void writeChunk(List<Pending<T>> chunk, Target<T> target) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> insertChunk(chunk, target));
+    } catch (DuplicateKeyException e) {
+      // Параллельная вставка успела занять ключ после проверки; повторная проверка увидит его
+      log.debug("Import chunk into {} raced with a concurrent insert, retrying", target.table());
+      transactionTemplate.executeWithoutResult(status -> insertChunk(chunk, target));
+    }
+  }
+
+  private <T> void insertChunk(List<Pending<T>> chunk, Target<T> target) {
+    Set<String> keys = chunk.stream()
+            .map(pending -> target.key().apply(pending.value()))
+            .collect(Collectors.toSet());
+    Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT " + target.keyColumn() + " FROM " + target.table() +
+                    " WHERE " + target.keyColumn() + " IN (:keys)",
+            Map.of("keys", keys), String.class));
+
+    List<Pending<T>> fresh = new ArrayList<>(chunk.size());
+    for (Pending<T> pending : chunk) {
+      if (existing.contains(target.key().apply(pending.value()))) {
+        duplicate(pending.row(), target.keyColumn() + " already exists");
+      } else {
+        fresh.add(pending);
+      }
+    }
+    if (fresh.isEmpty()) {
+      return;
+    }
+
+    jdbcTemplate.getJdbcTemplate().batchUpdate(target.insertSql(), fresh, fresh.size(),
+            (statement, pending) -> target.binder().bind(statement, pending.value()));
+
+    Map<String, Long> ids = new HashMap<>();
+    jdbcTemplate.query("SELECT id, " + target.keyColumn() + " FROM " + target.table() +
+                    " WHERE " + target.keyColumn() + " IN (:keys)",
+            Map.of("keys", fresh.stream().map(pending -> target.key().apply(pending.value())).toList()),
+            rs -> {
+              ids.put(rs.getString(2), rs.getLong(1));
+            });
+    for (Pending<T> pending : fresh) {
+      BulkImportRowDto row = pending.row();
+      row.setStatus(BulkImportRowDto.Status.CREATED);
+      row.setId(ids.get(target.key().apply(pending.value())));
+      row.setMessage(null);
+    }
+  }
+
+  private <T> String validate(T value) {
+    if (value == null) {
+      return "Row is empty";
+    }
+    Set<ConstraintViolation<T>> violations = validator.validate(value);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+  }
+
+  private <T> BulkImportResultDto summarize(List<BulkImportRowDto> rows, Target<T> target) {
+    int created = 0;
+    int duplicates = 0;
+    int invalid = 0;
+    for (BulkImportRowDto row : rows) {
+      switch (row.getStatus()) {
+        case CREATED -> created++;
+        case DUPLICATE -> duplicates++;
+        case INVALID -> invalid++;
+      }
+    }
+    log.info("Imported into {}: created={}, duplicates={}, invalid={}",
+            target.table(), created, duplicates, invalid);
+    return new BulkImportResultDto(created, duplicates, invalid, rows);
+  }
+
+  private static BulkImportRowDto invalid(BulkImportRowDto row, String message) {
+    row.setStatus(BulkImportRowDto.Status.INVALID);
+    row.setMessage(message);
+    return row;
+  }
+
+  private static void duplicate(BulkImportRowDto row, String message) {
+    row.setStatus(BulkImportRowDto.Status.DUPLICATE);
+    row.setMessage(message);
+  }
+
+  private record Pending<T>(BulkImportRowDto row, T value) {
+  }
+
+  @FunctionalInterface
+  private interface Binder<T> {
+    void bind(PreparedStatement statement, T value) throws SQLException;
+  }
+
+  private record Target<T>(String table, String keyColumn, String insertSql, Class<T> type,
+                           Function<T, String> key, Binder<T> binder) {
+  }
+}
@@ -26,6 +26,7 @@ public class CategoryService {
 
   private final CategoryRepository categoryRepository;
   private final CategoryMapper categoryMapper;
+  private final ResourceVersions resourceVersions;
 
   public List<CategoryDto> getCategories(int from, int size) {
     Pageable pageable = PageRequest.of(from / size, size);
@@ -49,6 +50,7 @@ public class CategoryService {
     try {
       Category category = categoryMapper.toCategory(newCategoryDto);
       category = categoryRepository.save(category);
+      resourceVersions.bump(ResourceVersions.CATEGORIES);
       return categoryMapper.toCategoryDto(category);
     } catch (DataIntegrityViolationException e) {
       throw new ConflictException("Category with name " + newCategoryDto.getName() + " already exists");
@@ -62,6 +64,7 @@ public class CategoryService {
     }
     try {
       categoryRepository.deleteById(catId);
+      resourceVersions.bump(ResourceVersions.CATEGORIES);
     } catch (DataIntegrityViolationException e) {
       throw new ConflictException("Cannot delete category that is in use");
     }
@@ -78,6 +81,8 @@ public class CategoryService {
 
     category.setName(categoryDto.getName());
     category = categoryRepository.save(category);
+    // Категория встроена в представления событий и подборок
+    resourceVersions.bump(ResourceVersions.CATEGORIES, ResourceVersions.EVENTS, ResourceVersions.COMPILATIONS);
     return categoryMapper.toCategoryDto(category);
   }
 
@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.enums.CommentState;
+
+/**
+ * Сверка events.comments_count и comments.replies_count с фактическим числом подтверждённых
+ * комментариев и ответов.
+ *
+ * <p>Счётчики меняются вместе с комментарием в одной транзакции, но могут разойтись после
+ * правок в обход сервиса (фоновое удаление пользователей) или гонки со сверкой. Строки
+ * обходятся диапазонами id, каждый диапазон - отдельный UPDATE, который трогает только
+ * разошедшиеся строки.
+ */
+@Component
+@Slf4j
+public class CommentCountReconciler {
+
+  private static final String ACTUAL_COUNT =
+          "(SELECT COUNT(*) FROM comments c WHERE c.event_id = e.id AND c.state = ?)";
+  private static final String ACTUAL_REPLIES = "(SELECT COUNT(*) FROM comments d " +
+          "WHERE d.thread_id = c.thread_id AND d.path LIKE c.path || '%' AND d.id <> c.id AND d.state = ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ResourceVersions resourceVersions;
+  private final int chunkSize;
+  private final Counter repaired;
+  private final Counter repairedReplies;
+
+  public CommentCountReconciler(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                ResourceVersions resourceVersions,
+                                @Value("${ewm.comments.reconcile-chunk-size:1000}") int chunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.resourceVersions = resourceVersions;
+    this.chunkSize = chunkSize;
+    this.repaired = Counter.builder("ewm.comments.count.repaired")
+            .description("Events whose comments_count had drifted from the confirmed comments")
+            .register(meterRegistry);
+    this.repairedReplies = Counter.builder("ewm.comments.replies.repaired")
+            .description("Comments whose replies_count had drifted from the confirmed replies")
+            .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.comments.reconcile-interval-ms:3600000}",
+          initialDelayString = "${ewm.comments.reconcile-interval-ms:3600000}")
+  public void reconcile() {
+    long fixed = repair("events", "UPDATE events e SET comments_count = " + ACTUAL_COUNT +
+            " WHERE e.id >= ? AND e.id < ? AND e.comments_count <> " + ACTUAL_COUNT);
+    if (fixed > 0) {
+      repaired.increment(fixed);
+      log.warn("Repaired comments_count on {} events", fixed);
+      // Какие события исправлены, не известно: сбрасываются ETag всех событий и подборок
+      resourceVersions.bump(ResourceVersions.EVENTS, ResourceVersions.COMPILATIONS);
+    }
+    long fixedReplies = repair("comments", "UPDATE comments c SET replies_count = " + ACTUAL_REPLIES +
+            " WHERE c.id >= ? AND c.id < ? AND c.replies_count <> " + ACTUAL_REPLIES);
+    if (fixedReplies > 0) {
+      repairedReplies.increment(fixedReplies);
+      log.warn("Repaired replies_count on {} comments", fixedReplies);
+    }
+  }
+
+  private long repair(String table, String sql) {
+    Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+    if (maxId == null) {
+      return 0;
+    }
+    String confirmed = CommentState.CONFIRMED.name();
+    long fixed = 0;
+    for (long start = 0; start <= maxId; start += chunkSize) {
+      long from = start;
+      long to = start + chunkSize;
+      Integer updated = transactionTemplate.execute(status -> jdbcTemplate.update(sql, confirmed, from, to, confirmed));
+      fixed += updated != null ? updated : 0;
+    }
+    return fixed;
+  }
+}
@@ -2,6 +2,7 @@ package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -12,16 +13,24 @@ import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.CommentMapper;
 import ru.practicum.model.Comment;
+import ru.practicum.model.CommentPath;
 import ru.practicum.model.Event;
 import ru.practicum.model.User;
 import ru.practicum.model.enums.CommentState;
 import ru.practicum.model.enums.EventState;
+import ru.practicum.moderation.CommentPreModerator;
 import ru.practicum.repository.CommentRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.UserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,6 +43,11 @@ public class CommentService {
   private final EventRepository eventRepository;
   private final UserRepository userRepository;
   private final CommentMapper commentMapper;
+  private final ResourceVersions resourceVersions;
+  private final CommentPreModerator preModerator;
+
+  @Value("${ewm.moderation.claim-lease:5m}")
+  private Duration claimLease = Duration.ofMinutes(5);
 
   public List<CommentDto> getPublicComments(Long eventId, int from, int size) {
     Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
@@ -48,6 +62,54 @@ public class CommentService {
             .collect(Collectors.toList());
   }
 
+  /**
+   * Страница веток: корневые комментарии и первые replies ответов каждой из них. Корни страницы
+   * идут подряд в порядке путей, поэтому все их ответы лежат в одном диапазоне путей.
+   */
+  public List<CommentThreadDto> getPublicThreads(Long eventId, int from, int size, int replies) {
+    eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
+            .orElseThrow(() -> new NotFoundException("Event not found or not published"));
+
+    Pageable pageable = PageRequest.of(from / size, size, Sort.by(Sort.Direction.ASC, "path"));
+    List<Comment> roots = commentRepository.findByEventIdAndStateAndDepth(eventId, CommentState.CONFIRMED, 0, pageable);
+    if (roots.isEmpty()) {
+      return List.of();
+    }
+
+    Map<Long, List<CommentDto>> repliesByThread = new HashMap<>();
+    if (replies > 0) {
+      String firstPath = roots.get(0).getPath();
+      String lastPath = roots.get(roots.size() - 1).getPath();
+      commentRepository.findFirstReplies(eventId, firstPath, CommentPath.upperBound(lastPath),
+                      CommentState.CONFIRMED, replies)
+              .forEach(reply -> repliesByThread.computeIfAbsent(reply.getThreadId(), id -> new ArrayList<>())
+                      .add(commentMapper.toCommentDto(reply)));
+    }
+    return roots.stream()
+            .map(root -> new CommentThreadDto(commentMapper.toCommentDto(root),
+                    repliesByThread.getOrDefault(root.getId(), List.of())))
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Комментарий и до size его ответов любой вложенности одним запросом по диапазону путей.
+   */
+  public CommentThreadDto getPublicThread(Long eventId, Long commentId, int size) {
+    eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
+            .orElseThrow(() -> new NotFoundException("Event not found or not published"));
+    Comment comment = commentRepository.findById(commentId)
+            .filter(found -> found.getEvent().getId().equals(eventId))
+            .filter(found -> found.getState() == CommentState.CONFIRMED)
+            .orElseThrow(() -> new NotFoundException("Comment not found"));
+
+    List<CommentDto> replies = commentRepository.findDescendants(eventId, comment.getPath(),
+                    CommentPath.upperBound(comment.getPath()), CommentState.CONFIRMED, PageRequest.of(0, size))
+            .stream()
+            .map(commentMapper::toCommentDto)
+            .collect(Collectors.toList());
+    return new CommentThreadDto(commentMapper.toCommentDto(comment), replies);
+  }
+
   @Transactional
   public CommentDto createComment(Long userId, Long eventId, NewCommentDto newCommentDto) {
     User user = userRepository.findById(userId)
@@ -56,16 +118,35 @@ public class CommentService {
     Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
             .orElseThrow(() -> new NotFoundException("Event not found or not published"));
 
+    Comment parent = null;
+    if (newCommentDto.getParentId() != null) {
+      parent = commentRepository.findById(newCommentDto.getParentId())
+              .filter(found -> found.getEvent().getId().equals(eventId))
+              .orElseThrow(() -> new NotFoundException("Parent comment not found"));
+      if (parent.getState() != CommentState.CONFIRMED) {
+        throw new ConflictException("Only confirmed comments can be replied to");
+      }
+      if (parent.getDepth() + 1 >= CommentPath.MAX_DEPTH) {
+        throw new ConflictException("Reply nesting limit of " + CommentPath.MAX_DEPTH + " reached");
+      }
+    }
+
     Comment comment = new Comment();
     comment.setText(newCommentDto.getText());
     comment.setEvent(event);
     comment.setAuthor(user);
     comment.setCreatedOn(LocalDateTime.now());
-    comment.setState(CommentState.PENDING);
+    comment.setParentId(parent != null ? parent.getId() : null);
+    comment.setDepth(parent != null ? parent.getDepth() + 1 : 0);
+    applyPreModeration(comment);
 
     comment = commentRepository.save(comment);
+    // Путь и ветка включают собственный id, поэтому заполняются после вставки
+    comment.setPath(CommentPath.child(parent != null ? parent.getPath() : null, comment.getId()));
+    comment.setThreadId(parent != null ? parent.getThreadId() : comment.getId());
+    onCommentPreModerated(comment);
 
-    log.info("Comment created: {} by user: {}", comment.getId(), userId);
+    log.info("Comment created: {} by user: {} with state: {}", comment.getId(), userId, comment.getState());
     return commentMapper.toCommentDto(comment);
   }
 
@@ -95,10 +176,11 @@ public class CommentService {
     if (updateCommentDto.getText() != null) {
       comment.setText(updateCommentDto.getText());
       comment.setUpdatedOn(LocalDateTime.now());
-      comment.setState(CommentState.PENDING); // Возвращаем на модерацию
+      applyPreModeration(comment); // Новый текст заново проходит пре-модерацию
     }
 
     comment = commentRepository.save(comment);
+    onCommentPreModerated(comment);
     return commentMapper.toCommentDto(comment);
   }
 
@@ -112,6 +194,7 @@ public class CommentService {
     }
 
     commentRepository.deleteById(commentId);
+    onCommentRemoved(comment);
     log.info("Comment deleted: {} by user: {}", commentId, userId);
   }
 
@@ -138,8 +221,29 @@ public class CommentService {
             .collect(Collectors.toList());
   }
 
+  /**
+   * Выдаёт модератору до size ожидающих комментариев в аренду на claimLease. Свои ещё не
+   * отмодерированные комментарии модератор получает повторно, аренда при этом продлевается.
+   */
   @Transactional
-  public CommentDto moderateComment(Long commentId, CommentModerationDto moderationDto) {
+  public CommentClaimDto claimComments(String moderatorId, int size) {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime expiresAt = now.plus(claimLease);
+    List<Long> ids = commentRepository.lockClaimable(moderatorId, now, size);
+    if (ids.isEmpty()) {
+      return new CommentClaimDto(expiresAt, List.of());
+    }
+    commentRepository.claim(ids, moderatorId, expiresAt);
+    log.info("Moderator {} claimed {} comments until {}", moderatorId, ids.size(), expiresAt);
+    List<CommentDto> comments = commentRepository.findByIdInOrderByCreatedOnAscIdAsc(ids)
+            .stream()
+            .map(commentMapper::toCommentDto)
+            .collect(Collectors.toList());
+    return new CommentClaimDto(expiresAt, comments);
+  }
+
+  @Transactional
+  public CommentDto moderateComment(Long commentId, CommentModerationDto moderationDto, String moderatorId) {
     Comment comment = commentRepository.findById(commentId)
             .orElseThrow(() -> new NotFoundException("Comment not found"));
 
@@ -147,23 +251,167 @@ public class CommentService {
       throw new ConflictException("Only pending comments can be moderated");
     }
 
+    LocalDateTime now = LocalDateTime.now();
+    if (isClaimedByOther(comment, moderatorId, now)) {
+      throw new ConflictException("Comment is claimed by another moderator");
+    }
+
     comment.setState(moderationDto.getState());
     comment.setModeratorComment(moderationDto.getModeratorComment());
-    comment.setUpdatedOn(LocalDateTime.now());
+    comment.setUpdatedOn(now);
+    comment.setClaimedBy(null);
+    comment.setClaimExpiresAt(null);
 
     comment = commentRepository.save(comment);
+    if (comment.getState() == CommentState.CONFIRMED) {
+      addToCounts(List.of(comment), 1);
+    }
+    resourceVersions.bump(ResourceVersions.comments(comment.getEvent().getId()));
 
     log.info("Comment {} moderated with state: {}", commentId, moderationDto.getState());
     return commentMapper.toCommentDto(comment);
   }
 
+  /**
+   * Применяет одно решение ко всем ожидающим комментариям из списка одним UPDATE.
+   * Уже отмодерированные и арендованные другим модератором комментарии пропускаются.
+   */
+  @Transactional
+  public CommentBulkModerationResultDto moderateComments(CommentBulkModerationDto moderationDto, String moderatorId) {
+    LocalDateTime now = LocalDateTime.now();
+    List<Long> requested = moderationDto.getCommentIds().stream().distinct().collect(Collectors.toList());
+    List<Comment> moderatable = commentRepository.findAllByIdForUpdate(requested)
+            .stream()
+            .filter(comment -> comment.getState() == CommentState.PENDING)
+            .filter(comment -> !isClaimedByOther(comment, moderatorId, now))
+            .collect(Collectors.toList());
+    Set<Long> moderated = moderatable.stream().map(Comment::getId).collect(Collectors.toSet());
+
+    if (!moderated.isEmpty()) {
+      commentRepository.moderate(moderated, moderationDto.getState(), moderationDto.getModeratorComment(), now);
+      if (moderationDto.getState() == CommentState.CONFIRMED) {
+        addToCounts(moderatable, 1);
+      }
+      moderatable.stream()
+              .map(comment -> comment.getEvent().getId())
+              .distinct()
+              .forEach(eventId -> resourceVersions.bump(ResourceVersions.comments(eventId)));
+    }
+
+    log.info("Bulk moderation to {}: {} moderated, {} skipped", moderationDto.getState(),
+            moderated.size(), requested.size() - moderated.size());
+    return new CommentBulkModerationResultDto(
+            requested.stream().filter(moderated::contains).collect(Collectors.toList()),
+            requested.stream().filter(id -> !moderated.contains(id)).collect(Collectors.toList()));
+  }
+
   @Transactional
   public void deleteCommentByAdmin(Long commentId) {
-    if (!commentRepository.existsById(commentId)) {
-      throw new NotFoundException("Comment not found");
+    Comment comment = commentRepository.findById(commentId)
+            .orElseThrow(() -> new NotFoundException("Comment not found"));
+
+    int deletedReplies = deleteWithReplies(comment);
+    log.info("Comment {} deleted by admin with {} replies", commentId, deletedReplies);
+  }
+
+  /**
+   * Удаление порции комментариев автора вместе с ответами на них, со всеми счётчиками.
+   * Возвращает число удалённых комментариев автора; 0 - у автора комментариев не осталось.
+   */
+  @Transactional
+  public int deleteAuthorComments(Long authorId, int limit) {
+    List<Comment> comments = commentRepository.findAuthorCommentsForPurge(authorId, PageRequest.of(0, limit));
+    Comment removedRoot = null;
+    int deleted = 0;
+    for (Comment comment : comments) {
+      // Ответ автора на свой же комментарий уже удалён вместе с ним
+      if (removedRoot != null && isInSubtree(comment, removedRoot)) {
+        deleted++;
+        continue;
+      }
+      deleteWithReplies(comment);
+      removedRoot = comment;
+      deleted++;
     }
+    return deleted;
+  }
 
-    commentRepository.deleteById(commentId);
-    log.info("Comment {} deleted by admin", commentId);
+  // Вместе с комментарием удаляются все ответы на него; возвращает число удалённых ответов
+  private int deleteWithReplies(Comment comment) {
+    Long eventId = comment.getEvent().getId();
+    String to = CommentPath.upperBound(comment.getPath());
+    long confirmedReplies = commentRepository.countDescendants(eventId, comment.getPath(), to, CommentState.CONFIRMED);
+    int deletedReplies = commentRepository.deleteDescendants(eventId, comment.getPath(), to);
+    if (confirmedReplies > 0) {
+      addToCommentsCount(eventId, -confirmedReplies);
+      List<Long> ancestors = CommentPath.ancestors(comment.getPath());
+      if (!ancestors.isEmpty()) {
+        commentRepository.addToRepliesCount(ancestors, -confirmedReplies);
+      }
+    }
+
+    commentRepository.deleteById(comment.getId());
+    onCommentRemoved(comment);
+    return deletedReplies;
+  }
+
+  private void applyPreModeration(Comment comment) {
+    CommentPreModerator.Verdict verdict = preModerator.review(comment.getText());
+    comment.setState(verdict.state());
+    comment.setModeratorComment(verdict.reason());
+  }
+
+  private void onCommentPreModerated(Comment comment) {
+    if (comment.getState() == CommentState.CONFIRMED) {
+      addToCounts(List.of(comment), 1);
+      resourceVersions.bump(ResourceVersions.comments(comment.getEvent().getId()));
+    }
+  }
+
+  private void onCommentRemoved(Comment comment) {
+    Long eventId = comment.getEvent().getId();
+    if (comment.getState() == CommentState.CONFIRMED) {
+      addToCounts(List.of(comment), -1);
+    }
+    resourceVersions.bump(ResourceVersions.comments(eventId));
+  }
+
+  /**
+   * Подтверждённый комментарий учитывается в events.comments_count события и в replies_count
+   * каждого предка. На каждое различное приращение - один UPDATE.
+   */
+  private void addToCounts(Collection<Comment> comments, long sign) {
+    Map<Long, Long> byEvent = new HashMap<>();
+    Map<Long, Long> byAncestor = new HashMap<>();
+    for (Comment comment : comments) {
+      byEvent.merge(comment.getEvent().getId(), 1L, Long::sum);
+      for (Long ancestor : CommentPath.ancestors(comment.getPath())) {
+        byAncestor.merge(ancestor, 1L, Long::sum);
+      }
+    }
+    byEvent.forEach((eventId, count) -> addToCommentsCount(eventId, sign * count));
+    byAncestor.entrySet().stream()
+            .collect(Collectors.groupingBy(Map.Entry::getValue,
+                    Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+            .forEach((count, ids) -> commentRepository.addToRepliesCount(ids, sign * count));
+  }
+
+  // commentsCount входит в EventFullDto и EventShortDto: меняются ETag события и подборок
+  private void addToCommentsCount(Long eventId, long delta) {
+    eventRepository.addToCommentsCount(eventId, delta);
+    resourceVersions.bump(ResourceVersions.event(eventId), ResourceVersions.COMPILATIONS);
+  }
+
+  private static boolean isInSubtree(Comment comment, Comment root) {
+    return comment.getEvent().getId().equals(root.getEvent().getId())
+            && comment.getPath().compareTo(root.getPath()) > 0
+            && comment.getPath().compareTo(CommentPath.upperBound(root.getPath())) < 0;
+  }
+
+  private static boolean isClaimedByOther(Comment comment, String moderatorId, LocalDateTime now) {
+    return comment.getClaimedBy() != null
+            && comment.getClaimExpiresAt() != null
+            && comment.getClaimExpiresAt().isAfter(now)
+            && !comment.getClaimedBy().equals(moderatorId);
   }
 }
@@ -28,6 +28,7 @@ public class CompilationService {
   private final CompilationRepository compilationRepository;
   private final EventRepository eventRepository;
   private final CompilationMapper compilationMapper;
+  private final ResourceVersions resourceVersions;
 
   public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
     Pageable pageable = PageRequest.of(from / size, size);
@@ -54,6 +55,7 @@ public class CompilationService {
     compilation.setTitle(newCompilationDto.getTitle());
 
     compilation = compilationRepository.save(compilation);
+    resourceVersions.bump(ResourceVersions.COMPILATIONS);
     return compilationMapper.toCompilationDto(compilation);
   }
 
@@ -63,6 +65,7 @@ public class CompilationService {
       throw new NotFoundException("Compilation with id=" + compId + " was not found");
     }
     compilationRepository.deleteById(compId);
+    resourceVersions.bump(ResourceVersions.COMPILATIONS);
   }
 
   @Transactional
@@ -83,6 +86,7 @@ public class CompilationService {
     }
 
     compilation = compilationRepository.save(compilation);
+    resourceVersions.bump(ResourceVersions.COMPILATIONS);
     return compilationMapper.toCompilationDto(compilation);
   }
 
@@ -1,15 +1,20 @@
 package ru.practicum.service;
 
+import jakarta.persistence.criteria.Predicate;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.client.StatsClient;
-import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.client.ViewCountTable;
 import ru.practicum.dto.event.*;
 import ru.practicum.dto.location.LocationDto;
 import ru.practicum.exception.ConflictException;
@@ -18,6 +23,7 @@ import ru.practicum.exception.ValidationException;
 import ru.practicum.mapper.EventMapper;
 import ru.practicum.model.Category;
 import ru.practicum.model.Event;
+import ru.practicum.model.GeoHash;
 import ru.practicum.model.Location;
 import ru.practicum.model.User;
 import ru.practicum.model.enums.EventState;
@@ -26,10 +32,14 @@ import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.LocationRepository;
 import ru.practicum.repository.UserRepository;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,25 +48,50 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class EventService {
 
+  private static final String DISTANCE_SORT = "DISTANCE";
+  private static final String RATING_SORT = "RATING";
+  // Порядок индекса idx_events_state_rating
+  private static final Comparator<Event> BY_RATING = Comparator.comparing(Event::getRating)
+          .thenComparing(Event::getId).reversed();
+  private static final double DEFAULT_RADIUS_KM = 10;
+  // Локаций в одном IN-списке при сортировке по расстоянию
+  private static final int NEAR_LOCATIONS_CHUNK = 500;
+
   private final EventRepository eventRepository;
   private final UserRepository userRepository;
   private final CategoryRepository categoryRepository;
   private final LocationRepository locationRepository;
   private final EventMapper eventMapper;
   private final StatsClient statsClient;
+  private final ViewCountTable viewCountTable;
+  private final ResourceVersions resourceVersions;
+
+  // Больший радиус не сужается ячейками geohash и сводится к чтению всех локаций
+  @Value("${ewm.events.max-radius-km:500}")
+  private double maxRadiusKm = 500;
 
   public List<EventShortDto> getPublicEvents(String text, List<Long> categories, Boolean paid,
                                              LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                             Boolean onlyAvailable, String sort, int from, int size,
-                                             HttpServletRequest request) {
+                                             Boolean onlyAvailable, Float lat, Float lon, Double radius,
+                                             String sort, int from, int size, HttpServletRequest request) {
     try {
       log.info("Starting getPublicEvents with categories: {}, sort: {}", categories, sort);
 
       rangeStart = validateAndPrepareTimeRange(rangeStart, rangeEnd);
 
+      // Расстояние до каждой подходящей локации; null, если поиск не по окрестности
+      Map<Long, Double> distances = findLocationsNear(lat, lon, radius, sort);
+
       saveHit(request);
 
-      List<Event> events = fetchEventsFromDatabase(text, categories, paid, rangeStart, rangeEnd, sort, from, size);
+      if (distances != null) {
+        return convertToDto(findEventsNear(distances, text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, from, size));
+      }
+
+      List<Event> events = fetchEventsFromDatabase(categories, sort, from, size);
+
+      events = applyFilters(events, text, categories, paid, rangeStart, rangeEnd);
 
       List<Event> eventsWithViews = addViewsToEvents(events);
 
@@ -83,6 +118,26 @@ public class EventService {
     return eventMapper.toEventFullDto(event);
   }
 
+  /**
+   * ETag публичного события: версии события и число просмотров, которые меняются без версий.
+   * Пока таблица просмотров не синхронизирована, ETag нет (null) и ответ строится целиком.
+   *
+   * <p>Публикация и снятие с публикации меняют версию события, поэтому опубликованность
+   * читается из базы один раз на версию. Вне транзакции: версии читаются из primary.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public String getPublicEventEtag(Long id) {
+    String[] keys = {ResourceVersions.EVENTS, ResourceVersions.event(id)};
+    if (!resourceVersions.remember("published:" + id,
+            () -> eventRepository.existsByIdAndState(id, EventState.PUBLISHED), keys)) {
+      throw new NotFoundException("Event with id=" + id + " was not found or not published");
+    }
+    if (!viewCountTable.isSynced()) {
+      return null;
+    }
+    return resourceVersions.etagWith(viewCountTable.getViews("/events/" + id), keys);
+  }
+
   public List<EventShortDto> getUserEvents(Long userId, int from, int size) {
     checkUserExists(userId);
     Pageable pageable = PageRequest.of(from / size, size);
@@ -143,6 +198,7 @@ public class EventService {
 
     updateEventFromUserRequest(event, updateRequest);
     event = eventRepository.save(event);
+    resourceVersions.bump(ResourceVersions.event(eventId), ResourceVersions.COMPILATIONS);
 
     return eventMapper.toEventFullDto(event);
   }
@@ -191,6 +247,7 @@ public class EventService {
 
     updateEventFromAdminRequest(event, updateRequest);
     event = eventRepository.save(event);
+    resourceVersions.bump(ResourceVersions.event(eventId), ResourceVersions.COMPILATIONS);
 
     return eventMapper.toEventFullDto(event);
   }
@@ -207,9 +264,122 @@ public class EventService {
     return rangeStart;
   }
 
-  private List<Event> fetchEventsFromDatabase(String text, List<Long> categories, Boolean paid,
-                                              LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                              String sort, int from, int size) {
+  private Map<Long, Double> findLocationsNear(Float lat, Float lon, Double radius, String sort) {
+    if (lat == null && lon == null) {
+      if (DISTANCE_SORT.equals(sort)) {
+        throw new ValidationException("Sorting by distance requires lat and lon");
+      }
+      return null;
+    }
+    if (lat == null || lon == null) {
+      throw new ValidationException("Both lat and lon must be specified");
+    }
+    if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+      throw new ValidationException("Coordinates are out of range");
+    }
+    double radiusKm = radius != null ? radius : DEFAULT_RADIUS_KM;
+    if (radiusKm <= 0 || radiusKm > maxRadiusKm) {
+      throw new ValidationException("Radius must be positive and not greater than " + maxRadiusKm + " km");
+    }
+
+    // Кандидаты берутся диапазонами по индексу geohash, точное расстояние считается только для них
+    Set<String> cells = GeoHash.coveringCells(lat, lon, radiusKm);
+    if (cells.isEmpty()) {
+      // У полюса ячейка первого уровня уже радиуса, полный перебор локаций не выполняется
+      log.warn("Radius {} km around ({}, {}) is not covered by geohash cells", radiusKm, lat, lon);
+      return Map.of();
+    }
+    List<Location> candidates = locationRepository.findAll(inGeohashCells(cells));
+
+    Map<Long, Double> distances = new HashMap<>();
+    for (Location location : candidates) {
+      double distance = GeoHash.distanceKm(lat, lon, location.getLat(), location.getLon());
+      if (distance <= radiusKm) {
+        distances.put(location.getId(), distance);
+      }
+    }
+    log.info("Found {} locations within {} km of ({}, {})", distances.size(), radiusKm, lat, lon);
+    return distances;
+  }
+
+  private static Specification<Location> inGeohashCells(Set<String> cells) {
+    return (root, query, cb) -> cb.or(cells.stream()
+            .map(cell -> cb.between(root.<String>get("geohash"), cell,
+                    cell + "z".repeat(GeoHash.MAX_PRECISION - cell.length())))
+            .toArray(Predicate[]::new));
+  }
+
+  /**
+   * События вокруг точки: фильтры и страница - в запросе по локациям-кандидатам. При сортировке
+   * по расстоянию локации читаются порциями от ближних к дальним, пока не наберётся страница.
+   */
+  private List<Event> findEventsNear(Map<Long, Double> distances, String text, List<Long> categories, Boolean paid,
+                                     LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
+                                     String sort, int from, int size) {
+    if (distances.isEmpty()) {
+      return List.of();
+    }
+    if (!DISTANCE_SORT.equals(sort)) {
+      List<Event> events = eventRepository.findAll(publishedNear(distances.keySet(), text, categories, paid,
+              rangeStart, rangeEnd, onlyAvailable), createPageable(sort, from, size)).getContent();
+      addViewsToEvents(events);
+      // Просмотров в базе нет: окно из запроса сортируется здесь, как и без поиска по окрестности
+      return "VIEWS".equals(sort) ? applySortingAndPagination(events, sort, from, size) : events;
+    }
+
+    List<Long> byDistance = distances.keySet().stream()
+            .sorted(Comparator.comparingDouble(distances::get))
+            .toList();
+    Comparator<Event> byEventDistance = Comparator.<Event>comparingDouble(event ->
+            distances.get(event.getLocation().getId())).thenComparing(Event::getId);
+    List<Event> nearest = new ArrayList<>();
+    for (int i = 0; i < byDistance.size() && nearest.size() < from + size; i += NEAR_LOCATIONS_CHUNK) {
+      List<Long> chunk = byDistance.subList(i, Math.min(i + NEAR_LOCATIONS_CHUNK, byDistance.size()));
+      // Все события порции ближе событий следующих порций
+      eventRepository.findAll(publishedNear(chunk, text, categories, paid, rangeStart, rangeEnd, onlyAvailable))
+              .stream()
+              .sorted(byEventDistance)
+              .forEach(nearest::add);
+    }
+    List<Event> page = nearest.subList(Math.min(from, nearest.size()), Math.min(from + size, nearest.size()));
+    return addViewsToEvents(new ArrayList<>(page));
+  }
+
+  private static Specification<Event> publishedNear(Collection<Long> locationIds, String text, List<Long> categories,
+                                                    Boolean paid, LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                    Boolean onlyAvailable) {
+    return (root, query, cb) -> {
+      List<Predicate> predicates = new ArrayList<>();
+      predicates.add(cb.equal(root.get("state"), EventState.PUBLISHED));
+      predicates.add(root.get("location").get("id").in(locationIds));
+      predicates.add(cb.isNull(root.get("initiator").get("deletedAt")));
+      if (categories != null && !categories.isEmpty()) {
+        predicates.add(root.get("category").get("id").in(categories));
+      }
+      if (text != null && !text.isBlank()) {
+        String pattern = "%" + text.toLowerCase().trim()
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        predicates.add(cb.or(cb.like(cb.lower(root.get("annotation")), pattern, '\\'),
+                cb.like(cb.lower(root.get("description")), pattern, '\\')));
+      }
+      if (paid != null) {
+        predicates.add(cb.equal(root.get("paid"), paid));
+      }
+      if (rangeStart != null) {
+        predicates.add(cb.greaterThanOrEqualTo(root.get("eventDate"), rangeStart));
+      }
+      if (rangeEnd != null) {
+        predicates.add(cb.lessThanOrEqualTo(root.get("eventDate"), rangeEnd));
+      }
+      if (Boolean.TRUE.equals(onlyAvailable)) {
+        predicates.add(cb.or(cb.equal(root.get("participantLimit"), 0),
+                cb.lessThan(root.get("confirmedRequests"), root.<Integer>get("participantLimit"))));
+      }
+      return cb.and(predicates.toArray(Predicate[]::new));
+    };
+  }
+
+  private List<Event> fetchEventsFromDatabase(List<Long> categories, String sort, int from, int size) {
     log.info("Fetching published events with simple approach...");
 
     Pageable pageable = createPageable(sort, from, size);
@@ -223,9 +393,18 @@ public class EventService {
     } else {
       events = eventRepository.findByState(EventState.PUBLISHED, pageable).getContent();
     }
+    return events;
+  }
 
+  private List<Event> applyFilters(List<Event> events, String text, List<Long> categories, Boolean paid,
+                                   LocalDateTime rangeStart, LocalDateTime rangeEnd) {
     // Применяем фильтры программно
     events = events.stream()
+            .filter(event -> {
+              // Фильтр по категориям
+              return categories == null || categories.isEmpty() ||
+                      categories.contains(event.getCategory().getId());
+            })
             .filter(event -> {
               // Фильтр по тексту
               if (text != null && !text.trim().isEmpty()) {
@@ -259,6 +438,9 @@ public class EventService {
     if ("VIEWS".equals(sort)) {
       // Для сортировки по просмотрам берем больше записей для программной сортировки
       return PageRequest.of(0, Math.max(size * 10, 100), sortBy);
+    } else if (RATING_SORT.equals(sort)) {
+      // Страница читается прямо из индекса (state, rating DESC, id DESC)
+      return PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "rating", "id"));
     } else {
       return PageRequest.of(from / size, size, sortBy);
     }
@@ -275,6 +457,10 @@ public class EventService {
   }
 
   private List<Event> applySortingAndPagination(List<Event> events, String sort, int from, int size) {
+    if (RATING_SORT.equals(sort)) {
+      // Страница уже выбрана запросом
+      return events.stream().sorted(BY_RATING).collect(Collectors.toList());
+    }
     if ("VIEWS".equals(sort)) {
       log.info("Sorting by views and applying pagination...");
       return events.stream()
@@ -313,20 +499,25 @@ public class EventService {
   }
 
   private Location createOrFindLocation(LocationDto locationDto) {
-    Location location = new Location();
-    location.setLat(locationDto.getLat());
-    location.setLon(locationDto.getLon());
-
-    return locationRepository.save(location);
+    Float lat = locationDto.getLat();
+    Float lon = locationDto.getLon();
+    // Одна строка на пару координат (uq_location_lat_lon): параллельное создание той же точки
+    // не падает на ограничении, а ждёт чужую вставку и читает её строку
+    return locationRepository.findByLatAndLon(lat, lon).orElseGet(() -> {
+      locationRepository.insertIfAbsent(lat, lon, GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION));
+      return locationRepository.findByLatAndLon(lat, lon)
+              .orElseThrow(() -> new IllegalStateException("Location was not stored: " + lat + ", " + lon));
+    });
   }
 
-  private void saveHit(HttpServletRequest request) {
+  public void saveHit(HttpServletRequest request) {
     try {
       statsClient.saveHit(
               "ewm-main-service",
               request.getRequestURI(),
               request.getRemoteAddr(),
-              LocalDateTime.now()
+              LocalDateTime.now(),
+              request.getHeader(HttpHeaders.USER_AGENT)
       );
       log.debug("Hit saved for URI: {}", request.getRequestURI());
     } catch (Exception e) {
@@ -339,35 +530,28 @@ public class EventService {
       return events;
     }
 
+    // Счётчики приходят потоком из stats-server, запрос к нему не нужен
+    if (viewCountTable.isSynced()) {
+      events.forEach(event -> event.setViews(viewCountTable.getViews("/events/" + event.getId())));
+      return events;
+    }
+
     try {
-      List<String> uris = events.stream()
-              .map(event -> "/events/" + event.getId())
+      List<Long> ids = events.stream()
+              .map(Event::getId)
               .collect(Collectors.toList());
 
-      List<ViewStatsDto> statsList = statsClient.getStats(
-                      LocalDateTime.now().minusYears(10),
-                      LocalDateTime.now(),
-                      uris,
-                      true
-              ).timeout(Duration.ofSeconds(5))
-              .onErrorReturn(List.of())
-              .block();
-
-      if (statsList == null) {
-        statsList = List.of();
-      }
-
-      Map<String, Long> viewStats = statsList.stream()
-              .collect(Collectors.toMap(
-                      ViewStatsDto::getUri,
-                      ViewStatsDto::getHits,
-                      (existing, replacement) -> existing
-              ));
-
-      events.forEach(event -> {
-        String uri = "/events/" + event.getId();
-        event.setViews(viewStats.getOrDefault(uri, 0L));
-      });
+      // Таймаут, circuit breaker и bulkhead применяются внутри StatsClient
+      Map<Long, Long> views = statsClient.getViews(
+              LocalDateTime.now().minusYears(10),
+              LocalDateTime.now(),
+              "/events/",
+              ids,
+              true
+      ).block();
+
+      Map<Long, Long> viewStats = views != null ? views : Map.of();
+      events.forEach(event -> event.setViews(viewStats.getOrDefault(event.getId(), 0L)));
 
     } catch (Exception e) {
       log.warn("Failed to get view statistics: {}", e.getMessage());
@@ -0,0 +1,239 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Буфер голосов за события.
+ *
+ * <p>Голос сразу попадает в ConcurrentHashMap по ключу (событие, пользователь): запись блокирует
+ * только одну корзину таблицы, повторные голоса пользователя схлопываются до последнего.
+ * Раз в flush-interval-ms накопленное пишется пачками: голоса - batch-операциями, а счётчики
+ * событий и инициаторов - одним приращением на строку за пачку. Строку популярного события
+ * обновляет только этот поток и не чаще раза за пачку, сколько бы голосов за него ни пришло.
+ */
+@Component
+@Slf4j
+public class EventVoteBuffer {
+
+  // Отзыв голоса
+  static final int NO_VOTE = 0;
+
+  private final ConcurrentHashMap<VoteKey, Integer> pending = new ConcurrentHashMap<>();
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ResourceVersions resourceVersions;
+  private final int batchSize;
+  private final Counter flushed;
+
+  public EventVoteBuffer(NamedParameterJdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         ResourceVersions resourceVersions,
+                         MeterRegistry meterRegistry,
+                         @Value("${ewm.rating.batch-size:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.resourceVersions = resourceVersions;
+    this.batchSize = batchSize;
+    this.flushed = Counter.builder("ewm.rating.votes.flushed")
+            .description("Vote changes written to event_votes")
+            .register(meterRegistry);
+    Gauge.builder("ewm.rating.votes.pending", pending, Map::size)
+            .description("Votes waiting to be flushed")
+            .register(meterRegistry);
+  }
+
+  public void record(long eventId, long userId, int vote) {
+    pending.put(new VoteKey(eventId, userId), vote);
+  }
+
+  public int pending() {
+    return pending.size();
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.rating.flush-interval-ms:1000}")
+  public synchronized void flush() {
+    List<Map.Entry<VoteKey, Integer>> batch = new ArrayList<>(batchSize);
+    try {
+      for (Map.Entry<VoteKey, Integer> entry : pending.entrySet()) {
+        batch.add(Map.entry(entry.getKey(), entry.getValue()));
+        if (batch.size() == batchSize) {
+          write(batch);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        write(batch);
+      }
+    } catch (RuntimeException e) {
+      // Незаписанные голоса остаются в буфере до следующего запуска
+      log.error("Vote flush failed, {} votes pending", pending.size(), e);
+    }
+  }
+
+  /**
+   * Удаляет до limit голосов пользователя и вычитает их из счётчиков событий и инициаторов.
+   * Вызывается в транзакции удаления пользователя; его голоса, ждущие в буфере, отбрасываются.
+   */
+  public int removeUserVotes(long userId, int limit) {
+    pending.keySet().removeIf(key -> key.userId() == userId);
+    Map<String, Object> params = Map.of("userId", userId, "limit", limit);
+    List<Long> ids = new ArrayList<>();
+    // TreeMap: строки счётчиков блокируются в порядке id, как и при записи пачки
+    Map<Long, long[]> eventDeltas = new TreeMap<>();
+    Map<Long, Long> initiators = new HashMap<>();
+    jdbcTemplate.query("SELECT v.id, v.event_id, v.vote, e.initiator_id FROM event_votes v " +
+            "JOIN events e ON e.id = v.event_id WHERE v.user_id = :userId ORDER BY v.id LIMIT :limit", params, rs -> {
+              ids.add(rs.getLong(1));
+              boolean like = rs.getInt(3) > 0;
+              addDelta(eventDeltas, rs.getLong(2), like ? -1 : 0, like ? 0 : -1);
+              initiators.put(rs.getLong(2), rs.getLong(4));
+            });
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    Map<Long, long[]> initiatorDeltas = new TreeMap<>();
+    eventDeltas.forEach((eventId, delta) -> {
+      long[] initiatorDelta = initiatorDeltas.computeIfAbsent(initiators.get(eventId), k -> new long[2]);
+      initiatorDelta[0] += delta[0];
+      initiatorDelta[1] += delta[1];
+    });
+    var jdbc = jdbcTemplate.getJdbcTemplate();
+    jdbc.batchUpdate("UPDATE events SET likes = likes + ?, dislikes = dislikes + ?, rating = rating + ? " +
+            "WHERE id = ?", deltaRows(eventDeltas));
+    jdbc.batchUpdate("UPDATE initiator_ratings SET likes = likes + ?, dislikes = dislikes + ?, " +
+            "rating = rating + ? WHERE user_id = ?", deltaRows(initiatorDeltas));
+    int deleted = jdbcTemplate.update("DELETE FROM event_votes WHERE id IN (:ids)", Map.of("ids", ids));
+
+    eventDeltas.keySet().forEach(eventId -> resourceVersions.bump(ResourceVersions.event(eventId)));
+    resourceVersions.bump(ResourceVersions.COMPILATIONS);
+    return deleted;
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+
+  private void write(List<Map.Entry<VoteKey, Integer>> batch) {
+    Integer written = transactionTemplate.execute(status -> apply(batch));
+    // Более свежий голос, пришедший во время записи, остаётся в буфере
+    batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+    flushed.increment(written != null ? written : 0);
+  }
+
+  private int apply(List<Map.Entry<VoteKey, Integer>> batch) {
+    Set<Long> eventIds = new HashSet<>();
+    Set<Long> userIds = new HashSet<>();
+    batch.forEach(entry -> {
+      eventIds.add(entry.getKey().eventId());
+      userIds.add(entry.getKey().userId());
+    });
+    Map<String, Object> params = Map.of("eventIds", eventIds, "userIds", userIds);
+
+    // Пока голос ждал в буфере, событие или пользователь могли уйти на удаление
+    Map<Long, Long> initiators = new HashMap<>();
+    jdbcTemplate.query("SELECT e.id, e.initiator_id FROM events e JOIN users u ON u.id = e.initiator_id " +
+            "WHERE e.id IN (:eventIds) AND u.deleted_at IS NULL", params, rs -> {
+              initiators.put(rs.getLong(1), rs.getLong(2));
+            });
+    Set<Long> voters = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT id FROM users WHERE id IN (:userIds) AND deleted_at IS NULL", params, Long.class));
+    Map<VoteKey, Integer> current = new HashMap<>();
+    jdbcTemplate.query("SELECT event_id, user_id, vote FROM event_votes " +
+            "WHERE event_id IN (:eventIds) AND user_id IN (:userIds)", params, rs -> {
+              current.put(new VoteKey(rs.getLong(1), rs.getLong(2)), rs.getInt(3));
+            });
+
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    List<Object[]> inserts = new ArrayList<>();
+    List<Object[]> updates = new ArrayList<>();
+    List<Object[]> deletes = new ArrayList<>();
+    // TreeMap: строки счётчиков блокируются в порядке id
+    Map<Long, long[]> eventDeltas = new TreeMap<>();
+    Map<Long, long[]> initiatorDeltas = new TreeMap<>();
+    for (Map.Entry<VoteKey, Integer> entry : batch) {
+      VoteKey key = entry.getKey();
+      Long initiatorId = initiators.get(key.eventId());
+      int vote = entry.getValue();
+      int previous = current.getOrDefault(key, NO_VOTE);
+      if (initiatorId == null || !voters.contains(key.userId()) || vote == previous) {
+        continue;
+      }
+      if (previous == NO_VOTE) {
+        inserts.add(new Object[]{key.eventId(), key.userId(), vote, now});
+      } else if (vote == NO_VOTE) {
+        deletes.add(new Object[]{key.eventId(), key.userId()});
+      } else {
+        updates.add(new Object[]{vote, now, key.eventId(), key.userId()});
+      }
+      long likes = (vote > 0 ? 1 : 0) - (previous > 0 ? 1 : 0);
+      long dislikes = (vote < 0 ? 1 : 0) - (previous < 0 ? 1 : 0);
+      addDelta(eventDeltas, key.eventId(), likes, dislikes);
+      addDelta(initiatorDeltas, initiatorId, likes, dislikes);
+    }
+
+    var jdbc = jdbcTemplate.getJdbcTemplate();
+    jdbc.batchUpdate("INSERT INTO event_votes (event_id, user_id, vote, voted_on) VALUES (?, ?, ?, ?)", inserts);
+    jdbc.batchUpdate("UPDATE event_votes SET vote = ?, voted_on = ? WHERE event_id = ? AND user_id = ?", updates);
+    jdbc.batchUpdate("DELETE FROM event_votes WHERE event_id = ? AND user_id = ?", deletes);
+
+    jdbc.batchUpdate("UPDATE events SET likes = likes + ?, dislikes = dislikes + ?, rating = rating + ? " +
+            "WHERE id = ?", deltaRows(eventDeltas));
+    List<Object[]> initiatorRows = deltaRows(initiatorDeltas);
+    int[] updated = jdbc.batchUpdate("UPDATE initiator_ratings SET likes = likes + ?, dislikes = dislikes + ?, " +
+            "rating = rating + ? WHERE user_id = ?", initiatorRows);
+    List<Object[]> missing = new ArrayList<>();
+    for (int i = 0; i < updated.length; i++) {
+      if (updated[i] == 0) {
+        missing.add(initiatorRows.get(i));
+      }
+    }
+    jdbc.batchUpdate("INSERT INTO initiator_ratings (likes, dislikes, rating, user_id) VALUES (?, ?, ?, ?)", missing);
+
+    eventDeltas.keySet().forEach(eventId -> resourceVersions.bump(ResourceVersions.event(eventId)));
+    if (!eventDeltas.isEmpty()) {
+      resourceVersions.bump(ResourceVersions.COMPILATIONS);
+    }
+    return inserts.size() + updates.size() + deletes.size();
+  }
+
+  private static void addDelta(Map<Long, long[]> deltas, Long id, long likes, long dislikes) {
+    long[] delta = deltas.computeIfAbsent(id, k -> new long[2]);
+    delta[0] += likes;
+    delta[1] += dislikes;
+  }
+
+  private static List<Object[]> deltaRows(Map<Long, long[]> deltas) {
+    List<Object[]> rows = new ArrayList<>(deltas.size());
+    deltas.forEach((id, delta) -> {
+      if (delta[0] != 0 || delta[1] != 0) {
+        rows.add(new Object[]{delta[0], delta[1], delta[0] - delta[1], id});
+      }
+    });
+    return rows;
+  }
+
+  private record VoteKey(long eventId, long userId) {
+  }
+}
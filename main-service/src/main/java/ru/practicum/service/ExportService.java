@@ -0,0 +1,124 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
+import ru.practicum.dto.export.ExportWriter;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+/**
+ * Выгрузка таблиц для аналитики напрямую из серверного курсора.
+ *
+ * <p>Запрос выполняется в read-only транзакции: PostgreSQL отдаёт строки порциями по fetchSize
+ * только при выключенном autocommit, а с включённой маршрутизацией такие транзакции идут в реплику.
+ * Каждая строка сразу пишется в ответ, поэтому память не зависит от размера таблицы.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+  public static final String EVENTS = "events";
+  public static final String REQUESTS = "requests";
+
+  private static final Map<String, Query> QUERIES = Map.of(
+          EVENTS, new Query(
+                  "SELECT e.id, e.title, e.annotation, e.category_id, e.initiator_id, e.state, e.created_on, " +
+                          "e.published_on, e.event_date, e.paid, e.participant_limit, e.request_moderation, " +
+                          "e.confirmed_requests, l.lat, l.lon " +
+                          "FROM events e JOIN locations l ON l.id = e.location_id ORDER BY e.id",
+                  new String[]{"id", "title", "annotation", "category", "initiator", "state", "createdOn",
+                          "publishedOn", "eventDate", "paid", "participantLimit", "requestModeration",
+                          "confirmedRequests", "lat", "lon"}),
+          REQUESTS, new Query(
+                  "SELECT r.id, r.event_id, r.requester_id, r.status, r.created " +
+                          "FROM participation_requests r ORDER BY r.id",
+                  new String[]{"id", "event", "requester", "status", "created"}));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTx;
+  private final ExportJobs jobs = new ExportJobs();
+  private final int fetchSize;
+
+  public ExportService(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${ewm.export.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.fetchSize = fetchSize;
+  }
+
+  public ExportFormat parseFormat(String format) {
+    try {
+      return ExportFormat.of(format);
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException(e.getMessage());
+    }
+  }
+
+  public ExportJobs.Job start(String type) {
+    if (!QUERIES.containsKey(type)) {
+      throw new NotFoundException("Export " + type + " was not found");
+    }
+    return jobs.start(type);
+  }
+
+  public void cancel(String exportId) {
+    if (!jobs.cancel(exportId)) {
+      throw new NotFoundException("Export with id=" + exportId + " was not found");
+    }
+    log.info("Export {} cancelled", exportId);
+  }
+
+  public void write(ExportJobs.Job job, OutputStream out, ExportFormat format, boolean gzip) throws IOException {
+    Query query = QUERIES.get(job.getType());
+    try {
+      ExportWriter writer = new ExportWriter(out, format, gzip, query.columns());
+      readOnlyTx.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(query.sql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+      }, rs -> {
+        job.throwIfCancelled();
+        Object[] values = new Object[query.columns().length];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = rs.getObject(i + 1);
+        }
+        try {
+          writer.writeRow(values);
+        } catch (IOException e) {
+          // Клиент закрыл соединение: прерываем чтение курсора
+          throw new UncheckedIOException(e);
+        }
+      }));
+      // Хвост gzip пишется только у полной выгрузки, иначе обрыв выглядел бы как целый файл
+      writer.close();
+      log.info("Export {} of {} finished: {} rows", job.getId(), job.getType(), writer.getRows());
+    } catch (UncheckedIOException e) {
+      log.info("Export {} of {} aborted by client", job.getId(), job.getType());
+      throw e.getCause();
+    } catch (ExportJobs.ExportCancelledException e) {
+      log.info("Export {} of {} stopped after cancel", job.getId(), job.getType());
+      throw e;
+    } finally {
+      jobs.finish(job);
+    }
+  }
+
+  private record Query(String sql, String[] columns) {
+  }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.user.InitiatorRatingDto;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.mapper.UserMapper;
+import ru.practicum.model.Event;
+import ru.practicum.model.enums.EventState;
+import ru.practicum.model.enums.RequestStatus;
+import ru.practicum.model.enums.VoteType;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.InitiatorRatingRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Оценки событий. Голос проверяется здесь и уходит в EventVoteBuffer, поэтому рейтинг
+ * события и инициатора обновляется с задержкой до ewm.rating.flush-interval-ms.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class RatingService {
+
+  private final EventRepository eventRepository;
+  private final UserRepository userRepository;
+  private final ParticipationRequestRepository requestRepository;
+  private final InitiatorRatingRepository initiatorRatingRepository;
+  private final EventVoteBuffer voteBuffer;
+  private final UserMapper userMapper;
+
+  public void vote(Long userId, Long eventId, VoteType type) {
+    Event event = getVotableEvent(userId, eventId);
+    if (event.getInitiator().getId().equals(userId)) {
+      throw new ConflictException("Event initiator cannot rate own event");
+    }
+    boolean participant = requestRepository.findByRequesterIdAndEventId(userId, eventId)
+            .filter(request -> request.getStatus() == RequestStatus.CONFIRMED)
+            .isPresent();
+    if (!participant) {
+      throw new ConflictException("Only confirmed participants can rate the event");
+    }
+    voteBuffer.record(eventId, userId, type.getValue());
+  }
+
+  public void removeVote(Long userId, Long eventId) {
+    getVotableEvent(userId, eventId);
+    voteBuffer.record(eventId, userId, EventVoteBuffer.NO_VOTE);
+  }
+
+  public List<InitiatorRatingDto> getTopInitiators(int from, int size) {
+    return initiatorRatingRepository.findActive(PageRequest.of(from / size, size,
+                    Sort.by(Sort.Direction.DESC, "rating").and(Sort.by("userId")))).stream()
+            .map(rating -> new InitiatorRatingDto(userMapper.toUserShortDto(rating.getUser()),
+                    rating.getLikes(), rating.getDislikes(), rating.getRating()))
+            .collect(Collectors.toList());
+  }
+
+  private Event getVotableEvent(Long userId, Long eventId) {
+    if (!userRepository.existsById(userId)) {
+      throw new NotFoundException("User with id=" + userId + " was not found");
+    }
+    Event event = eventRepository.findById(eventId)
+            .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
+    if (event.getState() != EventState.PUBLISHED) {
+      throw new ConflictException("Only published events can be rated");
+    }
+    return event;
+  }
+}
@@ -34,6 +34,7 @@ public class RequestService {
   private final EventRepository eventRepository;
   private final UserRepository userRepository;
   private final RequestMapper requestMapper;
+  private final ResourceVersions resourceVersions;
 
   public List<ParticipationRequestDto> getUserRequests(Long userId) {
     checkUserExists(userId);
@@ -77,6 +78,7 @@ public class RequestService {
     if (request.getStatus() == RequestStatus.CONFIRMED) {
       event.setConfirmedRequests(event.getConfirmedRequests() + 1);
       eventRepository.save(event);
+      bumpEventVersion(eventId);
     }
 
     request = requestRepository.save(request);
@@ -98,6 +100,7 @@ public class RequestService {
       Event event = request.getEvent();
       event.setConfirmedRequests(event.getConfirmedRequests() - 1);
       eventRepository.save(event);
+      bumpEventVersion(event.getId());
     }
 
     request.setStatus(RequestStatus.CANCELED);
@@ -184,6 +187,9 @@ public class RequestService {
 
     requestRepository.saveAll(requests);
     eventRepository.save(event);
+    if (!confirmedRequests.isEmpty()) {
+      bumpEventVersion(eventId);
+    }
 
     EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult();
     result.setConfirmedRequests(confirmedRequests);
@@ -192,6 +198,10 @@ public class RequestService {
     return result;
   }
 
+  private void bumpEventVersion(Long eventId) {
+    resourceVersions.bump(ResourceVersions.event(eventId), ResourceVersions.COMPILATIONS);
+  }
+
   private void checkUserExists(Long userId) {
     if (!userRepository.existsById(userId)) {
       throw new NotFoundException("User not found");
@@ -0,0 +1,216 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Версии ресурсов для ETag.
+ *
+ * <p>Версии хранятся в resource_versions и растут в транзакции изменения, поэтому у всех узлов
+ * и после перезапуска одно и то же состояние даёт один ETag. Узел держит прочитанные версии
+ * в памяти: свои изменения он применяет после коммита, чужие (apply) сбрасывают версию,
+ * и она перечитывается при следующем запросе.
+ */
+@Component
+public class ResourceVersions {
+
+  public static final String EVENTS = "events";
+  public static final String CATEGORIES = "categories";
+  public static final String COMPILATIONS = "compilations";
+
+  // null: версии только в памяти узла
+  private final JdbcTemplate jdbcTemplate;
+  private final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Remembered> remembered = new ConcurrentHashMap<>();
+  // Растёт при каждом сбросе: версия, прочитанная до сброса, в память не попадает
+  private final AtomicLong resets = new AtomicLong();
+  private final List<Consumer<String[]>> bumpListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Версии только в памяти узла, без общей базы.
+   */
+  public ResourceVersions() {
+    this(null);
+  }
+
+  @Autowired(required = false)
+  public ResourceVersions(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public static String event(Long eventId) {
+    return "event:" + eventId;
+  }
+
+  public static String comments(Long eventId) {
+    return "comments:" + eventId;
+  }
+
+  public static String user(Long userId) {
+    return "user:" + userId;
+  }
+
+  public String etag(String... keys) {
+    return "W/\"" + stamp(keys) + '"';
+  }
+
+  /**
+   * ETag по версиям ключей и значению, у которого версии нет (например, число просмотров).
+   */
+  public String etagWith(long value, String... keys) {
+    return "W/\"" + stamp(keys) + '-' + Long.toString(value, 36) + '"';
+  }
+
+  /**
+   * Значение, вычисленное по данным ключей (например, опубликовано ли событие): читается
+   * заново только после изменения версии любого из ключей.
+   */
+  public boolean remember(String name, BooleanSupplier loader, String... keys) {
+    // Версии берутся до чтения значения: изменение между ними лишь вызовет повторное чтение
+    String stamp = stamp(keys);
+    Remembered cached = remembered.get(name);
+    if (cached != null && cached.stamp().equals(stamp)) {
+      return cached.value();
+    }
+    boolean value = loader.getAsBoolean();
+    remembered.put(name, new Remembered(stamp, value));
+    return value;
+  }
+
+  public void bump(String... keys) {
+    bumpListeners.forEach(listener -> listener.accept(keys));
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      Set<String> sorted = new TreeSet<>(List.of(keys));
+      publish(sorted, store(sorted));
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      // Порядок ключей одинаков во всех транзакциях, блокировки строк версий не встречаются крест-накрест
+      Set<String> collected = new TreeSet<>();
+      TransactionSynchronizationManager.bindResource(this, collected);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        private Map<String, Long> stored;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+          stored = store(collected);
+        }
+
+        // Версию в памяти меняем только после коммита, иначе параллельное чтение может
+        // закешировать старые данные под новым ETag
+        @Override
+        public void afterCommit() {
+          publish(collected, stored);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(ResourceVersions.this);
+        }
+      });
+      pending = collected;
+    }
+    pending.addAll(List.of(keys));
+  }
+
+  /**
+   * Подписка на bump; слушатель вызывается в транзакции изменения, до коммита.
+   */
+  public void addBumpListener(Consumer<String[]> listener) {
+    bumpListeners.add(listener);
+  }
+
+  /**
+   * Изменение, закоммиченное на другом узле: версия перечитается из базы при следующем запросе,
+   * слушатели bump не вызываются.
+   */
+  public void apply(String... keys) {
+    if (jdbcTemplate == null) {
+      increment(List.of(keys));
+      return;
+    }
+    resets.incrementAndGet();
+    for (String key : keys) {
+      versions.remove(key);
+    }
+  }
+
+  private String stamp(String... keys) {
+    StringBuilder stamp = new StringBuilder();
+    for (String key : keys) {
+      if (!stamp.isEmpty()) {
+        stamp.append('-');
+      }
+      stamp.append(Long.toString(version(key), 36));
+    }
+    return stamp.toString();
+  }
+
+  private long version(String key) {
+    Long version = versions.get(key);
+    if (version != null) {
+      return version;
+    }
+    if (jdbcTemplate == null) {
+      return 0;
+    }
+    long reset = resets.get();
+    long loaded = jdbcTemplate.query("SELECT version FROM resource_versions WHERE resource_key = ?",
+            rs -> rs.next() ? rs.getLong(1) : 0L, key);
+    return reset == resets.get() ? versions.merge(key, loaded, Math::max) : loaded;
+  }
+
+  // null: базы нет, версии растут только в памяти
+  private Map<String, Long> store(Collection<String> keys) {
+    if (jdbcTemplate == null || keys.isEmpty()) {
+      return null;
+    }
+    List<Object[]> rows = keys.stream().map(key -> new Object[]{key}).toList();
+    jdbcTemplate.batchUpdate("INSERT INTO resource_versions (resource_key, version) VALUES (?, 0) " +
+            "ON CONFLICT DO NOTHING", rows);
+    jdbcTemplate.batchUpdate("UPDATE resource_versions SET version = version + 1 WHERE resource_key = ?", rows);
+    Map<String, Long> stored = new HashMap<>();
+    jdbcTemplate.query("SELECT resource_key, version FROM resource_versions WHERE resource_key IN (" +
+                    keys.stream().map(key -> "?").collect(Collectors.joining(", ")) + ")",
+            rs -> {
+              stored.put(rs.getString(1), rs.getLong(2));
+            }, keys.toArray());
+    return stored;
+  }
+
+  private void publish(Collection<String> keys, Map<String, Long> stored) {
+    if (stored == null) {
+      increment(keys);
+    } else {
+      stored.forEach((key, version) -> versions.merge(key, version, Math::max));
+    }
+  }
+
+  private void increment(Collection<String> keys) {
+    for (String key : keys) {
+      versions.merge(key, 1L, Long::sum);
+    }
+  }
+
+  private record Remembered(String stamp, boolean value) {
+  }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.enums.RequestStatus;
+import ru.practicum.model.enums.UserDeletionState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Физическое удаление пользователей из очереди user_deletions.
+ *
+ * <p>За один запуск выполняется один шаг - удаление не больше chunkSize строк одной таблицы
+ * в отдельной короткой транзакции, поэтому блокировки на горячих таблицах держатся миллисекунды,
+ * а скорость ограничена интервалом запуска. Шаги идут от зависимых строк к событиям и самому
+ * пользователю, и следующий шаг определяется по тому, что осталось в базе, так что после
+ * перезапуска сервиса удаление просто продолжается.
+ */
+@Component
+@Slf4j
+public class UserPurgeWorker {
+
+  private static final String USER_EVENTS = "SELECT e.id FROM events e WHERE e.initiator_id = :userId";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final EventVoteBuffer voteBuffer;
+  private final CommentService commentService;
+  private final int chunkSize;
+
+  public UserPurgeWorker(NamedParameterJdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         EventVoteBuffer voteBuffer,
+                         CommentService commentService,
+                         @Value("${ewm.purge.chunk-size:500}") int chunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.voteBuffer = voteBuffer;
+    this.commentService = commentService;
+    this.chunkSize = chunkSize;
+  }
+
+  @Scheduled(fixedDelayString = "${ewm.purge.interval-ms:200}")
+  public void purgeNextChunk() {
+    List<Long> pending = jdbcTemplate.getJdbcTemplate().queryForList(
+            "SELECT user_id FROM user_deletions WHERE state <> ? ORDER BY requested_on, user_id LIMIT 1",
+            Long.class, UserDeletionState.COMPLETED.name());
+    if (!pending.isEmpty()) {
+      transactionTemplate.executeWithoutResult(status -> step(pending.get(0)));
+    }
+  }
+
+  void step(long userId) {
+    Map<String, Object> params = Map.of("userId", userId, "limit", chunkSize);
+
+    // Голоса пользователя учтены в рейтинге событий и их инициаторов
+    int deleted = voteBuffer.removeUserVotes(userId, chunkSize);
+    if (deleted > 0) {
+      progress(userId, null, 0);
+      return;
+    }
+    // Комментарии удаляются вместе с ответами, как при удалении администратором: поправляются
+    // comments_count событий и replies_count оставшихся предков
+    deleted = commentService.deleteAuthorComments(userId, chunkSize);
+    if (deleted > 0) {
+      progress(userId, "deleted_comments", deleted);
+      return;
+    }
+    deleted = deleteRequests(params);
+    if (deleted > 0) {
+      progress(userId, "deleted_requests", deleted);
+      return;
+    }
+    deleted = deleteChunk("comments", "event_id IN (" + USER_EVENTS + ")", params);
+    if (deleted > 0) {
+      progress(userId, "deleted_comments", deleted);
+      return;
+    }
+    deleted = deleteChunk("participation_requests", "event_id IN (" + USER_EVENTS + ")", params);
+    if (deleted > 0) {
+      progress(userId, "deleted_requests", deleted);
+      return;
+    }
+    deleted = deleteChunk("event_votes", "event_id IN (" + USER_EVENTS + ")", params);
+    if (deleted > 0) {
+      progress(userId, null, 0);
+      return;
+    }
+    // У compilation_events нет своего id, поэтому порцию задают события
+    deleted = jdbcTemplate.update("DELETE FROM compilation_events WHERE event_id IN (" +
+            USER_EVENTS + " ORDER BY e.id LIMIT :limit)", params);
+    if (deleted > 0) {
+      progress(userId, null, 0);
+      return;
+    }
+    deleted = deleteChunk("events", "initiator_id = :userId", params);
+    if (deleted > 0) {
+      progress(userId, "deleted_events", deleted);
+      return;
+    }
+
+    jdbcTemplate.update("DELETE FROM initiator_ratings WHERE user_id = :userId", params);
+    jdbcTemplate.update("DELETE FROM users WHERE id = :userId", params);
+    jdbcTemplate.update("UPDATE user_deletions SET state = :state, finished_on = CURRENT_TIMESTAMP " +
+            "WHERE user_id = :userId", Map.of("userId", userId, "state", UserDeletionState.COMPLETED.name()));
+    log.info("User {} purged", userId);
+  }
+
+  private int deleteChunk(String table, String condition, Map<String, Object> params) {
+    return jdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (SELECT t.id FROM " + table +
+            " t WHERE t." + condition + " ORDER BY t.id LIMIT :limit)", params);
+  }
+
+  // Подтверждённые заявки пользователя на чужие события учтены в confirmed_requests этих событий
+  private int deleteRequests(Map<String, Object> params) {
+    List<Long> ids = new ArrayList<>();
+    Map<Long, Integer> confirmedByEvent = new HashMap<>();
+    jdbcTemplate.query("SELECT t.id, t.event_id, t.status FROM participation_requests t " +
+            "WHERE t.requester_id = :userId ORDER BY t.id LIMIT :limit", params, rs -> {
+              ids.add(rs.getLong(1));
+              if (RequestStatus.CONFIRMED.name().equals(rs.getString(3))) {
+                confirmedByEvent.merge(rs.getLong(2), 1, Integer::sum);
+              }
+            });
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    confirmedByEvent.forEach((eventId, confirmed) -> jdbcTemplate.update(
+            "UPDATE events SET confirmed_requests = confirmed_requests - :confirmed WHERE id = :eventId",
+            Map.of("eventId", eventId, "confirmed", confirmed)));
+    return jdbcTemplate.update("DELETE FROM participation_requests WHERE id IN (:ids)", Map.of("ids", ids));
+  }
+
+  private void progress(long userId, String counter, int deleted) {
+    String increment = counter != null ? ", " + counter + " = " + counter + " + :deleted" : "";
+    jdbcTemplate.update("UPDATE user_deletions SET state = :state" + increment + " WHERE user_id = :userId",
+            Map.of("userId", userId, "deleted", deleted, "state", UserDeletionState.IN_PROGRESS.name()));
+  }
+}
@@ -8,14 +8,19 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.dto.user.UserDeletionDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.UserMapper;
 import ru.practicum.model.User;
+import ru.practicum.model.UserDeletion;
+import ru.practicum.repository.UserDeletionRepository;
 import ru.practicum.repository.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,8 +29,13 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class UserService {
 
+  private static final int VOTE_CHUNK_SIZE = 1000;
+
   private final UserRepository userRepository;
+  private final UserDeletionRepository userDeletionRepository;
   private final UserMapper userMapper;
+  private final ResourceVersions resourceVersions;
+  private final EventVoteBuffer voteBuffer;
 
   public List<UserDto> getUsers(List<Long> ids, int from, int size) {
     Pageable pageable = PageRequest.of(from / size, size);
@@ -52,9 +62,43 @@ public class UserService {
 
   @Transactional
   public void deleteUser(Long userId) {
-    if (!userRepository.existsById(userId)) {
+    if (userRepository.findByIdForUpdate(userId).isEmpty()) {
       throw new NotFoundException("User with id=" + userId + " was not found");
     }
+    // Голоса пользователя вычитаются из рейтингов чужих событий до каскадного удаления строк
+    int removed;
+    do {
+      removed = voteBuffer.removeUserVotes(userId, VOTE_CHUNK_SIZE);
+    } while (removed == VOTE_CHUNK_SIZE);
     userRepository.deleteById(userId);
+    // Каскадно удаляются события, комментарии и рейтинг пользователя
+    resourceVersions.bump(ResourceVersions.EVENTS, ResourceVersions.COMPILATIONS, ResourceVersions.user(userId));
+  }
+
+  /**
+   * Ставит пользователя в очередь на удаление: он и его контент сразу скрываются из чтений,
+   * а строки удаляет порциями {@link UserPurgeWorker}.
+   */
+  @Transactional
+  public UserDeletionDto requestUserDeletion(Long userId) {
+    Optional<UserDeletion> existing = userDeletionRepository.findById(userId);
+    if (existing.isPresent()) {
+      return userMapper.toUserDeletionDto(existing.get());
+    }
+    if (!userRepository.existsById(userId)) {
+      throw new NotFoundException("User with id=" + userId + " was not found");
+    }
+    LocalDateTime now = LocalDateTime.now();
+    userRepository.markDeleted(userId, now);
+    UserDeletion deletion = userDeletionRepository.save(new UserDeletion(userId, now));
+    resourceVersions.bump(ResourceVersions.EVENTS, ResourceVersions.COMPILATIONS, ResourceVersions.user(userId));
+    log.info("User {} queued for deletion", userId);
+    return userMapper.toUserDeletionDto(deletion);
+  }
+
+  public UserDeletionDto getUserDeletion(Long userId) {
+    return userDeletionRepository.findById(userId)
+            .map(userMapper::toUserDeletionDto)
+            .orElseThrow(() -> new NotFoundException("Deletion of user with id=" + userId + " was not found"));
   }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     name VARCHAR(250) NOT NULL,
     email VARCHAR(254) NOT NULL,
+    deleted_at TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT pk_user PRIMARY KEY (id),
     CONSTRAINT uq_user_email UNIQUE (email)
 );
@@ -20,7 +21,9 @@ CREATE TABLE IF NOT EXISTS locations (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     lat REAL NOT NULL,
     lon REAL NOT NULL,
-    CONSTRAINT pk_location PRIMARY KEY (id)
+    geohash VARCHAR(12) NOT NULL,
+    CONSTRAINT pk_location PRIMARY KEY (id),
+    CONSTRAINT uq_location_lat_lon UNIQUE (lat, lon)
 );
 
 
@@ -41,6 +44,10 @@ CREATE TABLE IF NOT EXISTS events (
     state VARCHAR(50) NOT NULL DEFAULT 'PENDING',
     title VARCHAR(120) NOT NULL,
     views BIGINT NOT NULL DEFAULT 0,
+    comments_count BIGINT NOT NULL DEFAULT 0,
+    likes BIGINT NOT NULL DEFAULT 0,
+    dislikes BIGINT NOT NULL DEFAULT 0,
+    rating BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT pk_event PRIMARY KEY (id),
     CONSTRAINT fk_event_category FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE RESTRICT,
     CONSTRAINT fk_event_initiator FOREIGN KEY (initiator_id) REFERENCES users (id) ON DELETE CASCADE,
@@ -86,20 +93,84 @@ CREATE TABLE IF NOT EXISTS comments (
     updated_on TIMESTAMP WITHOUT TIME ZONE,
     state VARCHAR(20) NOT NULL DEFAULT 'PENDING',
     moderator_comment VARCHAR(500),
+    claimed_by VARCHAR(64),
+    claim_expires_at TIMESTAMP WITHOUT TIME ZONE,
+    parent_id BIGINT,
+    thread_id BIGINT,
+    path VARCHAR(768),
+    depth INTEGER NOT NULL DEFAULT 0,
+    replies_count BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT pk_comment PRIMARY KEY (id),
     CONSTRAINT fk_comment_event FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE,
     CONSTRAINT fk_comment_author FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE
 );
 
 
+CREATE TABLE IF NOT EXISTS event_votes (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    event_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    vote SMALLINT NOT NULL,
+    voted_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_event_vote PRIMARY KEY (id),
+    CONSTRAINT uq_event_vote_event_user UNIQUE (event_id, user_id),
+    CONSTRAINT fk_event_vote_event FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE,
+    CONSTRAINT fk_event_vote_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+
+CREATE TABLE IF NOT EXISTS initiator_ratings (
+    user_id BIGINT NOT NULL,
+    likes BIGINT NOT NULL DEFAULT 0,
+    dislikes BIGINT NOT NULL DEFAULT 0,
+    rating BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_initiator_rating PRIMARY KEY (user_id),
+    CONSTRAINT fk_initiator_rating_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+
+CREATE TABLE IF NOT EXISTS user_deletions (
+    user_id BIGINT NOT NULL,
+    state VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    requested_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    finished_on TIMESTAMP WITHOUT TIME ZONE,
+    deleted_events BIGINT NOT NULL DEFAULT 0,
+    deleted_requests BIGINT NOT NULL DEFAULT 0,
+    deleted_comments BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_user_deletion PRIMARY KEY (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS cache_invalidations (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    origin VARCHAR(36) NOT NULL,
+    resource_key VARCHAR(128) NOT NULL,
+    created_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_cache_invalidation PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS resource_versions (
+    resource_key VARCHAR(128) NOT NULL,
+    version BIGINT NOT NULL,
+    CONSTRAINT pk_resource_version PRIMARY KEY (resource_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_users_deleted_at ON users (deleted_at);
 CREATE INDEX IF NOT EXISTS idx_events_state ON events (state);
 CREATE INDEX IF NOT EXISTS idx_events_category_id ON events (category_id);
 CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id);
 CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date);
+CREATE INDEX IF NOT EXISTS idx_events_location_id ON events (location_id);
+CREATE INDEX IF NOT EXISTS idx_locations_geohash ON locations (geohash);
 CREATE INDEX IF NOT EXISTS idx_requests_event_id ON participation_requests (event_id);
 CREATE INDEX IF NOT EXISTS idx_requests_requester_id ON participation_requests (requester_id);
 CREATE INDEX IF NOT EXISTS idx_requests_status ON participation_requests (status);
 CREATE INDEX IF NOT EXISTS idx_comments_event_id ON comments (event_id);
 CREATE INDEX IF NOT EXISTS idx_comments_author_id ON comments (author_id);
 CREATE INDEX IF NOT EXISTS idx_comments_state ON comments (state);
-CREATE INDEX IF NOT EXISTS idx_comments_created_on ON comments (created_on);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_comments_created_on ON comments (created_on);
+CREATE INDEX IF NOT EXISTS idx_comments_state_created_on ON comments (state, created_on);
+CREATE INDEX IF NOT EXISTS idx_comments_event_path ON comments (event_id, path);
+CREATE INDEX IF NOT EXISTS idx_events_state_rating ON events (state, rating DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_event_votes_user_id ON event_votes (user_id);
+CREATE INDEX IF NOT EXISTS idx_initiator_ratings_rating ON initiator_ratings (rating DESC, user_id);
+CREATE INDEX IF NOT EXISTS idx_cache_invalidations_created_on ON cache_invalidations (created_on);
@@ -0,0 +1,164 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCallGuardTest {
+
+  private StatsResilienceProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    properties = new StatsResilienceProperties();
+    properties.setWindowSize(10);
+    properties.setMinimumCalls(4);
+    properties.setFailureRateThreshold(50);
+    properties.setOpenDuration(Duration.ofMinutes(1));
+    properties.setMaxConcurrentCalls(2);
+    properties.setMinTimeout(Duration.ofMillis(50));
+    properties.setMaxTimeout(Duration.ofSeconds(1));
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void execute_WhenCallFails_ShouldReturnFallback() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+
+    List<String> result = guard.execute(() -> Mono.error(new IllegalStateException("down")),
+            Mono.just(List.<String>of())).block();
+
+    assertEquals(List.of(), result);
+    assertEquals(1.0, meterRegistry.get("stats.client.calls").tag("outcome", "failure").counter().count());
+  }
+
+  @Test
+  void execute_WhenCallThrowsSynchronously_ShouldReleaseBulkhead() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+
+    for (int i = 0; i < 3; i++) {
+      String result = guard.execute(() -> {
+        throw new IllegalArgumentException("bad uri");
+      }, Mono.just("fallback")).block();
+      assertEquals("fallback", result);
+    }
+
+    assertEquals(2.0, meterRegistry.get("stats.client.bulkhead.available").gauge().value());
+    assertEquals(3.0, meterRegistry.get("stats.client.calls").tag("outcome", "failure").counter().count());
+    assertEquals(0.0, meterRegistry.get("stats.client.calls").tag("outcome", "bulkhead_rejected").counter().count());
+  }
+
+  @Test
+  void execute_AfterRepeatedFailures_ShouldOpenCircuitAndSkipCalls() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+    AtomicInteger invocations = new AtomicInteger();
+
+    for (int i = 0; i < 10; i++) {
+      guard.execute(() -> {
+        invocations.incrementAndGet();
+        return Mono.<String>error(new IllegalStateException("down"));
+      }, Mono.just("fallback")).block();
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState());
+    assertEquals(4, invocations.get());
+    assertEquals(6.0, meterRegistry.get("stats.client.calls").tag("outcome", "short_circuited").counter().count());
+    assertEquals(1.0, meterRegistry.get("stats.client.circuit.state").gauge().value());
+  }
+
+  @Test
+  void execute_WhenBulkheadIsFull_ShouldRejectImmediately() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+    Sinks.One<String> first = Sinks.one();
+    Sinks.One<String> second = Sinks.one();
+
+    guard.execute(first::asMono, Mono.just("fallback")).subscribe();
+    guard.execute(second::asMono, Mono.just("fallback")).subscribe();
+
+    String rejected = guard.execute(() -> Mono.just("value"), Mono.just("fallback")).block();
+
+    assertEquals("fallback", rejected);
+    assertEquals(1.0, meterRegistry.get("stats.client.calls").tag("outcome", "bulkhead_rejected").counter().count());
+
+    first.tryEmitValue("done");
+    assertEquals("value", guard.execute(() -> Mono.just("value"), Mono.just("fallback")).block());
+  }
+
+  @Test
+  void executeHit_WhenHitsFail_ShouldCountThemWithoutOpeningReadCircuit() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+    Duration timeout = guard.getCurrentTimeout();
+
+    for (int i = 0; i < 10; i++) {
+      assertThrows(IllegalStateException.class,
+              () -> guard.executeHit(() -> Mono.error(new IllegalStateException("down"))).block());
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitState());
+    assertEquals(timeout, guard.getCurrentTimeout());
+    assertEquals(10.0, meterRegistry.get("stats.client.hits").tag("outcome", "failure").counter().count());
+    assertEquals(0.0, meterRegistry.get("stats.client.calls").tag("outcome", "failure").counter().count());
+  }
+
+  @Test
+  void executeHit_WhenHitBulkheadIsFull_ShouldDropHitAndKeepReadsAvailable() {
+    properties.setMaxConcurrentHits(1);
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+    Sinks.Empty<Void> pending = Sinks.empty();
+    guard.executeHit(pending::asMono).subscribe();
+
+    assertThrows(RejectedExecutionException.class, () -> guard.executeHit(Mono::empty).block());
+    assertEquals("value", guard.execute(() -> Mono.just("value"), Mono.just("fallback")).block());
+
+    pending.tryEmitEmpty();
+    guard.executeHit(Mono::empty).block();
+    assertEquals(1.0, meterRegistry.get("stats.client.hits").tag("outcome", "bulkhead_rejected").counter().count());
+    assertEquals(2.0, meterRegistry.get("stats.client.hits").tag("outcome", "saved").counter().count());
+  }
+
+  @Test
+  void execute_WithFastResponses_ShouldShrinkTimeoutTowardsObservedLatency() {
+    StatsCallGuard guard = new StatsCallGuard(properties, meterRegistry);
+    assertEquals(Duration.ofSeconds(1), guard.getCurrentTimeout());
+
+    for (int i = 0; i < 50; i++) {
+      guard.execute(() -> Mono.just("value"), Mono.just("fallback")).block();
+    }
+
+    assertEquals(Duration.ofMillis(50), guard.getCurrentTimeout());
+  }
+
+  @Test
+  void circuitBreaker_AfterOpenDuration_ShouldCloseOnSuccessfulProbes() {
+    properties.setHalfOpenCalls(2);
+    AtomicLong clock = new AtomicLong();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(properties, clock::get);
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(circuitBreaker.tryAcquirePermission());
+      circuitBreaker.onError(Duration.ofMillis(1));
+    }
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+
+    clock.addAndGet(Duration.ofMinutes(2).toNanos());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    circuitBreaker.onSuccess(Duration.ofMillis(1));
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onSuccess(Duration.ofMillis(1));
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+}
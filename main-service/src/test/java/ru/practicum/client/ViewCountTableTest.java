@@ -0,0 +1,37 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewCountTableTest {
+
+  @Test
+  void applyDeltas_AfterSnapshot_ShouldAccumulateViews() {
+    ViewCountTable table = new ViewCountTable();
+
+    table.applySnapshot(List.of(new ViewStatsDto("ewm-main-service", "/events/1", 5L)));
+    table.applyDeltas(List.of(new ViewStatsDto(null, "/events/1", 2L), new ViewStatsDto(null, "/events/2", 1L)));
+
+    assertTrue(table.isSynced());
+    assertEquals(7L, table.getViews("/events/1"));
+    assertEquals(1L, table.getViews("/events/2"));
+    assertEquals(0L, table.getViews("/events/3"));
+  }
+
+  @Test
+  void applyDeltas_WhenUnsynced_ShouldWaitForSnapshot() {
+    ViewCountTable table = new ViewCountTable();
+    table.applySnapshot(List.of(new ViewStatsDto("ewm-main-service", "/events/1", 5L)));
+    table.markUnsynced();
+
+    table.applyDeltas(List.of(new ViewStatsDto(null, "/events/1", 2L)));
+    assertFalse(table.isSynced());
+
+    table.applySnapshot(List.of(new ViewStatsDto("ewm-main-service", "/events/1", 9L)));
+    assertEquals(9L, table.getViews("/events/1"));
+  }
+}
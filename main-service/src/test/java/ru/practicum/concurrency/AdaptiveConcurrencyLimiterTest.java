@@ -0,0 +1,156 @@
+package ru.practicum.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private SimpleMeterRegistry meterRegistry;
+  private AdaptiveConcurrencyLimiter limiter;
+
+  @BeforeEach
+  void setUp() {
+    ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    properties.setInitialLimit(20);
+    properties.setMinLimit(4);
+    properties.setMaxLimit(100);
+    meterRegistry = new SimpleMeterRegistry();
+    limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+  }
+
+  @Test
+  void stableLatencyUnderLoad_ShouldRaiseLimit() {
+    for (int i = 0; i < 100; i++) {
+      loadAndRelease(RTT);
+    }
+
+    assertThat(limiter.getLimit()).isGreaterThan(20);
+  }
+
+  @Test
+  void growingLatency_ShouldShrinkLimit() {
+    for (int i = 0; i < 100; i++) {
+      loadAndRelease(RTT);
+    }
+    int before = limiter.getLimit();
+
+    for (int i = 0; i < 50; i++) {
+      loadAndRelease(RTT * 10);
+    }
+
+    assertThat(limiter.getLimit()).isLessThan(before);
+    assertThat(meterRegistry.get("ewm.concurrency.limit").gauge().value()).isEqualTo(limiter.getLimit());
+  }
+
+  @Test
+  void idleServer_ShouldKeepLimit() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(limiter.tryAcquire(RequestPriority.NORMAL)).isTrue();
+      limiter.release(RTT);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(20);
+  }
+
+  @Test
+  void tryAcquire_ShouldShedLowPriorityFirst() {
+    // Анонимному поиску доступно 60% лимита
+    for (int i = 0; i < 12; i++) {
+      assertThat(limiter.tryAcquire(RequestPriority.SHEDDABLE)).isTrue();
+    }
+    assertThat(limiter.tryAcquire(RequestPriority.SHEDDABLE)).isFalse();
+
+    for (int i = 0; i < 6; i++) {
+      assertThat(limiter.tryAcquire(RequestPriority.NORMAL)).isTrue();
+    }
+    assertThat(limiter.tryAcquire(RequestPriority.NORMAL)).isFalse();
+
+    assertThat(limiter.tryAcquire(RequestPriority.CRITICAL)).isTrue();
+    assertThat(limiter.tryAcquire(RequestPriority.CRITICAL)).isTrue();
+    assertThat(limiter.tryAcquire(RequestPriority.CRITICAL)).isFalse();
+
+    assertThat(limiter.getInFlight()).isEqualTo(20);
+    assertThat(meterRegistry.get("ewm.concurrency.rejected").tag("priority", "SHEDDABLE").counter().count())
+            .isEqualTo(1.0);
+  }
+
+  @Test
+  void priority_ShouldPreferAdminAndPrivateWrites() {
+    assertThat(ConcurrencyLimitInterceptor.priority(request("GET", "/admin/events", "/admin/events")))
+            .isEqualTo(RequestPriority.CRITICAL);
+    assertThat(ConcurrencyLimitInterceptor.priority(request("POST", "/users/1/events", "/users/{userId}/events")))
+            .isEqualTo(RequestPriority.CRITICAL);
+    assertThat(ConcurrencyLimitInterceptor.priority(request("GET", "/users/1/events", "/users/{userId}/events")))
+            .isEqualTo(RequestPriority.NORMAL);
+    assertThat(ConcurrencyLimitInterceptor.priority(request("GET", "/events/5", "/events/{id}")))
+            .isEqualTo(RequestPriority.NORMAL);
+    assertThat(ConcurrencyLimitInterceptor.priority(request("GET", "/events", "/events")))
+            .isEqualTo(RequestPriority.SHEDDABLE);
+  }
+
+  @Test
+  void streamingResponse_ShouldHoldOneSlotUntilWrittenAndReleaseItOnce() throws Exception {
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamingController())
+            .addInterceptors(new ConcurrencyLimitInterceptor(limiter))
+            .build();
+
+    for (int i = 0; i < 30; i++) {
+      MvcResult started = mockMvc.perform(get("/admin/export"))
+              .andExpect(MockMvcResultMatchers.request().asyncStarted())
+              .andReturn();
+      assertThat(limiter.getInFlight()).isEqualTo(1);
+
+      mockMvc.perform(asyncDispatch(started))
+              .andExpect(status().isOk())
+              .andExpect(content().string("row\n"));
+      assertThat(limiter.getInFlight()).isZero();
+    }
+  }
+
+  @RestController
+  static class StreamingController {
+
+    @GetMapping("/admin/export")
+    StreamingResponseBody export() {
+      return out -> out.write("row\n".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  // Нагружает сервер до лимита и завершает один запрос с заданной задержкой
+  private void loadAndRelease(long rtt) {
+    while (limiter.tryAcquire(RequestPriority.CRITICAL)) {
+      // заполняем лимит
+    }
+    while (limiter.getInFlight() > 0) {
+      limiter.release(rtt);
+    }
+  }
+
+  private static MockHttpServletRequest request(String method, String uri, String pattern) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+    return request;
+  }
+}
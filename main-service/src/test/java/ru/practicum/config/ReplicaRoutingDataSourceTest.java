@@ -0,0 +1,112 @@
+package ru.practicum.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Две H2-базы вместо primary и реплики: по содержимому таблицы marker видно, куда ушёл запрос.
+ */
+class ReplicaRoutingDataSourceTest {
+
+  private final DataSourceRoutingConfig config = new DataSourceRoutingConfig();
+  private SimpleMeterRegistry meterRegistry;
+  private HikariDataSource primary;
+  private ReplicaRoutingDataSource replicas;
+  private JdbcTemplate replicaAdmin;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readOnlyTx;
+  private TransactionTemplate writeTx;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    String suffix = UUID.randomUUID().toString();
+    String primaryUrl = "jdbc:h2:mem:primary-" + suffix + ";DB_CLOSE_DELAY=-1";
+    String replicaUrl = "jdbc:h2:mem:replica-" + suffix + ";DB_CLOSE_DELAY=-1";
+
+    DataSourceProperties dataSourceProperties = new DataSourceProperties();
+    dataSourceProperties.setUrl(primaryUrl);
+    dataSourceProperties.setUsername("sa");
+    dataSourceProperties.setPassword("");
+    dataSourceProperties.afterPropertiesSet();
+
+    DataSourceRoutingProperties.Replica replica = new DataSourceRoutingProperties.Replica();
+    replica.setUrl(replicaUrl);
+    DataSourceRoutingProperties routingProperties = new DataSourceRoutingProperties();
+    routingProperties.setReplicas(List.of(replica));
+    routingProperties.setMaximumPoolSize(2);
+    routingProperties.setLagQuery("SELECT lag FROM replica_lag");
+
+    meterRegistry = new SimpleMeterRegistry();
+    primary = config.primaryDataSource(dataSourceProperties);
+    new JdbcTemplate(primary).execute("CREATE TABLE marker (name VARCHAR(16)); INSERT INTO marker VALUES ('primary')");
+    replicaAdmin = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+    replicaAdmin.execute("CREATE TABLE marker (name VARCHAR(16)); INSERT INTO marker VALUES ('replica')");
+    replicaAdmin.execute("CREATE TABLE replica_lag (lag BIGINT); INSERT INTO replica_lag VALUES (0)");
+
+    replicas = config.replicaRoutingDataSource(primary, dataSourceProperties, routingProperties, meterRegistry);
+    replicas.afterPropertiesSet();
+    DataSource dataSource = config.dataSource(primary, replicas);
+
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    readOnlyTx = new TransactionTemplate(transactionManager);
+    readOnlyTx.setReadOnly(true);
+    writeTx = new TransactionTemplate(transactionManager);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    replicas.close();
+    primary.close();
+  }
+
+  @Test
+  void readOnlyTransaction_ShouldUseReplica_AndWritesShouldUsePrimary() {
+    assertEquals("replica", readOnlyTx.execute(status -> readMarker()));
+    assertEquals("primary", writeTx.execute(status -> readMarker()));
+    assertEquals(1.0, meterRegistry.get("ewm.datasource.reads").tag("pool", "replica-1").counter().count());
+  }
+
+  @Test
+  void readOnlyTransaction_WhenReplicaLagsBehind_ShouldFallBackToPrimary() {
+    replicaAdmin.update("UPDATE replica_lag SET lag = 60000");
+    replicas.checkReplicas();
+
+    assertFalse(replicas.isHealthy("replica-1"));
+    assertEquals("primary", readOnlyTx.execute(status -> readMarker()));
+    assertEquals(60000.0, meterRegistry.get("ewm.datasource.replica.lag").gauge().value());
+    assertEquals(1.0, meterRegistry.get("ewm.datasource.reads").tag("pool", "primary").counter().count());
+
+    replicaAdmin.update("UPDATE replica_lag SET lag = 10");
+    replicas.checkReplicas();
+
+    assertEquals("replica", readOnlyTx.execute(status -> readMarker()));
+  }
+
+  @Test
+  void readOnlyTransaction_WhenReplicaIsDown_ShouldFallBackToPrimary() {
+    replicaAdmin.execute("SHUTDOWN");
+    replicas.checkReplicas();
+
+    assertEquals(0.0, meterRegistry.get("ewm.datasource.replica.healthy").gauge().value());
+    assertEquals("primary", readOnlyTx.execute(status -> readMarker()));
+  }
+
+  private String readMarker() {
+    return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+  }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Category;
+import ru.practicum.model.Location;
+import ru.practicum.model.User;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecondLevelCacheConfigTest {
+
+  @Test
+  void hibernateCacheManager_ShouldCreateBoundedRegionForEveryCachedEntity() {
+    CacheManager cacheManager = new SecondLevelCacheConfig().hibernateCacheManager(100, Duration.ofMinutes(1));
+    try {
+      for (Class<?> entity : new Class<?>[]{Category.class, User.class, Location.class}) {
+        Cache<Object, Object> region = cacheManager.getCache(entity.getName());
+        assertNotNull(region, entity.getName());
+        @SuppressWarnings("unchecked")
+        CaffeineConfiguration<Object, Object> configuration = region.getConfiguration(CaffeineConfiguration.class);
+        assertEquals(OptionalLong.of(100), configuration.getMaximumSize());
+      }
+    } finally {
+      cacheManager.close();
+    }
+  }
+}
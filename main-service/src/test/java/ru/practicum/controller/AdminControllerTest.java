@@ -7,23 +7,40 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.dto.bulk.BulkImportResultDto;
+import ru.practicum.dto.bulk.BulkImportRowDto;
+import ru.practicum.dto.comment.CommentBulkModerationDto;
+import ru.practicum.dto.comment.CommentBulkModerationResultDto;
+import ru.practicum.dto.comment.CommentClaimDto;
 import ru.practicum.dto.comment.CommentDto;
 import ru.practicum.dto.comment.CommentModerationDto;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
 import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.dto.user.UserDeletionDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.model.enums.CommentState;
+import ru.practicum.model.enums.UserDeletionState;
+import ru.practicum.service.BulkImportService;
 import ru.practicum.service.CategoryService;
 import ru.practicum.service.CommentService;
 import ru.practicum.service.CompilationService;
 import ru.practicum.service.EventService;
+import ru.practicum.service.ExportService;
 import ru.practicum.service.UserService;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,6 +68,12 @@ class AdminControllerTest {
   @MockBean
   private CommentService commentService;
 
+  @MockBean
+  private ExportService exportService;
+
+  @MockBean
+  private BulkImportService bulkImportService;
+
   @Test
   void getUsers_ShouldReturnUserList() throws Exception {
     UserDto userDto = new UserDto(1L, "John Doe", "john@example.com");
@@ -136,7 +159,7 @@ class AdminControllerTest {
     moderatedComment.setId(1L);
     moderatedComment.setState(CommentState.CONFIRMED);
 
-    when(commentService.moderateComment(eq(1L), any(CommentModerationDto.class)))
+    when(commentService.moderateComment(eq(1L), any(CommentModerationDto.class), isNull()))
             .thenReturn(moderatedComment);
 
     mockMvc.perform(patch("/admin/comments/1")
@@ -146,7 +169,7 @@ class AdminControllerTest {
             .andExpect(jsonPath("$.id").value(1))
             .andExpect(jsonPath("$.state").value("CONFIRMED"));
 
-    verify(commentService).moderateComment(eq(1L), any(CommentModerationDto.class));
+    verify(commentService).moderateComment(eq(1L), any(CommentModerationDto.class), isNull());
   }
 
   @Test
@@ -160,6 +183,48 @@ class AdminControllerTest {
             .andExpect(status().isBadRequest());
   }
 
+  @Test
+  void claimComments_ShouldPassModeratorHeader() throws Exception {
+    CommentDto claimed = new CommentDto();
+    claimed.setId(1L);
+    claimed.setState(CommentState.PENDING);
+
+    when(commentService.claimComments("anna", 5))
+            .thenReturn(new CommentClaimDto(LocalDateTime.of(2030, 1, 1, 12, 0), List.of(claimed)));
+
+    mockMvc.perform(post("/admin/comments/claim")
+                    .header(AdminController.MODERATOR_HEADER, "anna")
+                    .param("size", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.leaseExpiresOn").value("2030-01-01 12:00:00"))
+            .andExpect(jsonPath("$.comments[0].id").value(1));
+  }
+
+  @Test
+  void claimComments_WithoutModeratorHeader_ShouldReturnBadRequest() throws Exception {
+    mockMvc.perform(post("/admin/comments/claim"))
+            .andExpect(status().isBadRequest());
+
+    verify(commentService, never()).claimComments(any(), anyInt());
+  }
+
+  @Test
+  void moderateComments_ShouldReturnModeratedAndSkippedIds() throws Exception {
+    CommentBulkModerationDto moderationDto =
+            new CommentBulkModerationDto(List.of(1L, 2L), CommentState.REJECTED, "spam");
+
+    when(commentService.moderateComments(any(CommentBulkModerationDto.class), eq("anna")))
+            .thenReturn(new CommentBulkModerationResultDto(List.of(1L), List.of(2L)));
+
+    mockMvc.perform(patch("/admin/comments")
+                    .header(AdminController.MODERATOR_HEADER, "anna")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(moderationDto)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.moderated[0]").value(1))
+            .andExpect(jsonPath("$.skipped[0]").value(2));
+  }
+
   @Test
   void deleteComment_ShouldReturnNoContent() throws Exception {
     doNothing().when(commentService).deleteCommentByAdmin(1L);
@@ -169,4 +234,63 @@ class AdminControllerTest {
 
     verify(commentService).deleteCommentByAdmin(1L);
   }
+
+  @Test
+  void exportEvents_ShouldStreamBodyWithExportHeaders() throws Exception {
+    ExportJobs.Job job = new ExportJobs().start(ExportService.EVENTS);
+    when(exportService.parseFormat("ndjson")).thenReturn(ExportFormat.NDJSON);
+    when(exportService.start(ExportService.EVENTS)).thenReturn(job);
+    doAnswer(invocation -> {
+      OutputStream out = invocation.getArgument(1);
+      out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+      return null;
+    }).when(exportService).write(eq(job), any(OutputStream.class), eq(ExportFormat.NDJSON), eq(false));
+
+    var result = mockMvc.perform(get("/admin/export/events").param("format", "ndjson"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(header().string(AdminController.EXPORT_ID_HEADER, job.getId()))
+            .andExpect(content().string("{\"id\":1}\n"));
+  }
+
+  @Test
+  void cancelExport_ShouldReturnNoContent() throws Exception {
+    mockMvc.perform(delete("/admin/export/{exportId}", "abc"))
+            .andExpect(status().isNoContent());
+
+    verify(exportService).cancel("abc");
+  }
+
+  @Test
+  void importUsers_WithNdjson_ShouldReturnPerRowResults() throws Exception {
+    BulkImportResultDto result = new BulkImportResultDto(1, 0, 0,
+            List.of(new BulkImportRowDto(1, BulkImportRowDto.Status.CREATED, 5L, null)));
+    when(bulkImportService.importUsers(any(InputStream.class))).thenReturn(result);
+
+    mockMvc.perform(post("/admin/users/import")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .content("{\"name\":\"Anna\",\"email\":\"anna@mail.ru\"}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(1))
+            .andExpect(jsonPath("$.rows[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.rows[0].id").value(5))
+            .andExpect(jsonPath("$.rows[0].message").doesNotExist());
+  }
+
+  @Test
+  void deleteUser_WithAsync_ShouldQueueDeletionAndReturnAccepted() throws Exception {
+    when(userService.requestUserDeletion(1L)).thenReturn(
+            new UserDeletionDto(1L, UserDeletionState.PENDING, null, null, 0, 0, 0));
+
+    mockMvc.perform(delete("/admin/users/1").param("async", "true"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.state").value("PENDING"));
+
+    verify(userService).requestUserDeletion(1L);
+    verify(userService, never()).deleteUser(anyLong());
+  }
 }
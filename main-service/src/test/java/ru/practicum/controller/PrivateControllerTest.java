@@ -20,8 +20,10 @@ import ru.practicum.dto.request.EventRequestStatusUpdateResult;
 import ru.practicum.dto.request.ParticipationRequestDto;
 import ru.practicum.model.enums.CommentState;
 import ru.practicum.model.enums.RequestStatus;
+import ru.practicum.model.enums.VoteType;
 import ru.practicum.service.CommentService;
 import ru.practicum.service.EventService;
+import ru.practicum.service.RatingService;
 import ru.practicum.service.RequestService;
 
 import java.time.LocalDateTime;
@@ -31,6 +33,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -52,6 +55,9 @@ class PrivateControllerTest {
   @MockBean
   private CommentService commentService;
 
+  @MockBean
+  private RatingService ratingService;
+
   private EventShortDto eventShortDto;
   private EventFullDto eventFullDto;
   private NewEventDto newEventDto;
@@ -359,4 +365,30 @@ class PrivateControllerTest {
 
     verify(requestService).cancelRequest(1L, 1L);
   }
+
+  @Test
+  void rateEvent_ShouldAcceptVote() throws Exception {
+    mockMvc.perform(put("/users/1/events/2/rating")
+                    .param("type", "LIKE"))
+            .andExpect(status().isAccepted());
+
+    verify(ratingService).vote(1L, 2L, VoteType.LIKE);
+  }
+
+  @Test
+  void rateEvent_WithUnknownType_ShouldReturnBadRequest() throws Exception {
+    mockMvc.perform(put("/users/1/events/2/rating")
+                    .param("type", "LOVE"))
+            .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(ratingService);
+  }
+
+  @Test
+  void removeEventRating_ShouldAcceptRevocation() throws Exception {
+    mockMvc.perform(delete("/users/1/events/2/rating"))
+            .andExpect(status().isAccepted());
+
+    verify(ratingService).removeVote(1L, 2L);
+  }
 }
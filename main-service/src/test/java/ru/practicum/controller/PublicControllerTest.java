@@ -6,12 +6,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.dto.category.CategoryDto;
 import ru.practicum.dto.comment.CommentDto;
+import ru.practicum.dto.comment.CommentThreadDto;
 import ru.practicum.dto.compilation.CompilationDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
+import ru.practicum.dto.user.InitiatorRatingDto;
+import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.model.enums.CommentState;
 import ru.practicum.model.enums.EventState;
@@ -19,17 +23,22 @@ import ru.practicum.service.CategoryService;
 import ru.practicum.service.CommentService;
 import ru.practicum.service.CompilationService;
 import ru.practicum.service.EventService;
+import ru.practicum.service.RatingService;
+import ru.practicum.service.ResourceVersions;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PublicController.class)
+@Import(ResourceVersions.class)
 class PublicControllerTest {
 
   @Autowired
@@ -50,6 +59,12 @@ class PublicControllerTest {
   @MockBean
   private CommentService commentService;
 
+  @MockBean
+  private RatingService ratingService;
+
+  @Autowired
+  private ResourceVersions resourceVersions;
+
   private EventShortDto eventShortDto;
   private EventFullDto eventFullDto;
   private CategoryDto categoryDto;
@@ -85,7 +100,7 @@ class PublicControllerTest {
   void getEvents_WithoutFilters_ShouldReturnAllEvents() throws Exception {
     when(eventService.getPublicEvents(
             isNull(), isNull(), isNull(), isNull(), isNull(),
-            eq(false), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class)))
+            eq(false), isNull(), isNull(), isNull(), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class)))
             .thenReturn(List.of(eventShortDto));
 
     mockMvc.perform(get("/events"))
@@ -97,7 +112,7 @@ class PublicControllerTest {
 
     verify(eventService).getPublicEvents(
             isNull(), isNull(), isNull(), isNull(), isNull(),
-            eq(false), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class));
+            eq(false), isNull(), isNull(), isNull(), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class));
   }
 
   @Test
@@ -164,13 +179,42 @@ class PublicControllerTest {
             .andExpect(status().isBadRequest());
   }
 
+  @Test
+  void getEventCommentThreads_ShouldReturnThreadsWithReplies() throws Exception {
+    CommentDto root = new CommentDto();
+    root.setId(1L);
+    root.setRepliesCount(1L);
+    CommentDto reply = new CommentDto();
+    reply.setId(2L);
+    reply.setParentId(1L);
+    reply.setDepth(1);
+    when(commentService.getPublicThreads(1L, 0, 10, 2))
+            .thenReturn(List.of(new CommentThreadDto(root, List.of(reply))));
+
+    mockMvc.perform(get("/events/1/comments/threads")
+                    .param("replies", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].comment.repliesCount").value(1))
+            .andExpect(jsonPath("$[0].replies[0].parentId").value(1))
+            .andExpect(jsonPath("$[0].replies[0].depth").value(1));
+  }
+
+  @Test
+  void getCommentThread_WithTooLargeSize_ShouldReturnBadRequest() throws Exception {
+    mockMvc.perform(get("/events/1/comments/1/thread")
+                    .param("size", "100000"))
+            .andExpect(status().isBadRequest());
+
+    verify(commentService, never()).getPublicThread(any(), any(), anyInt());
+  }
+
   // === ОСТАЛЬНЫЕ СУЩЕСТВУЮЩИЕ ТЕСТЫ (ИСПРАВЛЕННЫЕ) ===
 
   @Test
   void getEvents_WithTextFilter_ShouldReturnFilteredEvents() throws Exception {
     when(eventService.getPublicEvents(
             eq("music"), isNull(), isNull(), isNull(), isNull(),
-            eq(false), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class)))
+            eq(false), isNull(), isNull(), isNull(), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class)))
             .thenReturn(List.of(eventShortDto));
 
     mockMvc.perform(get("/events")
@@ -183,7 +227,7 @@ class PublicControllerTest {
 
     verify(eventService).getPublicEvents(
             eq("music"), isNull(), isNull(), isNull(), isNull(),
-            eq(false), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class));
+            eq(false), isNull(), isNull(), isNull(), eq("EVENT_DATE"), eq(0), eq(10), any(HttpServletRequest.class));
   }
 
   @Test
@@ -250,7 +294,7 @@ class PublicControllerTest {
   void getEvents_WithEmptyResponse_ShouldReturnEmptyArray() throws Exception {
     when(eventService.getPublicEvents(
             any(), any(), any(), any(), any(),
-            any(), any(), anyInt(), anyInt(), any(HttpServletRequest.class)))
+            any(), any(), any(), any(), any(), anyInt(), anyInt(), any(HttpServletRequest.class)))
             .thenReturn(List.of());
 
     mockMvc.perform(get("/events"))
@@ -258,4 +302,101 @@ class PublicControllerTest {
             .andExpect(jsonPath("$").isArray())
             .andExpect(jsonPath("$").isEmpty());
   }
-}
\ No newline at end of file
+
+  @Test
+  void getEvent_WithMatchingETag_ShouldReturnNotModifiedAndStillSaveHit() throws Exception {
+    when(eventService.getPublicEventEtag(1L)).thenReturn(resourceVersions.etagWith(150L, ResourceVersions.EVENTS,
+            ResourceVersions.event(1L)));
+    when(eventService.getPublicEvent(eq(1L), any(HttpServletRequest.class)))
+            .thenReturn(eventFullDto);
+
+    String etag = mockMvc.perform(get("/events/1"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/events/1").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+    verify(eventService, times(1)).getPublicEvent(eq(1L), any(HttpServletRequest.class));
+    verify(eventService).saveHit(any(HttpServletRequest.class));
+  }
+
+  @Test
+  void getEvent_AfterViewsChanged_ShouldReturnFreshBody() throws Exception {
+    when(eventService.getPublicEventEtag(1L)).thenReturn(
+            resourceVersions.etagWith(150L, ResourceVersions.EVENTS, ResourceVersions.event(1L)),
+            resourceVersions.etagWith(151L, ResourceVersions.EVENTS, ResourceVersions.event(1L)));
+    when(eventService.getPublicEvent(eq(1L), any(HttpServletRequest.class)))
+            .thenReturn(eventFullDto);
+
+    String etag = mockMvc.perform(get("/events/1"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/events/1").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.views").value(150));
+  }
+
+  @Test
+  void getEvent_WithETagForUnknownEvent_ShouldReturnNotFoundWithoutHit() throws Exception {
+    when(eventService.getPublicEventEtag(999L)).thenThrow(new NotFoundException("Event not found"));
+
+    mockMvc.perform(get("/events/999").header("If-None-Match", "W/\"any\""))
+            .andExpect(status().isNotFound());
+
+    verify(eventService, never()).saveHit(any(HttpServletRequest.class));
+  }
+
+  @Test
+  void getEvent_WhenViewsNotSynced_ShouldSkipConditionalGet() throws Exception {
+    when(eventService.getPublicEvent(eq(1L), any(HttpServletRequest.class)))
+            .thenReturn(eventFullDto);
+
+    mockMvc.perform(get("/events/1").header("If-None-Match", "*"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("ETag"));
+  }
+
+  @Test
+  void getCategories_AfterVersionBump_ShouldReturnFreshBody() throws Exception {
+    when(categoryService.getCategories(0, 10)).thenReturn(List.of(categoryDto));
+
+    String etag = mockMvc.perform(get("/categories"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/categories").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+    resourceVersions.bump(ResourceVersions.CATEGORIES);
+
+    mockMvc.perform(get("/categories").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("Music"));
+  }
+
+  @Test
+  void getCompilation_WithMatchingETag_ShouldNotCallService() throws Exception {
+    String etag = resourceVersions.etag(ResourceVersions.COMPILATIONS);
+
+    mockMvc.perform(get("/compilations/1").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+    verify(compilationService, never()).getCompilation(any());
+  }
+
+  @Test
+  void getTopInitiators_ShouldReturnRatings() throws Exception {
+    when(ratingService.getTopInitiators(0, 5)).thenReturn(List.of(
+            new InitiatorRatingDto(new UserShortDto(2L, "Jane Doe"), 7, 1, 6)));
+
+    mockMvc.perform(get("/initiators/top")
+                    .param("size", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].initiator.id").value(2))
+            .andExpect(jsonPath("$[0].rating").value(6));
+  }
+}
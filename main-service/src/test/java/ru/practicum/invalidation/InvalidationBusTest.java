@@ -0,0 +1,142 @@
+package ru.practicum.invalidation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.Category;
+import ru.practicum.model.User;
+import ru.practicum.service.ResourceVersions;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Два узла на общей базе H2 и транспорте в памяти: изменения узла A применяются на узле B.
+ */
+class InvalidationBusTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private InMemoryInvalidationTransport transport;
+  private ResourceVersions versionsA;
+  private ResourceVersions versionsB;
+  private Cache cacheB;
+  private SimpleMeterRegistry meterRegistry;
+  private InvalidationListener listenerB;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:invalidation-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE cache_invalidations (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "origin VARCHAR(36) NOT NULL, resource_key VARCHAR(128) NOT NULL, created_on TIMESTAMP NOT NULL)");
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    transport = new InMemoryInvalidationTransport();
+
+    InvalidationProperties properties = new InvalidationProperties();
+    properties.setTransport(InvalidationProperties.Transport.MEMORY);
+    properties.setCoalesceWindow(Duration.ofMillis(50));
+
+    versionsA = new ResourceVersions();
+    new InvalidationOutbox(jdbcTemplate, transport, properties, versionsA);
+
+    versionsB = new ResourceVersions();
+    InvalidationOutbox outboxB = new InvalidationOutbox(jdbcTemplate, transport, properties, versionsB);
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+    cacheB = mock(Cache.class);
+    when(entityManagerFactory.getCache()).thenReturn(cacheB);
+    meterRegistry = new SimpleMeterRegistry();
+    listenerB = new InvalidationListener(jdbcTemplate, transport, properties, versionsB, entityManagerFactory,
+            outboxB, meterRegistry);
+    listenerB.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    listenerB.stop();
+  }
+
+  @Test
+  void committedChange_ShouldInvalidateOtherNode() {
+    String categories = versionsB.etag(ResourceVersions.CATEGORIES);
+    String event = versionsB.etag(ResourceVersions.event(1L));
+
+    transactionTemplate.executeWithoutResult(status -> {
+      versionsA.bump(ResourceVersions.CATEGORIES, ResourceVersions.event(1L));
+      versionsA.bump(ResourceVersions.user(7L), ResourceVersions.CATEGORIES);
+    });
+
+    awaitUntil(() -> !versionsB.etag(ResourceVersions.CATEGORIES).equals(categories));
+    assertThat(versionsB.etag(ResourceVersions.event(1L))).isNotEqualTo(event);
+    verify(cacheB).evict(Category.class);
+    verify(cacheB).evict(User.class, 7L);
+    // Повторы ключей внутри транзакции пишутся один раз
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cache_invalidations", Integer.class)).isEqualTo(3);
+  }
+
+  @Test
+  void rolledBackChange_ShouldNotReachOtherNode() {
+    String categories = versionsB.etag(ResourceVersions.CATEGORIES);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      versionsA.bump(ResourceVersions.CATEGORIES);
+      status.setRollbackOnly();
+    });
+    listenerB.drain();
+
+    assertThat(versionsB.etag(ResourceVersions.CATEGORIES)).isEqualTo(categories);
+    verifyNoInteractions(cacheB);
+  }
+
+  @Test
+  void burstOfChanges_ShouldBeAppliedWithFewOutboxReads() {
+    String event = versionsB.etag(ResourceVersions.event(19L));
+
+    for (long i = 0; i < 20; i++) {
+      long eventId = i;
+      transactionTemplate.executeWithoutResult(status -> versionsA.bump(ResourceVersions.event(eventId)));
+    }
+
+    awaitUntil(() -> !versionsB.etag(ResourceVersions.event(19L)).equals(event));
+    assertThat(meterRegistry.get("ewm.invalidation.drains").counter().count()).isLessThan(5);
+    assertThat(meterRegistry.get("ewm.invalidation.keys").counter().count()).isEqualTo(20);
+  }
+
+  @Test
+  void ownChange_ShouldNotBeAppliedTwice() {
+    versionsB.bump(ResourceVersions.COMPILATIONS);
+    String afterBump = versionsB.etag(ResourceVersions.COMPILATIONS);
+
+    listenerB.drain();
+
+    assertThat(versionsB.etag(ResourceVersions.COMPILATIONS)).isEqualTo(afterBump);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
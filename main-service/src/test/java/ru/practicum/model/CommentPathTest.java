@@ -0,0 +1,44 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentPathTest {
+
+  @Test
+  void child_ShouldAppendFixedWidthSegment() {
+    String root = CommentPath.child(null, 42);
+    String reply = CommentPath.child(root, 7);
+
+    assertEquals("000000000042", root);
+    assertEquals("000000000042000000000007", reply);
+    assertEquals(List.of(42L), CommentPath.ancestors(reply));
+    assertEquals(List.of(), CommentPath.ancestors(root));
+  }
+
+  @Test
+  void upperBound_ShouldCarryOverNines() {
+    assertEquals("000000000043", CommentPath.upperBound("000000000042"));
+    assertEquals("000000000100", CommentPath.upperBound("000000000099"));
+  }
+
+  @Test
+  void sortedPaths_ShouldKeepSubtreesContiguousInDepthFirstOrder() {
+    String a = CommentPath.child(null, 9);
+    String b = CommentPath.child(null, 10);
+    String a1 = CommentPath.child(a, 11);
+    String a11 = CommentPath.child(a1, 30);
+    String a2 = CommentPath.child(a, 12);
+    List<String> paths = new ArrayList<>(List.of(b, a2, a11, a, a1));
+
+    paths.sort(null);
+
+    assertEquals(List.of(a, a1, a11, a2, b), paths);
+    assertTrue(paths.stream().filter(path -> path.compareTo(a) > 0 && path.compareTo(CommentPath.upperBound(a)) < 0)
+            .allMatch(path -> path.startsWith(a)));
+  }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoHashTest {
+
+  @Test
+  void encode_ShouldMatchReferenceGeohash() {
+    assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+    assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+  }
+
+  @Test
+  void coveringCells_ForCityRadius_ShouldUseFineCells() {
+    Set<String> cells = GeoHash.coveringCells(55.7558, 37.6173, 5);
+
+    assertEquals(9, cells.size());
+    assertTrue(cells.stream().allMatch(cell -> cell.length() == 4));
+  }
+
+  @Test
+  void distanceKm_MoscowToSaintPetersburg_ShouldBeAbout634Km() {
+    double distance = GeoHash.distanceKm(55.7558, 37.6173, 59.9343, 30.3351);
+
+    assertEquals(634, distance, 2);
+  }
+
+  @Test
+  void coveringCells_ShouldContainEveryPointWithinRadius() {
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      double lat = random.nextDouble() * 170 - 85;
+      double lon = random.nextDouble() * 360 - 180;
+      double radiusKm = Math.pow(10, random.nextDouble() * 3 - 1);
+      Set<String> cells = GeoHash.coveringCells(lat, lon, radiusKm);
+
+      // Точка на границе круга в случайном направлении
+      double bearing = random.nextDouble() * 2 * Math.PI;
+      double angular = radiusKm * 0.999 / GeoHash.EARTH_RADIUS_KM;
+      double lat1 = Math.toRadians(lat);
+      double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular) +
+              Math.cos(lat1) * Math.sin(angular) * Math.cos(bearing));
+      double lon2 = Math.toRadians(lon) + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(lat1),
+              Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+      double pointLat = Math.toDegrees(lat2);
+      double pointLon = (Math.toDegrees(lon2) + 540) % 360 - 180;
+
+      String pointHash = GeoHash.encode(pointLat, pointLon, GeoHash.MAX_PRECISION);
+      // Пустой набор - поиск без сужения по geohash
+      assertTrue(cells.isEmpty() || cells.stream().anyMatch(pointHash::startsWith),
+              () -> "(" + lat + ", " + lon + ") r=" + radiusKm + " misses " + pointHash);
+    }
+  }
+}
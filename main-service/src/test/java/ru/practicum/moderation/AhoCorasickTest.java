@@ -0,0 +1,85 @@
+package ru.practicum.moderation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTest {
+
+  @Test
+  void scan_ShouldReportOverlappingAndNestedMatches() {
+    AhoCorasick automaton = AhoCorasick.builder()
+            .add("he", 1)
+            .add("she", 2)
+            .add("his", 4)
+            .add("hers", 8)
+            .build();
+
+    assertEquals(List.of("1-4:2", "2-4:1", "2-6:8"), matches(automaton, "ushers"));
+    assertEquals(List.of("0-3:4"), matches(automaton, "his"));
+  }
+
+  @Test
+  void scan_ShouldIgnoreCaseAndMergeTagsOfSameTerm() {
+    AhoCorasick automaton = AhoCorasick.builder()
+            .add(" Free Money ", 1)
+            .add("free money", 2)
+            .build();
+
+    assertEquals(1, automaton.size());
+    assertEquals(List.of("4-14:3"), matches(automaton, "Get FREE MONEY now"));
+  }
+
+  @Test
+  void scan_ShouldFindSameMatchesAsNaiveSearch() {
+    Random random = new Random(7);
+    List<String> terms = new ArrayList<>();
+    AhoCorasick.Builder builder = AhoCorasick.builder();
+    for (int i = 0; i < 300; i++) {
+      String term = randomWord(random, 1 + random.nextInt(4));
+      if (!terms.contains(term)) {
+        terms.add(term);
+        builder.add(term, 1);
+      }
+    }
+    AhoCorasick automaton = builder.build();
+
+    for (int i = 0; i < 100; i++) {
+      String text = randomWord(random, 200);
+      List<String> expected = new ArrayList<>();
+      for (int end = 1; end <= text.length(); end++) {
+        for (String term : terms) {
+          int start = end - term.length();
+          if (start >= 0 && text.startsWith(term, start)) {
+            expected.add(start + "-" + end);
+          }
+        }
+      }
+      List<String> actual = new ArrayList<>();
+      automaton.scan(text, (start, end, tags) -> actual.add(start + "-" + end));
+
+      expected.sort(null);
+      actual.sort(null);
+      assertEquals(expected, actual);
+    }
+  }
+
+  private static List<String> matches(AhoCorasick automaton, String text) {
+    List<String> result = new ArrayList<>();
+    automaton.scan(text, (start, end, tags) -> result.add(start + "-" + end + ":" + tags));
+    result.sort(null);
+    return result;
+  }
+
+  private static String randomWord(Random random, int length) {
+    StringBuilder word = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      word.append((char) ('a' + random.nextInt(4)));
+    }
+    return word.toString();
+  }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.moderation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import ru.practicum.model.enums.CommentState;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentPreModeratorTest {
+
+  @TempDir
+  Path dir;
+
+  private PreModerationProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private Path blocklist;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    blocklist = Files.writeString(dir.resolve("blocklist.txt"), "# spam\ncasino\nfree money\n");
+    Path allowlist = Files.writeString(dir.resolve("allowlist.txt"), "casino royale\n");
+    properties = new PreModerationProperties();
+    properties.setEnabled(true);
+    properties.setBlocklist(blocklist.toUri().toString());
+    properties.setAllowlist(allowlist.toUri().toString());
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void review_WithBlockedTerm_ShouldReject() {
+    CommentPreModerator.Verdict verdict = moderator().review("Best CASINO bonus, free money inside");
+
+    assertEquals(CommentState.REJECTED, verdict.state());
+    assertEquals("Auto-rejected: 2 blocked term(s)", verdict.reason());
+    assertEquals(1.0, meterRegistry.get("ewm.comments.premoderation").tag("verdict", "rejected").counter().count());
+  }
+
+  @Test
+  void review_ShouldMatchWholeWordsAndHonourAllowlist() {
+    CommentPreModerator moderator = moderator();
+
+    assertEquals(CommentState.CONFIRMED, moderator.review("Casinos nearby? Screening of Casino Royale").state());
+    assertEquals(CommentState.REJECTED, moderator.review("Casino Royale night at the casino").state());
+  }
+
+  @Test
+  void review_WhenRulesAreViolated_ShouldLeaveCommentForModerator() {
+    CommentPreModerator moderator = moderator();
+
+    assertEquals(CommentState.PENDING,
+            moderator.review("see http://a.example https://b.example www.c.example").state());
+    assertEquals(CommentState.PENDING, moderator.review("THIS EVENT IS ABSOLUTELY AMAZING, GO!").state());
+    assertEquals(CommentState.PENDING, moderator.review("Wow!!!!!!!!!!!!").state());
+    assertEquals(CommentState.CONFIRMED, moderator.review("Great event, see you there").state());
+  }
+
+  @Test
+  void review_WhenDisabled_ShouldKeepCommentPending() {
+    properties.setEnabled(false);
+
+    assertEquals(CommentState.PENDING, moderator().review("casino").state());
+  }
+
+  @Test
+  void reloadIfChanged_WhenBlocklistChanges_ShouldUseNewTerms() throws Exception {
+    CommentPreModerator moderator = moderator();
+    assertEquals(CommentState.CONFIRMED, moderator.review("cheap tickets here").state());
+
+    Files.writeString(blocklist, "cheap tickets\n");
+    Files.setLastModifiedTime(blocklist, FileTime.from(Instant.now().plusSeconds(60)));
+    moderator.reloadIfChanged();
+
+    assertEquals(CommentState.REJECTED, moderator.review("cheap tickets here").state());
+    assertEquals(CommentState.CONFIRMED, moderator.review("casino").state());
+  }
+
+  @Test
+  void reload_WhenBlocklistIsMissing_ShouldKeepPreviousDictionary() throws Exception {
+    CommentPreModerator moderator = moderator();
+
+    Files.delete(blocklist);
+    moderator.reloadIfChanged();
+
+    assertEquals(CommentState.REJECTED, moderator.review("casino").state());
+  }
+
+  private CommentPreModerator moderator() {
+    return new CommentPreModerator(properties, new DefaultResourceLoader(), meterRegistry);
+  }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.moderation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность пре-модерации на одном ядре: комментарии около 300 символов,
+ * синтетический словарь из dictionarySize терминов (слова и фразы из двух слов).
+ *
+ * <p>Запуск: {@code mvn -pl main-service test-compile exec:java
+ * -Dexec.mainClass=ru.practicum.moderation.PreModerationBenchmark -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreModerationBenchmark {
+
+  private static final int COMMENTS = 1024;
+
+  @Param({"1000", "100000"})
+  private int dictionarySize;
+
+  private List<String> terms;
+  private String[] comments;
+  private AhoCorasick automaton;
+  private CommentPreModerator moderator;
+  private Path directory;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Random random = new Random(42);
+    terms = new ArrayList<>(dictionarySize);
+    for (int i = 0; i < dictionarySize; i++) {
+      terms.add(i % 5 == 0 ? word(random) + " " + word(random) : word(random));
+    }
+    AhoCorasick.Builder builder = AhoCorasick.builder();
+    terms.forEach(term -> builder.add(term, CommentPreModerator.BLOCK));
+    automaton = builder.build();
+
+    directory = Files.createTempDirectory("pre-moderation");
+    Path blocklist = Files.write(directory.resolve("blocklist.txt"), terms.subList(0, dictionarySize / 2));
+    Path allowlist = Files.write(directory.resolve("allowlist.txt"), terms.subList(dictionarySize / 2, dictionarySize));
+    PreModerationProperties properties = new PreModerationProperties();
+    properties.setEnabled(true);
+    properties.setBlocklist(blocklist.toUri().toString());
+    properties.setAllowlist(allowlist.toUri().toString());
+    moderator = new CommentPreModerator(properties, new DefaultResourceLoader(), new SimpleMeterRegistry());
+
+    // Обычный текст и изредка - термины словаря, как в реальном потоке комментариев
+    comments = new String[COMMENTS];
+    for (int i = 0; i < COMMENTS; i++) {
+      StringBuilder comment = new StringBuilder();
+      while (comment.length() < 300) {
+        comment.append(random.nextInt(50) == 0 ? terms.get(random.nextInt(dictionarySize)) : word(random))
+                .append(random.nextInt(10) == 0 ? ", " : " ");
+      }
+      comments[i] = comment.toString();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    try (var files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    automaton.scan(nextComment(), (start, end, tags) -> blackhole.consume(end));
+  }
+
+  @Benchmark
+  public CommentPreModerator.Verdict review() {
+    return moderator.review(nextComment());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public AhoCorasick build() {
+    AhoCorasick.Builder builder = AhoCorasick.builder();
+    terms.forEach(term -> builder.add(term, CommentPreModerator.BLOCK));
+    return builder.build();
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+            .include(PreModerationBenchmark.class.getSimpleName())
+            .build()).run();
+  }
+
+  private String nextComment() {
+    return comments[next++ & (COMMENTS - 1)];
+  }
+
+  private static String word(Random random) {
+    int length = 3 + random.nextInt(8);
+    StringBuilder word = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      word.append((char) ('a' + random.nextInt(26)));
+    }
+    return word.toString();
+  }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.controller.PublicController;
+import ru.practicum.service.CategoryService;
+import ru.practicum.service.CommentService;
+import ru.practicum.service.CompilationService;
+import ru.practicum.service.EventService;
+import ru.practicum.service.RatingService;
+import ru.practicum.service.ResourceVersions;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = PublicController.class, properties = {
+        "ewm.rate-limit.enabled=true",
+        "ewm.rate-limit.defaults.capacity=2",
+        "ewm.rate-limit.defaults.refill-per-second=0.1",
+        "ewm.rate-limit.size-cost-unit=10",
+        "ewm.rate-limit.endpoints[/categories/{catId}].capacity=1",
+        "ewm.rate-limit.endpoints[/categories/{catId}].refill-per-second=0.5"})
+@Import({RateLimiter.class, ResourceVersions.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(RateLimitProperties.class)
+class RateLimitInterceptorTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private EventService eventService;
+
+  @MockBean
+  private CategoryService categoryService;
+
+  @MockBean
+  private CompilationService compilationService;
+
+  @MockBean
+  private CommentService commentService;
+
+  @MockBean
+  private RatingService ratingService;
+
+  @Test
+  void publicEndpoint_OverLimit_ShouldReturnTooManyRequestsWithRetryAfter() throws Exception {
+    when(categoryService.getCategories(anyInt(), anyInt())).thenReturn(List.of());
+
+    mockMvc.perform(get("/categories")).andExpect(status().isOk());
+    mockMvc.perform(get("/categories")).andExpect(status().isOk());
+    mockMvc.perform(get("/categories"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "10"))
+            .andExpect(jsonPath("$.status").value("TOO_MANY_REQUESTS"));
+
+    // Другой клиент ограничивается отдельно
+    mockMvc.perform(get("/categories").with(request -> {
+      request.setRemoteAddr("10.0.0.2");
+      return request;
+    })).andExpect(status().isOk());
+  }
+
+  @Test
+  void endpointLimit_ShouldApplyToPathPattern() throws Exception {
+    mockMvc.perform(get("/categories/1")).andExpect(status().isOk());
+    mockMvc.perform(get("/categories/2"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "2"));
+  }
+
+  @Test
+  void largePage_ShouldCostMoreTokens() throws Exception {
+    mockMvc.perform(get("/compilations").param("size", "10")).andExpect(status().isOk());
+    mockMvc.perform(get("/compilations")).andExpect(status().isTooManyRequests());
+  }
+}
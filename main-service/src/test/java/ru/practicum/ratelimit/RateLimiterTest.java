@@ -0,0 +1,113 @@
+package ru.practicum.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private RateLimitProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private RateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    properties = new RateLimitProperties();
+    properties.getDefaults().setCapacity(3);
+    properties.getDefaults().setRefillPerSecond(2);
+    RateLimitProperties.Limit events = new RateLimitProperties.Limit();
+    events.setCapacity(1);
+    events.setRefillPerSecond(1);
+    properties.getEndpoints().put("/events", events);
+    meterRegistry = new SimpleMeterRegistry();
+    rateLimiter = new RateLimiter(properties, meterRegistry, clock::get);
+  }
+
+  @Test
+  void tryAcquire_ShouldAllowBurstThenRefillAtConfiguredRate() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isZero();
+    }
+    // Следующий токен появится через 1/2 секунды
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isZero();
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isPositive();
+    assertThat(meterRegistry.get("ewm.ratelimit.rejected").tag("endpoint", "/categories").counter().count())
+            .isEqualTo(2.0);
+  }
+
+  @Test
+  void tryAcquire_ShouldKeepSeparateBucketsPerClientAndEndpoint() {
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/events", 1)).isZero();
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/events", 1)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+    assertThat(rateLimiter.tryAcquire("10.0.0.2", "/events", 1)).isZero();
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isZero();
+  }
+
+  @Test
+  void tryAcquire_WithCostAboveCapacity_ShouldTakeWholeBucket() {
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 10)).isZero();
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 1)).isPositive();
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    assertThat(rateLimiter.tryAcquire("10.0.0.1", "/categories", 2)).isZero();
+  }
+
+  @Test
+  void tryAcquire_ShouldBoundNumberOfTrackedClients() {
+    properties.setMaxClients(128);
+    rateLimiter = new RateLimiter(properties, meterRegistry, clock::get);
+
+    for (int i = 0; i < 10_000; i++) {
+      rateLimiter.tryAcquire("10.0." + (i / 256) + "." + (i % 256), "/categories", 1);
+    }
+
+    assertThat(rateLimiter.size()).isLessThanOrEqualTo(128);
+  }
+
+  @Test
+  void tryAcquire_FromManyThreads_ShouldNotOverspendBucket() throws Exception {
+    properties.getDefaults().setCapacity(1000);
+    rateLimiter = new RateLimiter(properties, meterRegistry, clock::get);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        int allowed = 0;
+        for (int i = 0; i < 500; i++) {
+          if (rateLimiter.tryAcquire("10.0.0.1", "/compilations", 1) == 0) {
+            allowed++;
+          }
+        }
+        return allowed;
+      }));
+    }
+    start.countDown();
+    int allowed = 0;
+    for (Future<Integer> result : results) {
+      allowed += result.get(10, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    assertThat(allowed).isEqualTo(1000);
+  }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.dto.bulk.BulkImportResultDto;
+import ru.practicum.dto.bulk.BulkImportRowDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Импорт на H2 с порцией в 3 строки, чтобы проверка дублей проходила через границы порций.
+ */
+class BulkImportServiceTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private ResourceVersions resourceVersions;
+  private BulkImportService bulkImportService;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:import-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "name VARCHAR(250) NOT NULL, email VARCHAR(254) NOT NULL UNIQUE)");
+    jdbcTemplate.execute("CREATE TABLE categories (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "name VARCHAR(50) NOT NULL UNIQUE)");
+    jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('Existing', 'existing@mail.ru')");
+    resourceVersions = new ResourceVersions();
+    bulkImportService = new BulkImportService(new ObjectMapper(), new NamedParameterJdbcTemplate(dataSource),
+            new DataSourceTransactionManager(dataSource),
+            Validation.buildDefaultValidatorFactory().getValidator(), resourceVersions, 3);
+  }
+
+  @Test
+  void importUsers_FromJsonArray_ShouldReportEveryRow() {
+    BulkImportResultDto result = bulkImportService.importUsers(body("[" +
+            "{\"name\":\"Anna\",\"email\":\"anna@mail.ru\"}," +
+            "{\"name\":\"Copy\",\"email\":\"existing@mail.ru\"}," +
+            "{\"name\":\"B\",\"email\":\"not-an-email\"}," +
+            "{\"name\":\"Boris\",\"email\":\"boris@mail.ru\"}," +
+            "{\"name\":\"Anna again\",\"email\":\"anna@mail.ru\"}," +
+            "{\"name\":\"Vera\",\"email\":\"vera@mail.ru\"}]"));
+
+    assertThat(result.getCreated()).isEqualTo(3);
+    assertThat(result.getDuplicates()).isEqualTo(2);
+    assertThat(result.getInvalid()).isEqualTo(1);
+    assertThat(result.getRows()).extracting(BulkImportRowDto::getStatus).containsExactly(
+            BulkImportRowDto.Status.CREATED, BulkImportRowDto.Status.DUPLICATE, BulkImportRowDto.Status.INVALID,
+            BulkImportRowDto.Status.CREATED, BulkImportRowDto.Status.DUPLICATE, BulkImportRowDto.Status.CREATED);
+    assertThat(result.getRows().get(2).getMessage()).contains("email", "name");
+
+    Long annaId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'anna@mail.ru'", Long.class);
+    assertThat(result.getRows().get(0).getId()).isEqualTo(annaId);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(4);
+  }
+
+  @Test
+  void importCategories_FromNdjson_ShouldInsertAcrossChunksAndBumpVersion() {
+    String etag = resourceVersions.etag(ResourceVersions.CATEGORIES);
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 1; i <= 10; i++) {
+      ndjson.append("{\"name\":\"Category ").append(i).append("\"}\n");
+    }
+
+    BulkImportResultDto result = bulkImportService.importCategories(body(ndjson.toString()));
+
+    assertThat(result.getCreated()).isEqualTo(10);
+    assertThat(result.getRows()).extracting(BulkImportRowDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM categories", Integer.class)).isEqualTo(10);
+    assertThat(resourceVersions.etag(ResourceVersions.CATEGORIES)).isNotEqualTo(etag);
+  }
+
+  @Test
+  void importCategories_WithMalformedLine_ShouldKeepEarlierRowsAndStop() {
+    BulkImportResultDto result = bulkImportService.importCategories(body(
+            "{\"name\":\"Concerts\"}\n{\"name\":\n{\"name\":\"Theatre\"}\n"));
+
+    assertThat(result.getRows()).hasSize(2);
+    assertThat(result.getRows().get(0).getStatus()).isEqualTo(BulkImportRowDto.Status.CREATED);
+    assertThat(result.getRows().get(1).getStatus()).isEqualTo(BulkImportRowDto.Status.INVALID);
+    assertThat(result.getRows().get(1).getMessage()).startsWith("Malformed JSON");
+    assertThat(jdbcTemplate.queryForList("SELECT name FROM categories", String.class))
+            .containsExactly("Concerts");
+  }
+
+  private static InputStream body(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -31,6 +31,9 @@ class CategoryServiceTest {
   @Mock
   private CategoryMapper categoryMapper;
 
+  @Mock
+  private ResourceVersions resourceVersions;
+
   @InjectMocks
   private CategoryService categoryService;
 
@@ -0,0 +1,76 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentCountReconcilerTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry meterRegistry;
+  private ResourceVersions resourceVersions;
+  private CommentCountReconciler reconciler;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:reconcile-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, comments_count BIGINT NOT NULL)");
+    jdbcTemplate.execute("CREATE TABLE comments (id BIGINT PRIMARY KEY, event_id BIGINT, state VARCHAR(20), " +
+            "thread_id BIGINT, path VARCHAR(768), replies_count BIGINT NOT NULL DEFAULT 0)");
+    meterRegistry = new SimpleMeterRegistry();
+    resourceVersions = new ResourceVersions();
+    reconciler = new CommentCountReconciler(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+            meterRegistry, resourceVersions, 2);
+  }
+
+  @Test
+  void reconcile_ShouldRepairOnlyDriftedEvents() {
+    jdbcTemplate.update("INSERT INTO events VALUES (1, 1), (2, 5), (3, 0), (7, 0)");
+    jdbcTemplate.update("INSERT INTO comments (id, event_id, state) VALUES (10, 1, 'CONFIRMED'), (11, 1, 'PENDING'), " +
+            "(12, 2, 'CONFIRMED'), (13, 7, 'CONFIRMED'), (14, 7, 'CONFIRMED'), (15, 3, 'REJECTED')");
+    String eventsEtag = resourceVersions.etag(ResourceVersions.EVENTS);
+    String compilationsEtag = resourceVersions.etag(ResourceVersions.COMPILATIONS);
+
+    reconciler.reconcile();
+
+    assertThat(jdbcTemplate.queryForList("SELECT comments_count FROM events ORDER BY id", Long.class))
+            .containsExactly(1L, 1L, 0L, 2L);
+    assertThat(meterRegistry.get("ewm.comments.count.repaired").counter().count()).isEqualTo(2.0);
+    assertThat(resourceVersions.etag(ResourceVersions.EVENTS)).isNotEqualTo(eventsEtag);
+    assertThat(resourceVersions.etag(ResourceVersions.COMPILATIONS)).isNotEqualTo(compilationsEtag);
+  }
+
+  @Test
+  void reconcile_ShouldRepairDriftedRepliesCounts() {
+    jdbcTemplate.update("INSERT INTO events VALUES (1, 4)");
+    // 10 <- 11 <- 12, 10 <- 13 (PENDING); у 10 счётчик разошёлся, у 11 верный
+    jdbcTemplate.update("INSERT INTO comments VALUES " +
+            "(10, 1, 'CONFIRMED', 10, '000000000010', 5), " +
+            "(11, 1, 'CONFIRMED', 10, '000000000010000000000011', 1), " +
+            "(12, 1, 'CONFIRMED', 10, '000000000010000000000011000000000012', 0), " +
+            "(13, 1, 'PENDING', 10, '000000000010000000000013', 0), " +
+            "(14, 1, 'CONFIRMED', 14, '000000000014', 0)");
+
+    reconciler.reconcile();
+
+    assertThat(jdbcTemplate.queryForList("SELECT replies_count FROM comments ORDER BY id", Long.class))
+            .containsExactly(2L, 1L, 0L, 0L, 0L);
+    assertThat(meterRegistry.get("ewm.comments.replies.repaired").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void reconcile_WithoutEvents_ShouldDoNothing() {
+    reconciler.reconcile();
+
+    assertThat(meterRegistry.get("ewm.comments.count.repaired").counter().count()).isZero();
+  }
+}
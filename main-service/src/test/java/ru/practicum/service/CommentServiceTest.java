@@ -9,18 +9,24 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import ru.practicum.dto.comment.CommentBulkModerationDto;
+import ru.practicum.dto.comment.CommentBulkModerationResultDto;
+import ru.practicum.dto.comment.CommentClaimDto;
 import ru.practicum.dto.comment.CommentDto;
 import ru.practicum.dto.comment.CommentModerationDto;
+import ru.practicum.dto.comment.CommentThreadDto;
 import ru.practicum.dto.comment.NewCommentDto;
 import ru.practicum.dto.comment.UpdateCommentDto;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.CommentMapper;
 import ru.practicum.model.Comment;
+import ru.practicum.model.CommentPath;
 import ru.practicum.model.Event;
 import ru.practicum.model.User;
 import ru.practicum.model.enums.CommentState;
 import ru.practicum.model.enums.EventState;
+import ru.practicum.moderation.CommentPreModerator;
 import ru.practicum.repository.CommentRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.UserRepository;
@@ -28,6 +34,7 @@ import ru.practicum.repository.UserRepository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -44,6 +51,10 @@ class CommentServiceTest {
   private UserRepository userRepository;
   @Mock
   private CommentMapper commentMapper;
+  @Mock
+  private ResourceVersions resourceVersions;
+  @Mock
+  private CommentPreModerator preModerator;
 
   @InjectMocks
   private CommentService commentService;
@@ -70,6 +81,8 @@ class CommentServiceTest {
     testComment.setEvent(testEvent);
     testComment.setState(CommentState.CONFIRMED);
     testComment.setCreatedOn(LocalDateTime.now());
+    testComment.setThreadId(1L);
+    testComment.setPath(CommentPath.child(null, 1L));
 
     testCommentDto = new CommentDto();
     testCommentDto.setId(1L);
@@ -110,6 +123,7 @@ class CommentServiceTest {
 
   @Test
   void createComment_WithValidData_ShouldReturnCommentDto() {
+    when(preModerator.review("Great event!")).thenReturn(new CommentPreModerator.Verdict(CommentState.PENDING, null));
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED))
             .thenReturn(Optional.of(testEvent));
@@ -125,6 +139,46 @@ class CommentServiceTest {
     verify(eventRepository).findByIdAndState(1L, EventState.PUBLISHED);
   }
 
+  @Test
+  void createComment_WhenPreModerationConfirms_ShouldCountCommentOnEvent() {
+    when(preModerator.review("Great event!")).thenReturn(new CommentPreModerator.Verdict(CommentState.CONFIRMED, null));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED))
+            .thenReturn(Optional.of(testEvent));
+    when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+      Comment saved = invocation.getArgument(0);
+      saved.setId(5L);
+      return saved;
+    });
+
+    commentService.createComment(1L, 1L, newCommentDto);
+
+    verify(commentRepository).save(argThat(comment -> comment.getState() == CommentState.CONFIRMED));
+    verify(eventRepository).addToCommentsCount(1L, 1);
+    verify(resourceVersions).bump(ResourceVersions.comments(1L));
+    verify(resourceVersions).bump(ResourceVersions.event(1L), ResourceVersions.COMPILATIONS);
+  }
+
+  @Test
+  void createComment_WhenPreModerationRejects_ShouldStoreReasonWithoutCounting() {
+    when(preModerator.review("Great event!"))
+            .thenReturn(new CommentPreModerator.Verdict(CommentState.REJECTED, "Auto-rejected: 1 blocked term(s)"));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED))
+            .thenReturn(Optional.of(testEvent));
+    when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+      Comment saved = invocation.getArgument(0);
+      saved.setId(5L);
+      return saved;
+    });
+
+    commentService.createComment(1L, 1L, newCommentDto);
+
+    verify(commentRepository).save(argThat(comment -> comment.getState() == CommentState.REJECTED
+            && "Auto-rejected: 1 blocked term(s)".equals(comment.getModeratorComment())));
+    verify(eventRepository, never()).addToCommentsCount(anyLong(), anyLong());
+  }
+
   @Test
   void createComment_WithNonExistentUser_ShouldThrowNotFoundException() {
     when(userRepository.findById(1L)).thenReturn(Optional.empty());
@@ -185,6 +239,8 @@ class CommentServiceTest {
     testComment.setState(CommentState.PENDING);
     UpdateCommentDto updateDto = new UpdateCommentDto("Updated comment text");
 
+    when(preModerator.review("Updated comment text"))
+            .thenReturn(new CommentPreModerator.Verdict(CommentState.PENDING, null));
     when(commentRepository.findByIdAndAuthorId(1L, 1L))
             .thenReturn(Optional.of(testComment));
     when(commentRepository.save(testComment)).thenReturn(testComment);
@@ -259,13 +315,47 @@ class CommentServiceTest {
     when(commentRepository.save(testComment)).thenReturn(testComment);
     when(commentMapper.toCommentDto(testComment)).thenReturn(testCommentDto);
 
-    CommentDto result = commentService.moderateComment(1L, moderationDto);
+    CommentDto result = commentService.moderateComment(1L, moderationDto, null);
 
     assertNotNull(result);
     assertEquals(CommentState.CONFIRMED, testComment.getState());
     assertEquals("Approved", testComment.getModeratorComment());
     assertNotNull(testComment.getUpdatedOn());
     verify(commentRepository).save(testComment);
+    verify(eventRepository).addToCommentsCount(testEvent.getId(), 1);
+  }
+
+  @Test
+  void moderateComment_WhenConfirmed_ShouldChangeEventAndCompilationEtags() {
+    ResourceVersions versions = new ResourceVersions();
+    doAnswer(invocation -> {
+      versions.bump((String[]) invocation.getRawArguments()[0]);
+      return null;
+    }).when(resourceVersions).bump(any(String[].class));
+    String eventEtag = versions.etag(ResourceVersions.EVENTS, ResourceVersions.event(testEvent.getId()));
+    String compilationsEtag = versions.etag(ResourceVersions.COMPILATIONS);
+    testComment.setState(CommentState.PENDING);
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+    when(commentRepository.save(testComment)).thenReturn(testComment);
+
+    commentService.moderateComment(1L, new CommentModerationDto(CommentState.CONFIRMED, null), null);
+
+    assertNotEquals(eventEtag, versions.etag(ResourceVersions.EVENTS, ResourceVersions.event(testEvent.getId())));
+    assertNotEquals(compilationsEtag, versions.etag(ResourceVersions.COMPILATIONS));
+  }
+
+  @Test
+  void moderateComment_WhenRejected_ShouldNotChangeCommentsCount() {
+    testComment.setState(CommentState.PENDING);
+    CommentModerationDto moderationDto = new CommentModerationDto(CommentState.REJECTED, "Spam");
+
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+    when(commentRepository.save(testComment)).thenReturn(testComment);
+    when(commentMapper.toCommentDto(testComment)).thenReturn(testCommentDto);
+
+    commentService.moderateComment(1L, moderationDto, null);
+
+    verify(eventRepository, never()).addToCommentsCount(anyLong(), anyLong());
   }
 
   @Test
@@ -276,7 +366,7 @@ class CommentServiceTest {
     when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
 
     assertThrows(ConflictException.class,
-            () -> commentService.moderateComment(1L, moderationDto));
+            () -> commentService.moderateComment(1L, moderationDto, null));
   }
 
   @Test
@@ -310,22 +400,252 @@ class CommentServiceTest {
 
   @Test
   void deleteCommentByAdmin_WithExistingComment_ShouldDeleteComment() {
-    when(commentRepository.existsById(1L)).thenReturn(true);
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
 
     assertDoesNotThrow(() -> commentService.deleteCommentByAdmin(1L));
 
-    verify(commentRepository).existsById(1L);
+    verify(commentRepository).findById(1L);
+    verify(commentRepository).deleteById(1L);
+  }
+
+  @Test
+  void deleteCommentByAdmin_WithConfirmedComment_ShouldDecrementCommentsCount() {
+    testComment.setState(CommentState.CONFIRMED);
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+
+    commentService.deleteCommentByAdmin(1L);
+
     verify(commentRepository).deleteById(1L);
+    verify(eventRepository).addToCommentsCount(testEvent.getId(), -1);
+    verify(resourceVersions).bump(ResourceVersions.event(testEvent.getId()), ResourceVersions.COMPILATIONS);
   }
 
   @Test
   void deleteCommentByAdmin_WithNonExistentComment_ShouldThrowNotFoundException() {
-    when(commentRepository.existsById(1L)).thenReturn(false);
+    when(commentRepository.findById(1L)).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class,
             () -> commentService.deleteCommentByAdmin(1L));
 
-    verify(commentRepository).existsById(1L);
+    verify(commentRepository).findById(1L);
     verify(commentRepository, never()).deleteById(any());
   }
+
+  @Test
+  void deleteAuthorComments_ShouldDeleteSubtreesAndFixCounters() {
+    Comment ownReply = new Comment();
+    ownReply.setId(2L);
+    ownReply.setEvent(testEvent);
+    ownReply.setState(CommentState.CONFIRMED);
+    ownReply.setPath(CommentPath.child(testComment.getPath(), 2L));
+    // Ответ автора в чужой ветке: у корня 5 остаётся на один ответ меньше
+    Comment foreignThreadReply = new Comment();
+    foreignThreadReply.setId(3L);
+    foreignThreadReply.setEvent(testEvent);
+    foreignThreadReply.setState(CommentState.CONFIRMED);
+    foreignThreadReply.setPath(CommentPath.child(CommentPath.child(null, 5L), 3L));
+    when(commentRepository.findAuthorCommentsForPurge(eq(1L), any()))
+            .thenReturn(List.of(testComment, ownReply, foreignThreadReply));
+    when(commentRepository.countDescendants(eq(1L), eq(testComment.getPath()), any(), eq(CommentState.CONFIRMED)))
+            .thenReturn(1L);
+    when(commentRepository.deleteDescendants(eq(1L), eq(testComment.getPath()), any())).thenReturn(1);
+
+    int deleted = commentService.deleteAuthorComments(1L, 10);
+
+    assertEquals(3, deleted);
+    verify(commentRepository).deleteById(1L);
+    verify(commentRepository, never()).deleteById(2L);
+    verify(commentRepository).deleteById(3L);
+    verify(eventRepository, times(3)).addToCommentsCount(1L, -1);
+    verify(commentRepository).addToRepliesCount(List.of(5L), -1);
+  }
+
+  @Test
+  void claimComments_ShouldLeaseLockedCommentsToModerator() {
+    testComment.setState(CommentState.PENDING);
+    when(commentRepository.lockClaimable(eq("anna"), any(LocalDateTime.class), eq(5))).thenReturn(List.of(1L));
+    when(commentRepository.findByIdInOrderByCreatedOnAscIdAsc(List.of(1L))).thenReturn(List.of(testComment));
+    when(commentMapper.toCommentDto(testComment)).thenReturn(testCommentDto);
+
+    CommentClaimDto result = commentService.claimComments("anna", 5);
+
+    assertEquals(List.of(testCommentDto), result.getComments());
+    assertTrue(result.getLeaseExpiresOn().isAfter(LocalDateTime.now()));
+    verify(commentRepository).claim(List.of(1L), "anna", result.getLeaseExpiresOn());
+  }
+
+  @Test
+  void claimComments_WhenQueueIsEmpty_ShouldNotClaimAnything() {
+    when(commentRepository.lockClaimable(eq("anna"), any(LocalDateTime.class), eq(5))).thenReturn(List.of());
+
+    CommentClaimDto result = commentService.claimComments("anna", 5);
+
+    assertTrue(result.getComments().isEmpty());
+    verify(commentRepository, never()).claim(any(), any(), any());
+  }
+
+  @Test
+  void moderateComment_WhenClaimedByAnotherModerator_ShouldThrowConflictException() {
+    testComment.setState(CommentState.PENDING);
+    testComment.setClaimedBy("boris");
+    testComment.setClaimExpiresAt(LocalDateTime.now().plusMinutes(5));
+    CommentModerationDto moderationDto = new CommentModerationDto(CommentState.CONFIRMED, null);
+
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+
+    assertThrows(ConflictException.class,
+            () -> commentService.moderateComment(1L, moderationDto, "anna"));
+    verify(commentRepository, never()).save(any());
+  }
+
+  @Test
+  void moderateComment_WhenLeaseExpired_ShouldModerateAndReleaseClaim() {
+    testComment.setState(CommentState.PENDING);
+    testComment.setClaimedBy("boris");
+    testComment.setClaimExpiresAt(LocalDateTime.now().minusMinutes(1));
+    CommentModerationDto moderationDto = new CommentModerationDto(CommentState.REJECTED, null);
+
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+    when(commentRepository.save(testComment)).thenReturn(testComment);
+    when(commentMapper.toCommentDto(testComment)).thenReturn(testCommentDto);
+
+    commentService.moderateComment(1L, moderationDto, "anna");
+
+    assertEquals(CommentState.REJECTED, testComment.getState());
+    assertNull(testComment.getClaimedBy());
+    assertNull(testComment.getClaimExpiresAt());
+  }
+
+  @Test
+  void moderateComments_ShouldUpdatePendingCommentsAndSkipTheRest() {
+    testComment.setState(CommentState.PENDING);
+    Comment claimedByOther = new Comment();
+    claimedByOther.setId(2L);
+    claimedByOther.setEvent(testEvent);
+    claimedByOther.setState(CommentState.PENDING);
+    claimedByOther.setClaimedBy("boris");
+    claimedByOther.setClaimExpiresAt(LocalDateTime.now().plusMinutes(5));
+    Comment alreadyModerated = new Comment();
+    alreadyModerated.setId(3L);
+    alreadyModerated.setEvent(testEvent);
+    alreadyModerated.setState(CommentState.REJECTED);
+    CommentBulkModerationDto moderationDto =
+            new CommentBulkModerationDto(List.of(1L, 2L, 3L, 4L, 1L), CommentState.CONFIRMED, "ok");
+
+    when(commentRepository.findAllByIdForUpdate(List.of(1L, 2L, 3L, 4L)))
+            .thenReturn(List.of(testComment, claimedByOther, alreadyModerated));
+
+    CommentBulkModerationResultDto result = commentService.moderateComments(moderationDto, "anna");
+
+    assertEquals(List.of(1L), result.getModerated());
+    assertEquals(List.of(2L, 3L, 4L), result.getSkipped());
+    verify(commentRepository).moderate(eq(Set.of(1L)), eq(CommentState.CONFIRMED), eq("ok"),
+            any(LocalDateTime.class));
+    verify(eventRepository).addToCommentsCount(1L, 1L);
+  }
+
+  @Test
+  void createComment_AsReply_ShouldExtendParentPath() {
+    NewCommentDto reply = new NewCommentDto("Me too, see you there", 1L);
+    when(preModerator.review("Me too, see you there"))
+            .thenReturn(new CommentPreModerator.Verdict(CommentState.CONFIRMED, null));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED)).thenReturn(Optional.of(testEvent));
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+    when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+      Comment saved = invocation.getArgument(0);
+      saved.setId(5L);
+      return saved;
+    });
+    when(commentMapper.toCommentDto(any(Comment.class))).thenReturn(testCommentDto);
+
+    commentService.createComment(1L, 1L, reply);
+
+    verify(commentMapper).toCommentDto(argThat(comment -> comment.getParentId() == 1L
+            && comment.getDepth() == 1
+            && comment.getThreadId() == 1L
+            && comment.getPath().equals("000000000001000000000005")));
+    verify(eventRepository).addToCommentsCount(1L, 1);
+    verify(commentRepository).addToRepliesCount(List.of(1L), 1);
+  }
+
+  @Test
+  void createComment_AsReplyToPendingComment_ShouldThrowConflictException() {
+    testComment.setState(CommentState.PENDING);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED)).thenReturn(Optional.of(testEvent));
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+
+    assertThrows(ConflictException.class,
+            () -> commentService.createComment(1L, 1L, new NewCommentDto("Me too, see you there", 1L)));
+    verify(commentRepository, never()).save(any());
+  }
+
+  @Test
+  void moderateComments_WhenRepliesConfirmed_ShouldIncrementEveryAncestor() {
+    Comment reply = new Comment();
+    reply.setId(2L);
+    reply.setEvent(testEvent);
+    reply.setState(CommentState.PENDING);
+    reply.setPath("000000000001000000000002");
+    Comment nested = new Comment();
+    nested.setId(3L);
+    nested.setEvent(testEvent);
+    nested.setState(CommentState.PENDING);
+    nested.setPath("000000000001000000000002000000000003");
+    CommentBulkModerationDto moderationDto =
+            new CommentBulkModerationDto(List.of(2L, 3L), CommentState.CONFIRMED, null);
+    when(commentRepository.findAllByIdForUpdate(List.of(2L, 3L))).thenReturn(List.of(reply, nested));
+
+    commentService.moderateComments(moderationDto, null);
+
+    verify(eventRepository).addToCommentsCount(1L, 2L);
+    verify(commentRepository).addToRepliesCount(List.of(1L), 2L);
+    verify(commentRepository).addToRepliesCount(List.of(2L), 1L);
+  }
+
+  @Test
+  void deleteCommentByAdmin_WithReplies_ShouldDeleteSubtreeAndFixCounts() {
+    testComment.setPath("000000000007000000000001");
+    when(commentRepository.findById(1L)).thenReturn(Optional.of(testComment));
+    when(commentRepository.countDescendants(1L, "000000000007000000000001", "000000000007000000000002",
+            CommentState.CONFIRMED)).thenReturn(3L);
+    when(commentRepository.deleteDescendants(1L, "000000000007000000000001", "000000000007000000000002"))
+            .thenReturn(4);
+
+    commentService.deleteCommentByAdmin(1L);
+
+    verify(commentRepository).deleteById(1L);
+    verify(eventRepository).addToCommentsCount(1L, -3L);
+    verify(eventRepository).addToCommentsCount(1L, -1L);
+    verify(commentRepository).addToRepliesCount(List.of(7L), -3L);
+    verify(commentRepository).addToRepliesCount(List.of(7L), -1L);
+  }
+
+  @Test
+  void getPublicThreads_ShouldReadRepliesOfWholePageInOneRange() {
+    Comment secondRoot = new Comment();
+    secondRoot.setId(4L);
+    secondRoot.setPath(CommentPath.child(null, 4L));
+    Comment reply = new Comment();
+    reply.setId(2L);
+    reply.setThreadId(1L);
+    CommentDto secondRootDto = new CommentDto();
+    CommentDto replyDto = new CommentDto();
+
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED)).thenReturn(Optional.of(testEvent));
+    when(commentRepository.findByEventIdAndStateAndDepth(eq(1L), eq(CommentState.CONFIRMED), eq(0), any(Pageable.class)))
+            .thenReturn(List.of(testComment, secondRoot));
+    when(commentRepository.findFirstReplies(1L, "000000000001", "000000000005", CommentState.CONFIRMED, 3))
+            .thenReturn(List.of(reply));
+    when(commentMapper.toCommentDto(testComment)).thenReturn(testCommentDto);
+    when(commentMapper.toCommentDto(secondRoot)).thenReturn(secondRootDto);
+    when(commentMapper.toCommentDto(reply)).thenReturn(replyDto);
+
+    List<CommentThreadDto> threads = commentService.getPublicThreads(1L, 0, 10, 3);
+
+    assertEquals(2, threads.size());
+    assertEquals(List.of(replyDto), threads.get(0).getReplies());
+    assertEquals(List.of(), threads.get(1).getReplies());
+  }
 }
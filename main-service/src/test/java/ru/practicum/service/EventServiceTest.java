@@ -1,13 +1,23 @@
 package ru.practicum.service;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mock.web.MockHttpServletRequest;
+import reactor.core.publisher.Mono;
 import ru.practicum.client.StatsClient;
+import ru.practicum.client.ViewCountTable;
 import ru.practicum.dto.event.EventFullDto;
+import ru.practicum.dto.event.EventShortDto;
 import ru.practicum.dto.event.NewEventDto;
 import ru.practicum.dto.location.LocationDto;
 import ru.practicum.exception.NotFoundException;
@@ -24,10 +34,15 @@ import ru.practicum.repository.LocationRepository;
 import ru.practicum.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -51,6 +66,12 @@ class EventServiceTest {
   @Mock
   private StatsClient statsClient;
 
+  @Mock
+  private ResourceVersions resourceVersions;
+
+  @Mock
+  private ViewCountTable viewCountTable;
+
   @InjectMocks
   private EventService eventService;
 
@@ -101,7 +122,8 @@ class EventServiceTest {
     when(userRepository.existsById(1L)).thenReturn(true);
     when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
     when(categoryRepository.findById(1L)).thenReturn(Optional.of(testCategory));
-    when(locationRepository.save(any(Location.class))).thenReturn(testLocation);
+    when(locationRepository.findByLatAndLon(55.7558f, 37.6173f))
+            .thenReturn(Optional.empty(), Optional.of(testLocation));
     when(eventRepository.save(any(Event.class))).thenReturn(testEvent);
     when(eventMapper.toEventFullDto(testEvent)).thenReturn(eventFullDto);
 
@@ -144,4 +166,212 @@ class EventServiceTest {
     assertEquals(eventFullDto, result);
     verify(eventRepository).findByIdAndInitiatorId(1L, 1L);
   }
+
+  @Test
+  void getPublicEvent_WhenViewStreamSynced_ShouldReadViewsWithoutStatsRequest() {
+    HttpServletRequest request = new MockHttpServletRequest("GET", "/events/1");
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED)).thenReturn(Optional.of(testEvent));
+    when(viewCountTable.isSynced()).thenReturn(true);
+    when(viewCountTable.getViews("/events/1")).thenReturn(42L);
+    when(eventMapper.toEventFullDto(testEvent)).thenReturn(eventFullDto);
+
+    eventService.getPublicEvent(1L, request);
+
+    assertEquals(42L, testEvent.getViews());
+    verify(statsClient, never()).getViews(any(), any(), any(), any(), anyBoolean());
+  }
+
+  @Test
+  void getPublicEventEtag_ShouldChangeWithViews() {
+    ResourceVersions versions = rememberWith(new ResourceVersions());
+    when(eventRepository.existsByIdAndState(1L, EventState.PUBLISHED)).thenReturn(true);
+    when(viewCountTable.isSynced()).thenReturn(true);
+    when(viewCountTable.getViews("/events/1")).thenReturn(42L, 43L);
+    when(resourceVersions.etagWith(anyLong(), any(String[].class))).thenAnswer(invocation ->
+            versions.etagWith(invocation.getArgument(0), ResourceVersions.EVENTS, ResourceVersions.event(1L)));
+
+    assertNotEquals(eventService.getPublicEventEtag(1L), eventService.getPublicEventEtag(1L));
+  }
+
+  @Test
+  void getPublicEventEtag_ShouldCheckPublishedStateOncePerEventVersion() {
+    ResourceVersions versions = rememberWith(new ResourceVersions());
+    when(eventRepository.existsByIdAndState(1L, EventState.PUBLISHED)).thenReturn(true, false);
+    when(viewCountTable.isSynced()).thenReturn(true);
+
+    eventService.getPublicEventEtag(1L);
+    eventService.getPublicEventEtag(1L);
+    verify(eventRepository, times(1)).existsByIdAndState(1L, EventState.PUBLISHED);
+
+    // Снятие с публикации поднимает версию события
+    versions.bump(ResourceVersions.event(1L));
+    assertThrows(NotFoundException.class, () -> eventService.getPublicEventEtag(1L));
+    verify(eventRepository, times(2)).existsByIdAndState(1L, EventState.PUBLISHED);
+  }
+
+  @Test
+  void getPublicEventEtag_ForUnpublishedEvent_ShouldThrowNotFound() {
+    rememberWith(new ResourceVersions());
+    when(eventRepository.existsByIdAndState(1L, EventState.PUBLISHED)).thenReturn(false);
+
+    assertThrows(NotFoundException.class, () -> eventService.getPublicEventEtag(1L));
+    verifyNoInteractions(viewCountTable);
+  }
+
+  @Test
+  void getPublicEvent_WhenViewStreamNotSynced_ShouldPullStats() {
+    HttpServletRequest request = new MockHttpServletRequest("GET", "/events/1");
+    when(eventRepository.findByIdAndState(1L, EventState.PUBLISHED)).thenReturn(Optional.of(testEvent));
+    when(viewCountTable.isSynced()).thenReturn(false);
+    when(statsClient.getViews(any(), any(), eq("/events/"), eq(List.of(1L)), eq(true)))
+            .thenReturn(Mono.just(Map.of(1L, 7L)));
+    when(eventMapper.toEventFullDto(testEvent)).thenReturn(eventFullDto);
+
+    eventService.getPublicEvent(1L, request);
+
+    assertEquals(7L, testEvent.getViews());
+  }
+
+  @Test
+  void createUserEvent_WithKnownCoordinates_ShouldReuseExistingLocation() {
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(categoryRepository.findById(1L)).thenReturn(Optional.of(testCategory));
+    when(locationRepository.findByLatAndLon(55.7558f, 37.6173f)).thenReturn(Optional.of(testLocation));
+    when(eventRepository.save(any(Event.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(eventMapper.toEventFullDto(any(Event.class))).thenReturn(eventFullDto);
+
+    eventService.createUserEvent(1L, newEventDto);
+
+    verify(locationRepository, never()).insertIfAbsent(any(), any(), any());
+    verify(eventRepository).save(argThat(event -> event.getLocation() == testLocation));
+  }
+
+  @Test
+  void createUserEvent_WhenLocationInsertedConcurrently_ShouldReadStoredRow() {
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+    when(categoryRepository.findById(1L)).thenReturn(Optional.of(testCategory));
+    // Вставка проиграла гонку (0 строк), но строка другой транзакции уже видна
+    when(locationRepository.findByLatAndLon(55.7558f, 37.6173f))
+            .thenReturn(Optional.empty(), Optional.of(testLocation));
+    when(locationRepository.insertIfAbsent(eq(55.7558f), eq(37.6173f), any())).thenReturn(0);
+    when(eventRepository.save(any(Event.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(eventMapper.toEventFullDto(any(Event.class))).thenReturn(eventFullDto);
+
+    eventService.createUserEvent(1L, newEventDto);
+
+    verify(locationRepository, never()).save(any(Location.class));
+    verify(eventRepository).save(argThat(event -> event.getLocation() == testLocation));
+  }
+
+  @Test
+  void getPublicEvents_NearPoint_ShouldKeepEventsWithinRadiusSortedByDistance() {
+    Location near = new Location(10L, 55.76f, 37.62f);
+    Location farther = new Location(11L, 55.80f, 37.70f);
+    Location outside = new Location(12L, 56.50f, 38.50f);
+    when(locationRepository.findAll(ArgumentMatchers.<Specification<Location>>any()))
+            .thenReturn(List.of(farther, outside, near));
+    Event nearEvent = publishedEventAt(2L, near);
+    Event fartherEvent = publishedEventAt(3L, farther);
+    when(eventRepository.findAll(ArgumentMatchers.<Specification<Event>>any()))
+            .thenReturn(List.of(fartherEvent, nearEvent));
+    when(viewCountTable.isSynced()).thenReturn(true);
+    when(eventMapper.toEventShortDto(any(Event.class)))
+            .thenAnswer(invocation -> {
+              EventShortDto dto = new EventShortDto();
+              dto.setId(((Event) invocation.getArgument(0)).getId());
+              return dto;
+            });
+
+    List<EventShortDto> result = eventService.getPublicEvents(null, null, null, null, null, false,
+            55.7558f, 37.6173f, 20.0, "DISTANCE", 0, 10, new MockHttpServletRequest("GET", "/events"));
+
+    assertEquals(List.of(2L, 3L), result.stream().map(EventShortDto::getId).toList());
+  }
+
+  @Test
+  void getPublicEvents_NearPointSortedByDate_ShouldPageInQuery() {
+    Location near = new Location(10L, 55.76f, 37.62f);
+    when(locationRepository.findAll(ArgumentMatchers.<Specification<Location>>any())).thenReturn(List.of(near));
+    Event nearEvent = publishedEventAt(2L, near);
+    when(eventRepository.findAll(ArgumentMatchers.<Specification<Event>>any(), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(nearEvent)));
+    when(viewCountTable.isSynced()).thenReturn(true);
+    when(eventMapper.toEventShortDto(any(Event.class))).thenReturn(new EventShortDto());
+
+    eventService.getPublicEvents(null, null, null, null, null, true,
+            55.7558f, 37.6173f, 20.0, "EVENT_DATE", 20, 10, new MockHttpServletRequest("GET", "/events"));
+
+    verify(eventRepository).findAll(ArgumentMatchers.<Specification<Event>>any(),
+            argThat((Pageable pageable) -> pageable.getPageNumber() == 2 && pageable.getPageSize() == 10));
+    verify(eventRepository, never()).findAll(ArgumentMatchers.<Specification<Event>>any());
+  }
+
+  @Test
+  void getPublicEvents_RadiusAboveMaximum_ShouldThrowValidationException() {
+    assertThrows(ValidationException.class, () -> eventService.getPublicEvents(null, null, null, null, null,
+            false, 55.7558f, 37.6173f, 501.0, "DISTANCE", 0, 10, new MockHttpServletRequest("GET", "/events")));
+    verifyNoInteractions(locationRepository, eventRepository);
+  }
+
+  @Test
+  void getPublicEvents_CircleAroundPole_ShouldNotReadAllLocations() {
+    List<EventShortDto> result = eventService.getPublicEvents(null, null, null, null, null, false,
+            89.9f, 0f, 100.0, "DISTANCE", 0, 10, new MockHttpServletRequest("GET", "/events"));
+
+    assertTrue(result.isEmpty());
+    verifyNoInteractions(locationRepository, eventRepository);
+  }
+
+  @Test
+  void getPublicEvents_DistanceSortWithoutCoordinates_ShouldThrowValidationException() {
+    assertThrows(ValidationException.class, () -> eventService.getPublicEvents(null, null, null, null, null,
+            false, null, null, null, "DISTANCE", 0, 10, new MockHttpServletRequest("GET", "/events")));
+  }
+
+  @Test
+  void getPublicEvents_SortedByRating_ShouldRequestIndexOrderedPage() {
+    Event top = publishedEventAt(2L, testLocation);
+    top.setRating(5L);
+    Event tied = publishedEventAt(3L, testLocation);
+    tied.setRating(1L);
+    Event other = publishedEventAt(4L, testLocation);
+    other.setRating(1L);
+    when(eventRepository.findByState(eq(EventState.PUBLISHED), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(top, other, tied)));
+    when(viewCountTable.isSynced()).thenReturn(true);
+    when(eventMapper.toEventShortDto(any(Event.class)))
+            .thenAnswer(invocation -> {
+              EventShortDto dto = new EventShortDto();
+              dto.setId(((Event) invocation.getArgument(0)).getId());
+              return dto;
+            });
+
+    List<EventShortDto> result = eventService.getPublicEvents(null, null, null, null, null, false,
+            null, null, null, "RATING", 20, 10, new MockHttpServletRequest("GET", "/events"));
+
+    assertEquals(List.of(2L, 4L, 3L), result.stream().map(EventShortDto::getId).toList());
+    verify(eventRepository).findByState(eq(EventState.PUBLISHED), argThat((Pageable pageable) ->
+            pageable.getPageNumber() == 2 && pageable.getSort().equals(Sort.by(Sort.Direction.DESC, "rating", "id"))));
+  }
+
+  private ResourceVersions rememberWith(ResourceVersions versions) {
+    when(resourceVersions.remember(anyString(), any(BooleanSupplier.class), any(String[].class)))
+            .thenAnswer(invocation -> versions.remember(invocation.getArgument(0), invocation.getArgument(1),
+                    ResourceVersions.EVENTS, ResourceVersions.event(1L)));
+    return versions;
+  }
+
+  private Event publishedEventAt(Long id, Location location) {
+    Event event = new Event();
+    event.setId(id);
+    event.setAnnotation("Annotation " + id);
+    event.setDescription("Description " + id);
+    event.setCategory(testCategory);
+    event.setLocation(location);
+    event.setEventDate(LocalDateTime.now().plusDays(1));
+    event.setState(EventState.PUBLISHED);
+    return event;
+  }
 }
@@ -0,0 +1,116 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запись голосов на H2 пачками по 2 голоса.
+ */
+class EventVoteBufferTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private SimpleMeterRegistry meterRegistry;
+  private EventVoteBuffer buffer;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:votes-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, deleted_at TIMESTAMP)");
+    jdbcTemplate.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, initiator_id BIGINT NOT NULL, " +
+            "likes BIGINT NOT NULL DEFAULT 0, dislikes BIGINT NOT NULL DEFAULT 0, rating BIGINT NOT NULL DEFAULT 0)");
+    jdbcTemplate.execute("CREATE TABLE event_votes (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "event_id BIGINT NOT NULL, user_id BIGINT NOT NULL, vote SMALLINT NOT NULL, voted_on TIMESTAMP NOT NULL, " +
+            "UNIQUE (event_id, user_id))");
+    jdbcTemplate.execute("CREATE TABLE initiator_ratings (user_id BIGINT PRIMARY KEY, likes BIGINT NOT NULL, " +
+            "dislikes BIGINT NOT NULL, rating BIGINT NOT NULL)");
+
+    // Пользователь 1 - инициатор обоих событий, 5 ожидает удаления
+    jdbcTemplate.update("INSERT INTO users VALUES (1, NULL), (2, NULL), (3, NULL), (4, NULL), (5, CURRENT_TIMESTAMP)");
+    jdbcTemplate.update("INSERT INTO events (id, initiator_id) VALUES (10, 1), (11, 1)");
+
+    meterRegistry = new SimpleMeterRegistry();
+    buffer = new EventVoteBuffer(new NamedParameterJdbcTemplate(dataSource),
+            new DataSourceTransactionManager(dataSource), new ResourceVersions(), meterRegistry, 2);
+  }
+
+  @Test
+  void flush_ShouldWriteVotesAndIncrementCounters() {
+    buffer.record(10, 2, 1);
+    buffer.record(10, 3, 1);
+    buffer.record(10, 4, -1);
+    buffer.record(11, 2, -1);
+    buffer.record(10, 5, 1);
+
+    buffer.flush();
+
+    assertThat(counters("events", "id", 10)).containsExactly(2L, 1L, 1L);
+    assertThat(counters("events", "id", 11)).containsExactly(0L, 1L, -1L);
+    assertThat(counters("initiator_ratings", "user_id", 1)).containsExactly(2L, 2L, 0L);
+    // Голос пользователя, ожидающего удаления, отброшен
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event_votes", Integer.class)).isEqualTo(4);
+    assertThat(buffer.pending()).isZero();
+    assertThat(meterRegistry.get("ewm.rating.votes.flushed").counter().count()).isEqualTo(4.0);
+  }
+
+  @Test
+  void flush_ShouldApplyChangedAndRevokedVotesAsDeltas() {
+    buffer.record(10, 2, 1);
+    buffer.record(10, 3, 1);
+    buffer.flush();
+
+    // Повторный голос схлопывается до последнего, неизменный голос ничего не пишет
+    buffer.record(10, 2, -1);
+    buffer.record(10, 2, 1);
+    buffer.record(10, 3, -1);
+    buffer.record(10, 4, EventVoteBuffer.NO_VOTE);
+    buffer.flush();
+
+    assertThat(counters("events", "id", 10)).containsExactly(1L, 1L, 0L);
+    assertThat(counters("initiator_ratings", "user_id", 1)).containsExactly(1L, 1L, 0L);
+
+    buffer.record(10, 2, EventVoteBuffer.NO_VOTE);
+    buffer.flush();
+
+    assertThat(counters("events", "id", 10)).containsExactly(0L, 1L, -1L);
+    assertThat(jdbcTemplate.queryForList("SELECT user_id FROM event_votes", Long.class)).containsExactly(3L);
+  }
+
+  @Test
+  void removeUserVotes_ShouldSubtractVotesAndDropPendingOnes() {
+    buffer.record(10, 2, 1);
+    buffer.record(11, 2, -1);
+    buffer.record(10, 3, 1);
+    buffer.flush();
+    buffer.record(10, 2, -1);
+
+    assertThat(buffer.removeUserVotes(2, 1)).isEqualTo(1);
+    assertThat(buffer.removeUserVotes(2, 1)).isEqualTo(1);
+    assertThat(buffer.removeUserVotes(2, 1)).isZero();
+
+    assertThat(counters("events", "id", 10)).containsExactly(1L, 0L, 1L);
+    assertThat(counters("events", "id", 11)).containsExactly(0L, 0L, 0L);
+    assertThat(counters("initiator_ratings", "user_id", 1)).containsExactly(1L, 0L, 1L);
+    assertThat(jdbcTemplate.queryForList("SELECT user_id FROM event_votes", Long.class)).containsExactly(3L);
+    // Ожидающий записи голос удалённого пользователя не попадёт в базу
+    assertThat(buffer.pending()).isZero();
+  }
+
+  private List<Long> counters(String table, String idColumn, long id) {
+    Map<String, Object> row = jdbcTemplate.queryForMap(
+            "SELECT likes, dislikes, rating FROM " + table + " WHERE " + idColumn + " = ?", id);
+    return List.of((Long) row.get("LIKES"), (Long) row.get("DISLIKES"), (Long) row.get("RATING"));
+  }
+}
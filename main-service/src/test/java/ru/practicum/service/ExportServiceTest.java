@@ -0,0 +1,118 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Выгрузка на H2 с маленьким fetchSize, чтобы курсор читался несколькими порциями.
+ */
+class ExportServiceTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private ExportService exportService;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:export-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE locations (id BIGINT PRIMARY KEY, lat REAL, lon REAL)");
+    jdbcTemplate.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, title VARCHAR(120), annotation VARCHAR(2000), " +
+            "category_id BIGINT, initiator_id BIGINT, state VARCHAR(50), created_on TIMESTAMP, " +
+            "published_on TIMESTAMP, event_date TIMESTAMP, paid BOOLEAN, participant_limit INTEGER, " +
+            "request_moderation BOOLEAN, confirmed_requests INTEGER, location_id BIGINT)");
+    jdbcTemplate.execute("CREATE TABLE participation_requests (id BIGINT PRIMARY KEY, event_id BIGINT, " +
+            "requester_id BIGINT, status VARCHAR(50), created TIMESTAMP)");
+    jdbcTemplate.update("INSERT INTO locations VALUES (1, 55.75, 37.62)");
+    for (int i = 1; i <= 25; i++) {
+      jdbcTemplate.update("INSERT INTO events VALUES (?, ?, 'annotation', 1, 1, 'PUBLISHED', " +
+              "TIMESTAMP '2024-05-01 12:00:00', NULL, TIMESTAMP '2024-06-01 18:30:00', FALSE, 0, TRUE, 0, 1)",
+              i, "Event " + i);
+      jdbcTemplate.update("INSERT INTO participation_requests VALUES (?, ?, 2, 'CONFIRMED', " +
+              "TIMESTAMP '2024-05-02 10:00:00')", i, i);
+    }
+    exportService = new ExportService(jdbcTemplate, new DataSourceTransactionManager(dataSource), 4);
+  }
+
+  @Test
+  void write_ShouldStreamAllEventsAsCsv() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exportService.write(exportService.start(ExportService.EVENTS), out, ExportFormat.CSV, false);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(lines).hasSize(26);
+    assertThat(lines[0]).startsWith("id,title,annotation,category,initiator,state");
+    assertThat(lines[1]).isEqualTo("1,Event 1,annotation,1,1,PUBLISHED,2024-05-01 12:00:00,," +
+            "2024-06-01 18:30:00,false,0,true,0,55.75,37.62");
+  }
+
+  @Test
+  void write_WithGzip_ShouldStreamRequestsAsNdjson() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exportService.write(exportService.start(ExportService.REQUESTS), out, ExportFormat.NDJSON, true);
+
+    String text = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+            StandardCharsets.UTF_8);
+    assertThat(text.lines()).hasSize(25).first().isEqualTo(
+            "{\"id\":1,\"event\":1,\"requester\":2,\"status\":\"CONFIRMED\",\"created\":\"2024-05-02 10:00:00\"}");
+  }
+
+  @Test
+  void write_WhenCancelled_ShouldStopReadingAndForgetJob() {
+    ExportJobs.Job job = exportService.start(ExportService.EVENTS);
+    exportService.cancel(job.getId());
+
+    assertThatThrownBy(() -> exportService.write(job, new ByteArrayOutputStream(), ExportFormat.CSV, false))
+            .isInstanceOf(ExportJobs.ExportCancelledException.class);
+    assertThatThrownBy(() -> exportService.cancel(job.getId()))
+            .isInstanceOf(NotFoundException.class);
+  }
+
+  @Test
+  void write_WhenClientDisconnects_ShouldRethrowIoException() {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    // Ошибка записи проявляется, когда заполнится буфер, поэтому строк нужно больше его размера
+    jdbcTemplate.update("UPDATE events SET annotation = ?", "x".repeat(1990));
+
+    assertThatThrownBy(() -> exportService.write(exportService.start(ExportService.EVENTS), broken,
+            ExportFormat.CSV, false))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Broken pipe");
+  }
+
+  @Test
+  void parseFormat_WithUnknownFormat_ShouldThrowValidationException() {
+    assertThatThrownBy(() -> exportService.parseFormat("xml"))
+            .isInstanceOf(ValidationException.class);
+  }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.dto.user.InitiatorRatingDto;
+import ru.practicum.dto.user.UserShortDto;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.mapper.UserMapper;
+import ru.practicum.model.Event;
+import ru.practicum.model.InitiatorRating;
+import ru.practicum.model.ParticipationRequest;
+import ru.practicum.model.User;
+import ru.practicum.model.enums.EventState;
+import ru.practicum.model.enums.RequestStatus;
+import ru.practicum.model.enums.VoteType;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.InitiatorRatingRepository;
+import ru.practicum.repository.ParticipationRequestRepository;
+import ru.practicum.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingServiceTest {
+
+  @Mock
+  private EventRepository eventRepository;
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private ParticipationRequestRepository requestRepository;
+
+  @Mock
+  private InitiatorRatingRepository initiatorRatingRepository;
+
+  @Mock
+  private EventVoteBuffer voteBuffer;
+
+  @Mock
+  private UserMapper userMapper;
+
+  @InjectMocks
+  private RatingService ratingService;
+
+  private User participant;
+  private User initiator;
+  private Event event;
+
+  @BeforeEach
+  void setUp() {
+    participant = new User(1L, "John Doe", "john@example.com");
+    initiator = new User(2L, "Jane Doe", "jane@example.com");
+
+    event = new Event();
+    event.setId(10L);
+    event.setInitiator(initiator);
+    event.setState(EventState.PUBLISHED);
+  }
+
+  @Test
+  void vote_ByConfirmedParticipant_ShouldBufferVote() {
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(eventRepository.findById(10L)).thenReturn(Optional.of(event));
+    when(requestRepository.findByRequesterIdAndEventId(1L, 10L))
+            .thenReturn(Optional.of(request(RequestStatus.CONFIRMED)));
+
+    ratingService.vote(1L, 10L, VoteType.DISLIKE);
+
+    verify(voteBuffer).record(10L, 1L, -1);
+  }
+
+  @Test
+  void vote_WithoutConfirmedParticipation_ShouldThrowConflictException() {
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(eventRepository.findById(10L)).thenReturn(Optional.of(event));
+    when(requestRepository.findByRequesterIdAndEventId(1L, 10L))
+            .thenReturn(Optional.of(request(RequestStatus.PENDING)));
+
+    assertThrows(ConflictException.class, () -> ratingService.vote(1L, 10L, VoteType.LIKE));
+    verifyNoInteractions(voteBuffer);
+  }
+
+  @Test
+  void vote_ByInitiator_ShouldThrowConflictException() {
+    when(userRepository.existsById(2L)).thenReturn(true);
+    when(eventRepository.findById(10L)).thenReturn(Optional.of(event));
+
+    assertThrows(ConflictException.class, () -> ratingService.vote(2L, 10L, VoteType.LIKE));
+    verifyNoInteractions(voteBuffer);
+  }
+
+  @Test
+  void vote_ForUnpublishedEvent_ShouldThrowConflictException() {
+    event.setState(EventState.PENDING);
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(eventRepository.findById(10L)).thenReturn(Optional.of(event));
+
+    assertThrows(ConflictException.class, () -> ratingService.vote(1L, 10L, VoteType.LIKE));
+  }
+
+  @Test
+  void removeVote_ForMissingEvent_ShouldThrowNotFoundException() {
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(eventRepository.findById(10L)).thenReturn(Optional.empty());
+
+    assertThrows(NotFoundException.class, () -> ratingService.removeVote(1L, 10L));
+    verifyNoInteractions(voteBuffer);
+  }
+
+  @Test
+  void getTopInitiators_ShouldPageActiveUsersByRating() {
+    when(initiatorRatingRepository.findActive(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(
+            new InitiatorRating(2L, initiator, 7, 1, 6))));
+    when(userMapper.toUserShortDto(initiator)).thenReturn(new UserShortDto(2L, "Jane Doe"));
+
+    List<InitiatorRatingDto> result = ratingService.getTopInitiators(10, 10);
+
+    assertEquals(List.of(new InitiatorRatingDto(new UserShortDto(2L, "Jane Doe"), 7, 1, 6)), result);
+    verify(initiatorRatingRepository).findActive(argThat(pageable -> pageable.getPageNumber() == 1
+            && pageable.getSort().getOrderFor("rating").isDescending()));
+    verifyNoInteractions(userRepository);
+  }
+
+  private ParticipationRequest request(RequestStatus status) {
+    return new ParticipationRequest(5L, LocalDateTime.now(), event, participant, status);
+  }
+}
@@ -40,6 +40,9 @@ class RequestServiceTest {
   @Mock
   private RequestMapper requestMapper;
 
+  @Mock
+  private ResourceVersions resourceVersions;
+
   @InjectMocks
   private RequestService requestService;
 
@@ -0,0 +1,85 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Два узла на общей базе H2: версии, а значит и ETag, у них совпадают.
+ */
+class ResourceVersionsTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private ResourceVersions nodeA;
+  private ResourceVersions nodeB;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:versions-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE resource_versions (resource_key VARCHAR(128) PRIMARY KEY, " +
+            "version BIGINT NOT NULL)");
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    nodeA = new ResourceVersions(jdbcTemplate);
+    nodeB = new ResourceVersions(jdbcTemplate);
+  }
+
+  @Test
+  void etag_ShouldBeSameOnAllNodesAfterChangeIsApplied() {
+    String before = nodeB.etag(ResourceVersions.EVENTS, ResourceVersions.event(1L));
+    assertThat(nodeA.etag(ResourceVersions.EVENTS, ResourceVersions.event(1L))).isEqualTo(before);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      nodeA.bump(ResourceVersions.event(1L), ResourceVersions.COMPILATIONS);
+      nodeA.bump(ResourceVersions.event(1L));
+    });
+    String after = nodeA.etag(ResourceVersions.EVENTS, ResourceVersions.event(1L));
+    assertThat(after).isNotEqualTo(before);
+    // До сигнала шины узел B отдаёт прежнюю версию, после - читает общую
+    assertThat(nodeB.etag(ResourceVersions.EVENTS, ResourceVersions.event(1L))).isEqualTo(before);
+    nodeB.apply(ResourceVersions.event(1L), ResourceVersions.COMPILATIONS);
+
+    assertThat(nodeB.etag(ResourceVersions.EVENTS, ResourceVersions.event(1L))).isEqualTo(after);
+    assertThat(nodeB.etag(ResourceVersions.COMPILATIONS)).isEqualTo(nodeA.etag(ResourceVersions.COMPILATIONS));
+    // Новый узел (или перезапуск) выдаёт тот же ETag
+    assertThat(new ResourceVersions(jdbcTemplate).etag(ResourceVersions.EVENTS, ResourceVersions.event(1L)))
+            .isEqualTo(after);
+  }
+
+  @Test
+  void bump_WhenTransactionRollsBack_ShouldKeepVersions() {
+    String before = nodeA.etag(ResourceVersions.CATEGORIES);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      nodeA.bump(ResourceVersions.CATEGORIES);
+      status.setRollbackOnly();
+    });
+
+    assertThat(nodeA.etag(ResourceVersions.CATEGORIES)).isEqualTo(before);
+    assertThat(new ResourceVersions(jdbcTemplate).etag(ResourceVersions.CATEGORIES)).isEqualTo(before);
+  }
+
+  @Test
+  void remember_ShouldLoadValueOncePerVersion() {
+    AtomicInteger loads = new AtomicInteger();
+
+    nodeA.remember("published:1", () -> loads.incrementAndGet() > 0, ResourceVersions.event(1L));
+    nodeA.remember("published:1", () -> loads.incrementAndGet() > 0, ResourceVersions.event(1L));
+    assertThat(loads).hasValue(1);
+
+    nodeB.bump(ResourceVersions.event(1L));
+    nodeA.apply(ResourceVersions.event(1L));
+    nodeA.remember("published:1", () -> loads.incrementAndGet() > 0, ResourceVersions.event(1L));
+    assertThat(loads).hasValue(2);
+  }
+}
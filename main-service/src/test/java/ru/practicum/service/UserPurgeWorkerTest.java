@@ -0,0 +1,137 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Очистка на H2 с порцией в 2 строки: за один запуск удаляется не больше одной порции.
+ */
+class UserPurgeWorkerTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private UserPurgeWorker worker;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:purge-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, deleted_at TIMESTAMP)");
+    jdbcTemplate.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, " +
+            "initiator_id BIGINT NOT NULL REFERENCES users (id), confirmed_requests INTEGER, comments_count BIGINT, " +
+            "likes BIGINT DEFAULT 0, dislikes BIGINT DEFAULT 0, rating BIGINT DEFAULT 0)");
+    jdbcTemplate.execute("CREATE TABLE participation_requests (id BIGINT PRIMARY KEY, " +
+            "event_id BIGINT NOT NULL REFERENCES events (id), " +
+            "requester_id BIGINT NOT NULL REFERENCES users (id), status VARCHAR(50))");
+    jdbcTemplate.execute("CREATE TABLE comments (id BIGINT PRIMARY KEY, event_id BIGINT NOT NULL REFERENCES events (id), " +
+            "author_id BIGINT NOT NULL REFERENCES users (id), state VARCHAR(20))");
+    jdbcTemplate.execute("CREATE TABLE event_votes (id BIGINT PRIMARY KEY, event_id BIGINT NOT NULL REFERENCES events (id), " +
+            "user_id BIGINT NOT NULL, vote SMALLINT)");
+    jdbcTemplate.execute("CREATE TABLE initiator_ratings (user_id BIGINT PRIMARY KEY, " +
+            "likes BIGINT, dislikes BIGINT, rating BIGINT)");
+    jdbcTemplate.execute("CREATE TABLE compilation_events (compilation_id BIGINT, " +
+            "event_id BIGINT NOT NULL REFERENCES events (id))");
+    jdbcTemplate.execute("CREATE TABLE user_deletions (user_id BIGINT PRIMARY KEY, state VARCHAR(20), " +
+            "requested_on TIMESTAMP, finished_on TIMESTAMP, deleted_events BIGINT DEFAULT 0, " +
+            "deleted_requests BIGINT DEFAULT 0, deleted_comments BIGINT DEFAULT 0)");
+
+    // Пользователь 1 удаляется, пользователь 2 остаётся
+    jdbcTemplate.update("INSERT INTO users VALUES (1, CURRENT_TIMESTAMP), (2, NULL)");
+    jdbcTemplate.update("INSERT INTO events VALUES (10, 1, 0, 0, 1, 0, 1), (11, 1, 0, 0, 0, 0, 0), " +
+            "(12, 1, 0, 0, 0, 0, 0), (20, 2, 1, 2, 1, 1, 0)");
+    jdbcTemplate.update("INSERT INTO participation_requests VALUES " +
+            "(100, 10, 2, 'CONFIRMED'), (101, 11, 2, 'PENDING'), (102, 20, 1, 'CONFIRMED')");
+    jdbcTemplate.update("INSERT INTO comments VALUES (200, 10, 2, 'CONFIRMED'), (201, 12, 2, 'PENDING'), " +
+            "(202, 20, 1, 'CONFIRMED'), (203, 20, 2, 'CONFIRMED')");
+    jdbcTemplate.update("INSERT INTO event_votes VALUES (300, 10, 2, 1), (301, 20, 1, 1), (302, 20, 3, -1)");
+    jdbcTemplate.update("INSERT INTO initiator_ratings VALUES (1, 1, 0, 1), (2, 1, 1, 0)");
+    jdbcTemplate.update("INSERT INTO compilation_events VALUES (1, 10), (1, 20)");
+    jdbcTemplate.update("INSERT INTO user_deletions (user_id, state, requested_on) " +
+            "VALUES (1, 'PENDING', CURRENT_TIMESTAMP)");
+
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    EventVoteBuffer voteBuffer = new EventVoteBuffer(new NamedParameterJdbcTemplate(dataSource), transactionManager,
+            new ResourceVersions(), new SimpleMeterRegistry(), 2);
+    // Счётчики при удалении комментариев проверяются в CommentServiceTest, здесь только порции
+    CommentService commentService = mock(CommentService.class);
+    when(commentService.deleteAuthorComments(anyLong(), anyInt())).thenAnswer(invocation -> jdbcTemplate.update(
+            "DELETE FROM comments WHERE id IN (SELECT c.id FROM comments c WHERE c.author_id = ? " +
+                    "ORDER BY c.id LIMIT ?)", invocation.<Long>getArgument(0), invocation.<Integer>getArgument(1)));
+    worker = new UserPurgeWorker(new NamedParameterJdbcTemplate(dataSource), transactionManager, voteBuffer,
+            commentService, 2);
+  }
+
+  @Test
+  void purgeNextChunk_ShouldRemoveUserContentChunkByChunk() {
+    worker.purgeNextChunk();
+
+    // Первый шаг - только голоса пользователя
+    assertThat(count("comments")).isEqualTo(4);
+    assertThat(count("event_votes")).isEqualTo(2);
+
+    worker.purgeNextChunk();
+
+    // Второй шаг - только комментарии автора
+    assertThat(count("comments")).isEqualTo(3);
+    assertThat(count("events")).isEqualTo(4);
+    assertThat(deletion().get("STATE")).isEqualTo("IN_PROGRESS");
+
+    for (int i = 0; i < 20; i++) {
+      worker.purgeNextChunk();
+    }
+
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM users", Long.class)).containsExactly(2L);
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM events", Long.class)).containsExactly(20L);
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM comments", Long.class)).containsExactly(203L);
+    assertThat(count("participation_requests")).isZero();
+    assertThat(jdbcTemplate.queryForList("SELECT event_id FROM compilation_events", Long.class))
+            .containsExactly(20L);
+    // Подтверждённая заявка удалённого пользователя больше не учитывается в чужом событии
+    assertThat(jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = 20", Integer.class))
+            .isZero();
+    // Лайк удалённого пользователя снят с чужого события и его инициатора
+    assertThat(jdbcTemplate.queryForMap("SELECT likes, dislikes, rating FROM events WHERE id = 20").values())
+            .containsExactly(0L, 1L, -1L);
+    assertThat(jdbcTemplate.queryForList("SELECT rating FROM initiator_ratings", Long.class)).containsExactly(-1L);
+    assertThat(jdbcTemplate.queryForList("SELECT id FROM event_votes", Long.class)).containsExactly(302L);
+
+    Map<String, Object> deletion = deletion();
+    assertThat(deletion.get("STATE")).isEqualTo("COMPLETED");
+    assertThat(deletion.get("FINISHED_ON")).isNotNull();
+    assertThat(deletion.get("DELETED_EVENTS")).isEqualTo(3L);
+    assertThat(deletion.get("DELETED_REQUESTS")).isEqualTo(3L);
+    assertThat(deletion.get("DELETED_COMMENTS")).isEqualTo(3L);
+  }
+
+  @Test
+  void purgeNextChunk_WithoutPendingDeletions_ShouldDoNothing() {
+    jdbcTemplate.update("UPDATE user_deletions SET state = 'COMPLETED'");
+
+    worker.purgeNextChunk();
+
+    assertThat(count("users")).isEqualTo(2);
+    assertThat(count("comments")).isEqualTo(4);
+  }
+
+  private int count(String table) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+  }
+
+  private Map<String, Object> deletion() {
+    return jdbcTemplate.queryForMap("SELECT * FROM user_deletions WHERE user_id = 1");
+  }
+}
@@ -3,6 +3,7 @@ package ru.practicum.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -10,14 +11,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.dto.user.UserDeletionDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.UserMapper;
 import ru.practicum.model.User;
+import ru.practicum.model.UserDeletion;
+import ru.practicum.model.enums.UserDeletionState;
+import ru.practicum.repository.UserDeletionRepository;
 import ru.practicum.repository.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -29,9 +36,18 @@ class UserServiceTest {
   @Mock
   private UserRepository userRepository;
 
+  @Mock
+  private UserDeletionRepository userDeletionRepository;
+
   @Mock
   private UserMapper userMapper;
 
+  @Mock
+  private ResourceVersions resourceVersions;
+
+  @Mock
+  private EventVoteBuffer voteBuffer;
+
   @InjectMocks
   private UserService userService;
 
@@ -86,21 +102,69 @@ class UserServiceTest {
 
   @Test
   void deleteUser_WithExistingId_ShouldDeleteUser() {
-    when(userRepository.existsById(1L)).thenReturn(true);
+    when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new User()));
 
     assertDoesNotThrow(() -> userService.deleteUser(1L));
 
-    verify(userRepository).existsById(1L);
+    verify(userRepository).findByIdForUpdate(1L);
     verify(userRepository).deleteById(1L);
   }
 
+  @Test
+  void deleteUser_ShouldRemoveVotesInChunksBeforeDeletingUser() {
+    when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new User()));
+    when(voteBuffer.removeUserVotes(1L, 1000)).thenReturn(1000, 3);
+
+    userService.deleteUser(1L);
+
+    InOrder inOrder = inOrder(voteBuffer, userRepository);
+    inOrder.verify(voteBuffer, times(2)).removeUserVotes(1L, 1000);
+    inOrder.verify(userRepository).deleteById(1L);
+  }
+
   @Test
   void deleteUser_WithNonExistingId_ShouldThrowNotFoundException() {
-    when(userRepository.existsById(1L)).thenReturn(false);
+    when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class, () -> userService.deleteUser(1L));
-    verify(userRepository).existsById(1L);
     verify(userRepository, never()).deleteById(any());
+    verifyNoInteractions(voteBuffer);
   }
-}
 
+  @Test
+  void requestUserDeletion_ShouldMarkUserAndQueueDeletion() {
+    UserDeletionDto dto = new UserDeletionDto(1L, UserDeletionState.PENDING, LocalDateTime.now(), null, 0, 0, 0);
+    when(userDeletionRepository.findById(1L)).thenReturn(Optional.empty());
+    when(userRepository.existsById(1L)).thenReturn(true);
+    when(userDeletionRepository.save(any(UserDeletion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(userMapper.toUserDeletionDto(any(UserDeletion.class))).thenReturn(dto);
+
+    UserDeletionDto result = userService.requestUserDeletion(1L);
+
+    assertEquals(UserDeletionState.PENDING, result.getState());
+    verify(userRepository).markDeleted(eq(1L), any(LocalDateTime.class));
+    verify(userRepository, never()).deleteById(anyLong());
+    verify(resourceVersions).bump(ResourceVersions.EVENTS, ResourceVersions.COMPILATIONS, ResourceVersions.user(1L));
+  }
+
+  @Test
+  void requestUserDeletion_WhenAlreadyQueued_ShouldReturnCurrentProgress() {
+    UserDeletion deletion = new UserDeletion(1L, LocalDateTime.now());
+    deletion.setState(UserDeletionState.IN_PROGRESS);
+    UserDeletionDto dto = new UserDeletionDto(1L, UserDeletionState.IN_PROGRESS, deletion.getRequestedOn(),
+            null, 3, 0, 0);
+    when(userDeletionRepository.findById(1L)).thenReturn(Optional.of(deletion));
+    when(userMapper.toUserDeletionDto(deletion)).thenReturn(dto);
+
+    assertEquals(dto, userService.requestUserDeletion(1L));
+    verify(userRepository, never()).markDeleted(anyLong(), any());
+  }
+
+  @Test
+  void requestUserDeletion_WhenUserNotFound_ShouldThrowNotFoundException() {
+    when(userDeletionRepository.findById(99L)).thenReturn(Optional.empty());
+    when(userRepository.existsById(99L)).thenReturn(false);
+
+    assertThrows(NotFoundException.class, () -> userService.requestUserDeletion(99L));
+  }
+}
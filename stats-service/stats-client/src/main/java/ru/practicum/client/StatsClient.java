@@ -7,6 +7,8 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
 import ru.practicum.dto.ViewStatsDto;
 
 
@@ -52,4 +54,9 @@ public class StatsClient extends BaseClient {
 
     return body != null ? Arrays.asList(body) : List.of();
   }
-}
\ No newline at end of file
+
+  public StatsQueryResultDto queryStats(StatsQueryDto query) {
+    StatsQueryResultDto body = post("/stats/query", null, query, StatsQueryResultDto.class).getBody();
+    return body != null ? body : new StatsQueryResultDto();
+  }
+}
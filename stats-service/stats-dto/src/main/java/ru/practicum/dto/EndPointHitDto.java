@@ -30,6 +30,17 @@ public class EndPointHitDto {
   @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
   private LocalDateTime timestamp;
 
+  // User-Agent посетителя; необязателен, по нему stats-server отсеивает ботов
+  private String userAgent;
+
+  public EndPointHitDto(Long id, String app, String uri, String ip, LocalDateTime timestamp) {
+    this.id = id;
+    this.app = app;
+    this.uri = uri;
+    this.ip = ip;
+    this.timestamp = timestamp;
+  }
+
   public EndPointHitDto(String app, String uri, String ip, LocalDateTime timestamp) {
     this.app = app;
     this.uri = uri;
@@ -45,6 +56,7 @@ public class EndPointHitDto {
             ", uri='" + uri + '\'' +
             ", ip='" + ip + '\'' +
             ", timestamp=" + timestamp +
+            ", userAgent='" + userAgent + '\'' +
             '}';
   }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.dto;
+
+import java.util.Locale;
+
+/**
+ * Группировка /stats: по uri или по шаблону из uris ("/events/*"), с которым совпал uri.
+ */
+public enum StatsGroupBy {
+  URI,
+  PREFIX;
+
+  public static StatsGroupBy of(String value) {
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown groupBy: " + value);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Тело POST /stats/query: просмотры большого набора uri за один вызов. Вместо готовых uri
+ * можно передать префикс и числовые id ("/events/" и id событий), тогда ответ придёт по id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQueryDto {
+
+  public static final int MAX_KEYS = 50_000;
+
+  @NotNull(message = "Start cannot be null")
+  @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+  private LocalDateTime start;
+
+  @NotNull(message = "End cannot be null")
+  @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+  private LocalDateTime end;
+
+  @Size(max = MAX_KEYS, message = "Too many uris")
+  private List<String> uris;
+
+  private String uriPrefix;
+
+  @Size(max = MAX_KEYS, message = "Too many ids")
+  private List<Long> ids;
+
+  private boolean unique;
+}
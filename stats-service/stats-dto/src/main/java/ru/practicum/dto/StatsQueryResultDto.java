@@ -0,0 +1,25 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ответ POST /stats/query: просмотры по id и по uri. Ключи без просмотров не передаются.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQueryResultDto {
+
+  @Builder.Default
+  private Map<Long, Long> byId = new HashMap<>();
+
+  @Builder.Default
+  private Map<String, Long> byUri = new HashMap<>();
+}
@@ -0,0 +1,39 @@
+package ru.practicum.dto;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Шаг временного ряда /stats/timeseries. Корзина обозначается своим началом.
+ */
+public enum TimeSeriesInterval {
+  MINUTE(ChronoUnit.MINUTES),
+  HOUR(ChronoUnit.HOURS),
+  DAY(ChronoUnit.DAYS);
+
+  private final ChronoUnit unit;
+
+  TimeSeriesInterval(ChronoUnit unit) {
+    this.unit = unit;
+  }
+
+  public LocalDateTime truncate(LocalDateTime dateTime) {
+    return dateTime.truncatedTo(unit);
+  }
+
+  /**
+   * Число корзин, в которые попадает диапазон, включая неполные по краям.
+   */
+  public long buckets(LocalDateTime start, LocalDateTime end) {
+    return unit.between(truncate(start), truncate(end)) + 1;
+  }
+
+  public static TimeSeriesInterval of(String value) {
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown interval: " + value);
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.dto.binary;
+
+/**
+ * Кадр или распакованное тело больше допустимого размера.
+ */
+public class FrameTooLargeException extends IllegalArgumentException {
+
+  public FrameTooLargeException(String message) {
+    super(message);
+  }
+}
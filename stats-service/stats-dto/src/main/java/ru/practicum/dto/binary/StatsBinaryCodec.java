@@ -0,0 +1,295 @@
+package ru.practicum.dto.binary;
+
+import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Компактный бинарный формат обмена между main-service и stats-server.
+ *
+ * <p>Кадр: magic, версия, флаги (бит 0 - тело сжато gzip), тип записей, затем тело:
+ * количество записей и записи подряд. Целые числа пишутся как varint, время - как
+ * миллисекунды эпохи для LocalDateTime в UTC. Повторяющиеся строки (app, uri)
+ * передаются один раз и дальше ссылаются на таблицу строк кадра.
+ *
+ * <p>Кадры приходят из сети, поэтому декодер не доверяет заявленным размерам: тело (после
+ * распаковки) ограничено MAX_BODY_BYTES, число записей - MAX_RECORDS и остатком тела.
+ */
+public final class StatsBinaryCodec {
+
+  public static final String MEDIA_TYPE = "application/x-ewm-stats";
+
+  static final int MAGIC = 0xE7;
+  static final int VERSION = 1;
+  static final int FLAG_GZIP = 1;
+  static final int TYPE_HITS = 1;
+  static final int TYPE_VIEW_STATS = 2;
+
+  public static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+  public static final int MAX_RECORDS = 1 << 22;
+
+  private static final int GZIP_THRESHOLD = 1024;
+  // Минимальные размеры записей: флаги и три строки-ссылки у хита, две ссылки и число у статистики
+  private static final int MIN_HIT_BYTES = 4;
+  private static final int MIN_VIEW_STATS_BYTES = 3;
+  private static final int HIT_HAS_ID = 1;
+  private static final int HIT_HAS_TIMESTAMP = 2;
+  private static final int HIT_HAS_USER_AGENT = 4;
+
+  private StatsBinaryCodec() {
+  }
+
+  public static byte[] encodeHits(List<EndPointHitDto> hits, boolean allowGzip) {
+    Writer writer = new Writer();
+    writer.writeVarLong(hits.size());
+    for (EndPointHitDto hit : hits) {
+      int flags = (hit.getId() != null ? HIT_HAS_ID : 0) | (hit.getTimestamp() != null ? HIT_HAS_TIMESTAMP : 0) |
+              (hit.getUserAgent() != null ? HIT_HAS_USER_AGENT : 0);
+      writer.writeByte(flags);
+      if (hit.getId() != null) {
+        writer.writeVarLong(zigZag(hit.getId()));
+      }
+      writer.writeString(hit.getApp());
+      writer.writeString(hit.getUri());
+      writer.writeString(hit.getIp());
+      if (hit.getTimestamp() != null) {
+        writer.writeVarLong(zigZag(hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli()));
+      }
+      if (hit.getUserAgent() != null) {
+        writer.writeString(hit.getUserAgent());
+      }
+    }
+    return writer.toFrame(TYPE_HITS, allowGzip);
+  }
+
+  public static byte[] encodeViewStats(List<ViewStatsDto> stats, boolean allowGzip) {
+    Writer writer = new Writer();
+    writer.writeVarLong(stats.size());
+    for (ViewStatsDto viewStats : stats) {
+      writer.writeString(viewStats.getApp());
+      writer.writeString(viewStats.getUri());
+      writer.writeVarLong(viewStats.getHits() != null ? viewStats.getHits() : 0);
+    }
+    return writer.toFrame(TYPE_VIEW_STATS, allowGzip);
+  }
+
+  public static List<EndPointHitDto> decodeHits(byte[] frame) {
+    Reader reader = open(frame, TYPE_HITS);
+    int count = reader.readCount(MIN_HIT_BYTES);
+    // Список растёт по мере чтения, заявленное число записей ещё не подтверждено телом
+    List<EndPointHitDto> hits = new ArrayList<>(Math.min(count, 1024));
+    for (int i = 0; i < count; i++) {
+      int flags = reader.readByte();
+      EndPointHitDto hit = new EndPointHitDto();
+      if ((flags & HIT_HAS_ID) != 0) {
+        hit.setId(unZigZag(reader.readVarLong()));
+      }
+      hit.setApp(reader.readString());
+      hit.setUri(reader.readString());
+      hit.setIp(reader.readString());
+      if ((flags & HIT_HAS_TIMESTAMP) != 0) {
+        hit.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(unZigZag(reader.readVarLong())), ZoneOffset.UTC));
+      }
+      if ((flags & HIT_HAS_USER_AGENT) != 0) {
+        hit.setUserAgent(reader.readString());
+      }
+      hits.add(hit);
+    }
+    return hits;
+  }
+
+  public static List<ViewStatsDto> decodeViewStats(byte[] frame) {
+    Reader reader = open(frame, TYPE_VIEW_STATS);
+    int count = reader.readCount(MIN_VIEW_STATS_BYTES);
+    List<ViewStatsDto> stats = new ArrayList<>(Math.min(count, 1024));
+    for (int i = 0; i < count; i++) {
+      stats.add(new ViewStatsDto(reader.readString(), reader.readString(), reader.readVarLong()));
+    }
+    return stats;
+  }
+
+  private static Reader open(byte[] frame, int expectedType) {
+    if (frame.length < 4 || (frame[0] & 0xFF) != MAGIC) {
+      throw new IllegalArgumentException("Not a stats binary frame");
+    }
+    if (frame[1] != VERSION) {
+      throw new IllegalArgumentException("Unsupported stats binary frame version: " + frame[1]);
+    }
+    if (frame[3] != expectedType) {
+      throw new IllegalArgumentException("Unexpected stats binary frame type: " + frame[3]);
+    }
+    if (frame.length - 4 > MAX_BODY_BYTES) {
+      throw new FrameTooLargeException("Stats binary frame exceeds " + MAX_BODY_BYTES + " bytes");
+    }
+    byte[] body;
+    if ((frame[2] & FLAG_GZIP) != 0) {
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(frame, 4, frame.length - 4))) {
+        // Читаем на байт больше предела, чтобы отличить ровно MAX_BODY_BYTES от gzip-бомбы
+        body = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+          throw new FrameTooLargeException("Decompressed stats binary frame exceeds " + MAX_BODY_BYTES + " bytes");
+        }
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Corrupted gzip payload", e);
+      }
+    } else {
+      body = new byte[frame.length - 4];
+      System.arraycopy(frame, 4, body, 0, body.length);
+    }
+    return new Reader(body);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static final class Writer {
+    private static final int HEADER_SIZE = 4;
+
+    // Первые четыре байта зарезервированы под заголовок кадра
+    private byte[] buffer = new byte[256];
+    private int position = HEADER_SIZE;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    // 0 - null, 1 - новая строка, n >= 2 - ссылка на строку n - 2 из таблицы кадра
+    void writeString(String value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index != null) {
+        writeVarLong(index + 2L);
+        return;
+      }
+      strings.put(value, strings.size());
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(1);
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    byte[] toFrame(int type, boolean allowGzip) {
+      int bodyLength = position - HEADER_SIZE;
+      boolean gzip = allowGzip && bodyLength > GZIP_THRESHOLD;
+      byte[] frame;
+      if (gzip) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bodyLength / 2 + HEADER_SIZE);
+        out.write(buffer, 0, HEADER_SIZE);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+          gzipOut.write(buffer, HEADER_SIZE, bodyLength);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        frame = out.toByteArray();
+      } else {
+        frame = Arrays.copyOf(buffer, position);
+      }
+      frame[0] = (byte) MAGIC;
+      frame[1] = VERSION;
+      frame[2] = (byte) (gzip ? FLAG_GZIP : 0);
+      frame[3] = (byte) type;
+      return frame;
+    }
+
+    private void ensureCapacity(int extra) {
+      if (position + extra > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+      }
+    }
+  }
+
+  private static final class Reader {
+    private final byte[] buffer;
+    private final List<String> strings = new ArrayList<>();
+    private int position;
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    int readByte() {
+      if (position >= buffer.length) {
+        throw new IllegalArgumentException("Truncated stats binary frame");
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    int readCount(int minRecordBytes) {
+      long count = readVarLong();
+      if (count < 0 || count > MAX_RECORDS || count * minRecordBytes > buffer.length - position) {
+        throw new IllegalArgumentException("Invalid record count in stats binary frame: " + count);
+      }
+      return (int) count;
+    }
+
+    long readVarLong() {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        result |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return result;
+        }
+      }
+      throw new IllegalArgumentException("Malformed varint");
+    }
+
+    String readString() {
+      long tag = readVarLong();
+      if (tag == 0) {
+        return null;
+      }
+      if (tag >= 2) {
+        if (tag - 2 >= strings.size()) {
+          throw new IllegalArgumentException("Unknown string reference in stats binary frame");
+        }
+        return strings.get((int) (tag - 2));
+      }
+      long length = readVarLong();
+      if (length < 0 || length > buffer.length - position) {
+        throw new IllegalArgumentException("Truncated stats binary frame");
+      }
+      String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+      position += (int) length;
+      strings.add(value);
+      return value;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.dto.export;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр выгрузок, которые сейчас пишутся в ответ. Отмена только поднимает флаг:
+ * поток выгрузки проверяет его перед каждой строкой и прерывает чтение курсора.
+ */
+public final class ExportJobs {
+
+  private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+  public Job start(String type) {
+    Job job = new Job(UUID.randomUUID().toString(), type);
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  public boolean cancel(String id) {
+    Job job = jobs.get(id);
+    if (job == null) {
+      return false;
+    }
+    job.cancelled = true;
+    return true;
+  }
+
+  public void finish(Job job) {
+    jobs.remove(job.getId());
+  }
+
+  public int active() {
+    return jobs.size();
+  }
+
+  public static final class Job {
+    private final String id;
+    private final String type;
+    private volatile boolean cancelled;
+
+    private Job(String id, String type) {
+      this.id = id;
+      this.type = type;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    public void throwIfCancelled() {
+      if (cancelled) {
+        throw new ExportCancelledException(id);
+      }
+    }
+  }
+
+  public static class ExportCancelledException extends RuntimeException {
+    public ExportCancelledException(String id) {
+      super("Export " + id + " was cancelled");
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.dto.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Построчная запись выгрузки в CSV или NDJSON, при необходимости через gzip.
+ * Строки не накапливаются: буфер фиксированного размера сбрасывается в поток по мере заполнения.
+ */
+public final class ExportWriter implements Closeable {
+
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  private final ExportFormat format;
+  private final String[] columns;
+  private final Writer out;
+  private long rows;
+
+  public ExportWriter(OutputStream target, ExportFormat format, boolean gzip, String... columns) throws IOException {
+    this.format = format;
+    this.columns = columns;
+    OutputStream stream = gzip ? new GZIPOutputStream(target, BUFFER_SIZE) : target;
+    this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    if (format == ExportFormat.CSV) {
+      for (int i = 0; i < columns.length; i++) {
+        if (i > 0) {
+          out.write(',');
+        }
+        writeCsvString(columns[i]);
+      }
+      out.write('\n');
+    }
+  }
+
+  public void writeRow(Object... values) throws IOException {
+    if (values.length != columns.length) {
+      throw new IllegalArgumentException("Expected " + columns.length + " values, got " + values.length);
+    }
+    if (format == ExportFormat.CSV) {
+      writeCsvRow(values);
+    } else {
+      writeJsonRow(values);
+    }
+    rows++;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Закрытие дописывает хвост gzip
+    out.close();
+  }
+
+  private void writeCsvRow(Object[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      Object value = normalize(values[i]);
+      if (value instanceof String string) {
+        writeCsvString(string);
+      } else if (value != null) {
+        out.write(value.toString());
+      }
+    }
+    out.write('\n');
+  }
+
+  private void writeCsvString(String value) throws IOException {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.write('"');
+      }
+      out.write(c);
+    }
+    out.write('"');
+  }
+
+  private void writeJsonRow(Object[] values) throws IOException {
+    out.write('{');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeJsonString(columns[i]);
+      out.write(':');
+      Object value = normalize(values[i]);
+      if (value == null) {
+        out.write("null");
+      } else if (value instanceof String string) {
+        writeJsonString(string);
+      } else if (value instanceof Number || value instanceof Boolean) {
+        out.write(value.toString());
+      } else {
+        writeJsonString(value.toString());
+      }
+    }
+    out.write("}\n");
+  }
+
+  private void writeJsonString(String value) throws IOException {
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> out.write("\\\"");
+        case '\\' -> out.write("\\\\");
+        case '\n' -> out.write("\\n");
+        case '\r' -> out.write("\\r");
+        case '\t' -> out.write("\\t");
+        default -> {
+          if (c < 0x20) {
+            out.write(String.format("\\u%04x", (int) c));
+          } else {
+            out.write(c);
+          }
+        }
+      }
+    }
+    out.write('"');
+  }
+
+  private static Object normalize(Object value) {
+    if (value instanceof Timestamp timestamp) {
+      return DATE_TIME.format(timestamp.toLocalDateTime());
+    }
+    if (value instanceof LocalDateTime dateTime) {
+      return DATE_TIME.format(dateTime);
+    }
+    if (value instanceof Float f && (f.isNaN() || f.isInfinite())
+            || value instanceof Double d && (d.isNaN() || d.isInfinite())) {
+      return value.toString();
+    }
+    return value;
+  }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.dto.binary;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsBinaryCodecTest {
+
+  @Test
+  void encodeHits_ShouldRoundTripAllFields() {
+    EndPointHitDto withId = new EndPointHitDto(42L, "ewm-main-service", "/events/1", "192.168.1.1",
+            LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+    withId.setUserAgent("Mozilla/5.0 (X11; Linux x86_64)");
+    EndPointHitDto withoutId = new EndPointHitDto("ewm-main-service", "/events/2", "::1",
+            LocalDateTime.of(1999, 12, 31, 23, 59, 59));
+
+    List<EndPointHitDto> decoded = StatsBinaryCodec.decodeHits(
+            StatsBinaryCodec.encodeHits(List.of(withId, withoutId), false));
+
+    assertThat(decoded).hasSize(2);
+    assertThat(decoded.get(0)).isEqualTo(withId);
+    assertThat(decoded.get(1)).isEqualTo(withoutId);
+    assertThat(decoded.get(1).getId()).isNull();
+    assertThat(decoded.get(1).getUserAgent()).isNull();
+  }
+
+  @Test
+  void encodeViewStats_WithLargeBatch_ShouldGzipAndRoundTrip() {
+    List<ViewStatsDto> stats = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      stats.add(new ViewStatsDto("ewm-main-service", "/events/" + i, (long) i * 7));
+    }
+
+    byte[] plain = StatsBinaryCodec.encodeViewStats(stats, false);
+    byte[] gzipped = StatsBinaryCodec.encodeViewStats(stats, true);
+
+    assertThat(gzipped[2] & StatsBinaryCodec.FLAG_GZIP).isEqualTo(StatsBinaryCodec.FLAG_GZIP);
+    assertThat(gzipped.length).isLessThan(plain.length);
+    assertThat(StatsBinaryCodec.decodeViewStats(gzipped)).isEqualTo(stats);
+    assertThat(StatsBinaryCodec.decodeViewStats(plain)).isEqualTo(stats);
+  }
+
+  @Test
+  void encodeViewStats_ShouldWriteRepeatedAppOnlyOnce() {
+    List<ViewStatsDto> one = List.of(new ViewStatsDto("ewm-main-service", "/events/1", 1L));
+    List<ViewStatsDto> two = List.of(new ViewStatsDto("ewm-main-service", "/events/1", 1L),
+            new ViewStatsDto("ewm-main-service", "/events/2", 1L));
+
+    int growth = StatsBinaryCodec.encodeViewStats(two, false).length -
+            StatsBinaryCodec.encodeViewStats(one, false).length;
+
+    assertThat(growth).isLessThan("ewm-main-service".length());
+  }
+
+  @Test
+  void decode_WithForeignOrTruncatedPayload_ShouldThrowIllegalArgument() {
+    byte[] frame = StatsBinaryCodec.encodeViewStats(List.of(new ViewStatsDto("app", "/events/1", 5L)), false);
+    byte[] truncated = new byte[frame.length - 3];
+    System.arraycopy(frame, 0, truncated, 0, truncated.length);
+
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeViewStats("[]".getBytes()))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeViewStats(truncated))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeHits(frame))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void decode_WithCountBeyondBody_ShouldRejectBeforeAllocating() {
+    // Заявлено ~2^31 записей в пятибайтном теле
+    byte[] huge = {(byte) StatsBinaryCodec.MAGIC, StatsBinaryCodec.VERSION, 0, StatsBinaryCodec.TYPE_HITS,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+    byte[] negative = {(byte) StatsBinaryCodec.MAGIC, StatsBinaryCodec.VERSION, 0, StatsBinaryCodec.TYPE_VIEW_STATS,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, 0x01};
+
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeHits(huge))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("record count");
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeViewStats(negative))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("record count");
+  }
+
+  @Test
+  void decode_WithGzipBomb_ShouldRejectAsTooLarge() throws IOException {
+    byte[] bomb = gzipFrame(StatsBinaryCodec.TYPE_VIEW_STATS, StatsBinaryCodec.MAX_BODY_BYTES + 1);
+
+    assertThat(bomb.length).isLessThan(1 << 20);
+    assertThatThrownBy(() -> StatsBinaryCodec.decodeViewStats(bomb))
+            .isInstanceOf(FrameTooLargeException.class);
+  }
+
+  // Кадр с телом из нулей заданной длины, сжатым gzip
+  static byte[] gzipFrame(int type, int bodyLength) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(new byte[]{(byte) StatsBinaryCodec.MAGIC, StatsBinaryCodec.VERSION, StatsBinaryCodec.FLAG_GZIP,
+            (byte) type});
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      byte[] zeros = new byte[1 << 16];
+      for (int written = 0; written < bodyLength; written += zeros.length) {
+        gzip.write(zeros, 0, Math.min(zeros.length, bodyLength - written));
+      }
+    }
+    return out.toByteArray();
+  }
+}
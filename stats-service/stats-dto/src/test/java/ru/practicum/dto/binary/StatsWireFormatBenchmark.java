@@ -0,0 +1,141 @@
+package ru.practicum.dto.binary;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение JSON и бинарного формата по стоимости сериализации.
+ *
+ * <p>Запуск: {@code mvn -pl stats-service/stats-dto test-compile exec:java
+ * -Dexec.mainClass=ru.practicum.dto.binary.StatsWireFormatBenchmark -Dexec.classpathScope=test}.
+ * Перед прогоном печатаются размеры полезной нагрузки для каждого формата.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsWireFormatBenchmark {
+
+  private static final TypeReference<List<ViewStatsDto>> STATS_LIST = new TypeReference<>() {
+  };
+
+  @Param({"1", "100", "10000"})
+  private int batchSize;
+
+  private ObjectMapper objectMapper;
+  private EndPointHitDto hit;
+  private List<ViewStatsDto> stats;
+  private byte[] hitJson;
+  private byte[] hitBinary;
+  private byte[] statsJson;
+  private byte[] statsBinary;
+  private byte[] statsBinaryGzip;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    hit = new EndPointHitDto("ewm-main-service", "/events/12345", "192.168.100.200", LocalDateTime.now().withNano(0));
+    stats = viewStats(batchSize);
+
+    hitJson = objectMapper.writeValueAsBytes(hit);
+    hitBinary = StatsBinaryCodec.encodeHits(List.of(hit), false);
+    statsJson = objectMapper.writeValueAsBytes(stats);
+    statsBinary = StatsBinaryCodec.encodeViewStats(stats, false);
+    statsBinaryGzip = StatsBinaryCodec.encodeViewStats(stats, true);
+  }
+
+  @Benchmark
+  public byte[] hitEncodeJson() throws Exception {
+    return objectMapper.writeValueAsBytes(hit);
+  }
+
+  @Benchmark
+  public byte[] hitEncodeBinary() {
+    return StatsBinaryCodec.encodeHits(List.of(hit), false);
+  }
+
+  @Benchmark
+  public EndPointHitDto hitDecodeJson() throws Exception {
+    return objectMapper.readValue(hitJson, EndPointHitDto.class);
+  }
+
+  @Benchmark
+  public List<EndPointHitDto> hitDecodeBinary() {
+    return StatsBinaryCodec.decodeHits(hitBinary);
+  }
+
+  @Benchmark
+  public byte[] statsEncodeJson() throws Exception {
+    return objectMapper.writeValueAsBytes(stats);
+  }
+
+  @Benchmark
+  public byte[] statsEncodeBinary() {
+    return StatsBinaryCodec.encodeViewStats(stats, false);
+  }
+
+  @Benchmark
+  public byte[] statsEncodeBinaryGzip() {
+    return StatsBinaryCodec.encodeViewStats(stats, true);
+  }
+
+  @Benchmark
+  public List<ViewStatsDto> statsDecodeJson() throws Exception {
+    return objectMapper.readValue(statsJson, STATS_LIST);
+  }
+
+  @Benchmark
+  public List<ViewStatsDto> statsDecodeBinary() {
+    return StatsBinaryCodec.decodeViewStats(statsBinary);
+  }
+
+  @Benchmark
+  public List<ViewStatsDto> statsDecodeBinaryGzip() {
+    return StatsBinaryCodec.decodeViewStats(statsBinaryGzip);
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (int size : new int[]{1, 100, 10000}) {
+      StatsWireFormatBenchmark benchmark = new StatsWireFormatBenchmark();
+      benchmark.batchSize = size;
+      benchmark.setUp();
+      System.out.printf("batch=%d hit: json=%dB binary=%dB; stats: json=%dB binary=%dB binary+gzip=%dB%n",
+              size, benchmark.hitJson.length, benchmark.hitBinary.length, benchmark.statsJson.length,
+              benchmark.statsBinary.length, benchmark.statsBinaryGzip.length);
+    }
+    new Runner(new OptionsBuilder()
+            .include(StatsWireFormatBenchmark.class.getSimpleName())
+            .build()).run();
+  }
+
+  private static List<ViewStatsDto> viewStats(int size) {
+    List<ViewStatsDto> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(new ViewStatsDto("ewm-main-service", "/events/" + (1000 + i), (long) (size - i) * 3));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.dto.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExportWriterTest {
+
+  private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+  @Test
+  void csv_ShouldWriteHeaderAndQuoteSpecialCharacters() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ExportWriter writer = new ExportWriter(out, ExportFormat.CSV, false, "id", "title", "paid", "created")) {
+      writer.writeRow(1L, "Concert, \"live\"", true, Timestamp.valueOf(CREATED));
+      writer.writeRow(2L, null, false, CREATED);
+      assertThat(writer.getRows()).isEqualTo(2);
+    }
+
+    assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+            "id,title,paid,created\n" +
+                    "1,\"Concert, \"\"live\"\"\",true,2024-05-01 12:30:15\n" +
+                    "2,,false,2024-05-01 12:30:15\n");
+  }
+
+  @Test
+  void ndjson_ShouldEscapeStringsAndKeepTypes() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ExportWriter writer = new ExportWriter(out, ExportFormat.NDJSON, false, "id", "title", "lat", "published")) {
+      writer.writeRow(1L, "line\n\"quoted\"\\", 55.75f, null);
+    }
+
+    assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+            "{\"id\":1,\"title\":\"line\\n\\\"quoted\\\"\\\\\",\"lat\":55.75,\"published\":null}\n");
+  }
+
+  @Test
+  void gzip_ShouldProduceReadableStream() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ExportWriter writer = new ExportWriter(out, ExportFormat.CSV, true, "id")) {
+      for (long i = 0; i < 10_000; i++) {
+        writer.writeRow(i);
+      }
+    }
+
+    String text = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+            StandardCharsets.UTF_8);
+    assertThat(text.lines()).hasSize(10_001).startsWith("id", "0").endsWith("9999");
+  }
+
+  @Test
+  void writeRow_WithWrongColumnCount_ShouldThrow() throws Exception {
+    ExportWriter writer = new ExportWriter(new ByteArrayOutputStream(), ExportFormat.CSV, false, "id", "title");
+
+    assertThatThrownBy(() -> writer.writeRow(1L))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void format_ShouldBeParsedCaseInsensitively() {
+    assertThat(ExportFormat.of("NdJson")).isEqualTo(ExportFormat.NDJSON);
+    assertThatThrownBy(() -> ExportFormat.of("xml"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("xml");
+  }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.config;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.binary.FrameTooLargeException;
+import ru.practicum.dto.binary.StatsBinaryCodec;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+public class StatsBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+  public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(StatsBinaryCodec.MEDIA_TYPE);
+
+  public StatsBinaryHttpMessageConverter() {
+    super(MEDIA_TYPE);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return EndPointHitDto.class.equals(clazz) || Collection.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+    ResolvableType resolved = ResolvableType.forType(type);
+    boolean hitType = EndPointHitDto.class.equals(resolved.resolve()) ||
+            (resolved.asCollection() != ResolvableType.NONE &&
+                    EndPointHitDto.class.equals(resolved.asCollection().resolveGeneric(0)));
+    return hitType && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+    ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+    boolean statsType = resolved.asCollection() != ResolvableType.NONE &&
+            ViewStatsDto.class.equals(resolved.asCollection().resolveGeneric(0));
+    // Бинарный формат отдаём только по явному запросу клиента (null - опрос поддерживаемых типов)
+    return statsType && (mediaType == null || MEDIA_TYPE.equalsTypeAndSubtype(mediaType));
+  }
+
+  @Override
+  public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+    List<EndPointHitDto> hits = decode(inputMessage);
+    if (EndPointHitDto.class.equals(ResolvableType.forType(type).resolve())) {
+      if (hits.size() != 1) {
+        throw new HttpMessageNotReadableException("Expected exactly one hit, got " + hits.size(), inputMessage);
+      }
+      return hits.get(0);
+    }
+    return hits;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    return read(clazz, null, inputMessage);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+    outputMessage.getBody().write(StatsBinaryCodec.encodeViewStats((List<ViewStatsDto>) body, true));
+  }
+
+  private List<EndPointHitDto> decode(HttpInputMessage inputMessage) throws IOException {
+    // Тело длиннее предела не дочитываем: FrameTooLargeException отвечает 413
+    byte[] frame = inputMessage.getBody().readNBytes(StatsBinaryCodec.MAX_BODY_BYTES + 5);
+    if (frame.length > StatsBinaryCodec.MAX_BODY_BYTES + 4) {
+      throw new FrameTooLargeException("Stats binary frame exceeds " + StatsBinaryCodec.MAX_BODY_BYTES + " bytes");
+    }
+    try {
+      return StatsBinaryCodec.decodeHits(frame);
+    } catch (FrameTooLargeException e) {
+      throw e;
+    } catch (IllegalArgumentException e) {
+      throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+    }
+  }
+}
@@ -4,9 +4,24 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
+import ru.practicum.dto.TimeSeriesInterval;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
+import ru.practicum.service.HitExportService;
 import ru.practicum.service.StatsService;
+import ru.practicum.service.TimeSeriesService;
+import ru.practicum.service.ViewDeltaPublisher;
 import ru.practicum.dto.EndPointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 
@@ -19,7 +34,12 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatsController {
 
+  static final String EXPORT_ID_HEADER = "X-Export-Id";
+
   private final StatsService statsService;
+  private final ViewDeltaPublisher viewDeltaPublisher;
+  private final HitExportService hitExportService;
+  private final TimeSeriesService timeSeriesService;
 
   @PostMapping("/hit")
   @ResponseStatus(HttpStatus.CREATED)
@@ -34,9 +54,75 @@ public class StatsController {
           @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
           @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
           @RequestParam(required = false) List<String> uris,
-          @RequestParam(defaultValue = "false") Boolean unique) {
+          @RequestParam(defaultValue = "false") Boolean unique,
+          @RequestParam(defaultValue = "uri") String groupBy) {
+    StatsGroupBy statsGroupBy = StatsGroupBy.of(groupBy);
+    log.info("Getting stats: start={}, end={}, uris={}, unique={}, groupBy={}", start, end, uris, unique, statsGroupBy);
+    return statsService.getStats(start, end, uris, unique, statsGroupBy);
+  }
+
+  @PostMapping("/stats/query")
+  public StatsQueryResultDto queryStats(@Valid @RequestBody StatsQueryDto query) {
+    log.info("Querying stats: start={}, end={}, uris={}, uriPrefix={}, ids={}, unique={}", query.getStart(),
+            query.getEnd(), size(query.getUris()), query.getUriPrefix(), size(query.getIds()), query.isUnique());
+    return statsService.query(query);
+  }
+
+  @GetMapping("/stats/timeseries")
+  public ResponseEntity<StreamingResponseBody> getTimeSeries(
+          @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+          @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+          @RequestParam(defaultValue = "hour") String interval,
+          @RequestParam(required = false) List<String> uris,
+          @RequestParam(defaultValue = "false") boolean unique,
+          @RequestParam(defaultValue = "ndjson") String format) {
+    TimeSeriesInterval timeSeriesInterval = TimeSeriesInterval.of(interval);
+    ExportFormat exportFormat = ExportFormat.of(format);
+    timeSeriesService.validate(start, end, timeSeriesInterval);
+    log.info("Getting time series: start={}, end={}, interval={}, uris={}, unique={}",
+            start, end, timeSeriesInterval, uris, unique);
+    return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .body(out -> timeSeriesService.write(out, exportFormat, start, end, timeSeriesInterval, uris, unique));
+  }
+
+  @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamViews(@RequestParam(defaultValue = "") String uriPrefix) {
+    log.info("Subscribing to view stream: uriPrefix={}", uriPrefix);
+    return viewDeltaPublisher.subscribe(uriPrefix);
+  }
+
+  @GetMapping("/export/hits")
+  public ResponseEntity<StreamingResponseBody> exportHits(
+          @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+          @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+          @RequestParam(defaultValue = "csv") String format,
+          @RequestParam(defaultValue = "false") boolean gzip) {
+    ExportFormat exportFormat = ExportFormat.of(format);
+    ExportJobs.Job job = hitExportService.start();
+    log.info("Starting export {} of hits: start={}, end={}, format={}, gzip={}",
+            job.getId(), start, end, exportFormat, gzip);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .header(EXPORT_ID_HEADER, job.getId())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename("hits." + exportFormat.getExtension())
+                    .build()
+                    .toString());
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(out -> hitExportService.write(job, out, exportFormat, gzip, start, end));
+  }
+
+  @DeleteMapping("/export/{exportId}")
+  public ResponseEntity<Void> cancelExport(@PathVariable String exportId) {
+    log.info("Cancelling export: {}", exportId);
+    return hitExportService.cancel(exportId) ?
+            ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+  }
 
-    log.info("Getting stats: start={}, end={}, uris={}, unique={}", start, end, uris, unique);
-    return statsService.getStats(start, end, uris, unique);
+  private static int size(List<?> values) {
+    return values != null ? values.size() : 0;
   }
-}
\ No newline at end of file
+}
@@ -3,12 +3,14 @@ package ru.practicum.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import ru.practicum.dto.binary.FrameTooLargeException;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -29,6 +31,28 @@ public class ErrorHandler {
     );
   }
 
+  @ExceptionHandler(FrameTooLargeException.class)
+  @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+  public Map<String, String> handleFrameTooLarge(FrameTooLargeException e) {
+    log.error("Request body too large: {}", e.getMessage());
+    return Map.of(
+            "error", "Payload too large",
+            "message", e.getMessage(),
+            "timestamp", LocalDateTime.now().toString()
+    );
+  }
+
+  @ExceptionHandler(HttpMessageNotReadableException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Map<String, String> handleNotReadable(HttpMessageNotReadableException e) {
+    log.error("Unreadable request body: {}", e.getMessage());
+    return Map.of(
+            "error", "Bad request",
+            "message", "Malformed request body",
+            "timestamp", LocalDateTime.now().toString()
+    );
+  }
+
   @ExceptionHandler(IllegalArgumentException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public Map<String, String> handleIllegalArgumentException(IllegalArgumentException e) {
@@ -6,7 +6,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "hits")
+@Table(name = "hits", uniqueConstraints = {
+    @UniqueConstraint(name = "uq_hits_app_client_hit_id", columnNames = {"app", "client_hit_id"})
+})
 @Getter
 @Setter
 @Builder
@@ -29,6 +31,14 @@ public class Hit {
   @Column(name = "created", nullable = false)
   private LocalDateTime timestamp;
 
+  // id хита на стороне клиента (EndPointHitDto.id) для идемпотентных повторов
+  @Column(name = "client_hit_id")
+  private Long clientHitId;
+
+  // Хит бота сохраняется помеченным и не входит в статистику
+  @Column(name = "bot", nullable = false)
+  private boolean bot;
+
   @Override
   public String toString() {
     return "Hit{" +
@@ -37,6 +47,8 @@ public class Hit {
             ", uri='" + uri + '\'' +
             ", ip='" + ip + '\'' +
             ", timestamp=" + timestamp +
+            ", clientHitId=" + clientHitId +
+            ", bot=" + bot +
             '}';
   }
 }
\ No newline at end of file
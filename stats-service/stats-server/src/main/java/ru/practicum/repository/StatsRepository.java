@@ -1,12 +1,12 @@
 package ru.practicum.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.model.Hit;
 
-
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -14,7 +14,7 @@ public interface StatsRepository extends JpaRepository<Hit, Long> {
 
   @Query("SELECT new ru.practicum.dto.ViewStatsDto(h.app, h.uri, COUNT(h.ip)) " +
           "FROM Hit h " +
-          "WHERE h.timestamp BETWEEN :start AND :end " +
+          "WHERE h.timestamp BETWEEN :start AND :end AND h.bot = false " +
           "GROUP BY h.app, h.uri " +
           "ORDER BY COUNT(h.ip) DESC")
   List<ViewStatsDto> findStats(@Param("start") LocalDateTime start,
@@ -22,7 +22,7 @@ public interface StatsRepository extends JpaRepository<Hit, Long> {
 
   @Query("SELECT new ru.practicum.dto.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
           "FROM Hit h " +
-          "WHERE h.timestamp BETWEEN :start AND :end " +
+          "WHERE h.timestamp BETWEEN :start AND :end AND h.bot = false " +
           "GROUP BY h.app, h.uri " +
           "ORDER BY COUNT(DISTINCT h.ip) DESC")
   List<ViewStatsDto> findUniqueStats(@Param("start") LocalDateTime start,
@@ -30,7 +30,7 @@ public interface StatsRepository extends JpaRepository<Hit, Long> {
 
   @Query("SELECT new ru.practicum.dto.ViewStatsDto(h.app, h.uri, COUNT(h.ip)) " +
           "FROM Hit h " +
-          "WHERE h.timestamp BETWEEN :start AND :end " +
+          "WHERE h.timestamp BETWEEN :start AND :end AND h.bot = false " +
           "AND h.uri IN :uris " +
           "GROUP BY h.app, h.uri " +
           "ORDER BY COUNT(h.ip) DESC")
@@ -40,11 +40,21 @@ public interface StatsRepository extends JpaRepository<Hit, Long> {
 
   @Query("SELECT new ru.practicum.dto.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
           "FROM Hit h " +
-          "WHERE h.timestamp BETWEEN :start AND :end " +
+          "WHERE h.timestamp BETWEEN :start AND :end AND h.bot = false " +
           "AND h.uri IN :uris " +
           "GROUP BY h.app, h.uri " +
           "ORDER BY COUNT(DISTINCT h.ip) DESC")
   List<ViewStatsDto> findUniqueStatsByUris(@Param("start") LocalDateTime start,
                                            @Param("end") LocalDateTime end,
                                            @Param("uris") List<String> uris);
-}
\ No newline at end of file
+
+  /**
+   * Вставка хита с client_hit_id: параллельный повтор того же хита не падает на
+   * uq_hits_app_client_hit_id, а вставляет 0 строк.
+   */
+  @Modifying
+  @Query(value = "INSERT INTO hits (app, uri, ip, created, client_hit_id, bot) " +
+          "VALUES (:#{#hit.app}, :#{#hit.uri}, :#{#hit.ip}, :#{#hit.timestamp}, :#{#hit.clientHitId}, :#{#hit.bot}) " +
+          "ON CONFLICT (app, client_hit_id) DO NOTHING", nativeQuery = true)
+  int insertUnlessRetry(@Param("hit") Hit hit);
+}
@@ -0,0 +1,176 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Число хитов (без уникальности) по кэшу закрытых дней.
+ *
+ * <p>Диапазон делится на целые дни до вчерашнего включительно и остаток. Счётчики (app, uri)
+ * за закрытый день кэшируются по всем uri сразу, поэтому запросы с разными списками uri
+ * переиспользуют одни и те же дни. Запрос догружает в кэш не больше fill-max-days дней;
+ * остальные непрогретые дни, неполные края и сегодняшний день считаются по hits только
+ * для запрошенных uri. Сумма совпадает с COUNT по всему диапазону.
+ */
+@Service
+public class DailyHitCounts {
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final DayBucketCache<Map<DayBuckets.UriKey, Long>> cache;
+  private final ParallelStats parallelStats;
+  private final Clock clock;
+
+  @Autowired
+  public DailyHitCounts(NamedParameterJdbcTemplate jdbcTemplate,
+                        ParallelStats parallelStats,
+                        @Value("${stats.cache.enabled:true}") boolean enabled,
+                        @Value("${stats.cache.hits.max-bytes:33554432}") long maxBytes,
+                        @Value("${stats.cache.fill-max-days:31}") int fillMaxDays,
+                        MeterRegistry meterRegistry) {
+    this(jdbcTemplate, parallelStats, new DayBucketCache<>("daily-hits", enabled ? maxBytes : 0, fillMaxDays,
+            DailyHitCounts::weigh, meterRegistry), Clock.systemDefaultZone());
+  }
+
+  DailyHitCounts(NamedParameterJdbcTemplate jdbcTemplate, ParallelStats parallelStats,
+                 DayBucketCache<Map<DayBuckets.UriKey, Long>> cache, Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.parallelStats = parallelStats;
+    this.cache = cache;
+    this.clock = clock;
+  }
+
+  /**
+   * Есть ли в диапазоне закрытый день, который можно взять из кэша.
+   */
+  public boolean covers(LocalDateTime start, LocalDateTime end) {
+    return cache.enabled() && start != null && end != null &&
+            !DayBuckets.firstFullDay(start).isAfter(lastClosedDay(end));
+  }
+
+  /**
+   * Вызывается вне транзакции: закрытые дни читаются параллельными шардами, каждый в своей
+   * транзакции, остаток - отдельным запросом. Снимки у них разные, но дни и остаток не
+   * пересекаются, поэтому хит, записанный во время запроса, не считается дважды.
+   */
+  public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+    boolean hasUris = uris != null && !uris.isEmpty();
+    long stamp = cache.stamp();
+    List<LocalDate> days = new ArrayList<>();
+    for (LocalDate day = DayBuckets.firstFullDay(start); !day.isAfter(lastClosedDay(end)); day = day.plusDays(1)) {
+      days.add(day);
+    }
+    Map<LocalDate, Map<DayBuckets.UriKey, Long>> byDay = new HashMap<>(cache.getAll(days));
+    List<LocalDate> missing = days.stream().filter(day -> !byDay.containsKey(day)).toList();
+    Map<LocalDate, Map<DayBuckets.UriKey, Long>> loaded = loadDays(cache.fillable(missing));
+    cache.putAll(loaded, stamp);
+    byDay.putAll(loaded);
+
+    Set<String> uriFilter = hasUris ? new HashSet<>(uris) : null;
+    Map<DayBuckets.UriKey, Long> result = new HashMap<>();
+    byDay.values().forEach(counts -> counts.forEach((key, hits) -> {
+      if (uriFilter == null || uriFilter.contains(key.uri())) {
+        result.merge(key, hits, Long::sum);
+      }
+    }));
+    Set<LocalDate> covered = byDay.keySet();
+    MapSqlParameterSource params = new MapSqlParameterSource("uris", uris);
+    for (DayBuckets.Interval interval : DayBuckets.rawIntervals(start, end, covered::contains)) {
+      params.addValue("start", Timestamp.valueOf(interval.from()))
+              .addValue("end", Timestamp.valueOf(interval.to()));
+      jdbcTemplate.query("SELECT h.app, h.uri, COUNT(*) FROM hits h " +
+              "WHERE " + interval.condition() + " AND NOT h.bot" + (hasUris ? " AND h.uri IN (:uris)" : "") +
+              " GROUP BY h.app, h.uri", params, rs -> {
+                result.merge(new DayBuckets.UriKey(rs.getString(1), rs.getString(2)), rs.getLong(3), Long::sum);
+              });
+    }
+    return result.entrySet().stream()
+            .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+            .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+            .toList();
+  }
+
+  /**
+   * Хит за закрытый день: день удаляется из кэша после коммита записи.
+   */
+  public void onHitSaved(LocalDateTime timestamp) {
+    if (timestamp.toLocalDate().isBefore(LocalDate.now(clock))) {
+      cache.invalidateAfterCommit(timestamp.toLocalDate());
+    }
+  }
+
+  private LocalDate lastClosedDay(LocalDateTime end) {
+    LocalDate yesterday = LocalDate.now(clock).minusDays(1);
+    LocalDate last = DayBuckets.lastFullDay(end);
+    return last.isAfter(yesterday) ? yesterday : last;
+  }
+
+  // Дни (по возрастанию) читаются запросом на каждую непрерывную серию; серии длиннее шарда
+  // режутся и читаются параллельно, одна серия - в вызывающем потоке
+  private Map<LocalDate, Map<DayBuckets.UriKey, Long>> loadDays(List<LocalDate> days) {
+    int shardDays = parallelStats.shardDays() > 0 ? parallelStats.shardDays() : Integer.MAX_VALUE;
+    List<LocalDate[]> runs = new ArrayList<>();
+    LocalDate[] current = null;
+    for (LocalDate day : days) {
+      if (current == null || !day.equals(current[1].plusDays(1)) ||
+              ChronoUnit.DAYS.between(current[0], day) >= shardDays) {
+        current = new LocalDate[]{day, day};
+        runs.add(current);
+      } else {
+        current[1] = day;
+      }
+    }
+    if (runs.size() <= 1) {
+      return runs.isEmpty() ? new HashMap<>() : loadRun(runs.get(0)[0], runs.get(0)[1]);
+    }
+    List<Callable<Map<LocalDate, Map<DayBuckets.UriKey, Long>>>> shards = runs.stream()
+            .<Callable<Map<LocalDate, Map<DayBuckets.UriKey, Long>>>>map(run -> () -> loadRun(run[0], run[1]))
+            .toList();
+    Map<LocalDate, Map<DayBuckets.UriKey, Long>> loaded = new HashMap<>();
+    parallelStats.runShards(shards).forEach(loaded::putAll);
+    return loaded;
+  }
+
+  private Map<LocalDate, Map<DayBuckets.UriKey, Long>> loadRun(LocalDate from, LocalDate to) {
+    Map<LocalDate, Map<DayBuckets.UriKey, Long>> loaded = new HashMap<>();
+    // День без хитов кэшируется пустым
+    for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+      loaded.put(day, new HashMap<>());
+    }
+    jdbcTemplate.query("SELECT CAST(h.created AS DATE), h.app, h.uri, COUNT(*) FROM hits h " +
+            "WHERE h.created >= :start AND h.created < :end AND NOT h.bot " +
+            "GROUP BY CAST(h.created AS DATE), h.app, h.uri", new MapSqlParameterSource()
+            .addValue("start", Timestamp.valueOf(from.atStartOfDay()))
+            .addValue("end", Timestamp.valueOf(to.plusDays(1).atStartOfDay())), rs -> {
+              loaded.get(rs.getDate(1).toLocalDate())
+                      .put(new DayBuckets.UriKey(rs.getString(2), rs.getString(3)), rs.getLong(4));
+            });
+    return loaded;
+  }
+
+  private static long weigh(Map<DayBuckets.UriKey, Long> counts) {
+    long size = 64;
+    for (DayBuckets.UriKey key : counts.keySet()) {
+      size += key.estimatedSize() + 16;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Кэш агрегатов закрытых дней, ограниченный по памяти (max-bytes, вытесняется давно
+ * не читанный день) и по числу дней, догружаемых одним запросом (fill-max-days).
+ *
+ * <p>Закрытый день не меняется, пока не придёт поздний хит: такой день удаляется после
+ * коммита записи. Чтобы чтение, начатое до коммита, не вернуло в кэш старое значение,
+ * putAll принимает штамп, взятый до чтения из базы, и не кладёт дни, удалённые с тех пор.
+ * Остальные дни того же чтения кэшируются.
+ */
+final class DayBucketCache<V> {
+
+  private final LinkedHashMap<LocalDate, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxBytes;
+  private final int fillMaxDays;
+  private final ToLongFunction<V> weigher;
+  private final Counter hits;
+  private final Counter misses;
+  // Поколение последнего удаления дня; по записи на каждый день, получивший поздний хит
+  private final Map<LocalDate, Long> invalidatedAt = new HashMap<>();
+  private long bytes;
+  private long generation;
+
+  DayBucketCache(String name, long maxBytes, int fillMaxDays, ToLongFunction<V> weigher,
+                 MeterRegistry meterRegistry) {
+    this.maxBytes = maxBytes;
+    this.fillMaxDays = fillMaxDays;
+    this.weigher = weigher;
+    this.hits = Counter.builder("stats.cache.gets")
+            .description("Day bucket lookups in the stats result cache")
+            .tags("cache", name, "result", "hit")
+            .register(meterRegistry);
+    this.misses = Counter.builder("stats.cache.gets")
+            .description("Day bucket lookups in the stats result cache")
+            .tags("cache", name, "result", "miss")
+            .register(meterRegistry);
+    Gauge.builder("stats.cache.size.bytes", this, DayBucketCache::sizeInBytes)
+            .description("Estimated memory held by cached day buckets")
+            .tag("cache", name)
+            .register(meterRegistry);
+    Gauge.builder("stats.cache.entries", this, DayBucketCache::size)
+            .description("Cached day buckets")
+            .tag("cache", name)
+            .register(meterRegistry);
+    Gauge.builder("stats.cache.hit.ratio", this, DayBucketCache::hitRatio)
+            .description("Share of day bucket lookups served from the cache")
+            .tag("cache", name)
+            .register(meterRegistry);
+  }
+
+  boolean enabled() {
+    return maxBytes > 0;
+  }
+
+  /**
+   * Штамп берётся до чтения дней из базы.
+   */
+  synchronized long stamp() {
+    return generation;
+  }
+
+  /**
+   * Дни из недостающих, которые запрос может загрузить по всем uri и положить в кэш: не больше
+   * fill-max-days самых поздних. Остальные запрос считает только по своим uri.
+   */
+  List<LocalDate> fillable(Collection<LocalDate> missing) {
+    if (!enabled()) {
+      return List.of();
+    }
+    List<LocalDate> days = missing.stream().sorted().toList();
+    return days.subList(Math.max(0, days.size() - fillMaxDays), days.size());
+  }
+
+  synchronized Map<LocalDate, V> getAll(Collection<LocalDate> days) {
+    Map<LocalDate, V> found = new HashMap<>();
+    for (LocalDate day : days) {
+      Entry<V> entry = entries.get(day);
+      if (entry != null) {
+        found.put(day, entry.value());
+      }
+    }
+    hits.increment(found.size());
+    misses.increment(days.size() - found.size());
+    return found;
+  }
+
+  synchronized void putAll(Map<LocalDate, V> values, long stamp) {
+    if (!enabled()) {
+      return;
+    }
+    values.forEach((day, value) -> {
+      if (invalidatedAt.getOrDefault(day, Long.MIN_VALUE) > stamp) {
+        return;
+      }
+      Entry<V> entry = new Entry<>(value, weigher.applyAsLong(value));
+      Entry<V> previous = entries.put(day, entry);
+      bytes += entry.weight() - (previous != null ? previous.weight() : 0);
+    });
+    Iterator<Entry<V>> eldest = entries.values().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= eldest.next().weight();
+      eldest.remove();
+    }
+  }
+
+  synchronized void invalidate(LocalDate day) {
+    invalidatedAt.put(day, ++generation);
+    Entry<V> removed = entries.remove(day);
+    if (removed != null) {
+      bytes -= removed.weight();
+    }
+  }
+
+  /**
+   * Удаление дня после коммита текущей транзакции, без транзакции - сразу.
+   */
+  void invalidateAfterCommit(LocalDate day) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          invalidate(day);
+        }
+      });
+    } else {
+      invalidate(day);
+    }
+  }
+
+  synchronized long sizeInBytes() {
+    return bytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  double hitRatio() {
+    double total = hits.count() + misses.count();
+    return total == 0 ? 0 : hits.count() / total;
+  }
+
+  private record Entry<V>(V value, long weight) {
+  }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Разбиение диапазона запроса статистики на целые календарные дни и остаток, который
+ * читается из hits. Границы запроса задаются с точностью до секунды: конец 23:59:59
+ * покрывает день целиком.
+ */
+final class DayBuckets {
+
+  private DayBuckets() {
+  }
+
+  static LocalDate firstFullDay(LocalDateTime start) {
+    LocalDate day = start.toLocalDate();
+    return start.equals(day.atStartOfDay()) ? day : day.plusDays(1);
+  }
+
+  static LocalDate lastFullDay(LocalDateTime end) {
+    LocalDate day = end.toLocalDate();
+    return end.toLocalTime().isBefore(LocalTime.of(23, 59, 59)) ? day.minusDays(1) : day;
+  }
+
+  /**
+   * Части диапазона вне дней, для которых covered истинно.
+   */
+  static List<Interval> rawIntervals(LocalDateTime start, LocalDateTime end, Predicate<LocalDate> covered) {
+    List<Interval> intervals = new ArrayList<>();
+    LocalDateTime cursor = start;
+    for (LocalDate day = firstFullDay(start); !day.isAfter(lastFullDay(end)); day = day.plusDays(1)) {
+      if (covered.test(day)) {
+        if (cursor.isBefore(day.atStartOfDay())) {
+          intervals.add(new Interval(cursor, day.atStartOfDay(), false));
+        }
+        cursor = day.plusDays(1).atStartOfDay();
+      }
+    }
+    if (!cursor.isAfter(end)) {
+      intervals.add(new Interval(cursor, end, true));
+    }
+    return intervals;
+  }
+
+  record Interval(LocalDateTime from, LocalDateTime to, boolean inclusiveEnd) {
+
+    // Условие на hits.created с параметрами :start и :end
+    String condition() {
+      return "h.created >= :start AND h.created " + (inclusiveEnd ? "<=" : "<") + " :end";
+    }
+  }
+
+  record UriKey(String app, String uri) {
+
+    // Примерный размер ключа в куче вместе с узлом HashMap
+    long estimatedSize() {
+      return 112 + 2L * (app.length() + uri.length());
+    }
+  }
+}
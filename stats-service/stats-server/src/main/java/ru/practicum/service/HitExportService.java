@@ -0,0 +1,97 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
+import ru.practicum.dto.export.ExportWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Выгрузка сырых хитов из серверного курсора: строки читаются порциями по fetchSize
+ * в read-only транзакции (без неё PostgreSQL материализует весь результат) и сразу пишутся в ответ.
+ */
+@Service
+@Slf4j
+public class HitExportService {
+
+  private static final String[] COLUMNS = {"id", "app", "uri", "ip", "timestamp"};
+  private static final String SQL = "SELECT id, app, uri, ip, created FROM hits " +
+          "WHERE (CAST(? AS TIMESTAMP) IS NULL OR created >= ?) " +
+          "AND (CAST(? AS TIMESTAMP) IS NULL OR created <= ?) ORDER BY id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTx;
+  private final ExportJobs jobs = new ExportJobs();
+  private final int fetchSize;
+
+  public HitExportService(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${stats.export.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.fetchSize = fetchSize;
+  }
+
+  public ExportJobs.Job start() {
+    return jobs.start("hits");
+  }
+
+  public boolean cancel(String exportId) {
+    boolean cancelled = jobs.cancel(exportId);
+    if (cancelled) {
+      log.info("Export {} cancelled", exportId);
+    }
+    return cancelled;
+  }
+
+  public void write(ExportJobs.Job job, OutputStream out, ExportFormat format, boolean gzip,
+                    LocalDateTime start, LocalDateTime end) throws IOException {
+    Timestamp from = start != null ? Timestamp.valueOf(start) : null;
+    Timestamp to = end != null ? Timestamp.valueOf(end) : null;
+    try {
+      ExportWriter writer = new ExportWriter(out, format, gzip, COLUMNS);
+      readOnlyTx.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        statement.setTimestamp(1, from);
+        statement.setTimestamp(2, from);
+        statement.setTimestamp(3, to);
+        statement.setTimestamp(4, to);
+        return statement;
+      }, rs -> {
+        job.throwIfCancelled();
+        try {
+          writer.writeRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getTimestamp(5));
+        } catch (IOException e) {
+          // Клиент закрыл соединение: прерываем чтение курсора
+          throw new UncheckedIOException(e);
+        }
+      }));
+      // Хвост gzip пишется только у полной выгрузки, иначе обрыв выглядел бы как целый файл
+      writer.close();
+      log.info("Export {} of hits finished: {} rows", job.getId(), writer.getRows());
+    } catch (UncheckedIOException e) {
+      log.info("Export {} of hits aborted by client", job.getId());
+      throw e.getCause();
+    } catch (ExportJobs.ExportCancelledException e) {
+      log.info("Export {} of hits stopped after cancel", job.getId());
+      throw e;
+    } finally {
+      jobs.finish(job);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.dto.EndPointHitDto;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Отбор хитов при записи: узнаёт ботов по User-Agent и отбрасывает повторы одного
+ * (app, uri, ip) в пределах окна stats.ingest.dedup.window-ms.
+ *
+ * <p>Повторы ищутся в скользящем фильтре Блума ограниченного размера; хит попадает в фильтр
+ * только после коммита, чтобы неудавшаяся запись не отбросила повтор клиента.
+ */
+@Slf4j
+@Component
+public class HitIngestFilter {
+
+  public enum Outcome {
+    ACCEPTED,
+    // Повтор (app, uri, ip) в окне
+    DUPLICATE,
+    // Повторная отправка хита с тем же id
+    RETRY,
+    // Отброшенный бот
+    BOT
+  }
+
+  private final boolean dropBots;
+  private final Pattern botPattern;
+  private final SlidingBloomFilter seen;
+  private final Map<Outcome, Counter> counters = new EnumMap<>(Outcome.class);
+
+  public HitIngestFilter(@Value("${stats.ingest.dedup.enabled:false}") boolean dedupEnabled,
+                         @Value("${stats.ingest.dedup.window-ms:10000}") long windowMs,
+                         @Value("${stats.ingest.dedup.slices:5}") int slices,
+                         @Value("${stats.ingest.dedup.expected-hits-per-slice:100000}") int expectedPerSlice,
+                         @Value("${stats.ingest.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                         @Value("${stats.ingest.bots.drop:false}") boolean dropBots,
+                         @Value("${stats.ingest.bots.user-agents:bot,crawl,spider,slurp}") List<String> botAgents,
+                         MeterRegistry meterRegistry) {
+    this(dedupEnabled ? new SlidingBloomFilter(TimeUnit.MILLISECONDS.toNanos(windowMs), slices, expectedPerSlice,
+            falsePositiveRate, System::nanoTime) : null, dropBots, botAgents, meterRegistry);
+    if (seen != null) {
+      log.info("Hit dedup window {} ms, filter size {} KB", windowMs, seen.sizeInBytes() / 1024);
+    }
+  }
+
+  HitIngestFilter(SlidingBloomFilter seen, boolean dropBots, List<String> botAgents, MeterRegistry meterRegistry) {
+    this.seen = seen;
+    this.dropBots = dropBots;
+    this.botPattern = Pattern.compile(botAgents.stream()
+            .map(String::trim)
+            .filter(agent -> !agent.isEmpty())
+            .map(Pattern::quote)
+            .collect(Collectors.joining("|")), Pattern.CASE_INSENSITIVE);
+    for (Outcome outcome : Outcome.values()) {
+      counters.put(outcome, Counter.builder("stats.ingest.hits")
+              .description("Hits received by stats-server by ingestion outcome")
+              .tag("outcome", outcome.name().toLowerCase())
+              .register(meterRegistry));
+    }
+    Gauge.builder("stats.ingest.dedup.ratio", this, HitIngestFilter::dedupRatio)
+            .description("Share of received hits dropped as duplicates or retries")
+            .register(meterRegistry);
+  }
+
+  public boolean isBot(String userAgent) {
+    return userAgent != null && !botPattern.pattern().isEmpty() && botPattern.matcher(userAgent).find();
+  }
+
+  public boolean dropsBots() {
+    return dropBots;
+  }
+
+  public boolean isDuplicate(EndPointHitDto hit) {
+    return seen != null && seen.mightContain(key(hit));
+  }
+
+  public void recordAccepted(EndPointHitDto hit) {
+    count(Outcome.ACCEPTED);
+    if (seen == null) {
+      return;
+    }
+    String key = key(hit);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          seen.put(key);
+        }
+      });
+    } else {
+      seen.put(key);
+    }
+  }
+
+  public void count(Outcome outcome) {
+    counters.get(outcome).increment();
+  }
+
+  public double dedupRatio() {
+    double total = Arrays.stream(Outcome.values()).mapToDouble(outcome -> counters.get(outcome).count()).sum();
+    double dropped = counters.get(Outcome.DUPLICATE).count() + counters.get(Outcome.RETRY).count();
+    return total == 0 ? 0 : dropped / total;
+  }
+
+  private static String key(EndPointHitDto hit) {
+    return hit.getApp() + '\n' + hit.getUri() + '\n' + hit.getIp();
+  }
+}
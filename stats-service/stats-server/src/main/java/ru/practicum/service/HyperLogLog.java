@@ -0,0 +1,62 @@
+package ru.practicum.service;
+
+/**
+ * HyperLogLog: приближённое число различных значений в 2^precision байтах. Скетчи шардов
+ * объединяются поразрядным максимумом без потери точности. Стандартная ошибка 1.04 / sqrt(2^precision).
+ */
+final class HyperLogLog {
+
+  private final int precision;
+  private final byte[] registers;
+
+  HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  void add(String value) {
+    long hash = SlidingBloomFilter.hash(value);
+    int index = (int) (hash >>> (64 - precision));
+    // Младший выставленный бит ограничивает ранг, если остаток хэша нулевой
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision");
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+    // Малые значения - линейный подсчёт по пустым регистрам
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  int sizeInBytes() {
+    return registers.length;
+  }
+}
@@ -0,0 +1,264 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * Агрегация большого диапазона по hits параллельными шардами по времени.
+ *
+ * <p>Диапазон длиннее shard-days режется на шарды, каждый считается отдельным запросом в своей
+ * read-only транзакции на пуле из threads потоков (и соединений). Потоков не больше половины
+ * пула соединений, остальные соединения - запросам и записи хитов. Число хитов складывается
+ * точно. Уникальные посетители: exact - объединение множеств ip из шардов, approximate -
+ * объединение скетчей HyperLogLog. Шарды читают разные снимки базы, поэтому хиты,
+ * записанные во время запроса, могут попасть не во все шарды.
+ *
+ * <p>Вызывающий поток не должен держать соединение, пока ждёт шарды: иначе при числе
+ * параллельных запросов, равном пулу, шарды ждали бы соединений, занятых теми же запросами.
+ * Поэтому в активной транзакции шарды выполняются последовательно в ней же.
+ */
+@Slf4j
+@Service
+public class ParallelStats {
+
+  public enum UniqueMode {
+    EXACT,
+    APPROXIMATE
+  }
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTx;
+  private final ThreadPoolExecutor executor;
+  private final int shardDays;
+  private final UniqueMode uniqueMode;
+  private final int sketchPrecision;
+  private final Counter shards;
+  private final Timer shardTimer;
+
+  @Autowired
+  public ParallelStats(NamedParameterJdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${stats.parallel.threads:4}") int threads,
+                       @Value("${stats.parallel.shard-days:30}") int shardDays,
+                       @Value("${stats.parallel.unique-mode:exact}") String uniqueMode,
+                       @Value("${stats.parallel.sketch-precision:12}") int sketchPrecision,
+                       @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                       MeterRegistry meterRegistry) {
+    this(jdbcTemplate, new TransactionTemplate(transactionManager), maxThreads(threads, poolSize), shardDays,
+            UniqueMode.valueOf(uniqueMode.toUpperCase(Locale.ROOT)), sketchPrecision, meterRegistry);
+  }
+
+  ParallelStats(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate readOnlyTx, int threads, int shardDays,
+                UniqueMode uniqueMode, int sketchPrecision, MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTx = readOnlyTx;
+    this.readOnlyTx.setReadOnly(true);
+    this.shardDays = shardDays;
+    this.uniqueMode = uniqueMode;
+    this.sketchPrecision = sketchPrecision;
+    AtomicInteger threadNumber = new AtomicInteger();
+    // Очередь ограничена: при переполнении шард выполняет вызывающий поток
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 16), runnable -> {
+              Thread thread = new Thread(runnable, "stats-shard-" + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.shards = Counter.builder("stats.parallel.shards")
+            .description("Time shards aggregated in parallel")
+            .register(meterRegistry);
+    this.shardTimer = Timer.builder("stats.parallel.shard.duration")
+            .description("Time to aggregate one time shard")
+            .register(meterRegistry);
+  }
+
+  static int maxThreads(int threads, int poolSize) {
+    int max = Math.max(1, poolSize / 2);
+    if (threads > max) {
+      log.warn("stats.parallel.threads={} exceeds half of the connection pool ({}), using {}", threads, poolSize, max);
+      return max;
+    }
+    return threads;
+  }
+
+  /**
+   * Имеет ли смысл резать диапазон: больше одного шарда.
+   */
+  public boolean splits(LocalDateTime start, LocalDateTime end) {
+    return shardDays > 0 && start != null && end != null && start.plusDays(shardDays).isBefore(end);
+  }
+
+  public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+    Map<DayBuckets.UriKey, Long> result = new HashMap<>();
+    if (!unique) {
+      result.putAll(aggregate(start, end, uris, "SELECT h.app, h.uri, COUNT(*)", " GROUP BY h.app, h.uri",
+              (partial, key, rs) -> partial.put(key, rs.getLong(3)), Long::sum));
+    } else if (uniqueMode == UniqueMode.EXACT) {
+      aggregate(start, end, uris, "SELECT DISTINCT h.app, h.uri, h.ip", "",
+              (Map<DayBuckets.UriKey, Set<String>> partial, DayBuckets.UriKey key, ResultSet rs) ->
+                      partial.computeIfAbsent(key, k -> new HashSet<>()).add(rs.getString(3)),
+              (merged, next) -> {
+                merged.addAll(next);
+                return merged;
+              }).forEach((key, ips) -> result.put(key, (long) ips.size()));
+    } else {
+      aggregate(start, end, uris, "SELECT DISTINCT h.app, h.uri, h.ip", "",
+              (Map<DayBuckets.UriKey, HyperLogLog> partial, DayBuckets.UriKey key, ResultSet rs) ->
+                      partial.computeIfAbsent(key, k -> new HyperLogLog(sketchPrecision)).add(rs.getString(3)),
+              (merged, next) -> {
+                merged.merge(next);
+                return merged;
+              }).forEach((key, sketch) -> result.put(key, sketch.estimate()));
+    }
+    return result.entrySet().stream()
+            .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue()))
+            .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+            .toList();
+  }
+
+  // Частичные результаты шардов по (app, uri) сливаются функцией combine
+  private <V> Map<DayBuckets.UriKey, V> aggregate(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                  String select, String groupBy, ShardRow<V> row,
+                                                  BinaryOperator<V> combine) {
+    boolean hasUris = uris != null && !uris.isEmpty();
+    List<Callable<Map<DayBuckets.UriKey, V>>> tasks = new ArrayList<>();
+    for (DayBuckets.Interval shard : shards(start, end, shardDays)) {
+      MapSqlParameterSource params = new MapSqlParameterSource("uris", uris)
+              .addValue("start", Timestamp.valueOf(shard.from()))
+              .addValue("end", Timestamp.valueOf(shard.to()));
+      String sql = select + " FROM hits h WHERE " + shard.condition() + " AND NOT h.bot" +
+              (hasUris ? " AND h.uri IN (:uris)" : "") + groupBy;
+      tasks.add(() -> {
+        Map<DayBuckets.UriKey, V> partial = new HashMap<>();
+        jdbcTemplate.query(sql, params, rs -> {
+          row.accept(partial, new DayBuckets.UriKey(rs.getString(1), rs.getString(2)), rs);
+        });
+        return partial;
+      });
+    }
+    Map<DayBuckets.UriKey, V> merged = new HashMap<>();
+    runShards(tasks).forEach(partial -> partial.forEach((key, value) -> merged.merge(key, value, combine)));
+    return merged;
+  }
+
+  /**
+   * Выполняет шарды параллельно, каждый в своей read-only транзакции. Ошибка шарда отменяет
+   * остальные и пробрасывается вызывающему. В транзакции вызывающего шарды выполняются в ней
+   * последовательно.
+   */
+  <T> List<T> runShards(List<Callable<T>> tasks) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return runInCallerTransaction(tasks);
+    }
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(() -> shardTimer.recordCallable(() -> readOnlyTx.execute(status -> {
+          try {
+            return task.call();
+          } catch (RuntimeException e) {
+            throw e;
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        }))));
+      }
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      shards.increment(tasks.size());
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while aggregating stats shards", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private <T> List<T> runInCallerTransaction(List<Callable<T>> tasks) {
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      try {
+        results.add(shardTimer.recordCallable(task));
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    shards.increment(tasks.size());
+    return results;
+  }
+
+  int threads() {
+    return executor.getMaximumPoolSize();
+  }
+
+  int shardDays() {
+    return shardDays;
+  }
+
+  /**
+   * Шарды по shardDays дней; последний включает конец диапазона.
+   */
+  static List<DayBuckets.Interval> shards(LocalDateTime start, LocalDateTime end, int shardDays) {
+    List<DayBuckets.Interval> shards = new ArrayList<>();
+    LocalDateTime from = start;
+    while (shardDays > 0 && from.plusDays(shardDays).isBefore(end)) {
+      shards.add(new DayBuckets.Interval(from, from.plusDays(shardDays), false));
+      from = from.plusDays(shardDays);
+    }
+    shards.add(new DayBuckets.Interval(from, end, true));
+    return shards;
+  }
+
+  @FunctionalInterface
+  private interface ShardRow<V> {
+    void accept(Map<DayBuckets.UriKey, V> partial, DayBuckets.UriKey key, ResultSet rs) throws SQLException;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Фильтр Блума со скользящим окном. Окно делится на отрезки, у каждого отрезка свой фильтр;
+ * запись идёт в фильтр текущего отрезка, проверка - по всем отрезкам окна. Фильтр отрезка,
+ * вышедшего из окна, очищается и переиспользуется, так что память не зависит от потока хитов.
+ *
+ * <p>Ложные срабатывания возможны с вероятностью около falsePositiveRate, пропусков внутри
+ * окна нет, пока отрезок не переполнен сверх expectedPerSlice.
+ */
+class SlidingBloomFilter {
+
+  private final Slice[] slices;
+  private final long sliceNanos;
+  private final int bits;
+  private final int hashes;
+  private final LongSupplier nanoClock;
+
+  SlidingBloomFilter(long windowNanos, int windowSlices, int expectedPerSlice, double falsePositiveRate,
+                     LongSupplier nanoClock) {
+    // Лишний отрезок: в окне всегда целиком windowSlices отрезков плюс текущий
+    this.slices = new Slice[windowSlices + 1];
+    this.sliceNanos = Math.max(1, windowNanos / windowSlices);
+    double optimalBits = -expectedPerSlice * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, Math.ceil(optimalBits)));
+    this.hashes = Math.max(1, (int) Math.round((double) bits / expectedPerSlice * Math.log(2)));
+    this.nanoClock = nanoClock;
+    for (int i = 0; i < slices.length; i++) {
+      slices[i] = new Slice((bits + 63) / 64);
+    }
+  }
+
+  boolean mightContain(String key) {
+    long hash = hash(key);
+    long current = nanoClock.getAsLong() / sliceNanos;
+    for (Slice slice : slices) {
+      long epoch = slice.epoch;
+      if (epoch > current - slices.length && epoch <= current && slice.contains(hash)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void put(String key) {
+    long current = nanoClock.getAsLong() / sliceNanos;
+    Slice slice = slices[(int) Math.floorMod(current, (long) slices.length)];
+    if (slice.epoch != current) {
+      synchronized (slice) {
+        if (slice.epoch != current) {
+          slice.clear();
+          slice.epoch = current;
+        }
+      }
+    }
+    slice.put(hash(key));
+  }
+
+  int sizeInBytes() {
+    return slices.length * ((bits + 63) / 64) * Long.BYTES;
+  }
+
+  // FNV-1a по символам с перемешиванием murmur3 fmix64
+  static long hash(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private final class Slice {
+
+    private final AtomicLongArray words;
+    private volatile long epoch = Long.MIN_VALUE;
+
+    Slice(int size) {
+      this.words = new AtomicLongArray(size);
+    }
+
+    // Двойное хеширование: i-й бит = h1 + i * h2
+    boolean contains(long hash) {
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+      for (int i = 1; i <= hashes; i++) {
+        int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+        if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void put(long hash) {
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+      for (int i = 1; i <= hashes; i++) {
+        int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+        long mask = 1L << bit;
+        words.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+      }
+    }
+
+    void clear() {
+      for (int i = 0; i < words.length(); i++) {
+        words.set(i, 0);
+      }
+    }
+  }
+}
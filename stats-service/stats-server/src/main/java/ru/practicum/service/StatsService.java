@@ -1,6 +1,9 @@
 package ru.practicum.service;
 
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
 import ru.practicum.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
@@ -9,5 +12,16 @@ import java.util.List;
 public interface StatsService {
   void saveHit(EndPointHitDto endpointHit);
 
-  List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
-}
\ No newline at end of file
+  default List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    return getStats(start, end, uris, unique, StatsGroupBy.URI);
+  }
+
+  /**
+   * uris может содержать шаблоны с '*' в конце ("/events/*"); при groupBy=PREFIX uri в ответе -
+   * значение из uris, с которым совпали хиты.
+   */
+  List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                              StatsGroupBy groupBy);
+
+  StatsQueryResultDto query(StatsQueryDto query);
+}
@@ -2,43 +2,108 @@ package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.model.Hit;
 import ru.practicum.repository.StatsRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
 
+  // Размер IN-списка uri в одном запросе к hits
+  static final int QUERY_CHUNK = 5_000;
+
   private final StatsRepository statsRepository;
+  private final ViewDeltaPublisher viewDeltaPublisher;
+  private final HitIngestFilter hitIngestFilter;
+  private final VisitorBitmaps visitorBitmaps;
+  private final DailyHitCounts dailyHitCounts;
+  private final UriPatternStats uriPatternStats;
+  private final ParallelStats parallelStats;
 
   @Override
   @Transactional
   public void saveHit(EndPointHitDto endpointHitDto) {
+    boolean bot = hitIngestFilter.isBot(endpointHitDto.getUserAgent());
+    if (bot && hitIngestFilter.dropsBots()) {
+      hitIngestFilter.count(HitIngestFilter.Outcome.BOT);
+      return;
+    }
+    if (hitIngestFilter.isDuplicate(endpointHitDto)) {
+      hitIngestFilter.count(HitIngestFilter.Outcome.DUPLICATE);
+      return;
+    }
     Hit hit = Hit.builder()
             .app(endpointHitDto.getApp())
             .uri(endpointHitDto.getUri())
             .ip(endpointHitDto.getIp())
             .timestamp(endpointHitDto.getTimestamp())
+            .clientHitId(endpointHitDto.getId())
+            .bot(bot)
             .build();
-    statsRepository.save(hit);
+    if (hit.getClientHitId() == null) {
+      statsRepository.save(hit);
+    } else if (statsRepository.insertUnlessRetry(hit) == 0) {
+      // Повтор уже записанного хита, в том числе параллельный
+      hitIngestFilter.count(HitIngestFilter.Outcome.RETRY);
+      return;
+    }
+    if (!bot) {
+      visitorBitmaps.onHitSaved(hit.getTimestamp());
+      dailyHitCounts.onHitSaved(hit.getTimestamp());
+      // Первый визит решает вставка (uri, ip): параллельные первые хиты не дают два приращения
+      viewDeltaPublisher.recordVisit(hit.getUri(), hit.getIp());
+    }
+    hitIngestFilter.recordAccepted(endpointHitDto);
   }
 
+  /**
+   * Без транзакции: каждый путь берёт свою (битовые карты - REPEATABLE READ), а поток запроса
+   * не держит соединение, пока параллельные шарды ждут свободных соединений пула.
+   */
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end,
-                                     List<String> uris, Boolean unique) {
+                                     List<String> uris, Boolean unique, StatsGroupBy groupBy) {
     if (start != null && end != null && start.isAfter(end)) {
       throw new IllegalArgumentException("Start date must be before end date");
     }
     boolean isUnique = Boolean.TRUE.equals(unique);
     boolean hasUris = uris != null && !uris.isEmpty();
 
+    // Шаблоны и группировка по ним - диапазонами по индексу text_pattern_ops
+    if (groupBy == StatsGroupBy.PREFIX || UriPatterns.hasPattern(uris)) {
+      return uriPatternStats.getStats(start, end, uris, isUnique, groupBy);
+    }
+
+    // Целые дни диапазона - из дневных битовых карт вместо COUNT(DISTINCT ip)
+    if (isUnique && visitorBitmaps.covers(start, end)) {
+      return visitorBitmaps.getUniqueStats(start, end, uris);
+    }
+    // Закрытые дни - из кэша дневных счётчиков, по hits считается только остаток
+    if (!isUnique && dailyHitCounts.covers(start, end)) {
+      return dailyHitCounts.getStats(start, end, uris);
+    }
+    // Длинный диапазон мимо кэшей - параллельно по шардам времени
+    if (parallelStats.splits(start, end)) {
+      return parallelStats.getStats(start, end, uris, isUnique);
+    }
+
     if (!hasUris) {
       if (isUnique) {
         return statsRepository.findUniqueStats(start, end);
@@ -53,4 +118,49 @@ public class StatsServiceImpl implements StatsService {
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Набор uri делится на IN-списки по QUERY_CHUNK (индекс по uri) и считается тем же путём,
+   * что и GET /stats, включая кэш закрытых дней. Хиты uri разных app суммируются. Как и
+   * getStats, выполняется без транзакции; списки читаются из разных снимков.
+   */
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public StatsQueryResultDto query(StatsQueryDto query) {
+    boolean hasIds = query.getIds() != null && !query.getIds().isEmpty();
+    if (hasIds && (query.getUriPrefix() == null || query.getUriPrefix().isEmpty())) {
+      throw new IllegalArgumentException("uriPrefix is required with ids");
+    }
+    if (UriPatterns.hasPattern(query.getUris())) {
+      throw new IllegalArgumentException("Uri patterns are not supported in stats query, use GET /stats");
+    }
+    Set<String> uris = new LinkedHashSet<>();
+    if (query.getUris() != null) {
+      uris.addAll(query.getUris());
+    }
+    Map<String, Long> idByUri = new HashMap<>();
+    if (hasIds) {
+      query.getIds().forEach(id -> {
+        String uri = query.getUriPrefix() + id;
+        idByUri.put(uri, id);
+        uris.add(uri);
+      });
+    }
+    Set<String> requestedUris = query.getUris() != null ? Set.copyOf(query.getUris()) : Set.of();
+    StatsQueryResultDto result = new StatsQueryResultDto();
+    List<String> all = new ArrayList<>(uris);
+    for (int from = 0; from < all.size(); from += QUERY_CHUNK) {
+      List<String> chunk = all.subList(from, Math.min(from + QUERY_CHUNK, all.size()));
+      for (ViewStatsDto stats : getStats(query.getStart(), query.getEnd(), chunk, query.isUnique())) {
+        Long id = idByUri.get(stats.getUri());
+        if (id != null) {
+          result.getById().merge(id, stats.getHits(), Long::sum);
+        }
+        if (requestedUris.contains(stats.getUri())) {
+          result.getByUri().merge(stats.getUri(), stats.getHits(), Long::sum);
+        }
+      }
+    }
+    return result;
+  }
+}
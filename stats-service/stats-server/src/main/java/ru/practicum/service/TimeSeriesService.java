@@ -0,0 +1,150 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.TimeSeriesInterval;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportWriter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Временной ряд хитов: число хитов (app, uri) в каждой корзине диапазона.
+ *
+ * <p>Ряд считается одним проходом GROUP BY date_trunc по hits и пишется в ответ из серверного
+ * курсора порциями по fetchSize, не собираясь в памяти. Корзины без хитов не выводятся, крайние
+ * корзины считают только хиты внутри диапазона. Уникальные по дням для свёрнутых дней берутся
+ * из дневных битовых карт.
+ */
+@Slf4j
+@Service
+public class TimeSeriesService {
+
+  private static final String[] COLUMNS = {"bucket", "app", "uri", "hits"};
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTx;
+  private final VisitorBitmaps visitorBitmaps;
+  private final long maxBuckets;
+
+  public TimeSeriesService(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           VisitorBitmaps visitorBitmaps,
+                           @Value("${stats.export.fetch-size:1000}") int fetchSize,
+                           @Value("${stats.timeseries.max-buckets:100000}") long maxBuckets) {
+    JdbcTemplate streaming = new JdbcTemplate(dataSource);
+    streaming.setFetchSize(fetchSize);
+    this.jdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    // Свёрнутые дни и остаток читаются из одного снимка
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.readOnlyTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    this.visitorBitmaps = visitorBitmaps;
+    this.maxBuckets = maxBuckets;
+  }
+
+  /**
+   * Проверка запроса до начала потоковой записи, пока ещё можно ответить 400.
+   */
+  public void validate(LocalDateTime start, LocalDateTime end, TimeSeriesInterval interval) {
+    if (start.isAfter(end)) {
+      throw new IllegalArgumentException("Start date must be before end date");
+    }
+    long buckets = interval.buckets(start, end);
+    if (buckets > maxBuckets) {
+      throw new IllegalArgumentException("Too many buckets: " + buckets + " " + interval.name().toLowerCase(Locale.ROOT) +
+              " buckets requested, at most " + maxBuckets + " allowed");
+    }
+  }
+
+  public void write(OutputStream out, ExportFormat format, LocalDateTime start, LocalDateTime end,
+                    TimeSeriesInterval interval, List<String> uris, boolean unique) throws IOException {
+    boolean hasUris = uris != null && !uris.isEmpty();
+    ExportWriter writer = new ExportWriter(out, format, false, COLUMNS);
+    try {
+      readOnlyTx.executeWithoutResult(status -> {
+        Set<LocalDate> rolledUp = unique && interval == TimeSeriesInterval.DAY ?
+                visitorBitmaps.builtDays(DayBuckets.firstFullDay(start), DayBuckets.lastFullDay(end)) : Set.of();
+        MapSqlParameterSource params = new MapSqlParameterSource("uris", uris);
+        for (Segment segment : segments(start, end, rolledUp)) {
+          params.addValue("start", Timestamp.valueOf(segment.interval().from()))
+                  .addValue("end", Timestamp.valueOf(segment.interval().to()));
+          if (segment.rolledUp()) {
+            // Уникальные за день - мощность дневной карты
+            jdbcTemplate.query("SELECT d.visit_date, d.app, d.uri, d.visitors FROM daily_visitors d " +
+                    "WHERE d.visit_date >= CAST(:start AS DATE) AND d.visit_date < CAST(:end AS DATE)" +
+                    (hasUris ? " AND d.uri IN (:uris)" : "") + " ORDER BY d.visit_date, d.app, d.uri", params, rs -> {
+                      write(writer, rs.getObject(1, LocalDate.class).atStartOfDay(), rs.getString(2), rs.getString(3),
+                              VisitorBitmaps.deserialize(rs.getBytes(4)).getLongCardinality());
+                    });
+          } else {
+            String bucket = "date_trunc('" + interval.name().toLowerCase(Locale.ROOT) + "', h.created)";
+            jdbcTemplate.query("SELECT " + bucket + ", h.app, h.uri, " +
+                    (unique ? "COUNT(DISTINCT h.ip)" : "COUNT(*)") + " FROM hits h " +
+                    "WHERE " + segment.interval().condition() + " AND NOT h.bot" +
+                    (hasUris ? " AND h.uri IN (:uris)" : "") +
+                    " GROUP BY 1, 2, 3 ORDER BY 1, 2, 3", params, rs -> {
+                      write(writer, rs.getTimestamp(1), rs.getString(2), rs.getString(3), rs.getLong(4));
+                    });
+          }
+        }
+      });
+      writer.close();
+      log.info("Time series {} {} - {} written: {} rows", interval, start, end, writer.getRows());
+    } catch (UncheckedIOException e) {
+      log.info("Time series {} {} - {} aborted by client", interval, start, end);
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Диапазон по порядку времени: отрезки из hits и серии свёрнутых дней.
+   */
+  static List<Segment> segments(LocalDateTime start, LocalDateTime end, Set<LocalDate> rolledUp) {
+    List<Segment> segments = new ArrayList<>();
+    DayBuckets.rawIntervals(start, end, rolledUp::contains)
+            .forEach(interval -> segments.add(new Segment(interval, false)));
+    LocalDate runStart = null;
+    for (LocalDate day = DayBuckets.firstFullDay(start); !day.isAfter(DayBuckets.lastFullDay(end).plusDays(1));
+         day = day.plusDays(1)) {
+      if (rolledUp.contains(day)) {
+        runStart = runStart == null ? day : runStart;
+      } else if (runStart != null) {
+        segments.add(new Segment(new DayBuckets.Interval(runStart.atStartOfDay(), day.atStartOfDay(), false), true));
+        runStart = null;
+      }
+    }
+    segments.sort(Comparator.comparing(segment -> segment.interval().from()));
+    return segments;
+  }
+
+  private static void write(ExportWriter writer, Object bucket, String app, String uri, long hits) {
+    try {
+      writer.writeRow(bucket, app, uri, hits);
+    } catch (IOException e) {
+      // Клиент закрыл соединение: прерываем чтение курсора
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  record Segment(DayBuckets.Interval interval, boolean rolledUp) {
+  }
+}
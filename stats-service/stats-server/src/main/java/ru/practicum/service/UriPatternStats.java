@@ -0,0 +1,58 @@
+package ru.practicum.service;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Статистика по шаблонам uri ("/events/*") с группировкой по uri или по шаблону.
+ *
+ * <p>Интервалы шаблонов передаются списком VALUES и соединяются с hits по индексу
+ * idx_hits_uri_pattern (uri text_pattern_ops, created): для каждого шаблона читается только
+ * его диапазон uri. При группировке по шаблону пересекающиеся шаблоны считаются независимо,
+ * уникальные посетители шаблона - COUNT(DISTINCT ip) по всем его uri.
+ */
+@Service
+public class UriPatternStats {
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public UriPatternStats(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                     boolean unique, StatsGroupBy groupBy) {
+    if (uris == null || uris.isEmpty()) {
+      throw new IllegalArgumentException("groupBy=prefix requires uris");
+    }
+    boolean byPrefix = groupBy == StatsGroupBy.PREFIX;
+    List<UriPatterns.Range> ranges = UriPatterns.ranges(uris, !byPrefix);
+    MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("start", Timestamp.valueOf(start))
+            .addValue("end", Timestamp.valueOf(end));
+    StringBuilder values = new StringBuilder();
+    for (int i = 0; i < ranges.size(); i++) {
+      UriPatterns.Range range = ranges.get(i);
+      values.append(i > 0 ? ", " : "")
+              .append("(CAST(:label").append(i).append(" AS TEXT), CAST(:from").append(i)
+              .append(" AS TEXT), CAST(:to").append(i).append(" AS TEXT))");
+      params.addValue("label" + i, range.label())
+              .addValue("from" + i, range.from())
+              .addValue("to" + i, range.to());
+    }
+    String key = byPrefix ? "p.label" : "h.uri";
+    return jdbcTemplate.query("SELECT h.app, " + key + ", " + (unique ? "COUNT(DISTINCT h.ip)" : "COUNT(*)") +
+            " FROM (VALUES " + values + ") AS p(label, lo, hi) " +
+            "JOIN hits h ON h.uri ~>=~ p.lo AND h.uri ~<~ p.hi " +
+            "WHERE h.created BETWEEN :start AND :end AND NOT h.bot " +
+            "GROUP BY h.app, " + key + " ORDER BY 3 DESC", params,
+            (rs, rowNum) -> new ViewStatsDto(rs.getString(1), rs.getString(2), rs.getLong(3)));
+  }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Фильтр uri с шаблонами: значение с '*' в конце - префикс, остальные - точные uri.
+ *
+ * <p>Каждое значение превращается в полуинтервал [from, to) в побайтовом порядке строк, который
+ * сравнивают операторы ~>=~ и ~<~ индекса text_pattern_ops. В отличие от LIKE с параметром,
+ * такое условие использует индекс и в общем (generic) плане подготовленного запроса.
+ */
+final class UriPatterns {
+
+  static final String WILDCARD = "*";
+
+  private UriPatterns() {
+  }
+
+  static boolean hasPattern(List<String> uris) {
+    return uris != null && uris.stream().anyMatch(uri -> uri.contains(WILDCARD));
+  }
+
+  /**
+   * Интервалы значений. При disjoint точные uri и префиксы, уже покрытые более коротким
+   * префиксом, отбрасываются, чтобы хит не совпал с двумя интервалами.
+   */
+  static List<Range> ranges(List<String> uris, boolean disjoint) {
+    Set<String> prefixes = new LinkedHashSet<>();
+    Set<String> exact = new LinkedHashSet<>();
+    for (String uri : uris) {
+      int wildcard = uri.indexOf(WILDCARD);
+      if (wildcard < 0) {
+        exact.add(uri);
+      } else if (wildcard != uri.length() - 1) {
+        throw new IllegalArgumentException("Only a trailing * is supported in uri patterns: " + uri);
+      } else if (wildcard == 0) {
+        throw new IllegalArgumentException("Pattern * matches every uri, omit uris instead");
+      } else {
+        prefixes.add(uri.substring(0, wildcard));
+      }
+    }
+    List<String> kept = new ArrayList<>();
+    if (disjoint) {
+      prefixes.stream()
+              .sorted(Comparator.comparingInt(String::length))
+              .filter(prefix -> kept.stream().noneMatch(prefix::startsWith))
+              .forEach(kept::add);
+      exact.removeIf(uri -> kept.stream().anyMatch(uri::startsWith));
+    } else {
+      kept.addAll(prefixes);
+    }
+    List<Range> ranges = new ArrayList<>();
+    kept.forEach(prefix -> ranges.add(new Range(prefix + WILDCARD, prefix, upperBound(prefix))));
+    // Следующая за uri строка - uri + U+0001: U+0000 в строках PostgreSQL не бывает
+    exact.forEach(uri -> ranges.add(new Range(uri, uri, uri + '\u0001')));
+    return ranges;
+  }
+
+  /**
+   * Наименьшая строка больше всех строк с данным префиксом: последний символ увеличивается на 1.
+   * Порядок кодовых точек совпадает с побайтовым порядком UTF-8.
+   */
+  static String upperBound(String prefix) {
+    int[] codePoints = prefix.codePoints().toArray();
+    for (int i = codePoints.length - 1; i >= 0; i--) {
+      int next = codePoints[i] + 1;
+      if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE) {
+        next = Character.MAX_SURROGATE + 1;
+      }
+      if (next <= Character.MAX_CODE_POINT) {
+        codePoints[i] = next;
+        return new String(codePoints, 0, i + 1);
+      }
+    }
+    throw new IllegalArgumentException("Unsupported uri pattern: " + prefix + WILDCARD);
+  }
+
+  /**
+   * label - значение из запроса, по нему группирует groupBy=prefix.
+   */
+  record Range(String label, String from, String to) {
+  }
+}
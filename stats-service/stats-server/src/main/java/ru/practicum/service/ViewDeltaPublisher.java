@@ -0,0 +1,207 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Рассылает подписчикам приращения уникальных просмотров по uri.
+ *
+ * <p>Первый визит (uri, ip) определяет вставка в uri_visitors с ON CONFLICT DO NOTHING: из
+ * параллельных первых хитов строку вставляет только один. Вставка запоминает id своей транзакции.
+ * Новый подписчик сначала получает событие snapshot со счётчиками uri_visitors, прочитанными вместе
+ * со снимком транзакций PostgreSQL, затем события delta за интервал stats.stream.flush-interval-ms.
+ * Приращение транзакции, видимой в снимке подписчика, в снимке уже учтено и ему не отправляется.
+ */
+@Slf4j
+@Component
+public class ViewDeltaPublisher {
+
+  static final String SNAPSHOT_EVENT = "snapshot";
+  static final String DELTA_EVENT = "delta";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate snapshotTx;
+
+  private final Object publishLock = new Object();
+  private final Object pendingLock = new Object();
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private List<Visit> pending = new ArrayList<>();
+
+  public ViewDeltaPublisher(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.snapshotTx = new TransactionTemplate(transactionManager);
+    this.snapshotTx.setReadOnly(true);
+    this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+  }
+
+  /**
+   * Записывает посетителя uri в транзакции хита. true - первый визит: приращение уйдёт
+   * подписчикам после коммита.
+   */
+  public boolean recordVisit(String uri, String ip) {
+    List<Long> xid = jdbcTemplate.queryForList("INSERT INTO uri_visitors (uri, ip) VALUES (:uri, :ip) " +
+                    "ON CONFLICT DO NOTHING RETURNING CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT)",
+            new MapSqlParameterSource("uri", uri).addValue("ip", ip), Long.class);
+    if (xid.isEmpty()) {
+      return false;
+    }
+    Visit visit = new Visit(uri, xid.get(0));
+    // Приращение публикуем только после коммита, чтобы откат не завышал счётчики
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          addPending(visit);
+        }
+      });
+    } else {
+      addPending(visit);
+    }
+    return true;
+  }
+
+  public SseEmitter subscribe(String uriPrefix) {
+    String prefix = uriPrefix != null ? uriPrefix : "";
+    SseEmitter emitter = new SseEmitter(0L);
+
+    synchronized (publishLock) {
+      ViewSnapshot snapshot = readSnapshot(prefix);
+      Subscriber subscriber = new Subscriber(emitter, prefix, snapshot.transactions());
+      emitter.onCompletion(() -> subscribers.remove(subscriber));
+      emitter.onTimeout(() -> subscribers.remove(subscriber));
+      emitter.onError(error -> subscribers.remove(subscriber));
+      if (send(subscriber, SNAPSHOT_EVENT, snapshot.counts())) {
+        subscribers.add(subscriber);
+        log.info("View stream subscriber added: prefix={}, uris={}", prefix, snapshot.counts().size());
+      }
+    }
+    return emitter;
+  }
+
+  @Scheduled(fixedDelayString = "${stats.stream.flush-interval-ms:250}")
+  public void flush() {
+    synchronized (publishLock) {
+      List<Visit> batch;
+      synchronized (pendingLock) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new ArrayList<>();
+      }
+      for (Subscriber subscriber : subscribers) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Visit visit : batch) {
+          if (visit.uri().startsWith(subscriber.uriPrefix()) && !subscriber.snapshot().sees(visit.xid())) {
+            counts.merge(visit.uri(), 1L, Long::sum);
+          }
+        }
+        List<ViewStatsDto> deltas = new ArrayList<>(counts.size());
+        counts.forEach((uri, count) -> deltas.add(new ViewStatsDto(null, uri, count)));
+        if (!deltas.isEmpty() && !send(subscriber, DELTA_EVENT, deltas)) {
+          subscribers.remove(subscriber);
+        }
+      }
+    }
+  }
+
+  // Комментарий SSE не несёт данных, но позволяет заметить отвалившихся подписчиков
+  @Scheduled(fixedDelayString = "${stats.stream.heartbeat-interval-ms:15000}")
+  public void heartbeat() {
+    for (Subscriber subscriber : subscribers) {
+      try {
+        subscriber.emitter().send(SseEmitter.event().comment("ping"));
+      } catch (IOException | IllegalStateException e) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  // Первый запрос транзакции фиксирует снимок REPEATABLE READ, счётчики читаются в том же снимке
+  private ViewSnapshot readSnapshot(String prefix) {
+    return snapshotTx.execute(status -> {
+      TransactionSnapshot transactions = TransactionSnapshot.parse(jdbcTemplate.queryForObject(
+              "SELECT CAST(pg_current_snapshot() AS TEXT)", new MapSqlParameterSource(), String.class));
+      MapSqlParameterSource params = new MapSqlParameterSource();
+      String where = "";
+      if (!prefix.isEmpty()) {
+        where = " WHERE uri ~>=~ :from AND uri ~<~ :to";
+        params.addValue("from", prefix).addValue("to", UriPatterns.upperBound(prefix));
+      }
+      List<ViewStatsDto> counts = jdbcTemplate.query("SELECT uri, COUNT(*) FROM uri_visitors" + where +
+              " GROUP BY uri", params, (rs, rowNum) -> new ViewStatsDto(null, rs.getString(1), rs.getLong(2)));
+      return new ViewSnapshot(counts, transactions);
+    });
+  }
+
+  private void addPending(Visit visit) {
+    synchronized (pendingLock) {
+      pending.add(visit);
+    }
+  }
+
+  private boolean send(Subscriber subscriber, String name, List<ViewStatsDto> data) {
+    try {
+      subscriber.emitter().send(SseEmitter.event().name(name).data(data));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      log.debug("View stream subscriber dropped: {}", e.getMessage());
+      subscriber.emitter().completeWithError(e);
+      return false;
+    }
+  }
+
+  /**
+   * Снимок транзакций в формате pg_current_snapshot(): xmin:xmax:список выполняющихся.
+   */
+  record TransactionSnapshot(long xmin, long xmax, Set<Long> inProgress) {
+
+    static TransactionSnapshot parse(String value) {
+      String[] parts = value.split(":", -1);
+      Set<Long> inProgress = new HashSet<>();
+      if (parts.length == 3 && !parts[2].isEmpty()) {
+        for (String xid : parts[2].split(",")) {
+          inProgress.add(Long.parseLong(xid));
+        }
+      }
+      return new TransactionSnapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+    }
+
+    // Зафиксированная транзакция видна снимку, если завершилась до него
+    boolean sees(long xid) {
+      return xid < xmin || (xid < xmax && !inProgress.contains(xid));
+    }
+  }
+
+  private record Visit(String uri, long xid) {
+  }
+
+  private record ViewSnapshot(List<ViewStatsDto> counts, TransactionSnapshot transactions) {
+  }
+
+  private record Subscriber(SseEmitter emitter, String uriPrefix, TransactionSnapshot snapshot) {
+  }
+}
@@ -0,0 +1,276 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Точные уникальные посетители по битовым картам Roaring.
+ *
+ * <p>IP получает компактный целочисленный id в visitor_ids, а за каждый закрытый день для
+ * (app, uri) хранится карта id посетителей (daily_visitors). Уникальные за диапазон целых
+ * дней - объединение (OR) дневных карт. Неполные дни по краям диапазона, сегодняшний день
+ * и дни, получившие поздние хиты (dirty), считаются по hits и объединяются с картами.
+ *
+ * <p>Карты свёрнутых дней по всем uri держатся в кэше (stats.cache.visitors.max-bytes) и
+ * удаляются из него после коммита позднего хита или пересборки дня. Запрос догружает в кэш
+ * не больше stats.cache.fill-max-days дней, карты остальных дней читает только для своих uri.
+ */
+@Slf4j
+@Service
+public class VisitorBitmaps {
+
+  private static final String LOCK_DAY = "INSERT INTO visitor_rollup_days (visit_date, dirty) VALUES (:day, TRUE) " +
+          "ON CONFLICT (visit_date) DO UPDATE SET dirty = TRUE";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final int maxDaysPerRun;
+  private final DayBucketCache<Map<DayBuckets.UriKey, RoaringBitmap>> cache;
+  private final Clock clock;
+
+  public VisitorBitmaps(NamedParameterJdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${stats.visitors.bitmaps.enabled:true}") boolean enabled,
+                        @Value("${stats.visitors.rollup-max-days:31}") int maxDaysPerRun,
+                        @Value("${stats.cache.enabled:true}") boolean cacheEnabled,
+                        @Value("${stats.cache.visitors.max-bytes:67108864}") long cacheMaxBytes,
+                        @Value("${stats.cache.fill-max-days:31}") int cacheFillMaxDays,
+                        MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.enabled = enabled;
+    this.maxDaysPerRun = maxDaysPerRun;
+    this.cache = new DayBucketCache<>("daily-visitors", cacheEnabled ? cacheMaxBytes : 0, cacheFillMaxDays,
+            VisitorBitmaps::weigh, meterRegistry);
+    this.clock = Clock.systemDefaultZone();
+  }
+
+  /**
+   * Есть ли в диапазоне хотя бы один целый день, который можно взять из карт.
+   */
+  public boolean covers(LocalDateTime start, LocalDateTime end) {
+    return enabled && start != null && end != null && !DayBuckets.firstFullDay(start).isAfter(DayBuckets.lastFullDay(end));
+  }
+
+  /**
+   * Состояние дней и карты читаются из одного снимка (REPEATABLE READ), иначе день, свёрнутый
+   * между запросами, не попал бы ни в карты, ни в выборку из hits.
+   */
+  @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+  public List<ViewStatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+    boolean hasUris = uris != null && !uris.isEmpty();
+    long stamp = cache.stamp();
+    MapSqlParameterSource params = new MapSqlParameterSource("uris", uris);
+    Set<LocalDate> built = builtDays(DayBuckets.firstFullDay(start), DayBuckets.lastFullDay(end));
+    Map<LocalDate, Map<DayBuckets.UriKey, RoaringBitmap>> byDay = new HashMap<>(cache.getAll(built));
+    Set<LocalDate> missing = new HashSet<>(built);
+    missing.removeAll(byDay.keySet());
+    List<LocalDate> fill = cache.fillable(missing);
+    if (!fill.isEmpty()) {
+      Map<LocalDate, Map<DayBuckets.UriKey, RoaringBitmap>> loaded = loadBitmaps(fill, null);
+      cache.putAll(loaded, stamp);
+      byDay.putAll(loaded);
+      fill.forEach(missing::remove);
+    }
+    if (!missing.isEmpty()) {
+      byDay.putAll(loadBitmaps(missing, uris));
+    }
+    Set<String> uriFilter = hasUris ? new HashSet<>(uris) : null;
+    Map<DayBuckets.UriKey, Visitors> result = new HashMap<>();
+    byDay.values().forEach(bitmaps -> bitmaps.forEach((key, bitmap) -> {
+      if (uriFilter == null || uriFilter.contains(key.uri())) {
+        result.computeIfAbsent(key, k -> new Visitors()).ids.or(bitmap);
+      }
+    }));
+    for (DayBuckets.Interval interval : DayBuckets.rawIntervals(start, end, built::contains)) {
+      params.addValue("start", Timestamp.valueOf(interval.from()))
+              .addValue("end", Timestamp.valueOf(interval.to()));
+      jdbcTemplate.query("SELECT DISTINCT h.app, h.uri, h.ip, v.id FROM hits h " +
+              "LEFT JOIN visitor_ids v ON v.ip = h.ip " +
+              "WHERE " + interval.condition() + " AND NOT h.bot" + (hasUris ? " AND h.uri IN (:uris)" : ""), params, rs -> {
+                Visitors uriVisitors = result.computeIfAbsent(
+                        new DayBuckets.UriKey(rs.getString(1), rs.getString(2)), k -> new Visitors());
+                int id = rs.getInt(4);
+                if (rs.wasNull()) {
+                  // IP без id ещё не попадал ни в одну карту
+                  uriVisitors.unmappedIps.add(rs.getString(3));
+                } else {
+                  uriVisitors.ids.add(id);
+                }
+              });
+    }
+    return result.entrySet().stream()
+            .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(), entry.getValue().count()))
+            .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+            .toList();
+  }
+
+  // Карты дней; при непустом uris - только этих uri
+  private Map<LocalDate, Map<DayBuckets.UriKey, RoaringBitmap>> loadBitmaps(Collection<LocalDate> days,
+                                                                             List<String> uris) {
+    boolean hasUris = uris != null && !uris.isEmpty();
+    Map<LocalDate, Map<DayBuckets.UriKey, RoaringBitmap>> loaded = new HashMap<>();
+    days.forEach(day -> loaded.put(day, new HashMap<>()));
+    jdbcTemplate.query("SELECT d.visit_date, d.app, d.uri, d.visitors FROM daily_visitors d " +
+            "WHERE d.visit_date IN (:days)" + (hasUris ? " AND d.uri IN (:uris)" : ""),
+            new MapSqlParameterSource("days", days).addValue("uris", uris), rs -> {
+              loaded.get(rs.getObject(1, LocalDate.class))
+                      .put(new DayBuckets.UriKey(rs.getString(2), rs.getString(3)), deserialize(rs.getBytes(4)));
+            });
+    return loaded;
+  }
+
+  /**
+   * Свёрнутые дни без поздних хитов: их карты точны.
+   */
+  public Set<LocalDate> builtDays(LocalDate from, LocalDate to) {
+    if (!enabled || from.isAfter(to)) {
+      return Set.of();
+    }
+    return new HashSet<>(jdbcTemplate.queryForList("SELECT visit_date FROM visitor_rollup_days " +
+            "WHERE visit_date BETWEEN :from AND :to AND NOT dirty",
+            new MapSqlParameterSource("from", from).addValue("to", to), LocalDate.class));
+  }
+
+  /**
+   * Хит за уже закрытый день: день пересчитывается при следующей свёртке, а до тех пор
+   * считается по hits. Вызывается в транзакции записи хита.
+   */
+  public void onHitSaved(LocalDateTime timestamp) {
+    if (enabled && timestamp.toLocalDate().isBefore(LocalDate.now(clock))) {
+      jdbcTemplate.update(LOCK_DAY, new MapSqlParameterSource("day", timestamp.toLocalDate()));
+      cache.invalidateAfterCommit(timestamp.toLocalDate());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${stats.visitors.rollup-interval-ms:60000}")
+  public synchronized void rollup() {
+    if (!enabled) {
+      return;
+    }
+    LocalDate yesterday = LocalDate.now(clock).minusDays(1);
+    List<LocalDate> days = new ArrayList<>(jdbcTemplate.queryForList("SELECT visit_date FROM visitor_rollup_days " +
+            "WHERE dirty AND visit_date <= :yesterday ORDER BY visit_date LIMIT :limit",
+            new MapSqlParameterSource("yesterday", yesterday).addValue("limit", maxDaysPerRun), LocalDate.class));
+    LocalDate next = nextUnbuiltDay();
+    while (next != null && !next.isAfter(yesterday) && days.size() < maxDaysPerRun) {
+      if (!days.contains(next)) {
+        days.add(next);
+      }
+      next = next.plusDays(1);
+    }
+    for (LocalDate day : days) {
+      try {
+        int uris = transactionTemplate.execute(status -> rollupDay(day));
+        log.debug("Visitor bitmaps for {} built: {} uris", day, uris);
+      } catch (RuntimeException e) {
+        log.error("Visitor bitmap rollup for {} failed", day, e);
+        return;
+      }
+    }
+  }
+
+  int rollupDay(LocalDate day) {
+    MapSqlParameterSource params = new MapSqlParameterSource("day", day)
+            .addValue("start", Timestamp.valueOf(day.atStartOfDay()))
+            .addValue("end", Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    // Блокировка строки дня: поздний хит за этот день дождётся коммита и снова пометит день
+    jdbcTemplate.update(LOCK_DAY, params);
+    jdbcTemplate.update("INSERT INTO visitor_ids (ip) SELECT DISTINCT ip FROM hits " +
+            "WHERE created >= :start AND created < :end AND NOT bot ON CONFLICT (ip) DO NOTHING", params);
+    Map<DayBuckets.UriKey, RoaringBitmap> bitmaps = new HashMap<>();
+    jdbcTemplate.query("SELECT h.app, h.uri, v.id FROM hits h JOIN visitor_ids v ON v.ip = h.ip " +
+            "WHERE h.created >= :start AND h.created < :end AND NOT h.bot", params, rs -> {
+              bitmaps.computeIfAbsent(new DayBuckets.UriKey(rs.getString(1), rs.getString(2)), k -> new RoaringBitmap())
+                      .add(rs.getInt(3));
+            });
+    jdbcTemplate.update("DELETE FROM daily_visitors WHERE visit_date = :day", params);
+    List<MapSqlParameterSource> rows = new ArrayList<>(bitmaps.size());
+    bitmaps.forEach((key, bitmap) -> rows.add(new MapSqlParameterSource("day", day)
+            .addValue("uri", key.uri())
+            .addValue("app", key.app())
+            .addValue("visitors", serialize(bitmap))));
+    jdbcTemplate.batchUpdate("INSERT INTO daily_visitors (visit_date, uri, app, visitors) " +
+            "VALUES (:day, :uri, :app, :visitors)", rows.toArray(MapSqlParameterSource[]::new));
+    jdbcTemplate.update("UPDATE visitor_rollup_days SET dirty = FALSE, built_on = :builtOn WHERE visit_date = :day",
+            params.addValue("builtOn", Timestamp.valueOf(LocalDateTime.now(clock))));
+    cache.invalidateAfterCommit(day);
+    return bitmaps.size();
+  }
+
+  private LocalDate nextUnbuiltDay() {
+    LocalDate lastBuilt = jdbcTemplate.getJdbcTemplate().queryForObject(
+            "SELECT MAX(visit_date) FROM visitor_rollup_days WHERE built_on IS NOT NULL", LocalDate.class);
+    if (lastBuilt != null) {
+      return lastBuilt.plusDays(1);
+    }
+    Timestamp firstHit = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MIN(created) FROM hits",
+            Timestamp.class);
+    return firstHit != null ? firstHit.toLocalDateTime().toLocalDate() : null;
+  }
+
+  private static long weigh(Map<DayBuckets.UriKey, RoaringBitmap> bitmaps) {
+    long size = 64;
+    for (Map.Entry<DayBuckets.UriKey, RoaringBitmap> entry : bitmaps.entrySet()) {
+      size += entry.getKey().estimatedSize() + entry.getValue().getLongSizeInBytes();
+    }
+    return size;
+  }
+
+  static byte[] serialize(RoaringBitmap bitmap) {
+    bitmap.runOptimize();
+    ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+    bitmap.serialize(buffer);
+    return buffer.array();
+  }
+
+  static RoaringBitmap deserialize(byte[] bytes) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    try {
+      bitmap.deserialize(new DataInputStream(new ByteArrayInputStream(bytes)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bitmap;
+  }
+
+  private static final class Visitors {
+
+    private final RoaringBitmap ids = new RoaringBitmap();
+    private final Set<String> unmappedIps = new HashSet<>();
+
+    long count() {
+      return ids.getLongCardinality() + unmappedIps.size();
+    }
+  }
+}
@@ -3,5 +3,53 @@ CREATE TABLE IF NOT EXISTS hits (
     app VARCHAR(255) NOT NULL,
     uri VARCHAR(512) NOT NULL,
     ip VARCHAR(45) NOT NULL,
-    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    client_hit_id BIGINT,
+    bot BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+ALTER TABLE hits ADD COLUMN IF NOT EXISTS client_hit_id BIGINT;
+ALTER TABLE hits ADD COLUMN IF NOT EXISTS bot BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_hits_uri_ip ON hits (uri, ip);
+CREATE INDEX IF NOT EXISTS idx_hits_created ON hits (created);
+-- Диапазоны uri по префиксу (~>=~ и ~<~) при любой collation базы
+CREATE INDEX IF NOT EXISTS idx_hits_uri_pattern ON hits (uri text_pattern_ops, created);
+
+-- Повторная отправка хита с тем же id не создаёт вторую строку
+CREATE UNIQUE INDEX IF NOT EXISTS uq_hits_app_client_hit_id ON hits (app, client_hit_id);
+
+-- Посетители uri: вставка новой пары (uri, ip) - первый визит, который уходит в /stats/stream
+CREATE TABLE IF NOT EXISTS uri_visitors (
+    uri VARCHAR(512) NOT NULL,
+    ip VARCHAR(45) NOT NULL,
+    PRIMARY KEY (uri, ip)
+);
+CREATE INDEX IF NOT EXISTS idx_uri_visitors_uri_pattern ON uri_visitors (uri text_pattern_ops);
+
+-- Однократное заполнение из hits, пока таблица пуста
+INSERT INTO uri_visitors (uri, ip)
+SELECT DISTINCT uri, ip FROM hits WHERE NOT bot AND NOT EXISTS (SELECT 1 FROM uri_visitors)
+ON CONFLICT DO NOTHING;
+
+-- Компактные id посетителей для битовых карт daily_visitors
+CREATE TABLE IF NOT EXISTS visitor_ids (
+    id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    ip VARCHAR(45) NOT NULL UNIQUE
+);
+
+-- Roaring bitmap id посетителей (app, uri) за закрытый день
+CREATE TABLE IF NOT EXISTS daily_visitors (
+    visit_date DATE NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    visitors BYTEA NOT NULL,
+    PRIMARY KEY (visit_date, uri, app)
+);
+
+-- Свёрнутые дни; dirty - день ещё не свёрнут или получил поздние хиты и считается по hits
+CREATE TABLE IF NOT EXISTS visitor_rollup_days (
+    visit_date DATE PRIMARY KEY,
+    dirty BOOLEAN NOT NULL,
+    built_on TIMESTAMP WITHOUT TIME ZONE
+);
@@ -10,12 +10,27 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.controller.StatsController;
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
+import ru.practicum.dto.TimeSeriesInterval;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.binary.StatsBinaryCodec;
+import ru.practicum.dto.export.ExportFormat;
+import ru.practicum.dto.export.ExportJobs;
+import ru.practicum.service.HitExportService;
 import ru.practicum.service.StatsService;
+import ru.practicum.service.TimeSeriesService;
+import ru.practicum.service.ViewDeltaPublisher;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +49,15 @@ class StatsControllerTest {
   @MockBean
   private StatsService statsService;
 
+  @MockBean
+  private ViewDeltaPublisher viewDeltaPublisher;
+
+  @MockBean
+  private HitExportService hitExportService;
+
+  @MockBean
+  private TimeSeriesService timeSeriesService;
+
   private EndPointHitDto endPointHitDto;
   private ViewStatsDto viewStatsDto;
   private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -87,7 +111,7 @@ class StatsControllerTest {
     List<ViewStatsDto> stats = List.of(viewStatsDto);
 
     when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            anyList(), anyBoolean())).thenReturn(stats);
+            anyList(), anyBoolean(), eq(StatsGroupBy.URI))).thenReturn(stats);
 
     // When & Then
     mockMvc.perform(get("/stats")
@@ -101,7 +125,7 @@ class StatsControllerTest {
             .andExpect(jsonPath("$[0].hits").value(6));
 
     verify(statsService, times(1)).getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            eq(List.of("/events/1")), eq(false));
+            eq(List.of("/events/1")), eq(false), eq(StatsGroupBy.URI));
   }
 
   @Test
@@ -116,7 +140,7 @@ class StatsControllerTest {
     );
 
     when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            eq(null), eq(false))).thenReturn(stats);
+            eq(null), eq(false), eq(StatsGroupBy.URI))).thenReturn(stats);
 
     // When & Then
     mockMvc.perform(get("/stats")
@@ -127,7 +151,7 @@ class StatsControllerTest {
             .andExpect(jsonPath("$.length()").value(2));
 
     verify(statsService, times(1)).getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            eq(null), eq(false));
+            eq(null), eq(false), eq(StatsGroupBy.URI));
   }
 
   @Test
@@ -139,7 +163,7 @@ class StatsControllerTest {
     List<ViewStatsDto> stats = List.of(viewStatsDto);
 
     when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            eq(null), eq(true))).thenReturn(stats);
+            eq(null), eq(true), eq(StatsGroupBy.URI))).thenReturn(stats);
 
     // When & Then
     mockMvc.perform(get("/stats")
@@ -150,7 +174,7 @@ class StatsControllerTest {
             .andExpect(jsonPath("$[0].hits").value(6));
 
     verify(statsService, times(1)).getStats(any(LocalDateTime.class), any(LocalDateTime.class),
-            eq(null), eq(true));
+            eq(null), eq(true), eq(StatsGroupBy.URI));
   }
 
   @Test
@@ -168,4 +192,194 @@ class StatsControllerTest {
                     .param("end", "2025-11-04 12:00:00"))
             .andExpect(status().isBadRequest());
   }
-}
\ No newline at end of file
+
+  @Test
+  void saveHit_WithBinaryBody_ShouldDecodeAndReturn201() throws Exception {
+    mockMvc.perform(post("/hit")
+                    .contentType(StatsBinaryCodec.MEDIA_TYPE)
+                    .content(StatsBinaryCodec.encodeHits(List.of(endPointHitDto), false)))
+            .andExpect(status().isCreated());
+
+    verify(statsService, times(1)).saveHit(argThat(hit ->
+            hit.getUri().equals("/events/1") && hit.getIp().equals("192.168.1.1")));
+  }
+
+  @Test
+  void saveHit_WithBinaryCountBeyondBody_ShouldReturn400() throws Exception {
+    byte[] frame = {(byte) 0xE7, 1, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+    mockMvc.perform(post("/hit")
+                    .contentType(StatsBinaryCodec.MEDIA_TYPE)
+                    .content(frame))
+            .andExpect(status().isBadRequest());
+
+    verify(statsService, never()).saveHit(any());
+  }
+
+  @Test
+  void saveHit_WithBinaryGzipBomb_ShouldReturn413() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(new byte[]{(byte) 0xE7, 1, 1, 1});
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      byte[] zeros = new byte[1 << 20];
+      for (int i = 0; i <= StatsBinaryCodec.MAX_BODY_BYTES / zeros.length; i++) {
+        gzip.write(zeros);
+      }
+    }
+
+    mockMvc.perform(post("/hit")
+                    .contentType(StatsBinaryCodec.MEDIA_TYPE)
+                    .content(out.toByteArray()))
+            .andExpect(status().isPayloadTooLarge());
+
+    verify(statsService, never()).saveHit(any());
+  }
+
+  @Test
+  void getStats_WithBinaryAccept_ShouldReturnBinaryFrame() throws Exception {
+    LocalDateTime start = LocalDateTime.now().minusDays(1);
+    LocalDateTime end = LocalDateTime.now().plusDays(1);
+
+    when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class),
+            eq(null), eq(false), eq(StatsGroupBy.URI))).thenReturn(List.of(viewStatsDto));
+
+    byte[] body = mockMvc.perform(get("/stats")
+                    .accept(StatsBinaryCodec.MEDIA_TYPE)
+                    .param("start", start.format(formatter))
+                    .param("end", end.format(formatter)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(StatsBinaryCodec.MEDIA_TYPE))
+            .andReturn().getResponse().getContentAsByteArray();
+
+    List<ViewStatsDto> decoded = StatsBinaryCodec.decodeViewStats(body);
+    org.assertj.core.api.Assertions.assertThat(decoded).containsExactly(viewStatsDto);
+  }
+
+  @Test
+  void exportHits_ShouldStreamCsvWithExportHeaders() throws Exception {
+    ExportJobs.Job job = new ExportJobs().start("hits");
+    when(hitExportService.start()).thenReturn(job);
+    doAnswer(invocation -> {
+      OutputStream out = invocation.getArgument(1);
+      out.write("id,app,uri,ip,timestamp\n".getBytes(StandardCharsets.UTF_8));
+      return null;
+    }).when(hitExportService).write(eq(job), any(OutputStream.class), eq(ExportFormat.CSV), eq(false),
+            eq(null), eq(null));
+
+    var result = mockMvc.perform(get("/export/hits"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv"))
+            .andExpect(header().string("X-Export-Id", job.getId()))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"hits.csv\""))
+            .andExpect(content().string("id,app,uri,ip,timestamp\n"));
+  }
+
+  @Test
+  void exportHits_WithUnknownFormat_ShouldReturn400() throws Exception {
+    mockMvc.perform(get("/export/hits").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+
+    verify(hitExportService, never()).start();
+  }
+
+  @Test
+  void cancelExport_WithUnknownId_ShouldReturn404() throws Exception {
+    when(hitExportService.cancel("missing")).thenReturn(false);
+
+    mockMvc.perform(delete("/export/{exportId}", "missing"))
+            .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void getStats_GroupedByPrefix_ShouldPassPatterns() throws Exception {
+    when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class),
+            eq(List.of("/events/*", "/compilations/*")), eq(true), eq(StatsGroupBy.PREFIX)))
+            .thenReturn(List.of(new ViewStatsDto("ewm-main-service", "/events/*", 12L)));
+
+    mockMvc.perform(get("/stats")
+                    .param("start", "2024-05-10 00:00:00")
+                    .param("end", "2024-05-11 00:00:00")
+                    .param("uris", "/events/*", "/compilations/*")
+                    .param("unique", "true")
+                    .param("groupBy", "prefix"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].uri").value("/events/*"))
+            .andExpect(jsonPath("$[0].hits").value(12));
+  }
+
+  @Test
+  void getStats_WithUnknownGroupBy_ShouldReturn400() throws Exception {
+    mockMvc.perform(get("/stats")
+                    .param("start", "2024-05-10 00:00:00")
+                    .param("end", "2024-05-11 00:00:00")
+                    .param("groupBy", "app"))
+            .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(statsService);
+  }
+
+  @Test
+  void queryStats_ShouldReturnCountsById() throws Exception {
+    when(statsService.query(any(StatsQueryDto.class)))
+            .thenReturn(new StatsQueryResultDto(Map.of(1L, 7L, 2L, 3L), Map.of()));
+
+    mockMvc.perform(post("/stats/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"start\":\"2024-05-10 00:00:00\",\"end\":\"2024-05-11 00:00:00\"," +
+                            "\"uriPrefix\":\"/events/\",\"ids\":[1,2,5],\"unique\":true}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.byId.1").value(7))
+            .andExpect(jsonPath("$.byId.2").value(3));
+
+    verify(statsService).query(argThat(query -> query.isUnique() && query.getIds().equals(List.of(1L, 2L, 5L))));
+  }
+
+  @Test
+  void queryStats_WithoutStart_ShouldReturn400() throws Exception {
+    mockMvc.perform(post("/stats/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"end\":\"2024-05-11 00:00:00\",\"uris\":[\"/events/1\"]}"))
+            .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(statsService);
+  }
+
+  @Test
+  void getTimeSeries_ShouldStreamNdjsonBuckets() throws Exception {
+    String row = "{\"bucket\":\"2024-05-10 12:00:00\",\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":3}\n";
+    doAnswer(invocation -> {
+      OutputStream out = invocation.getArgument(0);
+      out.write(row.getBytes(StandardCharsets.UTF_8));
+      return null;
+    }).when(timeSeriesService).write(any(OutputStream.class), eq(ExportFormat.NDJSON), any(), any(),
+            eq(TimeSeriesInterval.HOUR), eq(List.of("/events/1")), eq(true));
+
+    var result = mockMvc.perform(get("/stats/timeseries")
+                    .param("start", "2024-05-10 00:00:00")
+                    .param("end", "2024-05-10 23:59:59")
+                    .param("uris", "/events/1")
+                    .param("unique", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(content().string(row));
+  }
+
+  @Test
+  void getTimeSeries_WithUnknownInterval_ShouldReturn400() throws Exception {
+    mockMvc.perform(get("/stats/timeseries")
+                    .param("start", "2024-05-10 00:00:00")
+                    .param("end", "2024-05-10 23:59:59")
+                    .param("interval", "week"))
+            .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(timeSeriesService);
+  }
+}
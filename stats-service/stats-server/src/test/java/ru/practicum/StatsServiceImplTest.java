@@ -7,17 +7,28 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.dto.EndPointHitDto;
+import ru.practicum.dto.StatsGroupBy;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.StatsQueryResultDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.model.Hit;
 import ru.practicum.repository.StatsRepository;
+import ru.practicum.service.DailyHitCounts;
+import ru.practicum.service.HitIngestFilter;
+import ru.practicum.service.ParallelStats;
 import ru.practicum.service.StatsServiceImpl;
+import ru.practicum.service.UriPatternStats;
+import ru.practicum.service.VisitorBitmaps;
+import ru.practicum.service.ViewDeltaPublisher;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +37,24 @@ class StatsServiceImplTest {
   @Mock
   private StatsRepository statsRepository;
 
+  @Mock
+  private ViewDeltaPublisher viewDeltaPublisher;
+
+  @Mock
+  private HitIngestFilter hitIngestFilter;
+
+  @Mock
+  private VisitorBitmaps visitorBitmaps;
+
+  @Mock
+  private DailyHitCounts dailyHitCounts;
+
+  @Mock
+  private UriPatternStats uriPatternStats;
+
+  @Mock
+  private ParallelStats parallelStats;
+
   @InjectMocks
   private StatsServiceImpl statsService;
 
@@ -55,6 +84,89 @@ class StatsServiceImplTest {
     verify(statsRepository, times(1)).save(any(Hit.class));
   }
 
+  @Test
+  void saveHit_FromVisitor_ShouldRecordVisitForViewStream() {
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository).save(any(Hit.class));
+    verify(viewDeltaPublisher).recordVisit("/events/1", "192.168.1.1");
+  }
+
+  @Test
+  void saveHit_FromBot_ShouldDropHit() {
+    // Given
+    endPointHitDto.setUserAgent("Googlebot/2.1");
+    when(hitIngestFilter.isBot("Googlebot/2.1")).thenReturn(true);
+    when(hitIngestFilter.dropsBots()).thenReturn(true);
+
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository, never()).save(any(Hit.class));
+    verify(hitIngestFilter).count(HitIngestFilter.Outcome.BOT);
+  }
+
+  @Test
+  void saveHit_FromBotInTagMode_ShouldSaveTaggedHitWithoutPublishing() {
+    // Given
+    when(hitIngestFilter.isBot(any())).thenReturn(true);
+
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository).save(argThat(Hit::isBot));
+    verify(viewDeltaPublisher, never()).recordVisit(any(), any());
+  }
+
+  @Test
+  void saveHit_RetryWithSameId_ShouldNotSaveTwice() {
+    // Given
+    endPointHitDto.setId(42L);
+    when(statsRepository.insertUnlessRetry(argThat(hit -> hit.getClientHitId() == 42L))).thenReturn(0);
+
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository, never()).save(any(Hit.class));
+    verify(hitIngestFilter).count(HitIngestFilter.Outcome.RETRY);
+    verify(hitIngestFilter, never()).recordAccepted(any());
+    verify(viewDeltaPublisher, never()).recordVisit(any(), any());
+  }
+
+  @Test
+  void saveHit_WithClientId_ShouldInsertIgnoringConflicts() {
+    // Given
+    endPointHitDto.setId(43L);
+    when(statsRepository.insertUnlessRetry(any(Hit.class))).thenReturn(1);
+
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository, never()).save(any(Hit.class));
+    verify(hitIngestFilter).recordAccepted(endPointHitDto);
+    verify(viewDeltaPublisher).recordVisit("/events/1", "192.168.1.1");
+  }
+
+  @Test
+  void saveHit_DuplicateInWindow_ShouldDropHit() {
+    // Given
+    when(hitIngestFilter.isDuplicate(endPointHitDto)).thenReturn(true);
+
+    // When
+    statsService.saveHit(endPointHitDto);
+
+    // Then
+    verify(statsRepository, never()).save(any(Hit.class));
+    verify(hitIngestFilter).count(HitIngestFilter.Outcome.DUPLICATE);
+    verify(hitIngestFilter, never()).recordAccepted(any());
+  }
+
   @Test
   void getStats_WithUniqueFalseAndNoUris_ShouldReturnAllStats() {
     // Given
@@ -92,6 +204,54 @@ class StatsServiceImplTest {
     verify(statsRepository, times(1)).findUniqueStats(start, end);
   }
 
+  @Test
+  void getStats_UniqueOverFullDays_ShouldUseVisitorBitmaps() {
+    // Given
+    List<String> uris = List.of("/events/1");
+    List<ViewStatsDto> expectedStats = List.of(new ViewStatsDto("ewm-main-service", "/events/1", 7L));
+    when(visitorBitmaps.covers(start, end)).thenReturn(true);
+    when(visitorBitmaps.getUniqueStats(start, end, uris)).thenReturn(expectedStats);
+
+    // When
+    List<ViewStatsDto> result = statsService.getStats(start, end, uris, true);
+
+    // Then
+    assertThat(result).isEqualTo(expectedStats);
+    verify(statsRepository, never()).findUniqueStatsByUris(any(), any(), any());
+  }
+
+  @Test
+  void getStats_OverClosedDays_ShouldUseDailyHitCounts() {
+    // Given
+    List<String> uris = List.of("/events/1");
+    List<ViewStatsDto> expectedStats = List.of(new ViewStatsDto("ewm-main-service", "/events/1", 12L));
+    when(dailyHitCounts.covers(start, end)).thenReturn(true);
+    when(dailyHitCounts.getStats(start, end, uris)).thenReturn(expectedStats);
+
+    // When
+    List<ViewStatsDto> result = statsService.getStats(start, end, uris, false);
+
+    // Then
+    assertThat(result).isEqualTo(expectedStats);
+    verify(statsRepository, never()).findStatsByUris(any(), any(), any());
+  }
+
+  @Test
+  void getStats_LongRangeWithoutCache_ShouldUseParallelShards() {
+    // Given
+    List<String> uris = List.of("/events/1");
+    List<ViewStatsDto> expectedStats = List.of(new ViewStatsDto("ewm-main-service", "/events/1", 3L));
+    when(parallelStats.splits(start, end)).thenReturn(true);
+    when(parallelStats.getStats(start, end, uris, true)).thenReturn(expectedStats);
+
+    // When
+    List<ViewStatsDto> result = statsService.getStats(start, end, uris, true);
+
+    // Then
+    assertThat(result).isEqualTo(expectedStats);
+    verify(statsRepository, never()).findUniqueStatsByUris(any(), any(), any());
+  }
+
   @Test
   void getStats_WithUrisAndUniqueFalse_ShouldReturnFilteredStats() {
     // Given
@@ -155,4 +315,53 @@ class StatsServiceImplTest {
     assertThat(result).hasSize(1);
     verify(statsRepository, times(1)).findStats(start, end);
   }
-}
\ No newline at end of file
+
+  @Test
+  void getStats_WithUriPattern_ShouldUsePatternRanges() {
+    // Given
+    List<String> uris = List.of("/events/*", "/compilations/1");
+    List<ViewStatsDto> expectedStats = List.of(new ViewStatsDto("ewm-main-service", "/events/4", 3L));
+    when(uriPatternStats.getStats(start, end, uris, false, StatsGroupBy.URI)).thenReturn(expectedStats);
+
+    // When
+    List<ViewStatsDto> result = statsService.getStats(start, end, uris, false);
+
+    // Then
+    assertThat(result).isEqualTo(expectedStats);
+    verifyNoInteractions(statsRepository, dailyHitCounts);
+  }
+
+  @Test
+  void query_WithPrefixAndIds_ShouldReturnCountsById() {
+    // Given
+    StatsQueryDto query = StatsQueryDto.builder()
+            .start(start)
+            .end(end)
+            .uris(List.of("/events"))
+            .uriPrefix("/events/")
+            .ids(List.of(1L, 2L, 3L))
+            .unique(true)
+            .build();
+    when(statsRepository.findUniqueStatsByUris(start, end, List.of("/events", "/events/1", "/events/2", "/events/3")))
+            .thenReturn(List.of(
+                    new ViewStatsDto("ewm-main-service", "/events/2", 4L),
+                    new ViewStatsDto("ewm-main-service", "/events", 9L),
+                    new ViewStatsDto("ewm-main-service", "/events/1", 1L)));
+
+    // When
+    StatsQueryResultDto result = statsService.query(query);
+
+    // Then
+    assertThat(result.getById()).isEqualTo(Map.of(1L, 1L, 2L, 4L));
+    assertThat(result.getByUri()).isEqualTo(Map.of("/events", 9L));
+  }
+
+  @Test
+  void query_WithIdsWithoutPrefix_ShouldThrowException() {
+    StatsQueryDto query = StatsQueryDto.builder().start(start).end(end).ids(List.of(1L)).build();
+
+    assertThatThrownBy(() -> statsService.query(query))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("uriPrefix is required with ids");
+  }
+}
@@ -0,0 +1,139 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.controller.StatsController;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.service.HitExportService;
+import ru.practicum.service.StatsService;
+import ru.practicum.service.TimeSeriesService;
+import ru.practicum.service.ViewDeltaPublisher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+class ViewDeltaPublisherTest {
+
+  @Mock
+  private NamedParameterJdbcTemplate jdbcTemplate;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private StatsService statsService;
+
+  @Mock
+  private HitExportService hitExportService;
+
+  @Mock
+  private TimeSeriesService timeSeriesService;
+
+  private ViewDeltaPublisher publisher;
+  private MockMvc mockMvc;
+
+  @BeforeEach
+  void setUp() {
+    publisher = new ViewDeltaPublisher(jdbcTemplate, transactionManager);
+    mockMvc = MockMvcBuilders.standaloneSetup(new StatsController(statsService, publisher, hitExportService,
+            timeSeriesService)).build();
+  }
+
+  @Test
+  void subscribe_ShouldSendSnapshotThenBatchedDeltas() throws Exception {
+    // Given
+    givenSnapshot("100:100:", List.of(new ViewStatsDto(null, "/events/1", 5L)));
+
+    // When
+    MvcResult result = mockMvc.perform(get("/stats/stream").param("uriPrefix", "/events/"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    visit("/events/1", 101L);
+    visit("/events/1", 102L);
+    visit("/compilations/1", 103L);
+    publisher.flush();
+
+    // Then
+    String body = result.getResponse().getContentAsString();
+    assertThat(body).contains("event:snapshot", "\"uri\":\"/events/1\",\"hits\":5");
+    assertThat(body).contains("event:delta", "\"uri\":\"/events/1\",\"hits\":2");
+    assertThat(body).doesNotContain("/compilations/1");
+    assertThat(body.indexOf("event:snapshot")).isLessThan(body.indexOf("event:delta"));
+  }
+
+  @Test
+  void flush_ShouldSkipVisitsAlreadyCountedInSnapshot() throws Exception {
+    // Given: 99 завершилась до снимка, 102 выполнялась во время снимка, 106 началась после
+    givenSnapshot("100:105:102", List.of(new ViewStatsDto(null, "/events/1", 5L)));
+    MvcResult result = mockMvc.perform(get("/stats/stream").param("uriPrefix", "/events/"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // When
+    visit("/events/1", 99L);
+    visit("/events/1", 101L);
+    visit("/events/2", 102L);
+    visit("/events/3", 106L);
+    publisher.flush();
+
+    // Then
+    String body = result.getResponse().getContentAsString();
+    assertThat(body).doesNotContain("\"uri\":\"/events/1\",\"hits\":1");
+    assertThat(body).contains("\"uri\":\"/events/2\",\"hits\":1", "\"uri\":\"/events/3\",\"hits\":1");
+  }
+
+  @Test
+  void recordVisit_WhenVisitorAlreadyKnown_ShouldNotPublish() {
+    when(jdbcTemplate.queryForList(startsWith("INSERT INTO uri_visitors"), any(SqlParameterSource.class),
+            eq(Long.class))).thenReturn(List.of());
+
+    assertThat(publisher.recordVisit("/events/1", "10.0.0.1")).isFalse();
+  }
+
+  @Test
+  void flush_WithoutPendingHits_ShouldSendNothing() throws Exception {
+    // Given
+    givenSnapshot("100:100:", List.of());
+    MvcResult result = mockMvc.perform(get("/stats/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    String afterSnapshot = result.getResponse().getContentAsString();
+
+    // When
+    publisher.flush();
+
+    // Then
+    assertThat(result.getResponse().getContentAsString()).isEqualTo(afterSnapshot);
+  }
+
+  private void givenSnapshot(String transactions, List<ViewStatsDto> counts) {
+    when(jdbcTemplate.queryForObject(startsWith("SELECT CAST(pg_current_snapshot()"), any(SqlParameterSource.class),
+            eq(String.class))).thenReturn(transactions);
+    when(jdbcTemplate.query(startsWith("SELECT uri, COUNT(*) FROM uri_visitors"), any(SqlParameterSource.class),
+            any(RowMapper.class))).thenReturn(counts);
+  }
+
+  private void visit(String uri, long xid) {
+    when(jdbcTemplate.queryForList(startsWith("INSERT INTO uri_visitors"), any(SqlParameterSource.class),
+            eq(Long.class))).thenReturn(List.of(xid));
+    assertThat(publisher.recordVisit(uri, "10.0.0.1")).isTrue();
+  }
+}
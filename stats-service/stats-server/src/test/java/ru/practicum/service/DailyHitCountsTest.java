@@ -0,0 +1,172 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DailyHitCountsTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2024, 5, 10);
+  private static final String APP = "ewm-main-service";
+
+  private NamedParameterJdbcTemplate jdbcTemplate;
+  private DailyHitCounts dailyHitCounts;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    dailyHitCounts = dailyHitCounts(30);
+
+    // Закрытые дни: 8-е и 9-е, по всем uri
+    doAnswer(invocation -> {
+      SqlParameterSource params = invocation.getArgument(1);
+      LocalDate from = ((Timestamp) params.getValue("start")).toLocalDateTime().toLocalDate();
+      LocalDate to = ((Timestamp) params.getValue("end")).toLocalDateTime().toLocalDate();
+      RowCallbackHandler handler = invocation.getArgument(2);
+      for (Object[] row : List.of(
+              new Object[]{TODAY.minusDays(2), "/events/1", 3},
+              new Object[]{TODAY.minusDays(1), "/events/1", 2},
+              new Object[]{TODAY.minusDays(1), "/events/2", 5})) {
+        LocalDate day = (LocalDate) row[0];
+        if (!day.isBefore(from) && day.isBefore(to)) {
+          handler.processRow(row(Date.valueOf(day), APP, row[1], row[2]));
+        }
+      }
+      return null;
+    }).when(jdbcTemplate).query(startsWith("SELECT CAST"), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    // Остаток: сегодняшний день
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = invocation.getArgument(2);
+      handler.processRow(row(APP, "/events/1", 4));
+      return null;
+    }).when(jdbcTemplate).query(contains("GROUP BY h.app, h.uri"), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void getStats_ShouldSumClosedDaysAndLiveTail() {
+    LocalDateTime start = TODAY.minusDays(2).atStartOfDay();
+    LocalDateTime end = TODAY.atTime(23, 59, 59);
+
+    assertThat(dailyHitCounts.covers(start, end)).isTrue();
+    List<ViewStatsDto> result = dailyHitCounts.getStats(start, end, List.of("/events/1"));
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 9L));
+  }
+
+  @Test
+  void getStats_Repeated_ShouldReadClosedDaysOnce() {
+    LocalDateTime start = TODAY.minusDays(2).atStartOfDay();
+    LocalDateTime end = TODAY.atTime(23, 59, 59);
+
+    dailyHitCounts.getStats(start, end, List.of("/events/1"));
+    List<ViewStatsDto> result = dailyHitCounts.getStats(start, end, null);
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 9L), new ViewStatsDto(APP, "/events/2", 5L));
+    verify(jdbcTemplate, times(1)).query(startsWith("SELECT CAST"), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+    verify(jdbcTemplate, times(2)).query(contains("GROUP BY h.app, h.uri"), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void onHitSaved_ForClosedDay_ShouldReloadIt() {
+    LocalDateTime start = TODAY.minusDays(2).atStartOfDay();
+    LocalDateTime end = TODAY.minusDays(1).atTime(23, 59, 59);
+    dailyHitCounts.getStats(start, end, null);
+
+    dailyHitCounts.onHitSaved(TODAY.minusDays(1).atTime(10, 0));
+    dailyHitCounts.getStats(start, end, null);
+
+    verify(jdbcTemplate, times(2)).query(startsWith("SELECT CAST"), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void getStats_WithShortShards_ShouldLoadClosedDaysInParallel() {
+    dailyHitCounts = dailyHitCounts(1);
+
+    List<ViewStatsDto> result = dailyHitCounts.getStats(TODAY.minusDays(2).atStartOfDay(),
+            TODAY.atTime(23, 59, 59), null);
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 9L), new ViewStatsDto(APP, "/events/2", 5L));
+    verify(jdbcTemplate, times(2)).query(startsWith("SELECT CAST"), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void getStats_WithColdCache_ShouldFillLatestDaysAndCountTheRestByRequestedUris() {
+    dailyHitCounts = dailyHitCounts(30, 1);
+
+    List<ViewStatsDto> result = dailyHitCounts.getStats(TODAY.minusDays(2).atStartOfDay(),
+            TODAY.atTime(23, 59, 59), List.of("/events/1"));
+
+    // 9-е - из загруженного дня, 8-е и сегодня - по hits
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 10L));
+    verify(jdbcTemplate).query(startsWith("SELECT CAST"), argThat((SqlParameterSource params) ->
+            params.getValue("start").equals(Timestamp.valueOf(TODAY.minusDays(1).atStartOfDay()))),
+            any(RowCallbackHandler.class));
+    verify(jdbcTemplate, times(2)).query(contains("h.uri IN (:uris) GROUP BY h.app, h.uri"),
+            any(SqlParameterSource.class), any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void covers_WhenRangeIsToday_ShouldBeFalse() {
+    assertThat(dailyHitCounts.covers(TODAY.atStartOfDay(), TODAY.atTime(23, 59, 59))).isFalse();
+  }
+
+  private DailyHitCounts dailyHitCounts(int shardDays) {
+    return dailyHitCounts(shardDays, 31);
+  }
+
+  private DailyHitCounts dailyHitCounts(int shardDays, int fillMaxDays) {
+    ZoneId zone = ZoneId.systemDefault();
+    ParallelStats parallelStats = new ParallelStats(jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), 2, shardDays,
+            ParallelStats.UniqueMode.EXACT, 12, new SimpleMeterRegistry());
+    return new DailyHitCounts(jdbcTemplate, parallelStats, new DayBucketCache<>("test", 1 << 20, fillMaxDays, counts -> 1L,
+            new SimpleMeterRegistry()), Clock.fixed(TODAY.atTime(12, 0).atZone(zone).toInstant(), zone));
+  }
+
+  private static ResultSet row(Object... values) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    Map<Integer, Object> columns = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      columns.put(i + 1, values[i]);
+    }
+    when(rs.getDate(any(Integer.class))).thenAnswer(invocation -> columns.get(invocation.<Integer>getArgument(0)));
+    when(rs.getString(any(Integer.class))).thenAnswer(invocation -> columns.get(invocation.<Integer>getArgument(0)));
+    when(rs.getLong(any(Integer.class))).thenAnswer(invocation ->
+            ((Number) columns.get(invocation.<Integer>getArgument(0))).longValue());
+    return rs;
+  }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DayBucketCacheTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+  private SimpleMeterRegistry meterRegistry;
+  private DayBucketCache<String> cache;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    // Вес значения - его длина, в кэш помещается 10
+    cache = new DayBucketCache<>("test", 10, 2, value -> (long) value.length(), meterRegistry);
+  }
+
+  @Test
+  void getAll_ShouldReturnCachedDaysAndCountHits() {
+    cache.putAll(Map.of(DAY, "aaa", DAY.plusDays(1), "bbb"), cache.stamp());
+
+    Map<LocalDate, String> found = cache.getAll(List.of(DAY, DAY.plusDays(1), DAY.plusDays(2)));
+
+    assertThat(found).isEqualTo(Map.of(DAY, "aaa", DAY.plusDays(1), "bbb"));
+    assertThat(meterRegistry.get("stats.cache.gets").tag("result", "hit").counter().count()).isEqualTo(2.0);
+    assertThat(meterRegistry.get("stats.cache.gets").tag("result", "miss").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("stats.cache.size.bytes").gauge().value()).isEqualTo(6.0);
+  }
+
+  @Test
+  void putAll_AfterInvalidation_ShouldBeRejected() {
+    long stamp = cache.stamp();
+    // Поздний хит закоммичен, пока читались дни из базы
+    cache.invalidate(DAY);
+
+    cache.putAll(Map.of(DAY, "old"), stamp);
+
+    assertThat(cache.getAll(List.of(DAY))).isEmpty();
+    cache.putAll(Map.of(DAY, "new"), cache.stamp());
+    assertThat(cache.getAll(List.of(DAY))).containsEntry(DAY, "new");
+  }
+
+  @Test
+  void putAll_AfterInvalidationOfOtherDay_ShouldKeepUntouchedDays() {
+    long stamp = cache.stamp();
+    cache.invalidate(DAY);
+
+    cache.putAll(Map.of(DAY, "old", DAY.plusDays(1), "bbb"), stamp);
+
+    assertThat(cache.getAll(List.of(DAY, DAY.plusDays(1)))).isEqualTo(Map.of(DAY.plusDays(1), "bbb"));
+  }
+
+  @Test
+  void fillable_ShouldKeepLatestDaysUpToLimit() {
+    assertThat(cache.fillable(List.of(DAY.plusDays(2), DAY, DAY.plusDays(1))))
+            .containsExactly(DAY.plusDays(1), DAY.plusDays(2));
+  }
+
+  @Test
+  void putAll_OverMaxBytes_ShouldEvictLeastRecentlyRead() {
+    cache.putAll(Map.of(DAY, "aaaa"), cache.stamp());
+    cache.putAll(Map.of(DAY.plusDays(1), "bbbb"), cache.stamp());
+    cache.getAll(List.of(DAY));
+
+    cache.putAll(Map.of(DAY.plusDays(2), "cccc"), cache.stamp());
+
+    assertThat(cache.getAll(List.of(DAY, DAY.plusDays(1), DAY.plusDays(2))).keySet())
+            .containsExactlyInAnyOrder(DAY, DAY.plusDays(2));
+    assertThat(cache.sizeInBytes()).isEqualTo(8);
+  }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DayBucketsTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+  @Test
+  void fullDays_ShouldIgnorePartialEdges() {
+    assertThat(DayBuckets.firstFullDay(DAY.atStartOfDay())).isEqualTo(DAY);
+    assertThat(DayBuckets.firstFullDay(DAY.atTime(0, 0, 1))).isEqualTo(DAY.plusDays(1));
+    assertThat(DayBuckets.lastFullDay(DAY.atTime(23, 59, 59))).isEqualTo(DAY);
+    assertThat(DayBuckets.lastFullDay(DAY.plusDays(1).atStartOfDay())).isEqualTo(DAY);
+    assertThat(DayBuckets.lastFullDay(DAY.atTime(12, 0))).isEqualTo(DAY.minusDays(1));
+  }
+
+  @Test
+  void rawIntervals_ShouldCoverEverythingOutsideBuiltDays() {
+    LocalDateTime start = DAY.atTime(15, 0);
+    LocalDateTime end = DAY.plusDays(4).atTime(9, 30);
+    // 11-е и 13-е свёрнуты, 12-е помечено поздними хитами
+    Set<LocalDate> built = Set.of(DAY.plusDays(1), DAY.plusDays(3));
+
+    List<DayBuckets.Interval> intervals = DayBuckets.rawIntervals(start, end, built::contains);
+
+    assertThat(intervals).containsExactly(
+            new DayBuckets.Interval(start, DAY.plusDays(1).atStartOfDay(), false),
+            new DayBuckets.Interval(DAY.plusDays(2).atStartOfDay(), DAY.plusDays(3).atStartOfDay(), false),
+            new DayBuckets.Interval(DAY.plusDays(4).atStartOfDay(), end, true));
+  }
+
+  @Test
+  void rawIntervals_WhenRangeIsBuiltDays_ShouldBeEmpty() {
+    List<DayBuckets.Interval> intervals = DayBuckets.rawIntervals(DAY.atStartOfDay(),
+            DAY.plusDays(1).atTime(23, 59, 59), Set.of(DAY, DAY.plusDays(1))::contains);
+
+    assertThat(intervals).isEmpty();
+  }
+}
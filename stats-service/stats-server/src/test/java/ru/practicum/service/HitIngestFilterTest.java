@@ -0,0 +1,87 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndPointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitIngestFilterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private SimpleMeterRegistry meterRegistry;
+  private HitIngestFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    // Окно 10 секунд из 5 отрезков по 2 секунды
+    SlidingBloomFilter seen = new SlidingBloomFilter(TimeUnit.SECONDS.toNanos(10), 5, 1000, 0.001, clock::get);
+    meterRegistry = new SimpleMeterRegistry();
+    filter = new HitIngestFilter(seen, true, List.of("bot", "crawl", "curl/"), meterRegistry);
+  }
+
+  @Test
+  void repeatedHit_ShouldBeDuplicateOnlyWithinWindow() {
+    EndPointHitDto hit = hit("/events/1", "10.0.0.1");
+    assertThat(filter.isDuplicate(hit)).isFalse();
+    filter.recordAccepted(hit);
+
+    advanceSeconds(9);
+    assertThat(filter.isDuplicate(hit)).isTrue();
+    assertThat(filter.isDuplicate(hit("/events/1", "10.0.0.2"))).isFalse();
+    assertThat(filter.isDuplicate(hit("/events/2", "10.0.0.1"))).isFalse();
+
+    advanceSeconds(3);
+    assertThat(filter.isDuplicate(hit)).isFalse();
+  }
+
+  @Test
+  void manyDistinctHits_ShouldRarelyBeReportedAsDuplicates() {
+    for (int i = 0; i < 1000; i++) {
+      filter.recordAccepted(hit("/events/" + i, "10.0.0.1"));
+    }
+    int falsePositives = 0;
+    for (int i = 1000; i < 11000; i++) {
+      if (filter.isDuplicate(hit("/events/" + i, "10.0.0.1"))) {
+        falsePositives++;
+      }
+    }
+
+    assertThat(falsePositives).isLessThan(50);
+  }
+
+  @Test
+  void isBot_ShouldMatchKnownAgentsIgnoringCase() {
+    assertThat(filter.isBot("Mozilla/5.0 (compatible; Googlebot/2.1)")).isTrue();
+    assertThat(filter.isBot("YandexCrawler")).isTrue();
+    assertThat(filter.isBot("curl/8.4.0")).isTrue();
+    assertThat(filter.isBot("Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0")).isFalse();
+    assertThat(filter.isBot(null)).isFalse();
+  }
+
+  @Test
+  void dedupRatio_ShouldCountDroppedShare() {
+    filter.recordAccepted(hit("/events/1", "10.0.0.1"));
+    filter.count(HitIngestFilter.Outcome.DUPLICATE);
+    filter.count(HitIngestFilter.Outcome.RETRY);
+    filter.count(HitIngestFilter.Outcome.BOT);
+
+    assertThat(meterRegistry.get("stats.ingest.dedup.ratio").gauge().value()).isEqualTo(0.5);
+    assertThat(meterRegistry.get("stats.ingest.hits").tag("outcome", "duplicate").counter().count())
+            .isEqualTo(1.0);
+  }
+
+  private void advanceSeconds(long seconds) {
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  private static EndPointHitDto hit(String uri, String ip) {
+    return new EndPointHitDto("ewm-main-service", uri, ip, LocalDateTime.now());
+  }
+}
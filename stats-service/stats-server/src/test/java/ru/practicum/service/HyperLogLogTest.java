@@ -0,0 +1,35 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+
+  @Test
+  void estimate_ShouldStayWithinStandardError() {
+    HyperLogLog sketch = new HyperLogLog(12);
+    for (int i = 0; i < 100_000; i++) {
+      sketch.add("10.0." + (i / 256) + "." + (i % 256));
+    }
+
+    // 1.04 / sqrt(4096) = 1.6%, допуск - три ошибки
+    assertThat(sketch.estimate()).isBetween(95_000L, 105_000L);
+    assertThat(sketch.sizeInBytes()).isEqualTo(4096);
+  }
+
+  @Test
+  void merge_ShouldCountOverlapOnce() {
+    HyperLogLog first = new HyperLogLog(12);
+    HyperLogLog second = new HyperLogLog(12);
+    for (int i = 0; i < 300; i++) {
+      first.add("ip-" + i);
+      second.add("ip-" + (i + 200));
+    }
+
+    first.merge(second);
+
+    // Малые значения считаются линейным подсчётом и почти точны
+    assertThat(first.estimate()).isBetween(490L, 510L);
+  }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Подбор stats.parallel.shard-days и stats.parallel.threads: годовой диапазон по всем uri.
+ *
+ * <p>База заменена моделью стоимости запроса: постоянная часть (план, сеть, транзакция шарда)
+ * плюс сканирование пропорционально числу дней шарда; шард отдаёт по строке на uri, строки
+ * сливаются как в настоящем запросе. Мелкие шарды платят постоянную часть чаще, крупные
+ * хуже делятся между потоками.
+ *
+ * <p>Запуск: {@code mvn -pl stats-service/stats-server test-compile exec:java
+ * -Dexec.mainClass=ru.practicum.service.ParallelStatsBenchmark -Dexec.classpathScope=test}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelStatsBenchmark {
+
+  private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+  private static final int RANGE_DAYS = 365;
+  private static final int URIS = 1000;
+  private static final long QUERY_OVERHEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+  private static final long SCAN_NANOS_PER_DAY = TimeUnit.MICROSECONDS.toNanos(200);
+
+  @Param({"7", "30", "90"})
+  private int shardDays;
+
+  @Param({"1", "2", "4", "8"})
+  private int threads;
+
+  private ParallelStats parallelStats;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    parallelStats = new ParallelStats(new SimulatedDatabase(), new TransactionTemplate(new NoTransactions()),
+            threads, shardDays, ParallelStats.UniqueMode.EXACT, 12, new SimpleMeterRegistry());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    parallelStats.shutdown();
+  }
+
+  @Benchmark
+  public List<ViewStatsDto> yearOfHits() {
+    return parallelStats.getStats(FIRST_DAY.atStartOfDay(), FIRST_DAY.plusDays(RANGE_DAYS).atStartOfDay(),
+            null, false);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+            .include(ParallelStatsBenchmark.class.getSimpleName())
+            .build()).run();
+  }
+
+  // Запрос шарда: ожидание по модели стоимости и строка (app, uri, count) на каждый uri
+  private static final class SimulatedDatabase extends NamedParameterJdbcTemplate {
+
+    SimulatedDatabase() {
+      super(new JdbcTemplate());
+    }
+
+    @Override
+    public void query(String sql, SqlParameterSource params, RowCallbackHandler handler) {
+      LocalDateTime from = ((Timestamp) params.getValue("start")).toLocalDateTime();
+      LocalDateTime to = ((Timestamp) params.getValue("end")).toLocalDateTime();
+      long days = Math.max(1, Duration.between(from, to).toDays());
+      LockSupport.parkNanos(QUERY_OVERHEAD_NANOS + days * SCAN_NANOS_PER_DAY);
+      int[] row = new int[1];
+      ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+              new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getString" -> (int) args[0] == 1 ? "ewm-main-service" : "/events/" + row[0];
+                case "getLong" -> days;
+                default -> throw new UnsupportedOperationException(method.getName());
+              });
+      try {
+        for (row[0] = 0; row[0] < URIS; row[0]++) {
+          handler.processRow(rs);
+        }
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static final class NoTransactions implements PlatformTransactionManager {
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+      return new SimpleTransactionStatus();
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+    }
+  }
+}
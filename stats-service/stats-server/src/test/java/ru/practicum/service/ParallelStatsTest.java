@@ -0,0 +1,150 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ParallelStatsTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+  private static final String APP = "ewm-main-service";
+
+  private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void shards_ShouldSplitRangeAndKeepInclusiveEnd() {
+    LocalDateTime start = DAY.atTime(10, 0);
+    LocalDateTime end = DAY.plusDays(25).atTime(23, 59, 59);
+
+    assertThat(ParallelStats.shards(start, end, 10)).containsExactly(
+            new DayBuckets.Interval(start, DAY.plusDays(10).atTime(10, 0), false),
+            new DayBuckets.Interval(DAY.plusDays(10).atTime(10, 0), DAY.plusDays(20).atTime(10, 0), false),
+            new DayBuckets.Interval(DAY.plusDays(20).atTime(10, 0), end, true));
+    assertThat(ParallelStats.shards(start, end, 0)).containsExactly(new DayBuckets.Interval(start, end, true));
+  }
+
+  @Test
+  void getStats_ShouldSumCountsAcrossShards() {
+    // 30 дней - три шарда по 10 дней, каждый отдаёт по 2 хита /events/1
+    answerPerShard((rs, start) -> {
+      when(rs.getLong(3)).thenReturn(2L);
+      return new String[][]{{APP, "/events/1"}};
+    });
+
+    List<ViewStatsDto> result = parallelStats(ParallelStats.UniqueMode.EXACT)
+            .getStats(DAY.atStartOfDay(), DAY.plusDays(30).atStartOfDay(), List.of("/events/1"), false);
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 6L));
+    assertThat(meterRegistry.get("stats.parallel.shards").counter().count()).isEqualTo(3.0);
+  }
+
+  @Test
+  void getStats_UniqueExact_ShouldMergeDistinctIpsAcrossShards() {
+    // Один и тот же ip во всех шардах и по одному ip, своему для шарда
+    answerPerShard((rs, start) -> {
+      when(rs.getString(3)).thenReturn("10.0.0.1", "10.1.0." + start.toLocalDateTime().getDayOfMonth());
+      return new String[][]{{APP, "/events/1"}, {APP, "/events/1"}};
+    });
+
+    List<ViewStatsDto> result = parallelStats(ParallelStats.UniqueMode.EXACT)
+            .getStats(DAY.atStartOfDay(), DAY.plusDays(30).atStartOfDay(), null, true);
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 1L + 3L));
+  }
+
+  @Test
+  void getStats_UniqueApproximate_ShouldMergeSketches() {
+    answerPerShard((rs, start) -> {
+      when(rs.getString(3)).thenReturn("10.0.0.1", "10.1.0." + start.toLocalDateTime().getDayOfMonth());
+      return new String[][]{{APP, "/events/1"}, {APP, "/events/1"}};
+    });
+
+    List<ViewStatsDto> result = parallelStats(ParallelStats.UniqueMode.APPROXIMATE)
+            .getStats(DAY.atStartOfDay(), DAY.plusDays(30).atStartOfDay(), null, true);
+
+    assertThat(result).containsExactly(new ViewStatsDto(APP, "/events/1", 4L));
+  }
+
+  @Test
+  void runShards_WhenShardFails_ShouldRethrow() {
+    ParallelStats parallelStats = parallelStats(ParallelStats.UniqueMode.EXACT);
+    List<Callable<Integer>> tasks = List.of(() -> 1, () -> {
+      throw new IllegalStateException("shard failed");
+    });
+
+    assertThatThrownBy(() -> parallelStats.runShards(tasks))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("shard failed");
+  }
+
+  @Test
+  void runShards_InCallerTransaction_ShouldRunOnCallerThreadWithoutExtraConnections() {
+    ParallelStats parallelStats = parallelStats(ParallelStats.UniqueMode.EXACT);
+    Thread caller = Thread.currentThread();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      List<Boolean> onCaller = parallelStats.runShards(List.of(
+              () -> Thread.currentThread() == caller, () -> Thread.currentThread() == caller));
+
+      assertThat(onCaller).containsExactly(true, true);
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+  }
+
+  @Test
+  void maxThreads_ShouldLeaveHalfOfConnectionPool() {
+    assertThat(ParallelStats.maxThreads(8, 10)).isEqualTo(5);
+    assertThat(ParallelStats.maxThreads(4, 10)).isEqualTo(4);
+    assertThat(ParallelStats.maxThreads(4, 1)).isEqualTo(1);
+  }
+
+  private ParallelStats parallelStats(ParallelStats.UniqueMode mode) {
+    return new ParallelStats(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            2, 10, mode, 12, meterRegistry);
+  }
+
+  // Каждый шард отдаёт строки (app, uri) через один ResultSet, остальные колонки настраивает rows
+  private void answerPerShard(ShardRows rows) {
+    doAnswer(invocation -> {
+      SqlParameterSource params = invocation.getArgument(1);
+      RowCallbackHandler handler = invocation.getArgument(2);
+      ResultSet rs = mock(ResultSet.class);
+      String[][] keys = rows.configure(rs, (Timestamp) params.getValue("start"));
+      for (String[] key : keys) {
+        when(rs.getString(1)).thenReturn(key[0]);
+        when(rs.getString(2)).thenReturn(key[1]);
+        handler.processRow(rs);
+      }
+      return null;
+    }).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+  }
+
+  @FunctionalInterface
+  private interface ShardRows {
+    String[][] configure(ResultSet rs, Timestamp start) throws SQLException;
+  }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.TimeSeriesInterval;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeSeriesServiceTest {
+
+  private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+  @Test
+  void segments_ShouldInterleaveRawIntervalsAndRolledUpRunsInTimeOrder() {
+    LocalDateTime start = DAY.atTime(15, 0);
+    LocalDateTime end = DAY.plusDays(4).atTime(9, 30);
+    // 11-е и 12-е свёрнуты, 13-е получило поздние хиты
+    Set<LocalDate> rolledUp = Set.of(DAY.plusDays(1), DAY.plusDays(2));
+
+    assertThat(TimeSeriesService.segments(start, end, rolledUp)).containsExactly(
+            new TimeSeriesService.Segment(new DayBuckets.Interval(start, DAY.plusDays(1).atStartOfDay(), false), false),
+            new TimeSeriesService.Segment(new DayBuckets.Interval(DAY.plusDays(1).atStartOfDay(),
+                    DAY.plusDays(3).atStartOfDay(), false), true),
+            new TimeSeriesService.Segment(new DayBuckets.Interval(DAY.plusDays(3).atStartOfDay(), end, true), false));
+  }
+
+  @Test
+  void buckets_ShouldCountPartialEdgeBuckets() {
+    assertThat(TimeSeriesInterval.HOUR.buckets(DAY.atTime(10, 30), DAY.atTime(12, 15))).isEqualTo(3);
+    assertThat(TimeSeriesInterval.DAY.buckets(DAY.atStartOfDay(), DAY.plusDays(6).atTime(23, 59, 59))).isEqualTo(7);
+    assertThat(TimeSeriesInterval.MINUTE.buckets(DAY.atTime(10, 0), DAY.atTime(10, 0))).isEqualTo(1);
+  }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UriPatternsTest {
+
+  @Test
+  void ranges_ShouldTurnPatternsIntoPrefixRanges() {
+    List<UriPatterns.Range> ranges = UriPatterns.ranges(List.of("/events/*", "/compilations/1"), true);
+
+    assertThat(ranges).containsExactly(
+            new UriPatterns.Range("/events/*", "/events/", "/events0"),
+            new UriPatterns.Range("/compilations/1", "/compilations/1", "/compilations/1\u0001"));
+  }
+
+  @Test
+  void ranges_Disjoint_ShouldDropValuesCoveredByShorterPrefix() {
+    List<UriPatterns.Range> ranges = UriPatterns.ranges(List.of("/events/1*", "/events/*", "/events/7"), true);
+
+    assertThat(ranges).extracting(UriPatterns.Range::label).containsExactly("/events/*");
+  }
+
+  @Test
+  void ranges_ForGrouping_ShouldKeepOverlappingPatterns() {
+    List<UriPatterns.Range> ranges = UriPatterns.ranges(List.of("/events/1*", "/events/*"), false);
+
+    assertThat(ranges).extracting(UriPatterns.Range::label).containsExactly("/events/1*", "/events/*");
+  }
+
+  @Test
+  void ranges_WithInnerWildcard_ShouldThrowException() {
+    assertThatThrownBy(() -> UriPatterns.ranges(List.of("/events/*/comments"), true))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> UriPatterns.ranges(List.of("*"), true))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void upperBound_ShouldCarryPastMaxCodePoint() {
+    assertThat(UriPatterns.upperBound("/a")).isEqualTo("/b");
+    assertThat(UriPatterns.upperBound("/a" + new String(Character.toChars(Character.MAX_CODE_POINT))))
+            .isEqualTo("/b");
+    assertThat(UriPatterns.upperBound("/\uD7FF")).isEqualTo("/\uE000");
+  }
+}
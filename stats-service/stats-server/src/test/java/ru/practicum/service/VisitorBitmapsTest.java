@@ -0,0 +1,59 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisitorBitmapsTest {
+
+  @Test
+  void serializedBitmaps_ShouldUnionToExactUniqueCount() {
+    RoaringBitmap monday = RoaringBitmap.bitmapOf(1, 2, 3, 100_000);
+    RoaringBitmap tuesday = new RoaringBitmap();
+    tuesday.add(2L, 50_000L);
+
+    RoaringBitmap union = VisitorBitmaps.deserialize(VisitorBitmaps.serialize(monday));
+    union.or(VisitorBitmaps.deserialize(VisitorBitmaps.serialize(tuesday)));
+
+    assertThat(union.getLongCardinality()).isEqualTo(50_000 - 2 + 2);
+  }
+
+  @Test
+  void getUniqueStats_WithColdCache_ShouldCacheLatestDaysAndReadTheRestForRequestedUris() {
+    NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    LocalDate first = LocalDate.of(2024, 5, 1);
+    LocalDate last = first.plusDays(2);
+    when(jdbcTemplate.queryForList(startsWith("SELECT visit_date FROM visitor_rollup_days"),
+            any(SqlParameterSource.class), eq(LocalDate.class)))
+            .thenReturn(List.of(first, first.plusDays(1), last));
+    VisitorBitmaps bitmaps = new VisitorBitmaps(jdbcTemplate, mock(PlatformTransactionManager.class), true, 31,
+            true, 1 << 20, 1, new SimpleMeterRegistry());
+
+    bitmaps.getUniqueStats(first.atStartOfDay(), last.atTime(23, 59, 59), List.of("/events/1"));
+
+    // Самый поздний день - по всем uri в кэш, два ранних - только по запрошенному uri
+    verify(jdbcTemplate).query(eq("SELECT d.visit_date, d.app, d.uri, d.visitors FROM daily_visitors d " +
+            "WHERE d.visit_date IN (:days)"), argThat((SqlParameterSource params) ->
+            List.of(last).equals(params.getValue("days"))), any(RowCallbackHandler.class));
+    verify(jdbcTemplate).query(eq("SELECT d.visit_date, d.app, d.uri, d.visitors FROM daily_visitors d " +
+            "WHERE d.visit_date IN (:days) AND d.uri IN (:uris)"), argThat((SqlParameterSource params) ->
+            ((Collection<?>) params.getValue("days")).size() == 2), any(RowCallbackHandler.class));
+  }
+}